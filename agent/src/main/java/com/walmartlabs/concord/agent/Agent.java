@@ -31,6 +31,8 @@ import com.walmartlabs.concord.agent.mmode.MaintenanceModeNotifier;
 import com.walmartlabs.concord.client.ProcessEntry.StatusEnum;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.server.queueclient.QueueClient;
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.ProcessBatchResponse;
 import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
 import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
 import org.slf4j.Logger;
@@ -42,8 +44,7 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -103,7 +104,7 @@ public class Agent {
         startMaintenanceModeNotifier(queueClient);
 
         if (dockerCfg.isOrphanSweeperEnabled()) {
-            executor.submit(new OrphanSweeper(this::isAlive, dockerCfg.getOrphanSweeperPeriod()));
+            executor.submit(new OrphanSweeper(this::findAlive, dockerCfg.getOrphanSweeperPeriod()));
         }
 
         // start the command handler in a separate thread
@@ -115,22 +116,22 @@ public class Agent {
             // check if the maintenance mode is enabled. If so, hang there indefinitely
             validateMaintenanceMode();
 
-            // TODO parallel acquire?
-            // wait for a free "slot"
+            // wait for a free "slot" and grab all other free slots
             workersAvailable.acquire();
-            log.info("run -> acquired a slot, {}/{} remains", workersAvailable.availablePermits(), workersCount);
+            int slots = 1 + workersAvailable.drainPermits();
+            log.info("run -> acquired {} slot(s), {}/{} remains", slots, workersAvailable.availablePermits(), workersCount);
 
-            // fetch the next job
-            JobRequest jobRequest;
+            // fetch the next jobs, up to one per slot
+            List<JobRequest> jobRequests;
             try {
-                jobRequest = take(queueClient);
+                jobRequests = take(queueClient, slots);
             } catch (InterruptedException e) {
                 log.info("run -> interrupted, exiting...");
                 return;
             } catch (Exception e) {
                 log.error("run -> error while fetching a job: {}", e.getMessage(), e);
 
-                workersAvailable.release();
+                workersAvailable.release(slots);
 
                 // wait before retrying
                 // the server is not reachable or unhealthy, no point retrying immediately
@@ -138,29 +139,35 @@ public class Agent {
                 continue;
             }
 
-            if (jobRequest == null) {
-                // can happen on switching to maintenance mode or reconnecting, etc
-                workersAvailable.release();
-                continue;
+            // the server can return fewer jobs than requested
+            // (or none at all on switching to maintenance mode, reconnecting, etc)
+            if (jobRequests.size() < slots) {
+                workersAvailable.release(slots - jobRequests.size());
             }
 
-            UUID instanceId = jobRequest.getInstanceId();
-
-            // worker will handle the process' lifecycle
-            try {
-                Worker w = injector.createChildInjector(new WorkerModule(agentCfg.getAgentId(), instanceId, jobRequest.getSessionToken()))
-                        .getInstance(WorkerFactory.class)
-                        .create(jobRequest, createStatusCallback(instanceId, workersAvailable));
+            for (JobRequest jobRequest : jobRequests) {
+                startWorker(jobRequest);
+            }
+        }
+    }
 
-                // register the worker so we can cancel it later
-                activeWorkers.put(instanceId, w);
+    private void startWorker(JobRequest jobRequest) {
+        UUID instanceId = jobRequest.getInstanceId();
 
-                // start a new thread to process the job
-                executor.submit(w);
-            } catch (Exception e) {
-                log.error("run -> error while submitting worker: {}", e.getMessage());
-                workersAvailable.release();
-            }
+        // worker will handle the process' lifecycle
+        try {
+            Worker w = injector.createChildInjector(new WorkerModule(agentCfg.getAgentId(), instanceId, jobRequest.getSessionToken()))
+                    .getInstance(WorkerFactory.class)
+                    .create(jobRequest, createStatusCallback(instanceId, workersAvailable));
+
+            // register the worker so we can cancel it later
+            activeWorkers.put(instanceId, w);
+
+            // start a new thread to process the job
+            executor.submit(w);
+        } catch (Exception e) {
+            log.error("run -> error while submitting worker: {}", e.getMessage());
+            workersAvailable.release();
         }
     }
 
@@ -199,8 +206,14 @@ public class Agent {
         }
     }
 
-    private boolean isAlive(UUID instanceId) {
-        return activeWorkers.containsKey(instanceId);
+    private Set<UUID> findAlive(Collection<UUID> instanceIds) {
+        Set<UUID> result = new HashSet<>();
+        for (UUID id : instanceIds) {
+            if (activeWorkers.containsKey(id)) {
+                result.add(id);
+            }
+        }
+        return result;
     }
 
     private CompletionCallback createStatusCallback(UUID instanceId, Semaphore workersAvailable) {
@@ -223,17 +236,28 @@ public class Agent {
         };
     }
 
-    private JobRequest take(QueueClient queueClient) throws Exception {
-        Future<ProcessResponse> req = queueClient.request(new ProcessRequest(agentCfg.getCapabilities()));
+    private List<JobRequest> take(QueueClient queueClient, int maxProcesses) throws Exception {
+        Future<Message> req = queueClient.request(new ProcessRequest(agentCfg.getCapabilities(), maxProcesses));
 
-        ProcessResponse resp = req.get();
+        Message resp = req.get();
         if (resp == null) {
-            return null;
+            return Collections.emptyList();
         }
 
-        Path workDir = IOUtils.createTempDir(agentCfg.getPayloadDir(), "workDir");
+        // older servers always respond with a single process
+        List<ProcessResponse> processes;
+        if (resp instanceof ProcessBatchResponse) {
+            processes = ((ProcessBatchResponse) resp).getProcesses();
+        } else {
+            processes = Collections.singletonList((ProcessResponse) resp);
+        }
 
-        return JobRequest.from(resp, workDir);
+        List<JobRequest> result = new ArrayList<>(processes.size());
+        for (ProcessResponse p : processes) {
+            Path workDir = IOUtils.createTempDir(agentCfg.getPayloadDir(), "workDir");
+            result.add(JobRequest.from(p, workDir));
+        }
+        return result;
     }
 
     private void cancel(UUID instanceId) {
@@ -36,6 +36,9 @@ public class DockerConfiguration {
     private final boolean orphanSweeperEnabled;
     private final long orphanSweeperPeriod;
     private final List<String> extraVolumes;
+    private final boolean imageCacheEnabled;
+    private final long imageCacheTtl;
+    private final boolean prePullEnabled;
 
     @Inject
     public DockerConfiguration(Config cfg) {
@@ -43,6 +46,9 @@ public class DockerConfiguration {
         this.orphanSweeperEnabled = cfg.getBoolean("docker.orphanSweeperEnabled");
         this.orphanSweeperPeriod = cfg.getDuration("docker.orphanSweeperPeriod", TimeUnit.MILLISECONDS);
         this.extraVolumes = cfg.getStringList("docker.extraVolumes");
+        this.imageCacheEnabled = cfg.getBoolean("docker.imageCacheEnabled");
+        this.imageCacheTtl = cfg.getDuration("docker.imageCacheTtl", TimeUnit.MILLISECONDS);
+        this.prePullEnabled = cfg.getBoolean("docker.prePullEnabled");
     }
 
     public String getDockerHost() {
@@ -60,4 +66,16 @@ public class DockerConfiguration {
     public List<String> getExtraVolumes() {
         return extraVolumes;
     }
+
+    public boolean isImageCacheEnabled() {
+        return imageCacheEnabled;
+    }
+
+    public long getImageCacheTtl() {
+        return imageCacheTtl;
+    }
+
+    public boolean isPrePullEnabled() {
+        return prePullEnabled;
+    }
 }
@@ -0,0 +1,152 @@
+package com.walmartlabs.concord.agent.docker;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * {@link DockerCli} implementation that uses the {@code docker} command.
+ */
+public class DefaultDockerCli implements DockerCli {
+
+    private static final int MAX_ERROR_LINES = 5;
+
+    @Override
+    public void pull(String image) throws IOException, InterruptedException {
+        exec(new String[]{"docker", "pull", image});
+    }
+
+    @Override
+    public String digest(String image) throws IOException, InterruptedException {
+        List<String> digests = exec(new String[]{"docker", "image", "inspect",
+                "--format", "{{range .RepoDigests}}{{println .}}{{end}}", image});
+
+        if (digests.isEmpty()) {
+            return null;
+        }
+
+        // an image can be known under several repositories, prefer the one it was requested with
+        String repo = repository(image);
+        for (String d : digests) {
+            if (d.startsWith(repo + "@")) {
+                return d;
+            }
+        }
+
+        return digests.get(0);
+    }
+
+    @Override
+    public Map<String, String> containers(String label) throws IOException, InterruptedException {
+        List<String> lines = exec(new String[]{"docker", "ps", "-a",
+                "--filter", "label=" + label,
+                "--format", "{{.ID}} {{.Label \"" + label + "\"}}"});
+
+        Map<String, String> result = new HashMap<>();
+        for (String l : lines) {
+            String[] as = l.split(" ", 2);
+            result.put(as[0], as.length > 1 ? as[1] : "");
+        }
+        return result;
+    }
+
+    @Override
+    public void remove(String containerId) throws IOException, InterruptedException {
+        exec(new String[]{"docker", "rm", "-f", containerId});
+    }
+
+    @Override
+    public EventStream events(String label) throws IOException {
+        Process p = new ProcessBuilder()
+                .command("docker", "events",
+                        "--filter", "type=container",
+                        "--filter", "label=" + label,
+                        "--filter", "event=create",
+                        "--filter", "event=destroy",
+                        "--format", "{{.Action}} {{.Actor.ID}} {{index .Actor.Attributes \"" + label + "\"}}")
+                .redirectErrorStream(true)
+                .start();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+
+        return new EventStream() {
+            @Override
+            public String next() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() {
+                // also unblocks the pending next() calls
+                p.destroy();
+            }
+        };
+    }
+
+    /**
+     * Strips the tag from the image name, e.g. {@code host:5000/foo/bar:1.0} becomes
+     * {@code host:5000/foo/bar}.
+     */
+    static String repository(String image) {
+        int slash = image.lastIndexOf('/');
+        int colon = image.lastIndexOf(':');
+        if (colon > slash) {
+            return image.substring(0, colon);
+        }
+        return image;
+    }
+
+    private static List<String> exec(String[] cmd) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder()
+                .command(cmd)
+                .redirectErrorStream(true)
+                .start();
+
+        List<String> lines = new ArrayList<>();
+        LinkedList<String> tail = new LinkedList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                lines.add(line);
+
+                tail.add(line);
+                if (tail.size() > MAX_ERROR_LINES) {
+                    tail.removeFirst();
+                }
+            }
+        }
+
+        int code = p.waitFor();
+        if (code != 0) {
+            throw new IOException("Error while executing a command " + String.join(" ", cmd) + ": docker exit code " + code + ", " + String.join("\n", tail));
+        }
+
+        return lines;
+    }
+}
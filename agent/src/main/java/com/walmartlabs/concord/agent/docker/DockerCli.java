@@ -0,0 +1,70 @@
+package com.walmartlabs.concord.agent.docker;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Docker operations required by {@link ImageManager} and {@link OrphanSweeper}.
+ */
+public interface DockerCli {
+
+    /**
+     * Pulls the specified image from its registry.
+     */
+    void pull(String image) throws IOException, InterruptedException;
+
+    /**
+     * Returns the digest reference (e.g. {@code repo@sha256:...}) of a local
+     * image or {@code null} if the image has no registry digests.
+     */
+    String digest(String image) throws IOException, InterruptedException;
+
+    /**
+     * Returns the IDs of all containers (including stopped ones) with the
+     * specified label mapped to the label's value.
+     */
+    Map<String, String> containers(String label) throws IOException, InterruptedException;
+
+    /**
+     * Forcefully removes the specified container.
+     */
+    void remove(String containerId) throws IOException, InterruptedException;
+
+    /**
+     * Subscribes to {@code create} and {@code destroy} events of containers with
+     * the specified label.
+     */
+    EventStream events(String label) throws IOException;
+
+    interface EventStream extends Closeable {
+
+        /**
+         * Blocks until the next event is available. Events are formatted as
+         * {@code "<action> <container ID> <label value>"}.
+         *
+         * @return the next event or {@code null} if the stream is closed
+         */
+        String next() throws IOException;
+    }
+}
@@ -0,0 +1,214 @@
+package com.walmartlabs.concord.agent.docker;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agent.cfg.DockerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Resolves Docker image tags into pinned digest references. Resolved digests
+ * are shared by all processes running on the agent and are kept for
+ * {@code docker.imageCacheTtl}. Concurrent requests for the same image
+ * are coalesced into a single {@code docker pull}.
+ */
+@Named
+@Singleton
+public class ImageManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageManager.class);
+
+    private final DockerCli cli;
+    private final boolean cacheEnabled;
+    private final long ttl;
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<String, CachedImage> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<CachedImage>> inFlight = new ConcurrentHashMap<>();
+
+    @Inject
+    public ImageManager(DockerConfiguration cfg) {
+        this(new DefaultDockerCli(), cfg.isImageCacheEnabled(), cfg.getImageCacheTtl(), System::currentTimeMillis);
+    }
+
+    ImageManager(DockerCli cli, boolean cacheEnabled, long ttl, LongSupplier clock) {
+        this.cli = cli;
+        this.cacheEnabled = cacheEnabled;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a digest reference for the specified image, pulling the image
+     * if it is not in the cache or if the cached entry has expired.
+     */
+    public PullResult resolve(String image) throws IOException, InterruptedException {
+        long t1 = clock.getAsLong();
+
+        if (isPinned(image)) {
+            return new PullResult(image, image, PullResult.Source.CACHED, 0);
+        }
+
+        if (cacheEnabled) {
+            CachedImage c = cache.get(image);
+            if (c != null && c.expiresAt > t1) {
+                return new PullResult(image, c.reference, PullResult.Source.CACHED, 0);
+            }
+        }
+
+        CompletableFuture<CachedImage> f = new CompletableFuture<>();
+        CompletableFuture<CachedImage> existing = inFlight.putIfAbsent(image, f);
+        if (existing != null) {
+            // someone else is already pulling the same image, wait for them
+            CachedImage c = await(image, existing);
+            return new PullResult(image, c.reference, PullResult.Source.COALESCED, clock.getAsLong() - t1);
+        }
+
+        try {
+            cli.pull(image);
+            String reference = cli.digest(image);
+            if (reference == null) {
+                // locally built images have no repo digests, use the image as is
+                reference = image;
+            }
+
+            long t2 = clock.getAsLong();
+
+            CachedImage c = new CachedImage(reference, t2 + ttl);
+            if (cacheEnabled) {
+                cache.put(image, c);
+            }
+
+            f.complete(c);
+
+            log.info("resolve ['{}'] -> pulled in {}ms: {}", image, t2 - t1, reference);
+            return new PullResult(image, reference, PullResult.Source.PULLED, t2 - t1);
+        } catch (Throwable e) {
+            f.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(image, f);
+        }
+    }
+
+    /**
+     * Removes expired entries from the cache.
+     */
+    public void evictExpired() {
+        long now = clock.getAsLong();
+        cache.entrySet().removeIf(e -> e.getValue().expiresAt <= now);
+    }
+
+    private static CachedImage await(String image, CompletableFuture<CachedImage> f) throws IOException, InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw new IOException("Pulling of " + image + " was interrupted");
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error while pulling " + image + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private static boolean isPinned(String image) {
+        return image.contains("@sha256:");
+    }
+
+    private static final class CachedImage {
+
+        private final String reference;
+        private final long expiresAt;
+
+        private CachedImage(String reference, long expiresAt) {
+            this.reference = reference;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static final class PullResult {
+
+        public enum Source {
+            /**
+             * The digest was taken from the agent's cache.
+             */
+            CACHED,
+
+            /**
+             * The image was pulled by the current request.
+             */
+            PULLED,
+
+            /**
+             * The image was pulled by a concurrent request for the same image.
+             */
+            COALESCED
+        }
+
+        private final String image;
+        private final String reference;
+        private final Source source;
+        private final long duration;
+
+        public PullResult(String image, String reference, Source source, long duration) {
+            this.image = image;
+            this.reference = reference;
+            this.source = source;
+            this.duration = duration;
+        }
+
+        public String getImage() {
+            return image;
+        }
+
+        /**
+         * @return the pinned image reference, e.g. {@code library/alpine@sha256:...}
+         */
+        public String getReference() {
+            return reference;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * @return time spent pulling or waiting for the image, in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+}
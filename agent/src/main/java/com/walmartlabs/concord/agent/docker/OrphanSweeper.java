@@ -24,29 +24,44 @@ import com.walmartlabs.concord.common.DockerProcessBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * Removes Docker containers of processes that are no longer running on the agent.
+ * <p>
+ * The list of containers is kept up to date using the {@code docker events} stream,
+ * {@code docker ps} is used only to (re)synchronize the list when the stream is
+ * (re)connected or when the list is known to be stale.
+ */
 public class OrphanSweeper implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(OrphanSweeper.class);
 
-    private static final String[] PS_CMD = {"docker", "ps", "-a",
-            "--filter", "label=" + DockerProcessBuilder.CONCORD_TX_ID_LABEL,
-            "--format", "{{.Label \"" + DockerProcessBuilder.CONCORD_TX_ID_LABEL + "\"}} {{.ID}}"};
+    private static final String LABEL = DockerProcessBuilder.CONCORD_TX_ID_LABEL;
 
     private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_PARALLEL_REMOVALS = 4;
 
+    private final DockerCli docker;
     private final StatusChecker statusChecker;
     private final long period;
 
+    /**
+     * Container ID -> process instance ID.
+     */
+    private final Map<String, UUID> containers = new ConcurrentHashMap<>();
+
+    private volatile boolean resync = true;
+    private volatile DockerCli.EventStream eventStream;
+
     public OrphanSweeper(StatusChecker statusChecker, long period) {
+        this(new DefaultDockerCli(), statusChecker, period);
+    }
+
+    OrphanSweeper(DockerCli docker, StatusChecker statusChecker, long period) {
+        this.docker = docker;
         this.statusChecker = statusChecker;
         this.period = period;
     }
@@ -55,101 +70,215 @@ public class OrphanSweeper implements Runnable {
     public void run() {
         log.info("run -> removing orphaned Docker containers...");
 
-        while (!Thread.currentThread().isInterrupted()) {
-            try {
-                Map<UUID, String> containers = findContainers();
-                log.debug("run -> found {} container(s)...", containers.size());
-
-                for (Map.Entry<UUID, String> c : containers.entrySet()) {
-                    UUID instanceId = c.getKey();
-                    if (statusChecker.isAlive(instanceId)) {
-                        continue;
-                    }
-
-                    String cId = c.getValue();
-                    log.warn("run -> found an orphaned container {} (process {}), attempting to kill...", cId, instanceId);
-                    killContainer(cId);
-                }
+        Thread events = new Thread(this::watchEvents, "orphan-sweeper-events");
+        events.setDaemon(true);
+        events.start();
 
-                sleep(period);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                log.warn("run -> error: {}, retrying in {}ms...", e.getMessage(), RETRY_DELAY);
-                sleep(RETRY_DELAY);
+        ExecutorService removals = Executors.newFixedThreadPool(MAX_PARALLEL_REMOVALS, r -> {
+            Thread t = new Thread(r, "orphan-sweeper-removal");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    syncIfRequired();
+
+                    log.debug("run -> tracking {} container(s)...", containers.size());
+                    sweep(removals);
+
+                    sleep(period);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.warn("run -> error: {}, retrying in {}ms...", e.getMessage(), RETRY_DELAY);
+                    resync = true;
+                    sleep(RETRY_DELAY);
+                }
             }
+        } finally {
+            events.interrupt();
+            closeEvents();
+            removals.shutdownNow();
         }
     }
 
-    private static void sleep(long ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    /**
+     * Updates the list of tracked containers with the output of {@code docker ps}
+     * if the list is stale.
+     */
+    void syncIfRequired() throws IOException, InterruptedException {
+        if (!resync) {
+            return;
         }
+
+        resync = false;
+
+        // only the entries tracked before "docker ps" can be pruned, the containers
+        // created while it runs might be missing from its output
+        Set<String> stale = new HashSet<>(containers.keySet());
+
+        Map<String, UUID> found = findContainers();
+        stale.removeAll(found.keySet());
+        containers.keySet().removeAll(stale);
+        containers.putAll(found);
     }
 
-    private static Map<UUID, String> findContainers() throws IOException, InterruptedException {
-        Map<UUID, String> ids = new HashMap<>();
-        exec(PS_CMD, line -> {
-            int idx = line.indexOf(" ");
-            if (idx < 0 || idx + 1 >= line.length()) {
-                log.warn("findContainers -> invalid line: {}", line);
-                return null;
+    void sweep(ExecutorService removals) throws InterruptedException, ExecutionException {
+        if (containers.isEmpty()) {
+            return;
+        }
+
+        // check all processes at once
+        Map<String, UUID> snapshot = new HashMap<>(containers);
+        Set<UUID> alive = statusChecker.findAlive(new HashSet<>(snapshot.values()));
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (Map.Entry<String, UUID> c : snapshot.entrySet()) {
+            UUID instanceId = c.getValue();
+            if (alive.contains(instanceId)) {
+                continue;
             }
 
-            UUID k = UUID.fromString(line.substring(0, idx));
-            String v = line.substring(idx + 1);
+            String cId = c.getKey();
+            log.warn("sweep -> found an orphaned container {} (process {}), attempting to kill...", cId, instanceId);
 
-            ids.put(k, v);
+            futures.add(removals.submit(() -> {
+                try {
+                    docker.remove(cId);
+                    containers.remove(cId);
+                    log.info("sweep -> done, {} removed", cId);
+                } catch (IOException e) {
+                    // the container might be already gone, refresh the list on the next iteration
+                    log.warn("sweep -> error while removing {}: {}", cId, e.getMessage());
+                    resync = true;
+                }
+                return null;
+            }));
+        }
 
-            return null;
-        });
-        return ids;
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    /**
+     * Reads the event stream until it is closed.
+     */
+    void readEvents() throws IOException {
+        try (DockerCli.EventStream s = docker.events(LABEL)) {
+            eventStream = s;
+
+            // pick up the containers created before the stream was established
+            resync = true;
+
+            String line;
+            while ((line = s.next()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                onEvent(line);
+            }
+        } finally {
+            eventStream = null;
+        }
     }
 
-    private static void killContainer(String cId) throws IOException, InterruptedException {
-        Process b = new ProcessBuilder()
-                .command(createKillCommand(cId))
-                .start();
+    void onEvent(String line) {
+        String[] as = line.trim().split(" ");
+        if (as.length != 3) {
+            log.warn("onEvent -> invalid line: {}", line);
+            return;
+        }
+
+        String action = as[0];
+        String cId = as[1];
+
+        if ("destroy".equals(action)) {
+            containers.remove(cId);
+            return;
+        }
+
+        if (!"create".equals(action)) {
+            return;
+        }
 
-        int code = b.waitFor();
-        if (code != 0) {
-            throw new IOException("Error while removing a container " + cId + ": docker exit code " + code);
+        UUID instanceId = parseInstanceId(as[2]);
+        if (instanceId == null) {
+            log.warn("onEvent -> invalid line: {}", line);
+            return;
         }
 
-        log.info("killContainer -> done, {} removed", cId);
+        containers.put(cId, instanceId);
     }
 
-    private static String[] createKillCommand(String cId) {
-        return new String[]{"docker", "rm", "-f", cId};
+    Map<String, UUID> containers() {
+        return new HashMap<>(containers);
     }
 
-    private static void exec(String[] cmd, Function<String, Void> callback) throws IOException, InterruptedException {
-        Process b = new ProcessBuilder()
-                .command(cmd)
-                .redirectErrorStream(true)
-                .start();
+    private void watchEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                readEvents();
+                log.warn("watchEvents -> the event stream is closed, reconnecting in {}ms...", RETRY_DELAY);
+            } catch (Exception e) {
+                log.warn("watchEvents -> error: {}, reconnecting in {}ms...", e.getMessage(), RETRY_DELAY);
+            }
 
-        int code = b.waitFor();
-        if (code != 0) {
-            throw new IOException("Error while executing a command " + String.join(" ", cmd) + " : docker exit code " + code);
+            sleep(RETRY_DELAY);
         }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(b.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
+    private void closeEvents() {
+        DockerCli.EventStream s = eventStream;
+        if (s == null) {
+            return;
+        }
+
+        try {
+            s.close();
+        } catch (IOException e) {
+            log.warn("closeEvents -> error: {}", e.getMessage());
+        }
+    }
 
-                callback.apply(line);
+    private Map<String, UUID> findContainers() throws IOException, InterruptedException {
+        Map<String, UUID> result = new HashMap<>();
+        docker.containers(LABEL).forEach((cId, v) -> {
+            UUID instanceId = parseInstanceId(v);
+            if (instanceId == null) {
+                log.warn("findContainers -> invalid label value: {} ({})", v, cId);
+                return;
             }
+
+            result.put(cId, instanceId);
+        });
+        return result;
+    }
+
+    private static UUID parseInstanceId(String s) {
+        try {
+            return UUID.fromString(s);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     public interface StatusChecker {
 
-        boolean isAlive(UUID instanceId);
+        /**
+         * Returns the subset of the specified process instance IDs that are still running.
+         */
+        Set<UUID> findAlive(Collection<UUID> instanceIds);
     }
 }
@@ -23,6 +23,7 @@ package com.walmartlabs.concord.agent.executors;
 import com.walmartlabs.concord.agent.ConfiguredJobRequest;
 import com.walmartlabs.concord.agent.JobRequest;
 import com.walmartlabs.concord.agent.cfg.*;
+import com.walmartlabs.concord.agent.docker.ImageManager;
 import com.walmartlabs.concord.agent.executors.runner.DefaultDependencies;
 import com.walmartlabs.concord.agent.executors.runner.ProcessPool;
 import com.walmartlabs.concord.agent.executors.runner.RunnerJobExecutor;
@@ -56,6 +57,7 @@ public class JobExecutorFactory {
     private final ProcessLog processLog;
     private final AttachmentsUploader attachmentsUploader;
     private final ProcessLogFactory processLogFactory;
+    private final ImageManager imageManager;
 
     private final ExecutorService executor;
 
@@ -70,7 +72,8 @@ public class JobExecutorFactory {
                               ProcessPool processPool,
                               ProcessLog processLog,
                               AttachmentsUploader attachmentsUploader,
-                              ProcessLogFactory processLogFactory) {
+                              ProcessLogFactory processLogFactory,
+                              ImageManager imageManager) {
 
         this.agentCfg = agentCfg;
         this.serverCfg = serverCfg;
@@ -85,6 +88,7 @@ public class JobExecutorFactory {
         this.processLog = processLog;
         this.attachmentsUploader = attachmentsUploader;
         this.processLogFactory = processLogFactory;
+        this.imageManager = imageManager;
 
         this.executor = Executors.newCachedThreadPool();
     }
@@ -121,9 +125,10 @@ public class JobExecutorFactory {
                     .segmentedLogs(segmentedLogs)
                     .logDir(agentCfg.getLogDir())
                     .persistentWorkDir(runnerCfg.getPersistentWorkDir())
+                    .prePullImages(dockerCfg.isPrePullEnabled())
                     .build();
 
-            JobExecutor delegate = new RunnerJobExecutor(runnerExecutorCfg, dependencyManager, defaultDependencies, attachmentsUploader, processPool, processLogFactory, executor);
+            JobExecutor delegate = new RunnerJobExecutor(runnerExecutorCfg, dependencyManager, defaultDependencies, attachmentsUploader, processPool, processLogFactory, imageManager, executor);
             return delegate.exec(jobRequest);
         };
     }
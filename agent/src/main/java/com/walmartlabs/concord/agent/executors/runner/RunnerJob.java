@@ -151,6 +151,16 @@ public class RunnerJob {
         return new RunnerJob(instanceId, payloadDir, processCfg, cfg, log, policyEngine);
     }
 
+    public RunnerJob withPinnedImages(Map<String, String> pinnedImages) {
+        RunnerConfiguration cfg = RunnerConfiguration.builder().from(runnerCfg)
+                .docker(DockerConfiguration.builder().from(runnerCfg.docker())
+                        .pinnedImages(pinnedImages)
+                        .build())
+                .build();
+
+        return new RunnerJob(instanceId, payloadDir, processCfg, cfg, log, policyEngine);
+    }
+
     @Override
     public String toString() {
         return "RunnerJob{" +
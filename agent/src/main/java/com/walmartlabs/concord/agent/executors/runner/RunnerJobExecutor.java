@@ -31,6 +31,8 @@ import com.walmartlabs.concord.agent.ConfiguredJobRequest;
 import com.walmartlabs.concord.agent.ExecutionException;
 import com.walmartlabs.concord.agent.JobInstance;
 import com.walmartlabs.concord.agent.Utils;
+import com.walmartlabs.concord.agent.docker.ImageManager;
+import com.walmartlabs.concord.agent.docker.ImageManager.PullResult;
 import com.walmartlabs.concord.agent.executors.JobExecutor;
 import com.walmartlabs.concord.agent.executors.runner.ProcessPool.ProcessEntry;
 import com.walmartlabs.concord.agent.guice.AgentDependencyManager;
@@ -81,6 +83,7 @@ public class RunnerJobExecutor implements JobExecutor {
     private final AttachmentsUploader attachmentsUploader;
     private final ProcessPool processPool;
     private final ProcessLogFactory logFactory;
+    private final ImageManager imageManager;
     private final ExecutorService executor;
 
     private final ObjectMapper objectMapper;
@@ -91,6 +94,7 @@ public class RunnerJobExecutor implements JobExecutor {
                              AttachmentsUploader attachmentsUploader,
                              ProcessPool processPool,
                              ProcessLogFactory processLogFactory,
+                             ImageManager imageManager,
                              ExecutorService executor) {
 
         this.cfg = cfg;
@@ -99,6 +103,7 @@ public class RunnerJobExecutor implements JobExecutor {
         this.attachmentsUploader = attachmentsUploader;
         this.processPool = processPool;
         this.logFactory = processLogFactory;
+        this.imageManager = imageManager;
         this.executor = executor;
 
         // sort JSON keys for consistency
@@ -120,6 +125,12 @@ public class RunnerJobExecutor implements JobExecutor {
             Collection<String> resolvedDeps = resolveDeps(job);
             job = job.withDependencies(resolvedDeps);
 
+            // pull the images declared by the process and pin them to their digests
+            Map<String, String> pinnedImages = prePullImages(job);
+            if (!pinnedImages.isEmpty()) {
+                job = job.withPinnedImages(pinnedImages);
+            }
+
             pe = buildProcessEntry(job);
         } catch (Throwable e) {
             log.warn("exec ['{}'] -> process error: {}", job.getInstanceId(), e.getMessage());
@@ -325,6 +336,66 @@ public class RunnerJobExecutor implements JobExecutor {
         return paths;
     }
 
+    private Map<String, String> prePullImages(RunnerJob job) {
+        if (!cfg.prePullImages()) {
+            return Collections.emptyMap();
+        }
+
+        List<String> images = getDockerImagesFromConfig(job.getProcessCfg());
+        if (images == null || images.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        job.getLog().info("Pulling Docker images...");
+
+        imageManager.evictExpired();
+
+        long t1 = System.currentTimeMillis();
+
+        Map<String, String> result = new HashMap<>();
+        int pulled = 0;
+        int cached = 0;
+        int coalesced = 0;
+
+        for (String image : new LinkedHashSet<>(images)) {
+            PullResult r;
+            try {
+                r = imageManager.resolve(image);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // not fatal, the process will try to pull the image itself
+                job.getLog().warn("Error while pulling '{}': {}", image, e.getMessage());
+                continue;
+            }
+
+            result.put(image, r.getReference());
+
+            switch (r.getSource()) {
+                case PULLED:
+                    pulled++;
+                    break;
+                case CACHED:
+                    cached++;
+                    break;
+                case COALESCED:
+                    coalesced++;
+                    break;
+            }
+
+            if (job.isDebugMode()) {
+                job.getLog().info("Image '{}' -> {} ({}, {}ms)", image, r.getReference(), r.getSource(), r.getDuration());
+            }
+        }
+
+        long t2 = System.currentTimeMillis();
+
+        job.getLog().info("Docker images: {} pulled, {} cached, {} shared with other processes, took {}ms", pulled, cached, coalesced, (t2 - t1));
+
+        return result;
+    }
+
     private void validateDependencies(RunnerJob job, Collection<DependencyEntity> resolvedDepEntities) throws ExecutionException {
         PolicyEngine policyEngine = job.getPolicyEngine();
         if (policyEngine == null) {
@@ -508,24 +579,34 @@ public class RunnerJobExecutor implements JobExecutor {
     }
 
     private static List<String> getJvmArgsFromConfig(Map<String, Object> processCfg) {
-        Map<String, Object> requirements = MapUtils.get(processCfg, Constants.Request.REQUIREMENTS, null);
-        if (requirements == null) {
+        List<String> extraArgs = getRequirementsList(processCfg, "jvm", "extraArgs");
+        if (extraArgs == null || extraArgs.isEmpty()) {
             return null;
         }
 
-        // TODO constants?
-        Map<String, Object> jvm = MapUtils.get(requirements, "jvm", null);
-        if (jvm == null) {
+        return extraArgs;
+    }
+
+    private static List<String> getDockerImagesFromConfig(Map<String, Object> processCfg) {
+        return getRequirementsList(processCfg, "docker", "images");
+    }
+
+    /**
+     * Returns the {@code configuration.requirements.[section].[key]} list or
+     * {@code null} if any of the elements is missing.
+     */
+    private static List<String> getRequirementsList(Map<String, Object> processCfg, String section, String key) {
+        Map<String, Object> requirements = MapUtils.get(processCfg, Constants.Request.REQUIREMENTS, null);
+        if (requirements == null) {
             return null;
         }
 
-        // TODO constants?
-        List<String> extraArgs = MapUtils.getList(jvm, "extraArgs", null);
-        if (extraArgs == null || extraArgs.isEmpty()) {
+        Map<String, Object> m = MapUtils.get(requirements, section, null);
+        if (m == null) {
             return null;
         }
 
-        return extraArgs;
+        return MapUtils.getList(m, key, null);
     }
 
     private static String getLogLevel(RunnerJob job) {
@@ -664,6 +745,11 @@ public class RunnerJobExecutor implements JobExecutor {
         @Nullable
         Path persistentWorkDir();
 
+        @Value.Default
+        default boolean prePullImages() {
+            return false;
+        }
+
         static ImmutableRunnerJobExecutorConfiguration.Builder builder() {
             return ImmutableRunnerJobExecutorConfiguration.builder();
         }
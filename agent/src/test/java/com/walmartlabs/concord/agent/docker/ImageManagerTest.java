@@ -0,0 +1,214 @@
+package com.walmartlabs.concord.agent.docker;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agent.docker.ImageManager.PullResult;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ImageManagerTest {
+
+    @Test
+    public void testCache() throws Exception {
+        FakeRegistry registry = new FakeRegistry();
+        registry.push("alpine:3.12", "alpine@sha256:aaa");
+
+        AtomicLong clock = new AtomicLong(0);
+        ImageManager m = new ImageManager(registry, true, 1000, clock::get);
+
+        PullResult r = m.resolve("alpine:3.12");
+        assertEquals(PullResult.Source.PULLED, r.getSource());
+        assertEquals("alpine@sha256:aaa", r.getReference());
+
+        r = m.resolve("alpine:3.12");
+        assertEquals(PullResult.Source.CACHED, r.getSource());
+        assertEquals("alpine@sha256:aaa", r.getReference());
+        assertEquals(1, registry.pulls.get());
+
+        // the tag was updated and the cached entry expired
+        registry.push("alpine:3.12", "alpine@sha256:bbb");
+        clock.set(1000);
+
+        r = m.resolve("alpine:3.12");
+        assertEquals(PullResult.Source.PULLED, r.getSource());
+        assertEquals("alpine@sha256:bbb", r.getReference());
+        assertEquals(2, registry.pulls.get());
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception {
+        FakeRegistry registry = new FakeRegistry();
+        registry.push("alpine:3.12", "alpine@sha256:aaa");
+
+        ImageManager m = new ImageManager(registry, false, 1000, () -> 0);
+
+        m.resolve("alpine:3.12");
+        m.resolve("alpine:3.12");
+        assertEquals(2, registry.pulls.get());
+    }
+
+    @Test
+    public void testPinnedImage() throws Exception {
+        FakeRegistry registry = new FakeRegistry();
+        ImageManager m = new ImageManager(registry, true, 1000, () -> 0);
+
+        PullResult r = m.resolve("alpine@sha256:aaa");
+        assertEquals("alpine@sha256:aaa", r.getReference());
+        assertEquals(0, registry.pulls.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCoalescing() throws Exception {
+        int concurrency = 16;
+
+        FakeRegistry registry = new FakeRegistry();
+        registry.push("alpine:3.12", "alpine@sha256:aaa");
+        registry.pullLatch = new CountDownLatch(1);
+
+        ImageManager m = new ImageManager(registry, true, 1000, System::currentTimeMillis);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<PullResult>> results = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                results.add(executor.submit(() -> m.resolve("alpine:3.12")));
+            }
+
+            // let the requests pile up behind the first pull
+            while (registry.pulls.get() == 0) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            registry.pullLatch.countDown();
+
+            for (Future<PullResult> f : results) {
+                assertEquals("alpine@sha256:aaa", f.get().getReference());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, registry.pulls.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCoalescedError() throws Exception {
+        FakeRegistry registry = new FakeRegistry();
+        registry.pullLatch = new CountDownLatch(1);
+
+        ImageManager m = new ImageManager(registry, true, 1000, System::currentTimeMillis);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<PullResult> a = executor.submit(() -> m.resolve("unknown:1.0"));
+            while (registry.pulls.get() == 0) {
+                Thread.sleep(10);
+            }
+            Future<PullResult> b = executor.submit(() -> m.resolve("unknown:1.0"));
+            Thread.sleep(100);
+            registry.pullLatch.countDown();
+
+            assertPullError(a);
+            assertPullError(b);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // failures are not cached
+        registry.push("unknown:1.0", "unknown@sha256:ccc");
+        assertEquals("unknown@sha256:ccc", m.resolve("unknown:1.0").getReference());
+    }
+
+    @Test
+    public void testRepository() {
+        assertEquals("alpine", DefaultDockerCli.repository("alpine"));
+        assertEquals("alpine", DefaultDockerCli.repository("alpine:3.12"));
+        assertEquals("host:5000/foo/bar", DefaultDockerCli.repository("host:5000/foo/bar"));
+        assertEquals("host:5000/foo/bar", DefaultDockerCli.repository("host:5000/foo/bar:1.0"));
+    }
+
+    private static void assertPullError(Future<PullResult> f) throws InterruptedException {
+        try {
+            f.get();
+            fail("exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * A local registry stand-in.
+     */
+    private static class FakeRegistry implements DockerCli {
+
+        private final Map<String, String> digests = new ConcurrentHashMap<>();
+        private final AtomicInteger pulls = new AtomicInteger();
+
+        private volatile CountDownLatch pullLatch;
+
+        public void push(String image, String digest) {
+            digests.put(image, digest);
+        }
+
+        @Override
+        public void pull(String image) throws IOException, InterruptedException {
+            pulls.incrementAndGet();
+
+            CountDownLatch l = pullLatch;
+            if (l != null) {
+                l.await();
+            }
+
+            if (!digests.containsKey(image)) {
+                throw new IOException("manifest for " + image + " not found");
+            }
+        }
+
+        @Override
+        public String digest(String image) {
+            return digests.get(image);
+        }
+
+        @Override
+        public Map<String, String> containers(String label) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(String containerId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public EventStream events(String label) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
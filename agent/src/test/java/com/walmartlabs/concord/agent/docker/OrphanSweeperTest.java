@@ -0,0 +1,227 @@
+package com.walmartlabs.concord.agent.docker;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OrphanSweeperTest {
+
+    private FakeDocker docker;
+    private Set<UUID> alive;
+    private OrphanSweeper sweeper;
+    private ExecutorService removals;
+
+    @Before
+    public void setUp() {
+        docker = new FakeDocker();
+        alive = ConcurrentHashMap.newKeySet();
+        sweeper = new OrphanSweeper(docker, ids -> {
+            Set<UUID> result = new HashSet<>(ids);
+            result.retainAll(alive);
+            return result;
+        }, 1000);
+        removals = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        removals.shutdownNow();
+    }
+
+    @Test
+    public void testOnEvent() {
+        UUID instanceId = UUID.randomUUID();
+
+        sweeper.onEvent("create c1 " + instanceId);
+        assertEquals(Collections.singletonMap("c1", instanceId), sweeper.containers());
+
+        // invalid lines are ignored
+        sweeper.onEvent("create c2 not-a-uuid");
+        sweeper.onEvent("create c3");
+        sweeper.onEvent("create c4 " + instanceId + " extra");
+        sweeper.onEvent("start c5 " + instanceId);
+        assertEquals(Collections.singletonMap("c1", instanceId), sweeper.containers());
+
+        // destroy events might come without the label's value
+        sweeper.onEvent("destroy c1 " + instanceId);
+        assertTrue(sweeper.containers().isEmpty());
+    }
+
+    @Test
+    public void testResyncAfterReconnect() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        docker.running.put("c1", a.toString());
+        sweeper.syncIfRequired();
+        assertEquals(Collections.singletonMap("c1", a), sweeper.containers());
+        assertEquals(1, docker.listCalls.get());
+
+        // nothing changed, no need to call "docker ps"
+        sweeper.syncIfRequired();
+        assertEquals(1, docker.listCalls.get());
+
+        // "c1" is removed and "c2" is created while the stream is disconnected
+        docker.running.remove("c1");
+        docker.running.put("c2", b.toString());
+
+        // "c3" is created after the stream is reconnected
+        docker.running.put("c3", b.toString());
+        docker.events.add("create c3 " + b);
+
+        sweeper.readEvents();
+        assertTrue(sweeper.containers().containsKey("c3"));
+
+        sweeper.syncIfRequired();
+        assertEquals(2, docker.listCalls.get());
+
+        Map<String, UUID> expected = new HashMap<>();
+        expected.put("c2", b);
+        expected.put("c3", b);
+        assertEquals(expected, sweeper.containers());
+    }
+
+    @Test
+    public void testEventsDuringResync() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        sweeper.onEvent("create c1 " + a);
+
+        // "c2" is created while "docker ps" is running and doesn't make it into its output
+        docker.onList = () -> sweeper.onEvent("create c2 " + b);
+
+        sweeper.syncIfRequired();
+
+        // "c1" is gone, "c2" is still tracked
+        assertEquals(Collections.singletonMap("c2", b), sweeper.containers());
+    }
+
+    @Test
+    public void testSweep() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        alive.add(a);
+
+        docker.running.put("c1", a.toString());
+        docker.running.put("c2", b.toString());
+        sweeper.syncIfRequired();
+
+        sweeper.sweep(removals);
+
+        assertEquals(Collections.singletonList("c2"), docker.removed);
+        assertEquals(Collections.singletonMap("c1", a), sweeper.containers());
+
+        // the list is still up to date
+        sweeper.syncIfRequired();
+        assertEquals(1, docker.listCalls.get());
+    }
+
+    @Test
+    public void testFailedRemovalTriggersResync() throws Exception {
+        UUID a = UUID.randomUUID();
+
+        docker.running.put("c1", a.toString());
+        sweeper.syncIfRequired();
+        assertEquals(1, docker.listCalls.get());
+
+        // the container is already gone
+        docker.running.remove("c1");
+        docker.failRemovals = true;
+
+        sweeper.sweep(removals);
+        assertEquals(Collections.singletonMap("c1", a), sweeper.containers());
+
+        sweeper.syncIfRequired();
+        assertEquals(2, docker.listCalls.get());
+        assertTrue(sweeper.containers().isEmpty());
+    }
+
+    private static class FakeDocker implements DockerCli {
+
+        private final Map<String, String> running = new ConcurrentHashMap<>();
+        private final List<String> removed = new CopyOnWriteArrayList<>();
+        private final Queue<String> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger listCalls = new AtomicInteger();
+
+        private volatile boolean failRemovals;
+        private volatile Runnable onList;
+
+        @Override
+        public void pull(String image) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String digest(String image) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, String> containers(String label) {
+            listCalls.incrementAndGet();
+            Map<String, String> result = new HashMap<>(running);
+
+            Runnable r = onList;
+            if (r != null) {
+                r.run();
+            }
+
+            return result;
+        }
+
+        @Override
+        public void remove(String containerId) throws IOException {
+            if (failRemovals) {
+                throw new IOException("No such container: " + containerId);
+            }
+
+            running.remove(containerId);
+            removed.add(containerId);
+        }
+
+        /**
+         * Returns the queued events, then closes the stream.
+         */
+        @Override
+        public EventStream events(String label) {
+            return new EventStream() {
+                @Override
+                public String next() {
+                    return events.poll();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
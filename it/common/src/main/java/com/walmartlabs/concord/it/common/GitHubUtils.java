@@ -20,15 +20,21 @@ package com.walmartlabs.concord.it.common;
  * =====
  */
 
+import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.ApiException;
+import com.walmartlabs.concord.client.GitHubEventsApi;
+
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
+import java.util.UUID;
 
 public final class GitHubUtils {
 
     // from github.secret configuration parameter
     private static final String GITHUB_WEBHOOK_SECRET = "12345";
     private static final String HMAC_SHA1_ALGORITHM = "HmacSHA1";
+    private static final long EVENT_WAIT_TIMEOUT = 60000;
 
     public static String sign(String payload) throws Exception {
         SecretKeySpec signingKey = new SecretKeySpec(GITHUB_WEBHOOK_SECRET.getBytes(), HMAC_SHA1_ALGORITHM);
@@ -38,6 +44,41 @@ public final class GitHubUtils {
         return hex(digest);
     }
 
+    /**
+     * Sends the event and waits until it is processed by the server.
+     */
+    public static void sendEvent(ApiClient client, String payload, String eventName) throws Exception {
+        String deliveryId = UUID.randomUUID().toString();
+
+        client.addDefaultHeader("X-Hub-Signature", "sha1=" + sign(payload));
+        GitHubEventsApi eventsApi = new GitHubEventsApi(client);
+        eventsApi.onEvent(payload, deliveryId, eventName);
+
+        // requests without body are signed using an empty payload
+        client.addDefaultHeader("X-Hub-Signature", "sha1=" + sign(""));
+
+        long t = System.currentTimeMillis();
+        while (true) {
+            try {
+                if ("processed".equals(eventsApi.getEventStatus(deliveryId))) {
+                    return;
+                }
+            } catch (ApiException e) {
+                // the event is not received if it was disabled or a "ping" event
+                if (e.getCode() != 404) {
+                    throw e;
+                }
+                return;
+            }
+
+            if (System.currentTimeMillis() - t >= EVENT_WAIT_TIMEOUT) {
+                throw new IllegalStateException("Timeout waiting for the event to be processed: " + deliveryId);
+            }
+
+            Thread.sleep(250);
+        }
+    }
+
     private static String hex(byte[] str){
         return String.format("%040x", new BigInteger(1, str));
     }
@@ -177,10 +177,7 @@ public class GitHubTriggersV2IT {
         }
 
         ApiClient client = apiClient();
-        client.addDefaultHeader("X-Hub-Signature", "sha1=" + GitHubUtils.sign(payload));
-
-        GitHubEventsApi eventsApi = new GitHubEventsApi(client);
-        eventsApi.onEvent(payload, "abc", event);
+        GitHubUtils.sendEvent(client, payload, event);
     }
 
     private static String resourceToString(String resource) throws Exception {
@@ -46,7 +46,6 @@ import static org.junit.Assert.assertEquals;
 public class AbstractGitHubTriggersIT extends AbstractServerIT {
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX", Locale.US);
-
     protected static String toRepoName(Path p) {
         return p.getParent() .getFileName()+ "/" + p.getFileName();
     }
@@ -167,10 +166,7 @@ public class AbstractGitHubTriggersIT extends AbstractServerIT {
         }
 
         ApiClient client = getApiClient();
-        client.addDefaultHeader("X-Hub-Signature", "sha1=" + GitHubUtils.sign(payload));
-
-        GitHubEventsApi eventsApi = new GitHubEventsApi(client);
-        eventsApi.onEvent(payload, "abc", event);
+        GitHubUtils.sendEvent(client, payload, event);
     }
 
     protected void assertLog(ProcessEntry entry, String pattern) throws Exception {
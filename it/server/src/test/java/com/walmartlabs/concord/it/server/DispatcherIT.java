@@ -25,8 +25,7 @@ import com.walmartlabs.concord.client.ProcessEntry;
 import com.walmartlabs.concord.client.StartProcessResponse;
 import org.junit.Test;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 import static com.walmartlabs.concord.it.common.ITUtils.archive;
 import static com.walmartlabs.concord.it.common.ServerClient.waitForCompletion;
@@ -65,4 +64,29 @@ public class DispatcherIT extends AbstractServerIT {
 
         processApi.kill(pe.getInstanceId());
     }
+
+    /**
+     * Starts a bunch of processes at once and measures how long it takes
+     * for the agent to pick them all up.
+     */
+    @Test(timeout = DEFAULT_TEST_TIMEOUT)
+    public void testFillUp() throws Exception {
+        byte[] payload = archive(ProcessIT.class.getResource("unknownFlavor").toURI());
+
+        int count = 5;
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> input = new HashMap<>();
+            input.put("requirements.agent.type", "test"); // as in it/server/src/test/resources/agent.conf
+            input.put("archive", payload);
+            ids.add(start(input).getInstanceId());
+        }
+
+        ProcessApi processApi = new ProcessApi(getApiClient());
+        for (UUID id : ids) {
+            ProcessEntry pe = waitForCompletion(processApi, id);
+            assertEquals(ProcessEntry.StatusEnum.FINISHED, pe.getStatus());
+        }
+    }
 }
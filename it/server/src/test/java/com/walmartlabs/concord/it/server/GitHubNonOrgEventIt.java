@@ -33,6 +33,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 import static com.walmartlabs.concord.it.common.ServerClient.assertLog;
 import static org.junit.Assert.assertEquals;
@@ -118,7 +119,7 @@ public class GitHubNonOrgEventIt extends AbstractServerIT {
 
         GitHubEventsApi gitHubEvents = new GitHubEventsApi(client);
 
-        String result = gitHubEvents.onEvent(event, "abc", eventName);
+        String result = gitHubEvents.onEvent(event, UUID.randomUUID().toString(), eventName);
         assertEquals("ok", result);
     }
 }
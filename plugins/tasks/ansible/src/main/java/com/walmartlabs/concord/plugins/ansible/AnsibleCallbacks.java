@@ -78,6 +78,11 @@ public class AnsibleCallbacks {
     private boolean statsEnabled = false;
     private boolean outVarsEnabled = false;
 
+    private int eventsBatchSize = EventSender.DEFAULT_BATCH_SIZE;
+    private long eventsBatchAge = EventSender.DEFAULT_BATCH_AGE;
+    private int eventsParallelism = EventSender.DEFAULT_PARALLELISM;
+    private boolean eventsCompression = true;
+
     private Path eventsFile;
     private EventSender eventSender;
     private Future<?> eventSenderFuture;
@@ -97,6 +102,11 @@ public class AnsibleCallbacks {
         this.statsEnabled = MapUtils.getBoolean(args, TaskParams.ENABLE_STATS, true);
         this.outVarsEnabled= MapUtils.getBoolean(args, TaskParams.ENABLE_OUT_VARS, true);
 
+        this.eventsBatchSize = MapUtils.getInt(args, TaskParams.EVENTS_BATCH_SIZE.getKey(), EventSender.DEFAULT_BATCH_SIZE);
+        this.eventsBatchAge = MapUtils.getNumber(args, TaskParams.EVENTS_BATCH_AGE.getKey(), EventSender.DEFAULT_BATCH_AGE).longValue();
+        this.eventsParallelism = MapUtils.getInt(args, TaskParams.EVENTS_PARALLELISM.getKey(), EventSender.DEFAULT_PARALLELISM);
+        this.eventsCompression = MapUtils.getBoolean(args, TaskParams.EVENTS_COMPRESSION, true);
+
         return this;
     }
 
@@ -154,7 +164,8 @@ public class AnsibleCallbacks {
         }
 
         this.eventsFile = Files.createTempFile(tmpDir, "events", ".log");
-        this.eventSender = new EventSender(debug, instanceId, eventsFile, eventsApi);
+        this.eventSender = new EventSender(debug, instanceId, eventsFile, eventsApi,
+                eventsBatchSize, eventsBatchAge, eventsParallelism, eventsCompression);
         this.eventSenderFuture = eventSender.start();
 
         return this;
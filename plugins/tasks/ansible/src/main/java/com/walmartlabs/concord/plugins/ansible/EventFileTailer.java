@@ -0,0 +1,130 @@
+package com.walmartlabs.concord.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads complete lines from a file that is still being written to.
+ * Incomplete lines are kept in memory until the rest of the line arrives.
+ */
+public class EventFileTailer implements AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+    private long bytesRead = 0;
+
+    public EventFileTailer(Path file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    public EventFileTailer(Path file, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Reads all data currently available in the file and passes each
+     * complete line (without the line separator) to the consumer.
+     *
+     * @return number of complete lines read
+     */
+    public int poll(LineConsumer consumer) throws IOException {
+        int lines = 0;
+
+        while (true) {
+            buffer.clear();
+
+            int n = channel.read(buffer);
+            if (n <= 0) {
+                break;
+            }
+
+            bytesRead += n;
+
+            byte[] ab = buffer.array();
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                if (ab[i] != '\n') {
+                    continue;
+                }
+
+                partialLine.write(ab, start, i - start);
+                consumer.accept(takeLine());
+                lines++;
+
+                start = i + 1;
+            }
+
+            partialLine.write(ab, start, n - start);
+
+            if (n < buffer.capacity()) {
+                // no more data at the moment
+                break;
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * @return {@code true} if all data currently present in the file was read
+     */
+    public boolean isEof() throws IOException {
+        return channel.position() >= channel.size();
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String takeLine() {
+        byte[] ab = partialLine.toByteArray();
+        partialLine.reset();
+
+        int len = ab.length;
+        if (len > 0 && ab[len - 1] == '\r') {
+            len--;
+        }
+
+        return new String(ab, 0, len, StandardCharsets.UTF_8);
+    }
+
+    public interface LineConsumer {
+
+        void accept(String line) throws IOException;
+    }
+}
@@ -22,41 +22,58 @@ package com.walmartlabs.concord.plugins.ansible;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.walmartlabs.concord.ApiClient;
 import com.walmartlabs.concord.ApiException;
+import com.walmartlabs.concord.client.ClientUtils;
 import com.walmartlabs.concord.client.ProcessEventRequest;
 import com.walmartlabs.concord.client.ProcessEventsApi;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Reads data recorded by concord_events.py and sends it to the Server.
+ * <p>
+ * Events are collected into batches which are uploaded in parallel,
+ * up to {@code parallelism} batches at the same time. When all upload
+ * slots are busy the reader waits, the total wait time is reported
+ * in the process log after the playbook is finished.
  */
 public class EventSender {
 
     private static final Logger log = LoggerFactory.getLogger(EventSender.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_BATCH_AGE = 1000;
+    public static final int DEFAULT_PARALLELISM = 2;
+
     private static final String EOL_MARKER = "<~EOL~>";
 
-    private static final long NO_DATA_DELAY = 1000;
+    private static final long MIN_NO_DATA_DELAY = 50;
+    private static final long MAX_NO_DATA_DELAY = 1000;
     private static final long API_ERROR_DELAY = 10000;
-    private static final long MAX_BATCH_SIZE = 10;
-    private static final long MAX_BATCH_AGE = 5000;
+    private static final int MAX_SEND_ATTEMPTS = 3;
+    private static final long BACK_PRESSURE_WARN_THRESHOLD = 5000;
 
     private final boolean debug;
     private final UUID instanceId;
     private final Path eventsFile;
     private final ProcessEventsApi eventsApi;
+    private final int batchSize;
+    private final long batchAge;
+    private final int parallelism;
 
     private final ObjectMapper objectMapper = createObjectMapper();
 
@@ -66,19 +83,39 @@ public class EventSender {
         return om;
     }
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(daemonThreadFactory("ansible-event-reader"));
+    private final ExecutorService uploader;
+    private final Semaphore uploadSlots;
+    private final Stats stats = new Stats();
 
+    private volatile boolean compress;
     private volatile boolean stop = false;
 
     public EventSender(boolean debug, UUID instanceId, Path eventsFile, ProcessEventsApi eventsApi) {
+        this(debug, instanceId, eventsFile, eventsApi, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_AGE, DEFAULT_PARALLELISM, true);
+    }
+
+    public EventSender(boolean debug, UUID instanceId, Path eventsFile, ProcessEventsApi eventsApi,
+                       int batchSize, long batchAge, int parallelism, boolean compress) {
+
         this.debug = debug;
         this.instanceId = instanceId;
         this.eventsFile = eventsFile;
         this.eventsApi = eventsApi;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchAge = Math.max(0, batchAge);
+        this.parallelism = Math.max(1, parallelism);
+        this.compress = compress;
+
+        this.uploader = Executors.newFixedThreadPool(this.parallelism, daemonThreadFactory("ansible-event-uploader"));
+        this.uploadSlots = new Semaphore(this.parallelism);
     }
 
     public Future<?> start() {
-        return executor.submit(this::doRun);
+        Future<?> f = executor.submit(this::doRun);
+        // the reader thread exits once doRun is finished
+        executor.shutdown();
+        return f;
     }
 
     public void stop() {
@@ -90,93 +127,257 @@ public class EventSender {
             log.info("run -> started...");
         }
 
-        try (RandomAccessFile f = new RandomAccessFile(eventsFile.toFile(), "r")) {
-            Batch batch = new Batch(instanceId, eventsApi);
-            long t1 = System.currentTimeMillis();
+        try (EventFileTailer tailer = new EventFileTailer(eventsFile)) {
+            List<ProcessEventRequest> batch = new ArrayList<>(batchSize);
+            long batchStart = System.currentTimeMillis();
+            long noDataDelay = MIN_NO_DATA_DELAY;
 
             while (true) {
-                String line = f.readLine();
+                int lines = tailer.poll(line -> {
+                    ProcessEventRequest req = parse(line);
+                    if (req != null) {
+                        batch.add(req);
+                    }
+                });
 
-                if (line == null || line.isEmpty()) {
-                    if (stop) {
+                if (lines == 0) {
+                    // don't stop until we reach the end of the file
+                    if (stop && tailer.isEof()) {
                         // looks like the end of the play
-
-                        // don't stop until we reach the end of the file
-                        if (Files.size(eventsFile) <= f.getFilePointer()) {
-                            break;
-                        }
+                        break;
                     }
+                }
 
+                long now = System.currentTimeMillis();
+                if (batch.isEmpty()) {
+                    batchStart = now;
+                } else if (batch.size() >= batchSize || now - batchStart >= batchAge) {
+                    submit(new ArrayList<>(batch));
+                    batch.clear();
+                    batchStart = now;
+                }
+
+                if (lines == 0) {
                     // wait for more data
-                    sleep(NO_DATA_DELAY);
+                    sleep(noDataDelay);
+                    noDataDelay = Math.min(noDataDelay * 2, MAX_NO_DATA_DELAY);
                 } else {
-                    if (line.endsWith(EOL_MARKER)) {
-                        String data = line.substring(0, line.length() - EOL_MARKER.length());
-                        ProcessEventRequest req = objectMapper.readValue(data, ProcessEventRequest.class);
-                        batch.add(req);
-                    } else {
-                        // partial line, re-read next time
-                        f.seek(f.getFilePointer() - line.length());
-                    }
+                    noDataDelay = MIN_NO_DATA_DELAY;
                 }
+            }
 
-                long t2 = System.currentTimeMillis();
-                if (batch.size() >= MAX_BATCH_SIZE || t2 - t1 >= MAX_BATCH_AGE) {
-                    flush(batch);
-                    t1 = t2;
-                }
+            if (!batch.isEmpty()) {
+                submit(batch);
             }
 
-            flush(batch);
+            stats.bytesRead = tailer.getBytesRead();
         } catch (IOException e) {
             log.error("Error while reading the event file: {}", e.getMessage(), e);
+        } finally {
+            awaitUploads();
         }
 
+        logStats();
+
         if (debug) {
             log.info("run -> stopped...");
         }
     }
 
-    private static void flush(Batch b) {
+    ProcessEventRequest parse(String line) {
+        if (line.isEmpty()) {
+            return null;
+        }
+
+        if (!line.endsWith(EOL_MARKER)) {
+            log.warn("Invalid event record (no EOL marker), skipping: {}", line);
+            return null;
+        }
+
+        String data = line.substring(0, line.length() - EOL_MARKER.length());
         try {
-            b.flush();
-        } catch (ApiException e) {
-            log.warn("Error while sending the event to the server", e);
-            sleep(API_ERROR_DELAY);
+            return objectMapper.readValue(data, ProcessEventRequest.class);
+        } catch (IOException e) {
+            log.warn("Invalid event record ({}), skipping: {}", e.getMessage(), line);
+            return null;
         }
     }
 
-    private static void sleep(long ms) {
+    private void submit(List<ProcessEventRequest> items) {
+        long t1 = System.currentTimeMillis();
         try {
-            Thread.sleep(ms);
+            uploadSlots.acquire();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+
+            // don't lose the batch, send it from the current thread
+            send(items);
+            return;
         }
+
+        long waitTime = System.currentTimeMillis() - t1;
+        stats.onWait(waitTime);
+        if (waitTime >= BACK_PRESSURE_WARN_THRESHOLD) {
+            log.warn("Ansible events are produced faster than they can be sent, waited {}ms for an upload slot", waitTime);
+        }
+
+        uploader.submit(() -> {
+            try {
+                send(items);
+            } finally {
+                uploadSlots.release();
+            }
+        });
     }
 
-    private static class Batch {
+    private void send(List<ProcessEventRequest> items) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long t1 = System.currentTimeMillis();
+                doSend(items);
+                stats.onBatch(items.size(), System.currentTimeMillis() - t1);
 
-        private final UUID instanceId;
-        private final ProcessEventsApi eventsApi;
+                if (debug) {
+                    log.info("send -> {} event(s)", items.size());
+                }
 
-        private final List<ProcessEventRequest> items = new ArrayList<>();
+                return;
+            } catch (ApiException e) {
+                if (compress && isCompressionNotSupported(e)) {
+                    // the server doesn't understand compressed requests, switch to plain JSON
+                    log.warn("Compressed event batches are not supported by the server, disabling the compression");
+                    compress = false;
+                    continue;
+                }
 
-        private Batch(UUID instanceId, ProcessEventsApi eventsApi) {
-            this.instanceId = instanceId;
-            this.eventsApi = eventsApi;
-        }
+                if (attempt >= MAX_SEND_ATTEMPTS) {
+                    log.warn("Error while sending the events to the server, {} event(s) dropped", items.size(), e);
+                    stats.onDrop(items.size());
+                    return;
+                }
 
-        public void add(ProcessEventRequest req) {
-            items.add(req);
+                log.warn("Error while sending the events to the server (attempt {} of {}): {}", attempt, MAX_SEND_ATTEMPTS, e.getMessage());
+                sleep(API_ERROR_DELAY);
+            }
         }
+    }
 
-        public void flush() throws ApiException {
+    private void doSend(List<ProcessEventRequest> items) throws ApiException {
+        if (!compress) {
             eventsApi.batchEvent(instanceId, items);
-            items.clear();
+            return;
+        }
+
+        ApiClient client = eventsApi.getApiClient();
+        byte[] data = gzip(client.getJSON().serialize(items));
+        stats.bytesSent.addAndGet(data.length);
+
+        Map<String, String> headerParams = new HashMap<>();
+        headerParams.put("Content-Type", "application/json");
+        headerParams.put("Content-Encoding", "gzip");
+
+        ClientUtils.postData(client, "/api/v1/process/" + instanceId + "/eventBatch", data, headerParams, null);
+    }
+
+    /**
+     * Older servers either reject the encoding (415) or try to parse the gzip data
+     * as JSON (400). Any 400 response to a compressed request is retried as plain
+     * JSON, the error messages vary between server versions.
+     */
+    static boolean isCompressionNotSupported(ApiException e) {
+        return e.getCode() == 415 || e.getCode() == 400;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        AtomicLong counter = new AtomicLong();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private void awaitUploads() {
+        uploader.shutdown();
+
+        // keep waiting if interrupted, the pending batches would be lost otherwise
+        long deadline = System.currentTimeMillis() + MAX_SEND_ATTEMPTS * API_ERROR_DELAY * parallelism;
+        boolean interrupted = false;
+        while (!uploader.isTerminated()) {
+            long timeout = deadline - System.currentTimeMillis();
+            if (timeout <= 0) {
+                break;
+            }
+
+            try {
+                uploader.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void logStats() {
+        if (stats.batches.get() == 0 && stats.dropped.get() == 0) {
+            return;
+        }
+
+        log.info("Ansible events: {} sent in {} batch(es), {} dropped, {}KB read, {}KB sent (compressed), " +
+                        "avg upload time {}ms, waited for upload slots {}ms total ({}ms max)",
+                stats.events.get(), stats.batches.get(), stats.dropped.get(),
+                stats.bytesRead / 1024, stats.bytesSent.get() / 1024,
+                stats.batches.get() > 0 ? stats.uploadTime.get() / stats.batches.get() : 0,
+                stats.totalWait, stats.maxWait);
+    }
+
+    private static byte[] gzip(String s) throws ApiException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(s.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ApiException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Stats {
+
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong uploadTime = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+
+        // updated only by the reader thread
+        private long bytesRead;
+        private long totalWait;
+        private long maxWait;
+
+        private void onBatch(int size, long time) {
+            events.addAndGet(size);
+            batches.incrementAndGet();
+            uploadTime.addAndGet(time);
+        }
+
+        private void onDrop(int size) {
+            dropped.addAndGet(size);
         }
 
-        public int size() {
-            return items.size();
+        private void onWait(long time) {
+            totalWait += time;
+            maxWait = Math.max(maxWait, time);
         }
     }
 }
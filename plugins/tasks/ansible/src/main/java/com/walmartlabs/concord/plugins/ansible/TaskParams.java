@@ -60,6 +60,14 @@ public enum TaskParams implements HasKey {
 
     ENABLE_OUT_VARS("enableOutsVars"),
 
+    EVENTS_BATCH_AGE("eventsBatchAge"),
+
+    EVENTS_BATCH_SIZE("eventsBatchSize"),
+
+    EVENTS_COMPRESSION("eventsCompression"),
+
+    EVENTS_PARALLELISM("eventsParallelism"),
+
     EXIT_CODE_KEY("exitCode"),
 
     EXTRA_ENV_KEY("extraEnv"),
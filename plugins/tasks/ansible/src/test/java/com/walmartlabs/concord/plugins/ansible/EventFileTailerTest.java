@@ -0,0 +1,64 @@
+package com.walmartlabs.concord.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventFileTailerTest extends AbstractTest {
+
+    @Test
+    public void testPartialLines() throws Exception {
+        Path f = tempDir("tailer-test").resolve("events.log");
+        Files.createFile(f);
+
+        List<String> lines = new ArrayList<>();
+
+        // use a small buffer to test lines split between reads
+        try (EventFileTailer t = new EventFileTailer(f, 4)) {
+            append(f, "first line\nsecond");
+            assertEquals(1, t.poll(lines::add));
+
+            append(f, " line\r\n");
+            assertEquals(1, t.poll(lines::add));
+
+            assertEquals(0, t.poll(lines::add));
+            assertTrue(t.isEof());
+            assertEquals(Files.size(f), t.getBytesRead());
+        }
+
+        assertEquals(Arrays.asList("first line", "second line"), lines);
+    }
+
+    private static void append(Path f, String s) throws Exception {
+        Files.write(f, s.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
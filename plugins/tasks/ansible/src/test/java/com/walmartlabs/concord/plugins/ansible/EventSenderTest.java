@@ -0,0 +1,73 @@
+package com.walmartlabs.concord.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.ApiException;
+import com.walmartlabs.concord.client.ProcessEventRequest;
+import com.walmartlabs.concord.client.ProcessEventsApi;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventSenderTest extends AbstractTest {
+
+    private static final String EOL = "<~EOL~>";
+
+    @Test
+    public void testInvalidLinesAreSkipped() throws Exception {
+        Path f = tempDir("sender-test").resolve("events.log");
+        Files.write(f, ("{\"eventType\":\"ANSIBLE\"}" + EOL + "\n" +
+                "{\"eventType\":" + EOL + "\n" +
+                "no marker\n" +
+                "{\"eventType\":\"ANSIBLE\"}" + EOL + "\n").getBytes(StandardCharsets.UTF_8));
+
+        List<ProcessEventRequest> received = new CopyOnWriteArrayList<>();
+        ProcessEventsApi api = new ProcessEventsApi() {
+            @Override
+            public void batchEvent(UUID instanceId, List<ProcessEventRequest> data) {
+                received.addAll(data);
+            }
+        };
+
+        EventSender sender = new EventSender(false, UUID.randomUUID(), f, api, 100, 1000, 1, false);
+
+        // read until the end of the file
+        sender.stop();
+        sender.start().get(30, TimeUnit.SECONDS);
+
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    public void testCompressionFallback() {
+        assertTrue(EventSender.isCompressionNotSupported(new ApiException(415, "Unsupported Media Type")));
+        assertTrue(EventSender.isCompressionNotSupported(new ApiException(400, "Bad Request")));
+        assertFalse(EventSender.isCompressionNotSupported(new ApiException(500, "Internal Server Error")));
+    }
+}
@@ -0,0 +1,99 @@
+package com.walmartlabs.concord.plugins.http;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContextBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide HTTP client. Connections (and TLS sessions) are kept alive and
+ * reused between task calls. Timeouts, redirects and proxy settings are applied
+ * per request, the connection pool keeps separate connections for each route
+ * (target host and proxy).
+ */
+final class SharedHttpClient {
+
+    private static final int MAX_CONNECTIONS = 100;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final long MAX_IDLE_TIME = TimeUnit.SECONDS.toMillis(30);
+
+    private static volatile CloseableHttpClient instance;
+
+    /**
+     * Returns the shared client. The client must not be closed by the caller.
+     */
+    static CloseableHttpClient get() throws Exception {
+        CloseableHttpClient result = instance;
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (SharedHttpClient.class) {
+            if (instance == null) {
+                instance = create();
+            }
+            return instance;
+        }
+    }
+
+    private static CloseableHttpClient create() throws Exception {
+        return HttpClientBuilder.create()
+                .setConnectionManager(buildConnectionManager())
+                .setRedirectStrategy(new LaxRedirectStrategy())
+                // the client is shared between all calls, cookies must not leak from one call into another
+                .disableCookieManagement()
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_TIME, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static PoolingHttpClientConnectionManager buildConnectionManager() throws Exception {
+        SSLContextBuilder builder = new SSLContextBuilder();
+        builder.loadTrustMaterial(new TrustAllStrategy());
+        SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(
+                builder.build(), NoopHostnameVerifier.INSTANCE);
+
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.INSTANCE)
+                .register("https", socketFactory)
+                .build();
+
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager(registry);
+        cm.setMaxTotal(MAX_CONNECTIONS);
+        cm.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        return cm;
+    }
+
+    private SharedHttpClient() {
+    }
+}
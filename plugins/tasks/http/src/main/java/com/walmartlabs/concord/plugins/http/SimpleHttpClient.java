@@ -28,34 +28,20 @@ import com.walmartlabs.concord.plugins.http.request.HttpTaskRequest;
 import org.apache.http.*;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.HttpClientConnectionManager;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustAllStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.LaxRedirectStrategy;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Response.Status.Family;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileAttribute;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -72,11 +58,19 @@ public class SimpleHttpClient {
     private final CloseableHttpClient client;
     private final HttpUriRequest request;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    /**
+     * Runs the requests with {@link Configuration#getRequestTimeout()}.
+     */
+    private static final ExecutorService executorService = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "http-task-request");
+        t.setDaemon(true);
+        return t;
+    });
 
     private SimpleHttpClient(Configuration config) throws Exception {
         this.config = config;
-        this.client = createClient(config);
+        this.client = SharedHttpClient.get();
         this.request = buildHttpUriRequest(config);
     }
 
@@ -152,10 +146,10 @@ public class SimpleHttpClient {
                     logResponse(httpResponse, content);
                 }
 
+                // read the rest of the response, so the connection can be returned to the pool
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
                 httpResponse.close();
             }
-
-            this.client.close();
         }
     }
 
@@ -239,7 +233,10 @@ public class SimpleHttpClient {
         Path tmpDir = assertTempDir(baseDir);
         Path tempFile = uriToPath(this.request.getURI(), tmpDir);
 
-        entity.writeTo(new FileOutputStream(tempFile.toFile()));
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            // streams the response, the whole body is never kept in memory
+            entity.writeTo(out);
+        }
         // Return the relative path instead of absolute path
         return baseDir.relativize(tempFile.toAbsolutePath()).toString();
     }
@@ -313,12 +310,11 @@ public class SimpleHttpClient {
     }
 
     /**
-     * Method to create {@link CloseableHttpClient client} with custom connection manager
+     * Method to create the per-request configuration: timeouts, redirects and proxy
      *
-     * @return CloseableHttpClient client
-     * @throws Exception exception
+     * @return RequestConfig
      */
-    private static CloseableHttpClient createClient(Configuration cfg) throws Exception {
+    private static RequestConfig createRequestConfig(Configuration cfg) {
         RequestConfig.Builder c = RequestConfig.custom()
                 .setConnectTimeout(cfg.getConnectTimeout())
                 .setSocketTimeout(cfg.getSocketTimeout())
@@ -330,49 +326,33 @@ public class SimpleHttpClient {
             c.setProxy(HttpHost.create(proxy));
         }
 
-        return HttpClientBuilder.create()
-                .setConnectionManager(buildConnectionManager())
-                .setDefaultRequestConfig(c.build())
-                .setRedirectStrategy(new LaxRedirectStrategy())
-                .build();
-    }
-
-    /**
-     * Method to build the connection manager
-     *
-     * @return HttpClientConnectionManager
-     * @throws KeyManagementException   keyManagementException
-     * @throws NoSuchAlgorithmException noSuchAlgorithmException
-     */
-    private static HttpClientConnectionManager buildConnectionManager() throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
-        SSLContextBuilder builder = new SSLContextBuilder();
-        builder.loadTrustMaterial(new TrustAllStrategy());
-        SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(
-                builder.build(), NoopHostnameVerifier.INSTANCE);
-
-        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.INSTANCE)
-                .register("https", socketFactory)
-                .build();
-
-        return new PoolingHttpClientConnectionManager(registry);
+        return c.build();
     }
 
     private HttpUriRequest buildHttpUriRequest(Configuration cfg) throws Exception {
+        HttpUriRequest result;
         switch (cfg.getMethodType()) {
             case DELETE:
-                return buildDeleteRequest(cfg);
+                result = buildDeleteRequest(cfg);
+                break;
             case POST:
-                return buildPostRequest(cfg);
+                result = buildPostRequest(cfg);
+                break;
             case GET:
-                return buildGetRequest(cfg);
+                result = buildGetRequest(cfg);
+                break;
             case PUT:
-                return buildPutRequest(cfg);
+                result = buildPutRequest(cfg);
+                break;
             case PATCH:
-                return buildPatchRequest(cfg);
+                result = buildPatchRequest(cfg);
+                break;
             default:
                 throw new IllegalArgumentException("Unsupported method type: " + cfg.getMethodType());
         }
+
+        ((HttpRequestBase) result).setConfig(createRequestConfig(cfg));
+        return result;
     }
 
     /**
@@ -318,6 +318,32 @@ public class HttpTaskTest extends AbstractHttpTaskTest {
         assertTrue((Boolean) response.get("success"));
     }
 
+    @Test
+    public void testSequentialCalls() throws Exception {
+        int count = 1000;
+
+        for (int i = 0; i < count; i++) {
+            assertNotNull(task.asString("http://localhost:" + rule.port() + "/string"));
+        }
+
+        verify(count, getRequestedFor(urlEqualTo("/string")));
+    }
+
+    @Test
+    public void testCookiesAreNotShared() throws Exception {
+        rule.stubFor(get(urlEqualTo("/cookie"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/plain")
+                        .withHeader("Set-Cookie", "session=abc; Path=/")
+                        .withBody("ok")));
+
+        assertNotNull(task.asString("http://localhost:" + rule.port() + "/cookie"));
+        assertNotNull(task.asString("http://localhost:" + rule.port() + "/string"));
+
+        verify(getRequestedFor(urlEqualTo("/string")).withoutHeader("Cookie"));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void testDelete() throws Exception {
@@ -25,6 +25,7 @@ import com.walmartlabs.concord.sdk.Context;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.policyengine.Utils.matches;
@@ -32,9 +33,17 @@ import static com.walmartlabs.concord.policyengine.Utils.matches;
 public class TaskPolicy {
 
     private final PolicyRules<TaskRule> rules;
+    private final RuleIndex allow;
+    private final RuleIndex deny;
+    private final RuleIndex warn;
 
     public TaskPolicy(PolicyRules<TaskRule> rules) {
         this.rules = rules;
+
+        boolean empty = rules == null || rules.isEmpty();
+        this.allow = empty ? RuleIndex.EMPTY : new RuleIndex(rules.getAllow());
+        this.deny = empty ? RuleIndex.EMPTY : new RuleIndex(rules.getDeny());
+        this.warn = empty ? RuleIndex.EMPTY : new RuleIndex(rules.getWarn());
     }
 
     public CheckResult<TaskRule, String> check(String taskName, String methodName, Object[] params, Map<String, List<Serializable>> taskResults) {
@@ -42,22 +51,19 @@ public class TaskPolicy {
             return CheckResult.success();
         }
 
-        for (TaskRule r : rules.getAllow()) {
-            if (matchRule(taskName, methodName, params, taskResults, r)) {
-                return CheckResult.success();
-            }
+        TaskRule r = allow.find(taskName, c -> matchRule(taskName, methodName, params, taskResults, c));
+        if (r != null) {
+            return CheckResult.success();
         }
 
-        for (TaskRule r : rules.getDeny()) {
-            if (matchRule(taskName, methodName, params, taskResults, r)) {
-                return CheckResult.error(new CheckResult.Item<>(r, methodName));
-            }
+        r = deny.find(taskName, c -> matchRule(taskName, methodName, params, taskResults, c));
+        if (r != null) {
+            return CheckResult.error(new CheckResult.Item<>(r, methodName));
         }
 
-        for (TaskRule r : rules.getWarn()) {
-            if (matchRule(taskName, methodName, params, taskResults, r)) {
-                return CheckResult.warn(new CheckResult.Item<>(r, methodName));
-            }
+        r = warn.find(taskName, c -> matchRule(taskName, methodName, params, taskResults, c));
+        if (r != null) {
+            return CheckResult.warn(new CheckResult.Item<>(r, methodName));
         }
 
         return CheckResult.success();
@@ -192,4 +198,93 @@ public class TaskPolicy {
 
         return false;
     }
+
+    /**
+     * Rules with plain task names (e.g. {@code http}) are indexed by name,
+     * only the rules with regex names are checked for every task call.
+     * The original order of rules is preserved.
+     */
+    private static final class RuleIndex {
+
+        private static final int[] NONE = new int[0];
+        private static final RuleIndex EMPTY = new RuleIndex(Collections.emptyList());
+
+        private final List<TaskRule> rules;
+        private final Map<String, int[]> byTaskName;
+        private final int[] other;
+
+        private RuleIndex(List<TaskRule> rules) {
+            this.rules = rules;
+
+            Map<String, List<Integer>> m = new HashMap<>();
+            List<Integer> o = new ArrayList<>();
+            for (int i = 0; i < rules.size(); i++) {
+                String name = rules.get(i).getTaskName();
+                if (isLiteral(name)) {
+                    m.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(i);
+                } else {
+                    o.add(i);
+                }
+            }
+
+            this.byTaskName = new HashMap<>(m.size());
+            m.forEach((k, v) -> byTaskName.put(k, toArray(v)));
+            this.other = toArray(o);
+        }
+
+        /**
+         * @return the first rule matching the predicate, or {@code null}
+         */
+        private TaskRule find(String taskName, Predicate<TaskRule> p) {
+            if (rules.isEmpty()) {
+                return null;
+            }
+
+            int[] a = taskName != null ? byTaskName.getOrDefault(taskName.toLowerCase(Locale.ROOT), NONE) : NONE;
+            int[] b = other;
+
+            // merge both lists to keep the original order of rules
+            int i = 0;
+            int j = 0;
+            while (i < a.length || j < b.length) {
+                int idx;
+                if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                    idx = a[i++];
+                } else {
+                    idx = b[j++];
+                }
+
+                TaskRule r = rules.get(idx);
+                if (p.test(r)) {
+                    return r;
+                }
+            }
+
+            return null;
+        }
+
+        private static boolean isLiteral(String s) {
+            if (s == null || s.isEmpty()) {
+                return false;
+            }
+
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                boolean ascii = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+                if (!ascii && c != '_' && c != '-') {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static int[] toArray(List<Integer> l) {
+            int[] result = new int[l.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = l.get(i);
+            }
+            return result;
+        }
+    }
 }
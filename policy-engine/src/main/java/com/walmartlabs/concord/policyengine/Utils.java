@@ -20,6 +20,11 @@ package com.walmartlabs.concord.policyengine;
  * =====
  */
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +38,11 @@ public final class Utils {
 
     private static final Pattern FILE_SIZE_PATTERN = Pattern.compile("([\\d.]+)(.*)");
 
+    private static final int MAX_CACHED_PATTERNS = 4096;
+    private static final LoadingCache<String, Pattern> PATTERNS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PATTERNS)
+            .build(CacheLoader.from(p -> Pattern.compile(p, Pattern.CASE_INSENSITIVE)));
+
     public static boolean matchAny(List<String> patterns, String value) {
         for (String p : patterns) {
             if (matches(p, value)) {
@@ -44,7 +54,25 @@ public final class Utils {
     }
 
     public static boolean matches(String pattern, String value) {
-        return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(value).matches();
+        return compile(pattern).matcher(value).matches();
+    }
+
+    /**
+     * Returns a case-insensitive {@link Pattern} for the specified regex.
+     * Compiled patterns are cached, policy rules are evaluated many times
+     * with the same set of patterns.
+     */
+    public static Pattern compile(String pattern) {
+        try {
+            return PATTERNS.getUnchecked(pattern);
+        } catch (UncheckedExecutionException e) {
+            // invalid patterns are not cached, rethrow the original PatternSyntaxException
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
     }
 
     public static boolean matches(Map<String, Object> conditions, Map<String, Object> data) {
@@ -30,10 +30,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 public class WorkspacePolicy {
 
     private final WorkspaceRule rule;
+    private volatile List<Pattern> ignoredFiles;
 
     public WorkspacePolicy(WorkspaceRule rule) {
         this.rule = rule;
@@ -52,12 +54,13 @@ public class WorkspacePolicy {
             deny.add(new CheckResult.Item<>(rule, p, "Not a directory: " + p));
         } else if (rule.getMaxSizeInBytes() != null) {
             Long[] size = { 0L };
+            List<Pattern> ignoredFiles = getIgnoredFiles();
 
             Files.walkFileTree(p, new SimpleFileVisitor<Path>() {
 
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (isIgnored(file, rule.getIgnoredFiles())) {
+                    if (isIgnored(file, ignoredFiles)) {
                         return FileVisitResult.CONTINUE;
                     }
 
@@ -75,17 +78,41 @@ public class WorkspacePolicy {
         return new CheckResult<>(Collections.emptyList(), deny);
     }
 
-    private static boolean isIgnored(Path p, Set<String> patterns) {
-        if (patterns == null) {
+    private List<Pattern> getIgnoredFiles() {
+        // compiled on first use, invalid patterns must fail the check, not the policy's creation
+        List<Pattern> result = ignoredFiles;
+        if (result == null) {
+            result = compile(rule.getIgnoredFiles());
+            ignoredFiles = result;
+        }
+        return result;
+    }
+
+    private static boolean isIgnored(Path p, List<Pattern> patterns) {
+        if (patterns.isEmpty()) {
             return false;
         }
 
-        for (String s : patterns) {
-            if (p.toString().matches(s)) {
+        String s = p.toString();
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(s).matches()) {
                 return true;
             }
         }
 
         return false;
     }
+
+    private static List<Pattern> compile(Set<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Pattern> result = new ArrayList<>(patterns.size());
+        for (String s : patterns) {
+            // same as String#matches, case-sensitive
+            result.add(Pattern.compile(s));
+        }
+        return result;
+    }
 }
@@ -25,8 +25,7 @@ import org.junit.Test;
 import java.io.Serializable;
 import java.util.*;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class TaskPolicyTest {
 
@@ -169,6 +168,27 @@ public class TaskPolicyTest {
         assertDenyByTaskResults(policy, "taskName-12", "foo", Collections.singletonMap("taskName-12", taskResults));
     }
 
+    @Test
+    public void testRuleOrderWithIndexedNames() {
+        TaskRule r1 = new TaskRule("regex", "task.*", null, null, null);
+        TaskRule r2 = new TaskRule("literal", "TaskName", null, null, null);
+        TaskRule r3 = new TaskRule("other", "otherTask", null, null, null);
+
+        PolicyRules<TaskRule> rules = new PolicyRules<>(null, null, Arrays.asList(r3, r1, r2));
+
+        TaskPolicy policy = new TaskPolicy(rules);
+
+        // ---
+        CheckResult<TaskRule, String> result = policy.check("taskname", "foo", null, null);
+        assertEquals(1, result.getDeny().size());
+        assertSame(r1, result.getDeny().get(0).getRule());
+
+        result = policy.check("OTHERTASK", "foo", null, null);
+        assertSame(r3, result.getDeny().get(0).getRule());
+
+        assertAllow(policy, "unknown", "foo");
+    }
+
     private static void assertDeny(TaskPolicy policy, String taskName, String methodName, Object...params) {
         CheckResult<TaskRule, String> result = policy.check(taskName, methodName, params, null);
         assertFalse(result.getDeny().isEmpty());
@@ -27,6 +27,7 @@ import org.immutables.value.Value;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Value.Immutable
 @Value.Style(jdkOnly = true)
@@ -43,6 +44,15 @@ public interface DockerConfiguration {
         return Collections.emptyList();
     }
 
+    /**
+     * Images pre-pulled by the agent, mapped to their pinned digest references.
+     * Containers using these images are started by digest without pulling.
+     */
+    @Value.Default
+    default Map<String, String> pinnedImages() {
+        return Collections.emptyMap();
+    }
+
     static ImmutableDockerConfiguration.Builder builder() {
         return ImmutableDockerConfiguration.builder();
     }
@@ -31,11 +31,18 @@ import com.walmartlabs.concord.sdk.Constants;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 public class ProjectLoaderV2 {
 
+    /**
+     * Directories that never contain process definitions. Skipped when
+     * looking for resources.
+     */
+    private static final Set<String> IGNORED_DIRS = new HashSet<>(Arrays.asList(".git", ".hg", ".svn", "node_modules"));
+
     private final ImportManager importManager;
 
     public ProjectLoaderV2(ImportManager importManager) {
@@ -55,13 +62,9 @@ public class ProjectLoaderV2 {
             snapshots = importManager.process(imports, baseDir);
         }
 
-        List<Path> files = loadResources(baseDir, root != null ? root.resources() : Resources.builder().build());
-        Collections.sort(files);
+        Set<Path> files = new TreeSet<>(loadResources(baseDir, root != null ? root.resources() : Resources.builder().build()));
 
-        List<ProcessDefinition> definitions = new ArrayList<>();
-        for (Path p : files) {
-            definitions.add(parser.parse(baseDir, p));
-        }
+        List<ProcessDefinition> definitions = parse(parser, baseDir, files);
 
         if (root != null) {
             definitions.add(root);
@@ -122,14 +125,41 @@ public class ProjectLoaderV2 {
         return new Result(Collections.emptyList(), parser.parse(path.getParent(), path));
     }
 
+    /**
+     * Parses the files in parallel. The result and the reported error (if any)
+     * do not depend on the parsing order.
+     */
+    private static List<ProcessDefinition> parse(YamlParserV2 parser, Path baseDir, Collection<Path> files) throws IOException {
+        List<Object> results = files.parallelStream()
+                .map(p -> {
+                    try {
+                        return (Object) parser.parse(baseDir, p);
+                    } catch (IOException | RuntimeException e) {
+                        return e;
+                    }
+                })
+                .collect(Collectors.toList());
+
+        List<ProcessDefinition> definitions = new ArrayList<>(results.size() + 1);
+        for (Object r : results) {
+            if (r instanceof IOException) {
+                throw (IOException) r;
+            } else if (r instanceof RuntimeException) {
+                throw (RuntimeException) r;
+            }
+            definitions.add((ProcessDefinition) r);
+        }
+        return definitions;
+    }
+
     private static List<Path> loadResources(Path baseDir, Resources resources) throws IOException {
         List<Path> result = new ArrayList<>();
+
+        List<PathMatcher> matchers = new ArrayList<>();
         for (String pattern : resources.concord()) {
             PathMatcher pathMatcher = parsePattern(baseDir, pattern);
             if (pathMatcher != null) {
-                try (Stream<Path> w = Files.walk(baseDir)) {
-                    w.filter(pathMatcher::matches).forEach(result::add);
-                }
+                matchers.add(pathMatcher);
             } else {
                 Path path = Paths.get(concat(baseDir, pattern.trim()));
                 if (Files.exists(path)) {
@@ -137,6 +167,34 @@ public class ProjectLoaderV2 {
                 }
             }
         }
+
+        if (matchers.isEmpty()) {
+            return result;
+        }
+
+        // a single walk for all patterns
+        Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                Path n = dir.getFileName();
+                if (n != null && !dir.equals(baseDir) && IGNORED_DIRS.contains(n.toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                for (PathMatcher m : matchers) {
+                    if (m.matches(file)) {
+                        result.add(file);
+                        break;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
         return result;
     }
 
@@ -159,18 +217,7 @@ public class ProjectLoaderV2 {
     }
 
     private static ProcessDefinition merge(List<ProcessDefinition> definitions) {
-        if (definitions.isEmpty()) {
-            throw new IllegalArgumentException("Definitions is empty");
-        }
-
-        ProcessDefinition result = definitions.get(0);
-        for (int i = 1; i < definitions.size(); i++) {
-            ProcessDefinition pd = definitions.get(i);
-
-            result = ProcessDefinition.merge(result, pd);
-        }
-
-        return result;
+        return ProcessDefinition.merge(definitions);
     }
 
     private static String concat(Path path, String str) {
@@ -76,6 +76,52 @@ public interface ProcessDefinition extends Serializable {
         return ImmutableProcessDefinition.builder();
     }
 
+    /**
+     * Merges the definitions in the specified order, same as merging them
+     * pairwise using {@link #merge(ProcessDefinition, ProcessDefinition)},
+     * but builds the result only once.
+     */
+    static ProcessDefinition merge(List<ProcessDefinition> definitions) {
+        if (definitions.isEmpty()) {
+            throw new IllegalArgumentException("Definitions is empty");
+        }
+
+        ProcessDefinition first = definitions.get(0);
+        if (definitions.size() == 1) {
+            return first;
+        }
+
+        ProcessDefinitionConfiguration configuration = first.configuration();
+        Map<String, List<Step>> flows = new LinkedHashMap<>(first.flows());
+        Map<String, Profile> profiles = new HashMap<>(first.profiles());
+        List<Trigger> triggers = new ArrayList<>(first.triggers());
+        Imports imports = first.imports();
+        Map<String, Form> forms = new LinkedHashMap<>(first.forms());
+
+        for (int i = 1; i < definitions.size(); i++) {
+            ProcessDefinition pd = definitions.get(i);
+
+            configuration = ProcessDefinitionConfiguration.merge(configuration, pd.configuration());
+            flows.putAll(pd.flows());
+            for (Map.Entry<String, Profile> p : pd.profiles().entrySet()) {
+                Profile pa = profiles.getOrDefault(p.getKey(), Profile.builder().build());
+                profiles.put(p.getKey(), Profile.merge(pa, p.getValue()));
+            }
+            triggers.addAll(pd.triggers());
+            imports = Imports.merge(imports, pd.imports());
+            forms.putAll(pd.forms());
+        }
+
+        return ProcessDefinition.builder().from(first)
+                .configuration(configuration)
+                .flows(flows)
+                .profiles(profiles)
+                .triggers(triggers)
+                .imports(imports)
+                .forms(forms)
+                .build();
+    }
+
     static ProcessDefinition merge(ProcessDefinition a, ProcessDefinition b) {
         Map<String, Profile> profiles = new HashMap<>(a.profiles());
         for (Map.Entry<String, Profile> p : b.profiles().entrySet()) {
@@ -44,21 +44,17 @@ import java.util.stream.Collectors;
 
 public class YamlParserV2 {
 
+    /**
+     * The configured mapper is thread-safe and expensive to create, so it is
+     * shared by all parser instances. The current file name is passed to the
+     * deserializers using {@link ThreadLocalFileName}.
+     */
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = createObjectMapper();
+
     private final ObjectMapper objectMapper;
 
     public YamlParserV2() {
-        ObjectMapper om = new ObjectMapper(new YAMLFactory()
-                .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION))
-                .disable(MapperFeature.USE_ANNOTATIONS);
-
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(ProcessDefinition.class, YamlDeserializersV2.getProcessDefinitionDeserializer());
-
-        om.registerModule(module);
-        om.registerModule(new GuavaModule());
-        om.registerModule(new Jdk8Module());
-
-        this.objectMapper = om;
+        this.objectMapper = DEFAULT_OBJECT_MAPPER;
     }
 
     public ProcessDefinition parse(Path baseDir, Path file) throws IOException {
@@ -77,6 +73,21 @@ public class YamlParserV2 {
         }
     }
 
+    private static ObjectMapper createObjectMapper() {
+        ObjectMapper om = new ObjectMapper(new YAMLFactory()
+                .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION))
+                .disable(MapperFeature.USE_ANNOTATIONS);
+
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(ProcessDefinition.class, YamlDeserializersV2.getProcessDefinitionDeserializer());
+
+        om.registerModule(module);
+        om.registerModule(new GuavaModule());
+        om.registerModule(new Jdk8Module());
+
+        return om;
+    }
+
     private static YamlParserException toErr(String msg, JsonProcessingException jpe) {
         String loc = toShortString(jpe.getLocation());
         String originalMsg = jpe.getOriginalMessage();
@@ -20,6 +20,7 @@ package com.walmartlabs.concord.project.runtime.v2;
  * =====
  */
 
+import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.imports.ImportManager;
 import com.walmartlabs.concord.runtime.v2.NoopImportsNormalizer;
 import com.walmartlabs.concord.runtime.v2.ProjectLoaderV2;
@@ -28,11 +29,13 @@ import com.walmartlabs.concord.runtime.v2.model.ProcessDefinitionConfiguration;
 import org.junit.Test;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
 
 public class ProjectLoaderV2Test {
@@ -59,4 +62,46 @@ public class ProjectLoaderV2Test {
         assertNotNull(cfg.template());
         assertEquals("mytemplate", cfg.template());
     }
+
+    /**
+     * Loads a synthetic project with 500 flow files. Files in .git and node_modules
+     * directories must be ignored.
+     */
+    @Test
+    public void testLargeProject() throws Exception {
+        int fileCount = 500;
+
+        Path baseDir = IOUtils.createTempDir("test");
+        try {
+            write(baseDir.resolve("concord.yml"), "flows:\n  default:\n  - log: \"root\"\n");
+
+            for (int i = 0; i < fileCount; i++) {
+                write(baseDir.resolve("concord").resolve("dir" + (i % 10)).resolve("flow" + i + ".concord.yml"),
+                        "flows:\n  flow" + i + ":\n  - log: \"hello " + i + "\"\n" +
+                                "configuration:\n  arguments:\n    x: " + i + "\n");
+            }
+
+            write(baseDir.resolve("concord").resolve(".git").resolve("ignored.concord.yml"), "flows:\n  ignored:\n  - log: \"x\"\n");
+            write(baseDir.resolve("concord").resolve("node_modules").resolve("ignored.concord.yml"), "flows:\n  ignored:\n  - log: \"x\"\n");
+
+            ProjectLoaderV2 loader = new ProjectLoaderV2(mock(ImportManager.class));
+
+            ProjectLoaderV2.Result result = loader.load(baseDir, new NoopImportsNormalizer());
+
+            ProcessDefinition pd = result.getProjectDefinition();
+            assertEquals(fileCount + 1, pd.flows().size());
+            assertNotNull(pd.flows().get("default"));
+            assertFalse(pd.flows().containsKey("ignored"));
+
+            // files are merged in the sorted order, regardless of the parsing order
+            assertEquals(99, pd.configuration().arguments().get("x"));
+        } finally {
+            IOUtils.deleteRecursively(baseDir);
+        }
+    }
+
+    private static void write(Path p, String content) throws Exception {
+        Files.createDirectories(p.getParent());
+        Files.write(p, content.getBytes(StandardCharsets.UTF_8));
+    }
 }
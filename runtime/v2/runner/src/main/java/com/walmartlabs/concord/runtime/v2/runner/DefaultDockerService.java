@@ -34,10 +34,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public class DefaultDockerService implements DockerService {
@@ -55,12 +53,15 @@ public class DefaultDockerService implements DockerService {
     private final WorkingDirectory workingDirectory;
     private final InstanceId instanceId;
     private final List<String> extraVolumes;
+    private final Map<String, String> pinnedImages;
+    private final Set<String> pulledImages = ConcurrentHashMap.newKeySet();
 
     @Inject
     public DefaultDockerService(WorkingDirectory workingDirectory, InstanceId instanceId, RunnerConfiguration runnerCfg) {
         this.workingDirectory = workingDirectory;
         this.instanceId = instanceId;
         this.extraVolumes = runnerCfg.docker().extraVolumes();
+        this.pinnedImages = runnerCfg.docker().pinnedImages();
     }
 
     @Override
@@ -70,8 +71,10 @@ public class DefaultDockerService implements DockerService {
         int retryCount = Math.max(spec.pullRetryCount(), 0);
         long retryInterval = spec.pullRetryInterval();
 
+        DockerContainerSpec effectiveSpec = createEffectiveSpec(spec);
+
         do {
-            Process p = start(spec);
+            Process p = start(effectiveSpec);
 
             LogCapture c = new LogCapture(outCallback);
             streamToLog(p.getInputStream(), c);
@@ -80,6 +83,11 @@ public class DefaultDockerService implements DockerService {
             }
 
             result = p.waitFor();
+            if (result == SUCCESS_EXIT_CODE && effectiveSpec.forcePull()) {
+                // the image is fresh enough for the rest of the process
+                pulledImages.add(effectiveSpec.image());
+            }
+
             if (result == SUCCESS_EXIT_CODE || retryCount == 0 || tryCount >= retryCount) {
                 return result;
             }
@@ -108,6 +116,28 @@ public class DefaultDockerService implements DockerService {
         return b.build();
     }
 
+    /**
+     * Replaces the image with its digest if the image was pre-pulled by the agent.
+     * Skips pulling of images that were already pulled by the current process.
+     */
+    private DockerContainerSpec createEffectiveSpec(DockerContainerSpec spec) {
+        String pinned = pinnedImages.get(spec.image());
+        if (pinned != null) {
+            return DockerContainerSpec.builder().from(spec)
+                    .image(pinned)
+                    .forcePull(false)
+                    .build();
+        }
+
+        if (spec.forcePull() && pulledImages.contains(spec.image())) {
+            return DockerContainerSpec.builder().from(spec)
+                    .forcePull(false)
+                    .build();
+        }
+
+        return spec;
+    }
+
     private static boolean needRetry(List<String> lines) {
         for (String l : lines) {
             for (Pattern p : REGISTRY_ERROR_PATTERNS) {
@@ -21,6 +21,7 @@ package com.walmartlabs.concord.runtime.v2.runner;
  */
 
 import com.google.inject.Injector;
+import com.walmartlabs.concord.runtime.v2.runner.logging.SegmentedLogger;
 import com.walmartlabs.concord.svm.Runtime;
 import com.walmartlabs.concord.svm.State;
 import com.walmartlabs.concord.svm.ThreadId;
@@ -44,10 +45,11 @@ public class DefaultRuntime implements Runtime {
 
     @Override
     public void spawn(State state, ThreadId threadId) {
-        executor.submit(() -> {
+        // pooled threads don't inherit the caller's log segment
+        executor.submit(SegmentedLogger.wrap(() -> {
             vm.eval(this, state, threadId);
             return null;
-        });
+        }));
     }
 
     @Override
@@ -23,24 +23,54 @@ package com.walmartlabs.concord.runtime.v2.runner;
 import com.walmartlabs.concord.runtime.v2.runner.tasks.TaskProviders;
 import com.walmartlabs.concord.runtime.v2.sdk.Context;
 import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.svm.ExecutionListener;
+import com.walmartlabs.concord.svm.Frame;
+import com.walmartlabs.concord.svm.Runtime;
+import com.walmartlabs.concord.svm.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.script.*;
+import java.io.IOException;
 import java.io.Reader;
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-public class DefaultScriptEvaluator implements ScriptEvaluator {
+/**
+ * Evaluates scripts using JSR 223 script engines.
+ * <p>
+ * Script engines are expensive to create, so the evaluator keeps a bounded pool
+ * of engines per language. When all pooled engines are in use (e.g. concurrent or
+ * nested evaluations) a new, non-pooled engine is created. Each engine keeps its
+ * own cache of compiled scripts (for engines that implement {@link Compilable})
+ * keyed by the script's content hash.
+ * Each evaluation gets its own {@link Bindings}, so pooled engines don't leak
+ * variables between scripts.
+ */
+@Singleton
+public class DefaultScriptEvaluator implements ScriptEvaluator, ExecutionListener {
 
     private static final Logger log = LoggerFactory.getLogger(MetadataProcessor.class);
 
     // TODO: deprecate "execution"? what about scripts - can't use "context" there?
     private static final String[] CONTEXT_VARIABLE_NAMES = {Constants.Context.CONTEXT_KEY, "execution"};
 
+    private static final int MAX_ENGINES_PER_LANGUAGE = 4;
+    private static final int MAX_COMPILED_SCRIPTS_PER_ENGINE = 256;
+
     private final TaskProviders taskProviders;
     private final ScriptEngineManager scriptEngineManager;
+    private final Map<String, EnginePool> pools = new ConcurrentHashMap<>();
 
     @Inject
     public DefaultScriptEvaluator(TaskProviders taskProviders) {
@@ -50,29 +80,55 @@ public class DefaultScriptEvaluator implements ScriptEvaluator {
 
     @Override
     public void eval(Context context, String language, Reader input, Map<String, Object> variables) {
-        ScriptEngine engine = getEngine(language);
-        if (engine == null) {
-            throw new RuntimeException("Script engine not found: " + language);
-        }
-
-        // expose all available variables plus the context
-        Bindings b = engine.createBindings();
-        for (String ctxVar: CONTEXT_VARIABLE_NAMES) {
-            b.put(ctxVar, context);
-        }
-        b.put("tasks", new TaskAccessor(taskProviders, context));
-        b.put("log", log);
-        b.putAll(variables);
+        String script = read(input);
 
+        EnginePool pool = pools.computeIfAbsent(language, EnginePool::new);
+        PooledEngine engine = pool.borrow();
         try {
-            engine.eval(input, b);
+            ScriptEngine e = engine.engine;
+
+            // expose all available variables plus the context
+            Bindings b = e.createBindings();
+            for (String ctxVar: CONTEXT_VARIABLE_NAMES) {
+                b.put(ctxVar, context);
+            }
+            b.put("tasks", new TaskAccessor(taskProviders, context));
+            b.put("log", log);
+            b.putAll(variables);
+
+            long t1 = System.nanoTime();
+            CompiledScript compiled = engine.compile(script);
+            long t2 = System.nanoTime();
+
+            if (compiled != null) {
+                compiled.eval(b);
+            } else {
+                e.eval(script, b);
+            }
+
+            long t3 = System.nanoTime();
+            pool.stats.record(t2 - t1, t3 - t2);
         } catch (ScriptException e) {
             throw new RuntimeException(e.getMessage());
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            pool.release(engine);
         }
     }
 
+    long evaluations(String language) {
+        EnginePool pool = pools.get(language);
+        return pool != null ? pool.stats.evaluations.sum() : 0;
+    }
+
+    long compilations(String language) {
+        EnginePool pool = pools.get(language);
+        return pool != null ? pool.stats.compilations.sum() : 0;
+    }
+
     @Override
     public boolean hasLanguage(String language) {
         for (ScriptEngineFactory factory : scriptEngineManager.getEngineFactories()) {
@@ -89,8 +145,149 @@ public class DefaultScriptEvaluator implements ScriptEvaluator {
         return false;
     }
 
-    private ScriptEngine getEngine(String language) {
-        return scriptEngineManager.getEngineByName(language);
+    /**
+     * Logs the time spent compiling and executing scripts.
+     */
+    @Override
+    public void afterProcessEnds(Runtime runtime, State state, Frame lastFrame) {
+        pools.forEach((language, pool) -> {
+            Stats s = pool.stats;
+            log.info("Scripts ({}): {} evaluation(s), {} compilation(s), compilation {}ms, execution {}ms",
+                    language, s.evaluations.sum(), s.compilations.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(s.compilationTime.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(s.executionTime.sum()));
+        });
+    }
+
+    private ScriptEngine createEngine(String language) {
+        ScriptEngine engine = scriptEngineManager.getEngineByName(language);
+        if (engine == null) {
+            throw new RuntimeException("Script engine not found: " + language);
+        }
+        return engine;
+    }
+
+    private static String read(Reader input) {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[4096];
+        try {
+            int n;
+            while ((n = input.read(buf)) >= 0) {
+                sb.append(buf, 0, n);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading the script: " + e.getMessage(), e);
+        }
+        return sb.toString();
+    }
+
+    private static String hash(String script) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A bounded pool of script engines of the same language.
+     */
+    private final class EnginePool {
+
+        private final String language;
+        private final BlockingQueue<PooledEngine> idle = new ArrayBlockingQueue<>(MAX_ENGINES_PER_LANGUAGE);
+        private final AtomicInteger created = new AtomicInteger();
+        private final Stats stats = new Stats();
+
+        private EnginePool(String language) {
+            this.language = language;
+        }
+
+        PooledEngine borrow() {
+            PooledEngine e = idle.poll();
+            if (e != null) {
+                return e;
+            }
+
+            if (created.incrementAndGet() <= MAX_ENGINES_PER_LANGUAGE) {
+                try {
+                    return new PooledEngine(createEngine(language), stats, true);
+                } catch (RuntimeException ex) {
+                    created.decrementAndGet();
+                    throw ex;
+                }
+            }
+            created.decrementAndGet();
+
+            // don't wait for a pooled engine: a nested evaluation would wait for
+            // the engine borrowed by its own caller
+            return new PooledEngine(createEngine(language), stats, false);
+        }
+
+        void release(PooledEngine e) {
+            if (e.pooled) {
+                idle.offer(e);
+            }
+        }
+    }
+
+    private static final class PooledEngine {
+
+        private final ScriptEngine engine;
+        private final Stats stats;
+        private final boolean pooled;
+
+        /**
+         * Compiled scripts by their content hash. Used only by the thread that
+         * borrowed the engine.
+         */
+        private final Map<String, CompiledScript> compiled = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > MAX_COMPILED_SCRIPTS_PER_ENGINE;
+            }
+        };
+
+        private PooledEngine(ScriptEngine engine, Stats stats, boolean pooled) {
+            this.engine = engine;
+            this.stats = stats;
+            this.pooled = pooled;
+        }
+
+        /**
+         * @return the compiled script or {@code null} if the engine doesn't support compilation
+         */
+        CompiledScript compile(String script) throws ScriptException {
+            if (!(engine instanceof Compilable)) {
+                return null;
+            }
+
+            String key = hash(script);
+
+            CompiledScript result = compiled.get(key);
+            if (result == null) {
+                result = ((Compilable) engine).compile(script);
+                compiled.put(key, result);
+                stats.compilations.increment();
+            }
+
+            return result;
+        }
+    }
+
+    private static final class Stats {
+
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder compilations = new LongAdder();
+        private final LongAdder compilationTime = new LongAdder();
+        private final LongAdder executionTime = new LongAdder();
+
+        void record(long compilationNanos, long executionNanos) {
+            evaluations.increment();
+            compilationTime.add(compilationNanos);
+            executionTime.add(executionNanos);
+        }
     }
 
     public static class TaskAccessor {
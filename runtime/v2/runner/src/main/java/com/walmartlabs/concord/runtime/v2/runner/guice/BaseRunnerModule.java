@@ -35,6 +35,7 @@ import com.walmartlabs.concord.runtime.v2.sdk.Compiler;
 import com.walmartlabs.concord.runtime.v2.sdk.Context;
 import com.walmartlabs.concord.runtime.v2.sdk.FileService;
 import com.walmartlabs.concord.runtime.v2.sdk.TaskProvider;
+import com.walmartlabs.concord.svm.ExecutionListener;
 
 /**
  * Contains basic services that can work in anyenvironment (unit tests, actual runtime, CLI, etc).
@@ -61,5 +62,8 @@ public class BaseRunnerModule extends AbstractModule {
         Multibinder<TaskCallListener> taskCallListeners = Multibinder.newSetBinder(binder(), TaskCallListener.class);
         taskCallListeners.addBinding().to(TaskCallPolicyChecker.class);
         taskCallListeners.addBinding().to(TaskResultListener.class);
+
+        Multibinder<ExecutionListener> executionListeners = Multibinder.newSetBinder(binder(), ExecutionListener.class);
+        executionListeners.addBinding().to(DefaultScriptEvaluator.class);
     }
 }
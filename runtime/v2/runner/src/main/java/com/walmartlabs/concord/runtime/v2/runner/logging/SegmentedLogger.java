@@ -30,7 +30,7 @@ import uk.org.lidalia.sysoutslf4j.context.SysOutOverSLF4J;
 
 import java.io.Serializable;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
 
 import static ch.qos.logback.classic.ClassicConstants.FINALIZE_SESSION_MARKER;
 
@@ -38,6 +38,13 @@ public class SegmentedLogger {
 
     private static final Logger log = LoggerFactory.getLogger(SegmentedLogger.class);
 
+    /**
+     * The current log segment. Threads started by the code running in a segment
+     * (e.g. by tasks) inherit the segment. Thread pools must use {@link #wrap(Callable)}
+     * as the pooled threads can outlive the segment they were created in.
+     */
+    private static final InheritableThreadLocal<Segment> CURRENT = new InheritableThreadLocal<>();
+
     private static volatile boolean ENABLED = false;
 
     public static void enable() {
@@ -46,18 +53,13 @@ public class SegmentedLogger {
 
     public static void withLogSegment(String name, String segmentId, boolean redirectSystemOutAndErr, Runnable runnable) {
         if (!ENABLED) {
-            try {
-                runnable.run();
-            } catch (RuntimeException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+            runnable.run();
             return;
         }
 
-        ThreadGroup threadGroup = new SegmentThreadGroup(name, segmentId);
-        executeInThreadGroup(threadGroup, "thread-" + name, () -> {
+        Segment previous = CURRENT.get();
+        CURRENT.set(new Segment(name, segmentId));
+        try {
             // make sure the redirection is enabled in the current thread
             if (redirectSystemOutAndErr && !SysOutOverSLF4J.systemOutputsAreSLF4JPrintStreams()) {
                 SysOutOverSLF4J.sendSystemOutAndErrToSLF4J(LogLevel.INFO, LogLevel.WARN);
@@ -68,7 +70,35 @@ public class SegmentedLogger {
             } finally {
                 log.info(FINALIZE_SESSION_MARKER, "<<finalize>>");
             }
-        });
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Returns the discriminating value of the current log segment or {@code null}
+     * if the current thread is not in a segment.
+     */
+    public static String currentSegment() {
+        Segment s = CURRENT.get();
+        return s != null ? s.discriminatingValue : null;
+    }
+
+    /**
+     * Binds the {@link Callable} to the caller's log segment, so it can be executed
+     * by a pooled thread.
+     */
+    public static <T> Callable<T> wrap(Callable<T> callable) {
+        Segment segment = CURRENT.get();
+        return () -> {
+            Segment previous = CURRENT.get();
+            restore(segment);
+            try {
+                return callable.call();
+            } finally {
+                restore(previous);
+            }
+        };
     }
 
     public static String getSegmentName(AbstractStep<?> step) {
@@ -85,44 +115,20 @@ public class SegmentedLogger {
         return (String) meta.get(Constants.SEGMENT_NAME);
     }
 
-    /**
-     * Executes the {@link Callable} in the specified {@link ThreadGroup}.
-     * A bit expensive as it is creates a new thread.
-     */
-    private static void executeInThreadGroup(ThreadGroup group, String threadName, Runnable runnable) {
-        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadGroupAwareThreadFactory(group, threadName));
-        Future<?> result = executor.submit(runnable);
-        try {
-            result.get();
-        } catch (InterruptedException e) { // NOSONAR
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            if (cause != null) {
-                if (cause instanceof RuntimeException) {
-                    throw (RuntimeException) cause;
-                } else {
-                    throw new RuntimeException(cause);
-                }
-            }
-
-            throw new RuntimeException(e);
+    private static void restore(Segment segment) {
+        if (segment == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(segment);
         }
     }
 
-    private static final class ThreadGroupAwareThreadFactory implements ThreadFactory {
-
-        private final ThreadGroup group;
-        private final String threadName;
+    private static final class Segment {
 
-        private ThreadGroupAwareThreadFactory(ThreadGroup group, String threadName) {
-            this.group = group;
-            this.threadName = threadName;
-        }
+        private final String discriminatingValue;
 
-        @Override
-        public Thread newThread(Runnable r) {
-            return new Thread(group, r, threadName);
+        private Segment(String name, String segmentId) {
+            this.discriminatingValue = segmentId + "-" + name;
         }
     }
 }
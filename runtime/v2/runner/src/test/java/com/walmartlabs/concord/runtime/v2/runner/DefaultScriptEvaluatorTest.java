@@ -0,0 +1,144 @@
+package com.walmartlabs.concord.runtime.v2.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.runtime.v2.runner.tasks.TaskProviders;
+import com.walmartlabs.concord.runtime.v2.sdk.Context;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class DefaultScriptEvaluatorTest {
+
+    private static final String LANGUAGE = "groovy";
+
+    private DefaultScriptEvaluator evaluator;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        evaluator = new DefaultScriptEvaluator(mock(TaskProviders.class));
+        context = mock(Context.class);
+    }
+
+    @Test
+    public void testBindingsDontLeak() {
+        Map<String, Object> result = new HashMap<>();
+
+        // undeclared variables are stored in the script's bindings
+        eval("leaked = 123", Collections.emptyMap());
+        eval("result.put('defined', binding.hasVariable('leaked'))", Collections.singletonMap("result", result));
+
+        assertEquals(false, result.get("defined"));
+    }
+
+    @Test
+    public void testCompiledScriptsAreReused() {
+        Map<String, Object> result = new HashMap<>();
+        String script = "result.put('x', x)";
+
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("result", result);
+            vars.put("x", i);
+            eval(script, vars);
+
+            // the same compiled script, new variables each time
+            assertEquals(i, result.get("x"));
+        }
+
+        assertEquals(10, evaluator.evaluations(LANGUAGE));
+        assertEquals(1, evaluator.compilations(LANGUAGE));
+
+        eval("result.put('y', 1)", Collections.singletonMap("result", result));
+        assertEquals(2, evaluator.compilations(LANGUAGE));
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentEvaluations() throws Exception {
+        int threads = 16;
+        int iterations = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int threadId = t;
+                futures.add(executor.submit(() -> {
+                    int mismatches = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        Map<String, Object> result = new HashMap<>();
+                        Map<String, Object> vars = new HashMap<>();
+                        vars.put("result", result);
+                        vars.put("x", threadId * 1000 + i);
+
+                        eval("result.put('x', x)", vars);
+
+                        if (!Integer.valueOf(threadId * 1000 + i).equals(result.get("x"))) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+
+            for (Future<Integer> f : futures) {
+                assertEquals(0, (int) f.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * iterations, evaluator.evaluations(LANGUAGE));
+    }
+
+    /**
+     * Nested evaluations deeper than the pool size must not wait for the engines
+     * borrowed by their callers.
+     */
+    @Test(timeout = 60000)
+    public void testNestedEvaluations() {
+        int depth = 10;
+        AtomicInteger level = new AtomicInteger();
+
+        Runnable[] nested = new Runnable[1];
+        nested[0] = () -> {
+            if (level.incrementAndGet() < depth) {
+                eval("nested.run()", Collections.singletonMap("nested", nested[0]));
+            }
+        };
+
+        eval("nested.run()", Collections.singletonMap("nested", nested[0]));
+
+        assertEquals(depth, level.get());
+    }
+
+    private void eval(String script, Map<String, Object> variables) {
+        evaluator.eval(context, LANGUAGE, new StringReader(script), variables);
+    }
+}
@@ -0,0 +1,112 @@
+package com.walmartlabs.concord.runtime.v2.runner.logging;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SegmentedLoggerTest {
+
+    @BeforeClass
+    public static void setUp() {
+        SegmentedLogger.enable();
+    }
+
+    @Test
+    public void testChildThreads() throws Exception {
+        AtomicReference<String> inner = new AtomicReference<>();
+
+        SegmentedLogger.withLogSegment("test", "1", false, () -> {
+            Thread t = new Thread(() -> inner.set(SegmentedLogger.currentSegment()));
+            t.start();
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertEquals("1-test", inner.get());
+        assertNull(SegmentedLogger.currentSegment());
+    }
+
+    @Test
+    public void testPooledThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AtomicReference<String> wrapped = new AtomicReference<>();
+            AtomicReference<String> unwrapped = new AtomicReference<>();
+
+            SegmentedLogger.withLogSegment("test", "2", false, () -> {
+                try {
+                    wrapped.set(executor.submit(SegmentedLogger.wrap(SegmentedLogger::currentSegment)).get());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            unwrapped.set(executor.submit(SegmentedLogger::currentSegment).get());
+
+            assertEquals("2-test", wrapped.get());
+            assertNull(unwrapped.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNestedSegments() {
+        SegmentedLogger.withLogSegment("outer", "3", false, () -> {
+            SegmentedLogger.withLogSegment("inner", "4", false, () ->
+                    assertEquals("4-inner", SegmentedLogger.currentSegment()));
+
+            assertEquals("3-outer", SegmentedLogger.currentSegment());
+        });
+    }
+
+    /**
+     * Segmented calls used to start a new thread each time.
+     * Now they must run on the caller's thread.
+     */
+    @Test
+    public void testRunsOnCallerThread() {
+        int iterations = 1000;
+        int[] counter = new int[1];
+        Thread caller = Thread.currentThread();
+
+        for (int i = 0; i < iterations; i++) {
+            SegmentedLogger.withLogSegment("task", String.valueOf(i), false, () -> {
+                assertSame(caller, Thread.currentThread());
+                counter[0]++;
+            });
+        }
+
+        assertEquals(iterations, counter[0]);
+    }
+}
@@ -30,14 +30,46 @@ import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.function.Function;
 
 public abstract class AbstractDao {
 
     protected final Configuration cfg;
+    private final ReplicaRouter replicaRouter;
 
     protected AbstractDao(Configuration cfg) {
+        this(cfg, null);
+    }
+
+    protected AbstractDao(Configuration cfg, ReplicaRouter replicaRouter) {
         this.cfg = cfg;
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Returns the configuration for replica-safe queries, i.e. read-only queries
+     * that can tolerate slightly stale data. Returns the primary configuration
+     * if the replica is not configured or not available.
+     */
+    protected Configuration replicaCfg() {
+        if (replicaRouter == null) {
+            return cfg;
+        }
+        return replicaRouter.get();
+    }
+
+    /**
+     * Same as {@link #txResult(TxResult)}, but runs on the replica database if
+     * it is available. See {@link #replicaCfg()}.
+     */
+    protected <T> T replicaTxResult(TxResult<T> t) {
+        try (DSLContext ctx = DSL.using(replicaCfg())) {
+            return ctx.transactionResult(cfg -> {
+                DSLContext tx = DSL.using(cfg);
+                return t.run(tx);
+            });
+        }
     }
 
     protected void tx(Tx t) {
@@ -58,6 +90,30 @@ public abstract class AbstractDao {
         }
     }
 
+    /**
+     * Executes the statements on a connection in the autocommit mode,
+     * i.e. outside of any transaction. Required for statements like
+     * {@code create index concurrently}.
+     */
+    protected void executeAutoCommit(String... statements) {
+        Connection conn = cfg.connectionProvider().acquire(); // NOSONAR
+        try {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(true);
+            try (Statement st = conn.createStatement()) {
+                for (String s : statements) {
+                    st.execute(s);
+                }
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error while executing a statement: " + e.getMessage(), e);
+        } finally {
+            cfg.connectionProvider().release(conn);
+        }
+    }
+
     protected InputStream getData(Function<DSLContext, String> sqlFn, PreparedStatementHandler h, int columnIndex) {
         String sql;
         try (DSLContext create = DSL.using(cfg)) {
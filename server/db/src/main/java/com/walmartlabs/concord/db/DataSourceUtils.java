@@ -69,6 +69,19 @@ public final class DataSourceUtils {
         return ds;
     }
 
+    public static DataSource createReadOnlyDataSource(DatabaseConfiguration cfg,
+                                                      String poolName,
+                                                      String username,
+                                                      String password,
+                                                      MetricRegistry metricRegistry) {
+
+        HikariDataSource ds = (HikariDataSource) createDataSource(cfg, poolName, username, password, metricRegistry);
+        ds.setReadOnly(true);
+        // the replica can be unavailable, don't block the server's startup
+        ds.setInitializationFailTimeout(-1);
+        return ds;
+    }
+
     public static void migrateDb(DataSource ds, DatabaseChangeLogProvider p) {
         migrateDb(ds, p, null);
     }
@@ -80,6 +80,22 @@ public class DatabaseModule extends AbstractModule {
         return DataSourceUtils.createJooqConfiguration(ds);
     }
 
+    @Provides
+    @ReplicaDB
+    @Singleton
+    public ReplicaRouter replicaRouter(@ReplicaDB ReplicaDatabaseConfiguration cfg,
+                                       @MainDB Configuration primary,
+                                       MetricRegistry metricRegistry) {
+
+        if (!cfg.enabled()) {
+            return new ReplicaRouter(primary, null);
+        }
+
+        // a separate pool with its own name, so it has its own metrics
+        DataSource ds = DataSourceUtils.createReadOnlyDataSource(cfg, "replica", cfg.username(), cfg.password(), metricRegistry);
+        return new ReplicaRouter(primary, DataSourceUtils.createJooqConfiguration(ds));
+    }
+
     @Provides
     @JsonStorageDB
     @Singleton
@@ -0,0 +1,118 @@
+package com.walmartlabs.concord.db;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.jooq.DSLContext;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.List;
+
+/**
+ * Helpers for tables partitioned by date. Assumes {@code table_yyyyMMdd}
+ * format of partition names, one partition per day (UTC).
+ */
+public final class Partitions {
+
+    public static final DateTimeFormatter PARTITION_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    public static String partitionName(String table, TemporalAccessor date) {
+        return table + "_" + PARTITION_DATE_FORMAT.format(date);
+    }
+
+    /**
+     * @return the day of the partition or {@code null} if the name doesn't
+     * match the {@code table_yyyyMMdd} format
+     */
+    public static LocalDate parsePartitionDay(String table, String partitionName) {
+        String prefix = table.toLowerCase() + "_";
+        String name = partitionName.toLowerCase();
+        if (!name.startsWith(prefix) || name.length() != prefix.length() + 8) {
+            return null;
+        }
+
+        try {
+            return LocalDate.parse(name.substring(prefix.length()), PARTITION_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the server version number, e.g. {@code 110005} for 11.5
+     */
+    public static int serverVersion(DSLContext tx) {
+        return tx.resultQuery("show server_version_num")
+                .fetchOne(r -> Integer.parseInt(r.get(0, String.class)));
+    }
+
+    /**
+     * @return {@code true} if the table uses declarative partitioning
+     */
+    public static boolean isPartitioned(DSLContext tx, String table) {
+        return tx.resultQuery("select exists(select 1 from pg_partitioned_table pt join pg_class c on c.oid = pt.partrelid where c.relname = ?)",
+                table.toLowerCase())
+                .fetchOne(r -> r.get(0, Boolean.class));
+    }
+
+    /**
+     * @return names (lower case) of all partitions of the table, including the default one
+     */
+    public static List<String> listPartitions(DSLContext tx, String table) {
+        return tx.resultQuery("select c.relname from pg_inherits i " +
+                        "join pg_class c on c.oid = i.inhrelid " +
+                        "join pg_class p on p.oid = i.inhparent " +
+                        "where p.relname = ? " +
+                        "order by c.relname",
+                table.toLowerCase())
+                .fetch(r -> r.get(0, String.class));
+    }
+
+    /**
+     * Creates a partition for the specified day if it doesn't exist.
+     */
+    public static void createDailyPartition(DSLContext tx, String table, LocalDate day) {
+        tx.execute("create table if not exists " + partitionName(table, day) +
+                " partition of " + table +
+                " for values from (" + bound(day) + ") to (" + bound(day.plusDays(1)) + ")");
+    }
+
+    public static void detachPartition(DSLContext tx, String table, String partitionName) {
+        tx.execute("alter table " + table + " detach partition " + partitionName);
+    }
+
+    public static void dropPartition(DSLContext tx, String partitionName) {
+        tx.execute("drop table if exists " + partitionName);
+    }
+
+    /**
+     * @return a {@code timestamptz} literal of the start of the specified day (UTC)
+     */
+    public static String bound(LocalDate day) {
+        return "'" + day.atStartOfDay().atOffset(ZoneOffset.UTC) + "'::timestamptz";
+    }
+
+    private Partitions() {
+    }
+}
@@ -32,6 +32,7 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.UUID;
 
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.inline;
@@ -74,6 +75,37 @@ public final class PgUtils {
         return DSL.field("length({0})", Long.class, field);
     }
 
+    /**
+     * Splits rows into {@code count} partitions using ranges of the specified UUID field.
+     * Returns a condition that matches only the rows of the partition {@code index}.
+     * <p>
+     * The condition is a plain range check, so it can use the field's index.
+     * Random (v4) UUIDs are spread evenly between the partitions.
+     */
+    public static Condition uuidPartition(Field<UUID> field, int index, int count) {
+        if (count <= 1) {
+            return DSL.trueCondition();
+        }
+
+        Condition c = DSL.trueCondition();
+        if (index > 0) {
+            c = c.and(field.greaterOrEqual(uuidPartitionBound(index, count)));
+        }
+        if (index < count - 1) {
+            c = c.and(field.lessThan(uuidPartitionBound(index + 1, count)));
+        }
+        return c;
+    }
+
+    /**
+     * Returns the lowest UUID of the partition {@code index}. The bounds are
+     * calculated using the top 32 bits of UUIDs.
+     */
+    static UUID uuidPartitionBound(int index, int count) {
+        long prefix = (1L << 32) / count * index;
+        return new UUID(prefix << 32, 0);
+    }
+
     public static boolean isUniqueViolationError(DataAccessException e) {
         Throwable cause = e.getCause();
         // see https://www.postgresql.org/docs/10/errcodes-appendix.html
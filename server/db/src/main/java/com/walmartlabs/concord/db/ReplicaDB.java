@@ -1,17 +1,17 @@
-package com.walmartlabs.concord.runtime.v2.runner.logging;
+package com.walmartlabs.concord.db;
 
 /*-
  * *****
  * Concord
  * -----
- * Copyright (C) 2017 - 2020 Walmart Inc.
+ * Copyright (C) 2017 - 2018 Walmart Inc.
  * -----
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *      http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -20,16 +20,15 @@ package com.walmartlabs.concord.runtime.v2.runner.logging;
  * =====
  */
 
-public class SegmentThreadGroup extends ThreadGroup {
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
-    private final String segmentId;
-
-    public SegmentThreadGroup(String name, String segmentId) {
-        super(name);
-        this.segmentId = segmentId;
-    }
-
-    public String getSegmentId() {
-        return segmentId;
-    }
+/**
+ * Marks the read-only replica of {@link MainDB}.
+ * See {@link ReplicaRouter}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Qualifier
+public @interface ReplicaDB {
 }
@@ -0,0 +1,37 @@
+package com.walmartlabs.concord.db;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.time.Duration;
+
+public interface ReplicaDatabaseConfiguration extends DatabaseConfiguration {
+
+    /**
+     * If {@code false} all queries are sent to the primary database.
+     */
+    boolean enabled();
+
+    /**
+     * Max replication lag. If the replica falls behind further,
+     * the queries are sent to the primary database.
+     */
+    Duration maxLag();
+}
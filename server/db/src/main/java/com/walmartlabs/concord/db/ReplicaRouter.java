@@ -0,0 +1,78 @@
+package com.walmartlabs.concord.db;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.jooq.Configuration;
+
+/**
+ * Routes read-only queries to the replica database while the replica
+ * is available and not lagging behind. Falls back to the primary
+ * database otherwise.
+ */
+public class ReplicaRouter {
+
+    private final Configuration primary;
+    private final Configuration replica;
+
+    // stays on the primary until the first successful lag check
+    private volatile boolean replicaAvailable = false;
+
+    public ReplicaRouter(Configuration primary, Configuration replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    /**
+     * @return {@code true} if a replica database is configured
+     */
+    public boolean isEnabled() {
+        return replica != null;
+    }
+
+    public Configuration primary() {
+        return primary;
+    }
+
+    /**
+     * @return the replica database configuration or {@code null} if the replica is not configured
+     */
+    public Configuration replica() {
+        return replica;
+    }
+
+    /**
+     * @return the configuration to use for read-only queries
+     */
+    public Configuration get() {
+        if (replica != null && replicaAvailable) {
+            return replica;
+        }
+        return primary;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    public void setReplicaAvailable(boolean replicaAvailable) {
+        this.replicaAvailable = replicaAvailable;
+    }
+}
@@ -0,0 +1,61 @@
+package com.walmartlabs.concord.db;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PgUtilsTest {
+
+    @Test
+    public void testUuidPartitionBounds() {
+        int count = 7;
+
+        assertEquals(new UUID(0, 0), PgUtils.uuidPartitionBound(0, count));
+
+        for (int i = 1; i < count; i++) {
+            // PostgreSQL compares UUIDs as unsigned bytes, the same order as their text form
+            String prev = PgUtils.uuidPartitionBound(i - 1, count).toString();
+            String next = PgUtils.uuidPartitionBound(i, count).toString();
+            assertTrue(prev + " < " + next, prev.compareTo(next) < 0);
+        }
+
+        // each UUID belongs to exactly one partition
+        for (int n = 0; n < 1000; n++) {
+            String id = UUID.randomUUID().toString();
+
+            int matches = 0;
+            for (int i = 0; i < count; i++) {
+                boolean afterLower = i == 0 || id.compareTo(PgUtils.uuidPartitionBound(i, count).toString()) >= 0;
+                boolean beforeUpper = i == count - 1 || id.compareTo(PgUtils.uuidPartitionBound(i + 1, count).toString()) < 0;
+                if (afterLower && beforeUpper) {
+                    matches++;
+                }
+            }
+
+            assertEquals(id, 1, matches);
+        }
+    }
+}
@@ -20,6 +20,14 @@ package com.walmartlabs.concord.server;
  * =====
  */
 
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.ListenersConfiguration;
+import com.walmartlabs.concord.server.listeners.ListenerOutbox;
+import com.walmartlabs.concord.server.listeners.ListenerOutboxDao;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.Range;
+import com.walmartlabs.concord.server.sdk.SynchronousListener;
 import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
 import com.walmartlabs.concord.server.sdk.audit.AuditLogListener;
 import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
@@ -27,86 +35,211 @@ import com.walmartlabs.concord.server.sdk.events.ProcessEventListener;
 import com.walmartlabs.concord.server.sdk.log.ProcessLogEntry;
 import com.walmartlabs.concord.server.sdk.log.ProcessLogListener;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.time.Duration;
-import java.util.Collection;
-import java.util.List;
-import java.util.concurrent.*;
-
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Delivers process events, process logs and audit events to the registered listeners.
+ * Each listener has its own {@link ListenerOutbox}, so a slow listener doesn't
+ * block the caller or other listeners.
+ * <p>
+ * Listeners marked with {@link SynchronousListener} (e.g. the internal listeners
+ * that release process locks) are called directly by the caller, their items are
+ * never dropped by the outbox' overflow policy.
+ */
 @Named
 @Singleton
-public class Listeners {
+public class Listeners implements BackgroundTask {
 
     private static final Logger log = LoggerFactory.getLogger(Listeners.class);
 
-    private static final int MAX_LISTENER_THREADS = 16;
-
-    private static final Duration MAX_LISTENER_TIME = Duration.ofSeconds(3);
+    private final List<ProcessEventListener> syncEventListeners = new ArrayList<>();
+    private final List<ProcessLogListener> syncLogListeners = new ArrayList<>();
+    private final List<AuditLogListener> syncAuditLogListeners = new ArrayList<>();
 
-    private final Collection<ProcessEventListener> eventListeners;
-    private final Collection<ProcessLogListener> logListeners;
-    private final Collection<AuditLogListener> auditLogListeners;
-
-    private final ForkJoinPool eventListenerPool;
-    private final ForkJoinPool logListenerPool;
-    private final ForkJoinPool auditLogListenerPool;
+    private final List<ListenerOutbox<ProcessEvent>> eventOutboxes = new ArrayList<>();
+    private final List<ListenerOutbox<ProcessLogEntry>> logOutboxes = new ArrayList<>();
+    private final List<ListenerOutbox<AuditEvent>> auditLogOutboxes = new ArrayList<>();
 
     @Inject
     public Listeners(Collection<ProcessEventListener> eventListeners,
                      Collection<ProcessLogListener> logListeners,
-                     Collection<AuditLogListener> auditLogListeners) {
+                     Collection<AuditLogListener> auditLogListeners,
+                     ListenersConfiguration cfg,
+                     ListenerOutboxDao outboxDao,
+                     ConcordObjectMapper objectMapper,
+                     MetricRegistry metricRegistry) {
+
+        Set<String> names = new HashSet<>();
+
+        for (ProcessEventListener l : eventListeners) {
+            log.info("Using process event listener: {}", l);
+            if (isSynchronous(l)) {
+                syncEventListeners.add(l);
+                continue;
+            }
+            eventOutboxes.add(new ListenerOutbox<>(sinkName("event", l, names), ProcessEvent.class,
+                    l::onEvents, cfg, outboxDao, objectMapper, metricRegistry));
+        }
 
-        this.eventListeners = eventListeners;
-        eventListeners.forEach(l -> log.info("Using process event listener: {}", l));
+        for (ProcessLogListener l : logListeners) {
+            log.info("Using process log listener: {}", l);
+            if (isSynchronous(l)) {
+                syncLogListeners.add(l);
+                continue;
+            }
+            logOutboxes.add(new ListenerOutbox<>(sinkName("log", l, names), ProcessLogEntry.class,
+                    entries -> mergeLogEntries(entries).forEach(l::onAppend), cfg, outboxDao, objectMapper, metricRegistry));
+        }
 
-        this.logListeners = logListeners;
-        logListeners.forEach(l -> log.info("Using process log listener: {}", l));
+        for (AuditLogListener l : auditLogListeners) {
+            log.info("Using audit log listener: {}", l);
+            if (isSynchronous(l)) {
+                syncAuditLogListeners.add(l);
+                continue;
+            }
+            auditLogOutboxes.add(new ListenerOutbox<>(sinkName("audit", l, names), AuditEvent.class,
+                    events -> events.forEach(l::onEvent), cfg, outboxDao, objectMapper, metricRegistry));
+        }
+    }
 
-        this.auditLogListeners = auditLogListeners;
-        auditLogListeners.forEach(l -> log.info("Using audit log listener: {}", l));
+    @Override
+    public void start() {
+        forEachOutbox(ListenerOutbox::start);
+        log.info("start -> done");
+    }
 
-        this.eventListenerPool = new ForkJoinPool(MAX_LISTENER_THREADS);
-        this.logListenerPool = new ForkJoinPool(MAX_LISTENER_THREADS);
-        this.auditLogListenerPool = new ForkJoinPool(MAX_LISTENER_THREADS);
+    @Override
+    public void stop() {
+        forEachOutbox(ListenerOutbox::stop);
+        log.info("stop -> done");
     }
 
     @WithTimer
     public void onProcessEvent(List<ProcessEvent> events) {
-        ForkJoinTask<?> task = eventListenerPool.submit(() -> {
-            eventListeners.parallelStream().forEach(l -> l.onEvents(events));
-        });
+        onProcessEvent(null, events);
+    }
+
+    /**
+     * @param tx the transaction used to insert the events. The events saved
+     *           by the listener outboxes are saved using the same transaction.
+     */
+    @WithTimer
+    public void onProcessEvent(DSLContext tx, List<ProcessEvent> events) {
+        for (ProcessEventListener l : syncEventListeners) {
+            l.onEvents(events);
+        }
 
-        waitFor(task);
+        for (ListenerOutbox<ProcessEvent> o : eventOutboxes) {
+            o.offerAll(tx, events);
+        }
     }
 
     @WithTimer
     public void onProcessLogAppend(ProcessLogEntry entry) {
-        ForkJoinTask<?> task = logListenerPool.submit(() -> {
-            logListeners.parallelStream().forEach(l -> l.onAppend(entry));
-        });
+        for (ProcessLogListener l : syncLogListeners) {
+            l.onAppend(entry);
+        }
 
-        waitFor(task);
+        for (ListenerOutbox<ProcessLogEntry> o : logOutboxes) {
+            o.offer(entry);
+        }
     }
 
     @WithTimer
     public void onAuditEvent(AuditEvent event) {
-        ForkJoinTask<?> task = auditLogListenerPool.submit(() -> {
-            auditLogListeners.parallelStream().forEach(l -> l.onEvent(event));
-        });
+        for (AuditLogListener l : syncAuditLogListeners) {
+            l.onEvent(event);
+        }
+
+        for (ListenerOutbox<AuditEvent> o : auditLogOutboxes) {
+            o.offer(event);
+        }
+    }
+
+    private void forEachOutbox(Consumer<ListenerOutbox<?>> action) {
+        eventOutboxes.forEach(action);
+        logOutboxes.forEach(action);
+        auditLogOutboxes.forEach(action);
+    }
+
+    private static boolean isSynchronous(Object listener) {
+        return listener.getClass().isAnnotationPresent(SynchronousListener.class);
+    }
+
+    /**
+     * Groups log entries by process and merges adjacent chunks of the same
+     * process into a single entry. The order of entries of each process is preserved.
+     */
+    static List<ProcessLogEntry> mergeLogEntries(List<ProcessLogEntry> entries) {
+        if (entries.size() < 2) {
+            return entries;
+        }
+
+        Map<ProcessKey, List<ProcessLogEntry>> byProcess = new LinkedHashMap<>();
+        for (ProcessLogEntry e : entries) {
+            byProcess.computeIfAbsent(e.processKey(), k -> new ArrayList<>()).add(e);
+        }
+
+        List<ProcessLogEntry> result = new ArrayList<>(entries.size());
+        for (List<ProcessLogEntry> l : byProcess.values()) {
+            ProcessLogEntry prev = null;
+            for (ProcessLogEntry e : l) {
+                if (prev != null && isAdjacent(prev.range(), e.range())) {
+                    prev = merge(prev, e);
+                    continue;
+                }
+
+                if (prev != null) {
+                    result.add(prev);
+                }
+                prev = e;
+            }
+            result.add(prev);
+        }
+        return result;
+    }
+
+    private static boolean isAdjacent(Range a, Range b) {
+        return a.upperMode() == Range.Mode.EXCLUSIVE
+                && b.lowerMode() == Range.Mode.INCLUSIVE
+                && a.upper() == b.lower();
+    }
 
-        waitFor(task);
+    private static ProcessLogEntry merge(ProcessLogEntry a, ProcessLogEntry b) {
+        byte[] msg = new byte[a.msg().length + b.msg().length];
+        System.arraycopy(a.msg(), 0, msg, 0, a.msg().length);
+        System.arraycopy(b.msg(), 0, msg, a.msg().length, b.msg().length);
+
+        return ProcessLogEntry.builder()
+                .processKey(a.processKey())
+                .range(Range.builder()
+                        .lowerMode(a.range().lowerMode())
+                        .lower(a.range().lower())
+                        .upper(b.range().upper())
+                        .upperMode(b.range().upperMode())
+                        .build())
+                .msg(msg)
+                .build();
     }
 
-    private static void waitFor(ForkJoinTask<?> task) {
-        try {
-            task.get(MAX_LISTENER_TIME.toMillis(), TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            throw new RuntimeException(e);
+    /**
+     * Returns a stable name for the listener. The name is used to find
+     * the listener's items in the DB after restart.
+     */
+    private static String sinkName(String kind, Object listener, Set<String> names) {
+        String base = kind + "-" + listener.getClass().getName();
+        String name = base;
+        for (int i = 1; !names.add(name); i++) {
+            name = base + "-" + i;
         }
+        return name;
     }
 }
@@ -0,0 +1,145 @@
+package com.walmartlabs.concord.server;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.ReplicaDB;
+import com.walmartlabs.concord.db.ReplicaRouter;
+import com.walmartlabs.concord.server.cfg.ReplicaDBConfiguration;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks the replication lag of the replica database.
+ * Switches the replica-safe queries to the primary database when the
+ * replica is lagging behind or unavailable.
+ */
+@Named
+@Singleton
+public class ReplicaLagMonitor extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Returns:
+     * <ul>
+     *     <li>whether the database is a replica;</li>
+     *     <li>whether the WAL receiver is running, i.e. the replica is connected to the primary.
+     *     The row is visible to non-privileged users, only its details are hidden;</li>
+     *     <li>whether the replica replayed all received WAL;</li>
+     *     <li>the age of the last replayed transaction (ms).</li>
+     * </ul>
+     */
+    private static final String LAG_QUERY = "select pg_is_in_recovery(), " +
+            "exists(select 1 from pg_stat_wal_receiver), " +
+            "coalesce(pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn(), false), " +
+            "extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000";
+
+    private final ReplicaRouter router;
+    private final long maxLag;
+
+    private volatile long lastLag = -1;
+
+    @Inject
+    public ReplicaLagMonitor(ReplicaDBConfiguration cfg, @ReplicaDB ReplicaRouter router, MetricRegistry metricRegistry) {
+        super(router.isEnabled() ? cfg.checkInterval().toMillis() : 0, ERROR_DELAY);
+
+        this.router = router;
+        this.maxLag = cfg.maxLag().toMillis();
+
+        if (router.isEnabled()) {
+            metricRegistry.gauge("db-replica-lag", () -> () -> lastLag);
+            metricRegistry.gauge("db-replica-available", () -> () -> router.isReplicaAvailable() ? 1 : 0);
+        }
+    }
+
+    @Override
+    protected boolean performTask() {
+        Long lag;
+        try (DSLContext tx = DSL.using(router.replica())) {
+            lag = tx.resultQuery(LAG_QUERY).fetchOne(r -> lag(
+                    r.get(0, Boolean.class),
+                    r.get(1, Boolean.class),
+                    r.get(2, Boolean.class),
+                    r.get(3, Number.class)));
+        } catch (Exception e) {
+            log.warn("performTask -> error while checking the replica, falling back to the primary: {}", e.getMessage());
+            lastLag = -1;
+            setAvailable(false);
+            return false;
+        }
+
+        if (lag == null) {
+            log.warn("performTask -> the replica is not connected to the primary, falling back to the primary");
+        }
+
+        lastLag = lag != null ? lag : -1;
+        setAvailable(isAvailable(lag, maxLag));
+
+        return false;
+    }
+
+    /**
+     * @param inRecovery        {@code true} if the database is a replica
+     * @param receiverConnected {@code true} if the replica's WAL receiver is running
+     * @param caughtUp          {@code true} if the replica replayed all received WAL
+     * @param replayAge         the age of the last replayed transaction (ms), can be {@code null}
+     * @return the replication lag (ms) or {@code null} if the lag can't be determined,
+     * e.g. when the replica is disconnected from the primary
+     */
+    static Long lag(Boolean inRecovery, Boolean receiverConnected, Boolean caughtUp, Number replayAge) {
+        if (!Boolean.TRUE.equals(inRecovery)) {
+            // not a replica, e.g. the primary itself is used as the "replica"
+            return 0L;
+        }
+
+        if (!Boolean.TRUE.equals(receiverConnected)) {
+            // a disconnected replica doesn't receive any WAL, so it looks "caught up"
+            return null;
+        }
+
+        if (Boolean.TRUE.equals(caughtUp)) {
+            return 0L;
+        }
+
+        return replayAge != null ? replayAge.longValue() : null;
+    }
+
+    static boolean isAvailable(Long lag, long maxLag) {
+        return lag != null && lag <= maxLag;
+    }
+
+    private void setAvailable(boolean available) {
+        if (router.isReplicaAvailable() != available) {
+            log.info("setAvailable -> replica is {} (lag: {}ms)", available ? "available" : "unavailable", lastLag);
+        }
+        router.setReplicaAvailable(available);
+    }
+}
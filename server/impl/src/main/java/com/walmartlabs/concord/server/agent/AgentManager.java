@@ -20,6 +20,8 @@ package com.walmartlabs.concord.server.agent;
  * =====
  */
 
+import com.walmartlabs.concord.server.agent.dispatcher.AgentCommandNotifications;
+import com.walmartlabs.concord.server.agent.dispatcher.Dispatcher;
 import com.walmartlabs.concord.server.process.ProcessEntry;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
@@ -36,10 +38,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.time.OffsetDateTime;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Named
@@ -51,17 +50,23 @@ public class AgentManager {
     private final AgentCommandsDao commandQueue;
     private final ProcessQueueManager queueManager;
     private final WebSocketChannelManager channelManager;
+    private final Dispatcher dispatcher;
+    private final AgentCommandNotifications notifications;
 
     @Inject
     public AgentManager(ProcessQueueDao queueDao,
                         AgentCommandsDao commandQueue,
                         ProcessQueueManager queueManager,
-                        WebSocketChannelManager channelManager) {
+                        WebSocketChannelManager channelManager,
+                        Dispatcher dispatcher,
+                        AgentCommandNotifications notifications) {
 
         this.queueDao = queueDao;
         this.commandQueue = commandQueue;
         this.queueManager = queueManager;
         this.channelManager = channelManager;
+        this.dispatcher = dispatcher;
+        this.notifications = notifications;
     }
 
     public Collection<AgentWorkerEntry> getAvailableAgents() {
@@ -85,6 +90,7 @@ public class AgentManager {
         }
 
         commandQueue.insert(UUID.randomUUID(), agentId, Commands.cancel(processKey.toString()));
+        onCommandsCreated(Collections.singleton(agentId));
     }
 
     public void killProcess(List<ProcessKey> processKeys) {
@@ -109,6 +115,32 @@ public class AgentManager {
                         OffsetDateTime.now(), Commands.cancel(p.instanceId().toString())))
                 .collect(Collectors.toList());
 
+        if (commands.isEmpty()) {
+            return;
+        }
+
         commandQueue.insertBatch(commands);
+        onCommandsCreated(commands.stream()
+                .map(AgentCommand::getAgentId)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Pushes the new commands to the agents connected to this server right away,
+     * notifies other servers about the rest.
+     */
+    private void onCommandsCreated(Set<String> agentIds) {
+        Set<String> local = dispatcher.waitingAgents();
+
+        List<String> remote = new ArrayList<>();
+        for (String agentId : agentIds) {
+            if (local.contains(agentId)) {
+                dispatcher.signal(agentId);
+            } else {
+                remote.add(agentId);
+            }
+        }
+
+        notifications.publish(remote);
     }
 }
@@ -0,0 +1,190 @@
+package com.walmartlabs.concord.server.agent.dispatcher;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.DatabaseConfiguration;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.jooq.Configuration;
+import org.jooq.impl.SQLDataType;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.val;
+
+/**
+ * Notifies other server instances about new agent commands using PostgreSQL's LISTEN/NOTIFY.
+ * The notification's payload is the agent's ID. Each server dispatches the commands of
+ * the agents connected to it. Notifications are best-effort, the {@link Dispatcher}
+ * periodically checks for undelivered commands anyway.
+ * <p>
+ * Holds one dedicated DB connection for the lifetime of the server. The connection
+ * is not taken from the pool: it's never returned and LISTEN must not be rolled back
+ * or reset by the pool. The connection is re-opened if it breaks.
+ */
+@Named
+@Singleton
+public class AgentCommandNotifications implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentCommandNotifications.class);
+
+    private static final String CHANNEL = "concord_agent_commands";
+    private static final int POLL_TIMEOUT = 1000;
+    private static final long ERROR_DELAY = 10 * 1000L; // 10 sec
+    private static final long VALIDATION_INTERVAL = 30 * 1000L; // 30 sec
+    private static final int VALIDATION_TIMEOUT = 5; // sec
+
+    private final DatabaseConfiguration dbCfg;
+    private final Dispatcher dispatcher;
+    private final Dao dao;
+
+    private Thread worker;
+
+    @Inject
+    public AgentCommandNotifications(@MainDB DatabaseConfiguration dbCfg, Dispatcher dispatcher, Dao dao) {
+        this.dbCfg = dbCfg;
+        this.dispatcher = dispatcher;
+        this.dao = dao;
+    }
+
+    @Override
+    public void start() {
+        this.worker = new Thread(this::run, "agent-command-notifications");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+
+        log.info("stop -> done");
+    }
+
+    /**
+     * Notifies all server instances about new commands for the specified agents.
+     * Must be called after the commands are committed.
+     */
+    public void publish(Collection<String> agentIds) {
+        if (agentIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            dao.publish(agentIds);
+        } catch (Exception e) {
+            // the commands will be picked up by the dispatcher's next sweep
+            log.warn("publish -> error: {}", e.getMessage());
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = DriverManager.getConnection(dbCfg.url(), dbCfg.username(), dbCfg.password())) {
+                listen(conn);
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                log.warn("run -> error: {}. Will retry in {}ms...", e.getMessage(), ERROR_DELAY);
+                sleep(ERROR_DELAY);
+            }
+        }
+    }
+
+    private void listen(Connection conn) throws SQLException {
+        // the connection is in the autocommit mode, LISTEN takes effect immediately
+        try (Statement st = conn.createStatement()) {
+            st.execute("LISTEN " + CHANNEL);
+        }
+
+        PGConnection pg = conn.unwrap(PGConnection.class);
+
+        log.info("listen -> waiting for notifications...");
+
+        long lastValidation = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT);
+            if (notifications == null || notifications.length == 0) {
+                // a dropped connection doesn't always cause an error while waiting
+                if (System.currentTimeMillis() - lastValidation >= VALIDATION_INTERVAL) {
+                    if (!conn.isValid(VALIDATION_TIMEOUT)) {
+                        throw new SQLException("Connection is no longer valid");
+                    }
+                    lastValidation = System.currentTimeMillis();
+                }
+                continue;
+            }
+
+            List<String> agentIds = new ArrayList<>(notifications.length);
+            for (PGNotification n : notifications) {
+                agentIds.add(n.getParameter());
+            }
+
+            // ignore the agents connected to other servers
+            agentIds.retainAll(dispatcher.waitingAgents());
+            dispatcher.signal(agentIds);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Named
+    public static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        public void publish(Collection<String> agentIds) {
+            String[] ids = agentIds.toArray(new String[0]);
+            tx(tx -> tx.fetch("select pg_notify({0}, a) from unnest({1}) a",
+                    inline(CHANNEL), val(ids, SQLDataType.VARCHAR.getArrayDataType())));
+        }
+    }
+}
@@ -26,19 +26,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.CommandType;
-import com.walmartlabs.concord.server.PeriodicTask;
 import com.walmartlabs.concord.server.agent.AgentCommand;
 import com.walmartlabs.concord.server.agent.Commands;
 import com.walmartlabs.concord.server.cfg.AgentConfiguration;
 import com.walmartlabs.concord.server.jooq.tables.records.AgentCommandsRecord;
 import com.walmartlabs.concord.server.queueclient.message.CommandRequest;
 import com.walmartlabs.concord.server.queueclient.message.CommandResponse;
+import com.walmartlabs.concord.server.queueclient.message.Message;
 import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
 import com.walmartlabs.concord.server.websocket.WebSocketChannel;
 import com.walmartlabs.concord.server.websocket.WebSocketChannelManager;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
+import org.jooq.SelectConditionStep;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,112 +50,183 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static com.walmartlabs.concord.server.jooq.tables.AgentCommands.AGENT_COMMANDS;
+import static org.jooq.impl.DSL.row;
 
 /**
  * Dispatches commands to agents.
+ * <p>
+ * Commands are pushed to the agents as soon as possible: the dispatcher wakes up
+ * when new commands are created for the agents connected to this server
+ * (see {@link #signal(Collection)}) and when an agent sends a new command request.
+ * Every {@code agent.commandPollDelay} all agents with pending requests are checked
+ * for commands, that handles the commands created without a signal.
  */
 @Named
 @Singleton
-public class Dispatcher extends PeriodicTask {
+public class Dispatcher implements BackgroundTask {
 
     private static final Logger log = LoggerFactory.getLogger(Dispatcher.class);
 
     private static final long ERROR_DELAY = 1 * 60 * 1000L; // 1 min
-    private static final int BATCH_SIZE = 10;
+    private static final int BATCH_SIZE = 100;
 
+    private final long pollDelay;
     private final DispatcherDao dao;
     private final WebSocketChannelManager channelManager;
+    private final BlockingQueue<String> signals = new LinkedBlockingQueue<>();
+    private final Histogram sentHistogram;
+
+    private Thread worker;
 
     @Inject
     public Dispatcher(AgentConfiguration cfg,
                       DispatcherDao dao,
-                      WebSocketChannelManager channelManager) {
+                      WebSocketChannelManager channelManager,
+                      MetricRegistry metricRegistry) {
 
-        super(cfg.getCommandPollDelay().toMillis(), ERROR_DELAY);
+        this.pollDelay = cfg.getCommandPollDelay().toMillis();
         this.dao = dao;
         this.channelManager = channelManager;
+        this.sentHistogram = metricRegistry.histogram("agent-command-dispatcher-sent");
+
+        // an agent asks for the next command after receiving one, check for more commands right away
+        channelManager.addRequestListener(MessageType.COMMAND_REQUEST, this::onCommandRequest);
     }
 
     @Override
-    protected boolean performTask() {
-        Map<WebSocketChannel, CommandRequest> requests = this.channelManager.getRequests(MessageType.COMMAND_REQUEST);
-        if (requests.isEmpty()) {
-            return false;
+    public void start() {
+        if (pollDelay <= 0) {
+            log.warn("start -> task is disabled: {}", Dispatcher.class.getSimpleName());
+            return;
         }
 
-        List<Request> l = requests.entrySet().stream()
-                .map(e -> new Request(e.getKey(), e.getValue()))
-                .collect(Collectors.toList());
+        this.worker = new Thread(this::run, "agent-command-dispatcher");
+        this.worker.start();
+        log.info("start -> done");
+    }
 
-        dispatch(l);
+    @Override
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
 
-        return false;
+        log.info("stop -> done");
     }
 
-    private void dispatch(List<Request> requests) {
-        // we need it modifiable
-        List<Request> inbox = new ArrayList<>(requests);
+    /**
+     * Wakes up the dispatcher to deliver the commands of the specified agents.
+     */
+    public void signal(Collection<String> agentIds) {
+        signals.addAll(agentIds);
+    }
 
-        // run everything in a single transaction
-        dao.tx(tx -> {
-            int offset = 0;
+    public void signal(String agentId) {
+        signals.add(agentId);
+    }
 
-            while (true) {
-                // fetch the next few CREATED commands from the DB
-                List<AgentCommand> candidates = new ArrayList<>(dao.next(tx, offset, BATCH_SIZE));
-                if (candidates.isEmpty() || inbox.isEmpty()) {
-                    // no potential candidates or no requests left to process
-                    break;
-                }
+    /**
+     * Returns IDs of the agents connected to this server that are waiting for commands.
+     */
+    public Set<String> waitingAgents() {
+        return pendingRequests().keySet();
+    }
 
-                List<Match> matches = match(inbox, candidates);
-                if (matches.isEmpty()) {
-                    // no matches, try fetching the next N records
-                    offset += BATCH_SIZE;
-                    continue;
-                }
+    private void onCommandRequest(Message m) {
+        UUID agentId = ((CommandRequest) m).getAgentId();
+        if (agentId != null) {
+            signal(agentId.toString());
+        }
+    }
 
-                for (Match m : matches) {
-                    sendResponse(m, m.command);
-                    dao.markAsSent(tx, m.command.getCommandId());
+    private void run() {
+        long lastSweepAt = System.currentTimeMillis();
 
-                    inbox.remove(m.request);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                String first = signals.poll(pollDelay, TimeUnit.MILLISECONDS);
+
+                Map<String, Request> inbox = pendingRequests();
+
+                long now = System.currentTimeMillis();
+                if (first == null || now - lastSweepAt >= pollDelay) {
+                    // check all waiting agents
+                    signals.clear();
+                    lastSweepAt = now;
+                } else {
+                    Set<String> agentIds = new HashSet<>();
+                    agentIds.add(first);
+                    signals.drainTo(agentIds);
+                    inbox.keySet().retainAll(agentIds);
                 }
+
+                dispatch(inbox);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("run -> error: {}. Will retry in {}ms...", e.getMessage(), ERROR_DELAY, e);
+                sleep(ERROR_DELAY);
             }
-        });
+        }
     }
 
-    private List<Match> match(List<Request> requests, List<AgentCommand> candidates) {
-        List<Match> results = new ArrayList<>();
+    private Map<String, Request> pendingRequests() {
+        Map<WebSocketChannel, CommandRequest> requests = channelManager.getRequests(MessageType.COMMAND_REQUEST);
 
-        for (Request req : requests) {
-            AgentCommand candidate = findCandidate(req.request, candidates);
-            if (candidate == null) {
-                continue;
+        Map<String, Request> result = new HashMap<>(requests.size());
+        requests.forEach((channel, request) -> {
+            if (request.getAgentId() != null) {
+                result.putIfAbsent(request.getAgentId().toString(), new Request(channel, request));
             }
+        });
+        return result;
+    }
 
-            // remove the matche from the list
-            candidates.remove(candidate);
-
-            results.add(new Match(req, candidate));
+    private void dispatch(Map<String, Request> inbox) {
+        if (inbox.isEmpty()) {
+            return;
         }
 
-        return results;
-    }
+        // run everything in a single transaction
+        dao.tx(tx -> {
+            int sent = 0;
+            AgentCommand last = null;
+
+            while (!inbox.isEmpty()) {
+                // fetch the next few CREATED commands of the waiting agents
+                List<AgentCommand> candidates = dao.next(tx, new HashSet<>(inbox.keySet()), last, BATCH_SIZE);
+                if (candidates.isEmpty()) {
+                    break;
+                }
+
+                for (AgentCommand c : candidates) {
+                    // each request receives a single command, the rest waits for the agent's next request
+                    Request req = inbox.remove(c.getAgentId());
+                    if (req == null) {
+                        continue;
+                    }
 
-    private AgentCommand findCandidate(CommandRequest req, List<AgentCommand> candidates) {
-        return candidates.stream()
-                .filter(c -> c.getAgentId().equals(req.getAgentId().toString()))
-                .findFirst()
-                .orElse(null);
+                    sendResponse(req, c);
+                    dao.markAsSent(tx, c.getCommandId());
+                    sent++;
+                }
+
+                last = candidates.get(candidates.size() - 1);
+            }
+
+            sentHistogram.update(sent);
+        });
     }
 
-    private void sendResponse(Match match, AgentCommand response) {
-        WebSocketChannel channel = match.request.channel;
-        long correlationId = match.request.request.getCorrelationId();
+    private void sendResponse(Request request, AgentCommand response) {
+        WebSocketChannel channel = request.channel;
+        long correlationId = request.request.getCorrelationId();
 
         CommandType type = CommandType.valueOf((String) response.getData().remove(Commands.TYPE_KEY));
 
@@ -169,19 +242,23 @@ public class Dispatcher extends PeriodicTask {
         }
     }
 
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Named
     public static class DispatcherDao extends AbstractDao {
 
         private final ObjectMapper objectMapper;
-        private final Histogram offsetHistogram;
 
         @Inject
-        public DispatcherDao(@MainDB Configuration cfg,
-                             MetricRegistry metricRegistry) {
-
+        public DispatcherDao(@MainDB Configuration cfg) {
             super(cfg);
             this.objectMapper = new ObjectMapper();
-            this.offsetHistogram = metricRegistry.histogram("agent-command-dispatcher-offset");
         }
 
         @Override
@@ -189,14 +266,21 @@ public class Dispatcher extends PeriodicTask {
             super.tx(t);
         }
 
+        /**
+         * Returns the next CREATED commands of the specified agents. Uses keyset pagination:
+         * only the commands created after the {@code after} command are returned.
+         */
         @WithTimer
-        public List<AgentCommand> next(DSLContext tx, int offset, int limit) {
-            offsetHistogram.update(offset);
+        public List<AgentCommand> next(DSLContext tx, Set<String> agentIds, AgentCommand after, int limit) {
+            SelectConditionStep<AgentCommandsRecord> q = tx.selectFrom(AGENT_COMMANDS)
+                    .where(AGENT_COMMANDS.COMMAND_STATUS.eq(AgentCommand.Status.CREATED.toString())
+                            .and(AGENT_COMMANDS.AGENT_ID.in(agentIds)));
 
-            return tx.selectFrom(AGENT_COMMANDS)
-                    .where(AGENT_COMMANDS.COMMAND_STATUS.eq(AgentCommand.Status.CREATED.toString()))
-                    .orderBy(AGENT_COMMANDS.CREATED_AT)
-                    .offset(offset)
+            if (after != null) {
+                q = q.and(row(AGENT_COMMANDS.CREATED_AT, AGENT_COMMANDS.COMMAND_ID).gt(after.getCreatedAt(), after.getCommandId()));
+            }
+
+            return q.orderBy(AGENT_COMMANDS.CREATED_AT, AGENT_COMMANDS.COMMAND_ID)
                     .limit(limit)
                     .forUpdate()
                     .skipLocked()
@@ -228,17 +312,6 @@ public class Dispatcher extends PeriodicTask {
         }
     }
 
-    private static final class Match {
-
-        private final Request request;
-        private final AgentCommand command;
-
-        private Match(Request request, AgentCommand command) {
-            this.request = request;
-            this.command = command;
-        }
-    }
-
     private static final class Request {
 
         private final WebSocketChannel channel;
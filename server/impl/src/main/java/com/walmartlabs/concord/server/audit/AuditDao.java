@@ -30,20 +30,17 @@ import com.walmartlabs.concord.server.jooq.tables.records.AuditLogRecord;
 import com.walmartlabs.concord.server.org.EntityOwner;
 import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
 import com.walmartlabs.concord.server.user.UserType;
-import org.jooq.Configuration;
-import org.jooq.JSONB;
-import org.jooq.Record9;
-import org.jooq.SelectOnConditionStep;
+import org.jooq.*;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.time.OffsetDateTime;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.tables.AuditLog.AUDIT_LOG;
 import static com.walmartlabs.concord.server.jooq.tables.Users.USERS;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.generateSeries;
 
 @Named
 public class AuditDao extends AbstractDao {
@@ -86,6 +83,62 @@ public class AuditDao extends AbstractDao {
                 .build();
     }
 
+    /**
+     * Inserts multiple audit log entries using a single statement.
+     *
+     * @return the inserted entries, in the same order
+     */
+    public List<AuditEvent> insert(List<AuditLogWriter.PendingEntry> entries) {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return txResult(tx -> {
+            // PostgreSQL doesn't guarantee the order of rows returned by a multi-row INSERT,
+            // allocate the IDs upfront to match the returned rows with the entries
+            List<Long> ids = tx.select(field("nextval(pg_get_serial_sequence('audit_log', 'entry_seq'))", Long.class))
+                    .from(generateSeries(1, entries.size()))
+                    .fetch(Record1::value1);
+
+            InsertValuesStep5<AuditLogRecord, Long, UUID, String, String, JSONB> q = tx.insertInto(AUDIT_LOG)
+                    .columns(AUDIT_LOG.ENTRY_SEQ,
+                            AUDIT_LOG.USER_ID,
+                            AUDIT_LOG.ENTRY_OBJECT,
+                            AUDIT_LOG.ENTRY_ACTION,
+                            AUDIT_LOG.ENTRY_DETAILS);
+
+            for (int i = 0; i < entries.size(); i++) {
+                AuditLogWriter.PendingEntry e = entries.get(i);
+                q = q.values(ids.get(i),
+                        e.userId(),
+                        e.object().toString(),
+                        e.action().toString(),
+                        objectMapper.toJSONB(e.details()));
+            }
+
+            Map<Long, OffsetDateTime> dates = new HashMap<>();
+            q.returning(AUDIT_LOG.ENTRY_SEQ, AUDIT_LOG.ENTRY_DATE)
+                    .fetch()
+                    .forEach(r -> dates.put(r.getEntrySeq(), r.getEntryDate()));
+
+            List<AuditEvent> result = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                AuditLogWriter.PendingEntry e = entries.get(i);
+                long entrySeq = ids.get(i);
+
+                result.add(AuditEvent.builder()
+                        .entrySeq(entrySeq)
+                        .entryDate(dates.get(entrySeq))
+                        .userId(e.userId())
+                        .object(e.object().toString())
+                        .action(e.action().toString())
+                        .details(e.details())
+                        .build());
+            }
+            return result;
+        });
+    }
+
     public List<AuditLogEntry> list(AuditLogFilter filter) {
         return txResult(tx -> {
             AuditLog l = AUDIT_LOG.as("l");
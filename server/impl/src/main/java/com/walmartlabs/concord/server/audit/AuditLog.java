@@ -20,12 +20,14 @@ package com.walmartlabs.concord.server.audit;
  * =====
  */
 
-import com.walmartlabs.concord.server.Listeners;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.walmartlabs.concord.server.RequestUtils;
 import com.walmartlabs.concord.server.cfg.AuditConfiguration;
 import com.walmartlabs.concord.server.org.project.DiffUtils;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
-import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.security.sessionkey.SessionKeyPrincipal;
 import org.slf4j.Logger;
@@ -33,18 +35,29 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Named
+@Singleton
 public class AuditLog {
 
     private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
 
     private static final ThreadLocal<ActionSourceParameters> threadLocalActionSource = new ThreadLocal<>();
 
+    /**
+     * Changes of these objects are always written synchronously.
+     */
+    private static final Set<AuditObject> SECURITY_OBJECTS = EnumSet.of(
+            AuditObject.API_KEY,
+            AuditObject.POLICY,
+            AuditObject.ROLE,
+            AuditObject.SECRET,
+            AuditObject.TEAM,
+            AuditObject.USER);
+
     /**
      * Any audit log calls done inside the provided {@link Runnable} will have
      * the specified {@link ActionSource} and its parameters added automatically.
@@ -59,14 +72,19 @@ public class AuditLog {
     }
 
     private final AuditConfiguration cfg;
-    private final AuditDao auditDao;
-    private final Listeners listeners;
+    private final AuditLogWriter writer;
+    private final Cache<String, Boolean> recentEntries;
+    private final Meter coalesced;
 
     @Inject
-    public AuditLog(AuditConfiguration cfg, AuditDao auditDao, Listeners listeners) {
+    public AuditLog(AuditConfiguration cfg, AuditLogWriter writer, MetricRegistry metricRegistry) {
         this.cfg = cfg;
-        this.auditDao = auditDao;
-        this.listeners = listeners;
+        this.writer = writer;
+        this.recentEntries = CacheBuilder.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(cfg.getCoalesceInterval().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.coalesced = metricRegistry.meter("audit-log-coalesced");
     }
 
     public EntryBuilder add(AuditObject object, AuditAction action) {
@@ -81,6 +99,7 @@ public class AuditLog {
         private Map<String, Object> changes;
 
         private UUID userId;
+        private String coalesceKey;
 
         private EntryBuilder(AuditObject object, AuditAction action) {
             this.object = object;
@@ -94,6 +113,15 @@ public class AuditLog {
             return this;
         }
 
+        /**
+         * Entries with the same object, action and {@code key} are written
+         * at most once per {@link AuditConfiguration#getCoalesceInterval()}.
+         */
+        public EntryBuilder coalesceBy(String key) {
+            this.coalesceKey = key;
+            return this;
+        }
+
         public EntryBuilder field(String k, Object v) {
             if (v == null) {
                 return this;
@@ -128,6 +156,11 @@ public class AuditLog {
                 return;
             }
 
+            if (isCoalesced()) {
+                coalesced.mark();
+                return;
+            }
+
             try {
                 doLog();
             } catch (Exception e) {
@@ -170,8 +203,21 @@ public class AuditLog {
                 details.put("changes", changes);
             }
 
-            AuditEvent ev = auditDao.insert(userId, object, action, details);
-            listeners.onAuditEvent(ev);
+            AuditLogWriter.PendingEntry e = new AuditLogWriter.PendingEntry(userId, object, action, details);
+            if (action != AuditAction.ACCESS && SECURITY_OBJECTS.contains(object)) {
+                writer.writeSync(e);
+            } else {
+                writer.write(e);
+            }
+        }
+
+        private boolean isCoalesced() {
+            if (coalesceKey == null || cfg.getCoalesceInterval().isZero()) {
+                return false;
+            }
+
+            String k = object + "/" + action + "/" + coalesceKey;
+            return recentEntries.asMap().putIfAbsent(k, Boolean.TRUE) != null;
         }
     }
 
@@ -0,0 +1,251 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.AuditConfiguration;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit log entries in batches using a background thread.
+ * <p>
+ * If the queue is full, {@link AuditAction#ACCESS} entries are dropped
+ * and all other entries are written synchronously. Entries written while
+ * the writer is stopped are written synchronously too.
+ */
+@Named
+@Singleton
+public class AuditLogWriter implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private final AuditConfiguration cfg;
+    private final AuditDao auditDao;
+    private final Listeners listeners;
+    private final BlockingQueue<PendingEntry> queue;
+
+    private final Meter written;
+    private final Meter dropped;
+
+    private volatile Thread worker;
+
+    @Inject
+    public AuditLogWriter(AuditConfiguration cfg, AuditDao auditDao, Listeners listeners, MetricRegistry metricRegistry) {
+        this.cfg = cfg;
+        this.auditDao = auditDao;
+        this.listeners = listeners;
+        this.queue = new ArrayBlockingQueue<>(cfg.getAsyncQueueSize());
+
+        this.written = metricRegistry.meter("audit-log-written");
+        this.dropped = metricRegistry.meter("audit-log-dropped");
+        metricRegistry.register("audit-log-queue-size", (Gauge<Integer>) queue::size);
+    }
+
+    /**
+     * Queues the entry. Falls back to {@link #writeSync(PendingEntry)} if
+     * the writer is not running.
+     */
+    public void write(PendingEntry e) {
+        if (worker == null) {
+            writeSync(e);
+            return;
+        }
+
+        if (queue.offer(e)) {
+            // the writer might've been stopped after the check above,
+            // make sure the entry doesn't stay in the queue
+            if (worker == null) {
+                drain();
+            }
+            return;
+        }
+
+        if (e.action() == AuditAction.ACCESS) {
+            dropped.mark();
+            log.warn("write -> queue is full, dropping an entry: {}, {}", e.object(), e.action());
+            return;
+        }
+
+        writeSync(e);
+    }
+
+    public void writeSync(PendingEntry e) {
+        List<PendingEntry> l = new ArrayList<>(1);
+        l.add(e);
+        flush(l);
+    }
+
+    @Override
+    public void start() {
+        if (!cfg.isAsyncEnabled()) {
+            log.info("start -> async mode is disabled");
+            return;
+        }
+
+        Thread t = new Thread(this::run, "audit-log-writer");
+        t.setDaemon(true);
+
+        this.worker = t;
+        t.start();
+
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        if (t == null) {
+            return;
+        }
+
+        // let the worker finish the current batch
+        worker = null;
+
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // write whatever is left in the queue, the new entries are written synchronously
+        drain();
+
+        log.info("stop -> done");
+    }
+
+    private void drain() {
+        List<PendingEntry> batch = new ArrayList<>();
+        while (queue.drainTo(batch, cfg.getAsyncBatchSize()) > 0) {
+            flushOrSplit(batch);
+            batch.clear();
+        }
+    }
+
+    private void run() {
+        int batchSize = cfg.getAsyncBatchSize();
+        long flushInterval = cfg.getAsyncFlushInterval().toMillis();
+
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (worker == Thread.currentThread()) {
+            try {
+                PendingEntry first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                flushOrSplit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the batch. If the batch fails, writes the entries one by one,
+     * so a single bad entry doesn't take the whole batch with it.
+     */
+    private void flushOrSplit(List<PendingEntry> batch) {
+        try {
+            flush(batch);
+            return;
+        } catch (Exception e) {
+            log.warn("flushOrSplit -> error while writing {} audit log entries, retrying one by one: {}", batch.size(), e.getMessage());
+        }
+
+        for (PendingEntry e : batch) {
+            try {
+                writeSync(e);
+            } catch (Exception ex) {
+                // the entry is lost, but the writer must keep going
+                dropped.mark();
+                log.error("flushOrSplit -> error while writing an audit log entry: {}, {}: {}", e.object(), e.action(), ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void flush(List<PendingEntry> batch) {
+        List<AuditEvent> events = auditDao.insert(batch);
+        written.mark(events.size());
+
+        for (AuditEvent ev : events) {
+            try {
+                listeners.onAuditEvent(ev);
+            } catch (Exception e) {
+                // the entry is already written, don't fail the whole batch
+                log.warn("flush -> error while notifying the listeners: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public static final class PendingEntry {
+
+        private final UUID userId;
+        private final AuditObject object;
+        private final AuditAction action;
+        private final Map<String, Object> details;
+
+        public PendingEntry(UUID userId, AuditObject object, AuditAction action, Map<String, Object> details) {
+            this.userId = userId;
+            this.object = object;
+            this.action = action;
+            this.details = details;
+        }
+
+        public UUID userId() {
+            return userId;
+        }
+
+        public AuditObject object() {
+            return object;
+        }
+
+        public AuditAction action() {
+            return action;
+        }
+
+        public Map<String, Object> details() {
+            return details;
+        }
+    }
+}
@@ -119,6 +119,7 @@ public class HttpServer {
             }
 
             ServletHolder holder = new ServletHolder(servlet);
+            holder.setAsyncSupported(annotation.asyncSupported());
             for (String pathSpec : annotation.value()) {
                 log.info("Servlet -> {} @ {}", servlet.getClass(), pathSpec);
                 contextHandler.addServlet(holder, pathSpec);
@@ -131,6 +132,7 @@ public class HttpServer {
                 continue;
             }
 
+            holder.setAsyncSupported(annotation.asyncSupported());
             for (String pathSpec : annotation.value()) {
                 log.info("Servlet -> {} @ {}", holder.getClass(), pathSpec);
                 contextHandler.addServlet(holder, pathSpec);
@@ -145,6 +147,7 @@ public class HttpServer {
             }
 
             FilterHolder holder = new FilterHolder(filter);
+            holder.setAsyncSupported(annotation.asyncSupported());
             for (String pathSpec : annotation.value()) {
                 log.info("Servlet -> {} @ {}", filter.getClass(), pathSpec);
                 contextHandler.addFilter(holder, pathSpec, EnumSet.allOf(DispatcherType.class));
@@ -157,6 +160,7 @@ public class HttpServer {
                 continue;
             }
 
+            holder.setAsyncSupported(annotation.asyncSupported());
             for (String pathSpec : annotation.value()) {
                 log.info("Filter -> {} @ {}", holder.getClass(), pathSpec);
                 contextHandler.addFilter(holder, pathSpec, EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD, DispatcherType.INCLUDE, DispatcherType.ERROR));
@@ -35,7 +35,7 @@ import java.io.IOException;
 
 @Named
 @Singleton
-@WebFilter({"/api/*", "/logs/*", "/forms/*"})
+@WebFilter(value = {"/api/*", "/logs/*", "/forms/*"}, asyncSupported = true)
 public class CORSFilter implements Filter {
 
     private static final Logger log = LoggerFactory.getLogger(CORSFilter.class);
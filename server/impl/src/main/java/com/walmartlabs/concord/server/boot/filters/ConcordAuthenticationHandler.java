@@ -23,6 +23,7 @@ package com.walmartlabs.concord.server.boot.filters;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.cfg.SecretStoreConfiguration;
 import com.walmartlabs.concord.server.org.secret.SecretUtils;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import com.walmartlabs.concord.server.security.apikey.ApiKey;
 import com.walmartlabs.concord.server.security.apikey.ApiKeyDao;
 import com.walmartlabs.concord.server.security.apikey.ApiKeyEntry;
@@ -58,11 +59,16 @@ public class ConcordAuthenticationHandler implements AuthenticationHandler {
 
     private final ApiKeyDao apiKeyDao;
     private final SecretStoreConfiguration secretCfg;
+    private final AuthenticationCache authCache;
 
     @Inject
-    public ConcordAuthenticationHandler(ApiKeyDao apiKeyDao, SecretStoreConfiguration secretCfg) {
+    public ConcordAuthenticationHandler(ApiKeyDao apiKeyDao,
+                                        SecretStoreConfiguration secretCfg,
+                                        AuthenticationCache authCache) {
+
         this.apiKeyDao = apiKeyDao;
         this.secretCfg = secretCfg;
+        this.authCache = authCache;
     }
 
     @Override
@@ -101,9 +107,13 @@ public class ConcordAuthenticationHandler implements AuthenticationHandler {
 
             validateApiKey(h);
 
-            ApiKeyEntry apiKey = apiKeyDao.find(h);
+            ApiKeyEntry apiKey = authCache.getApiKey(h);
             if (apiKey == null) {
-                return new UsernamePasswordToken();
+                apiKey = apiKeyDao.find(h);
+                if (apiKey == null) {
+                    return new UsernamePasswordToken();
+                }
+                authCache.putApiKey(h, apiKey);
             }
 
             token = new ApiKey(apiKey.getId(), apiKey.getUserId(), h, rememberMe);
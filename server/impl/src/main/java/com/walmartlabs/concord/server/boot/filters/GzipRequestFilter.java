@@ -0,0 +1,190 @@
+package com.walmartlabs.concord.server.boot.filters;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses request bodies sent with {@code Content-Encoding: gzip}.
+ * Used by the clients to reduce the size of large batch requests
+ * (e.g. Ansible event batches).
+ */
+@Named
+@Singleton
+@WebFilter(value = {"/api/*"}, asyncSupported = true)
+public class GzipRequestFilter implements Filter {
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (request instanceof HttpServletRequest) {
+            HttpServletRequest httpReq = (HttpServletRequest) request;
+            String encoding = httpReq.getHeader(HttpHeaders.CONTENT_ENCODING);
+            if (GZIP_ENCODING.equalsIgnoreCase(encoding)) {
+                request = new GzipRequestWrapper(httpReq);
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private static class GzipRequestWrapper extends HttpServletRequestWrapper {
+
+        private ServletInputStream in;
+
+        private GzipRequestWrapper(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (in == null) {
+                in = new GzipServletInputStream(super.getInputStream());
+            }
+            return in;
+        }
+
+        @Override
+        public int getContentLength() {
+            // the length of the decompressed body is unknown
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (isRemovedHeader(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (isRemovedHeader(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            if (isRemovedHeader(name)) {
+                return -1;
+            }
+            return super.getIntHeader(name);
+        }
+
+        private static boolean isRemovedHeader(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    private static class GzipServletInputStream extends ServletInputStream {
+
+        private final ServletInputStream original;
+
+        // created lazily, the GZIP header is read in the constructor
+        // and the data might not be available yet in the non-blocking mode
+        private InputStream in;
+
+        private boolean finished = false;
+
+        private GzipServletInputStream(ServletInputStream original) {
+            this.original = original;
+        }
+
+        private InputStream in() throws IOException {
+            if (in == null) {
+                in = new GZIPInputStream(original);
+            }
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in().read();
+            if (b < 0) {
+                finished = true;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in().read(b, off, len);
+            if (n < 0) {
+                finished = true;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return original.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            // the listener is notified when the compressed data is available
+            original.setReadListener(readListener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            } else {
+                original.close();
+            }
+        }
+    }
+}
@@ -33,7 +33,7 @@ import java.io.IOException;
 
 @Named
 @Singleton
-@WebFilter({"/api/*", "/logs/*", "/forms/*", "/cfg.js"})
+@WebFilter(value = {"/api/*", "/logs/*", "/forms/*", "/cfg.js"}, asyncSupported = true)
 public class NoCacheFilter implements Filter {
 
     private static final Logger log = LoggerFactory.getLogger(NoCacheFilter.class);
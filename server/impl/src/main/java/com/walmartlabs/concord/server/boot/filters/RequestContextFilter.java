@@ -38,7 +38,7 @@ import java.util.UUID;
  */
 @Named
 @Singleton
-@WebFilter({"/api/*", "/logs/*", "/forms/*"})
+@WebFilter(value = {"/api/*", "/logs/*", "/forms/*"}, asyncSupported = true)
 public class RequestContextFilter implements Filter {
 
     private static final String REQUEST_ID_KEY = "_requestId";
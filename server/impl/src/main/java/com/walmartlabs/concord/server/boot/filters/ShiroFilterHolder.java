@@ -32,7 +32,7 @@ import javax.servlet.annotation.WebFilter;
  */
 @Named
 @Singleton
-@WebFilter("/*")
+@WebFilter(value = "/*", asyncSupported = true)
 public class ShiroFilterHolder extends FilterHolder {
 
     public ShiroFilterHolder() {
@@ -33,10 +33,10 @@ import javax.servlet.annotation.WebServlet;
  */
 @Named
 @Singleton
-@WebServlet({
+@WebServlet(value = {
         "/api/*",
         "/events/github/*"
-})
+}, asyncSupported = true)
 public class SiestaServletHolder extends ServletHolder {
 
     @Inject
@@ -50,6 +50,26 @@ public class AuditConfiguration implements Serializable {
     @Config("audit.maxSearchInterval")
     private Duration maxSearchInterval;
 
+    @Inject
+    @Config("audit.async.enabled")
+    private boolean asyncEnabled;
+
+    @Inject
+    @Config("audit.async.queueSize")
+    private int asyncQueueSize;
+
+    @Inject
+    @Config("audit.async.batchSize")
+    private int asyncBatchSize;
+
+    @Inject
+    @Config("audit.async.flushInterval")
+    private Duration asyncFlushInterval;
+
+    @Inject
+    @Config("audit.coalesceInterval")
+    private Duration coalesceInterval;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -65,4 +85,24 @@ public class AuditConfiguration implements Serializable {
     public Duration getMaxSearchInterval() {
         return maxSearchInterval;
     }
+
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public int getAsyncBatchSize() {
+        return asyncBatchSize;
+    }
+
+    public Duration getAsyncFlushInterval() {
+        return asyncFlushInterval;
+    }
+
+    public Duration getCoalesceInterval() {
+        return coalesceInterval;
+    }
 }
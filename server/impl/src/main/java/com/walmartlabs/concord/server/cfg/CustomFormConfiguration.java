@@ -30,19 +30,31 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 
 @Named
 @Singleton
 public class CustomFormConfiguration {
 
     private Path baseDir;
+    private Duration continueTimeout;
 
     @Inject
-    public CustomFormConfiguration(@Nullable @Config("forms.baseDir") String baseDir) throws IOException {
+    public CustomFormConfiguration(@Nullable @Config("forms.baseDir") String baseDir,
+                                   @Config("forms.continueTimeout") Duration continueTimeout) throws IOException {
+
         this.baseDir = baseDir != null ? Paths.get(baseDir) : IOUtils.createTempDir("formserv");
+        this.continueTimeout = continueTimeout;
     }
 
     public Path getBaseDir() {
         return baseDir;
     }
+
+    /**
+     * Max time to wait for the process to reach the next form in a wizard.
+     */
+    public Duration getContinueTimeout() {
+        return continueTimeout;
+    }
 }
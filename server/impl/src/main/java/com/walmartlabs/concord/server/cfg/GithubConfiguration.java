@@ -26,6 +26,7 @@ import org.eclipse.sisu.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.time.Duration;
 import java.util.Map;
 
 @Named
@@ -53,6 +54,34 @@ public class GithubConfiguration {
     @Config("github.logEvents")
     private boolean logEvents;
 
+    @Inject
+    @Config("github.inbox.workers")
+    private int inboxWorkers;
+
+    @Inject
+    @Config("github.inbox.batchSize")
+    private int inboxBatchSize;
+
+    @Inject
+    @Config("github.inbox.pollInterval")
+    private Duration inboxPollInterval;
+
+    @Inject
+    @Config("github.inbox.claimTimeout")
+    private Duration inboxClaimTimeout;
+
+    @Inject
+    @Config("github.inbox.maxAttempts")
+    private int inboxMaxAttempts;
+
+    @Inject
+    @Config("github.inbox.retention")
+    private Duration inboxRetention;
+
+    @Inject
+    @Config("github.triggerIndexCheckInterval")
+    private Duration triggerIndexCheckInterval;
+
     public String getSecret() {
         return secret;
     }
@@ -73,4 +102,32 @@ public class GithubConfiguration {
     public boolean isLogEvents() {
         return logEvents;
     }
+
+    public int getInboxWorkers() {
+        return inboxWorkers;
+    }
+
+    public int getInboxBatchSize() {
+        return inboxBatchSize;
+    }
+
+    public Duration getInboxPollInterval() {
+        return inboxPollInterval;
+    }
+
+    public Duration getInboxClaimTimeout() {
+        return inboxClaimTimeout;
+    }
+
+    public int getInboxMaxAttempts() {
+        return inboxMaxAttempts;
+    }
+
+    public Duration getInboxRetention() {
+        return inboxRetention;
+    }
+
+    public Duration getTriggerIndexCheckInterval() {
+        return triggerIndexCheckInterval;
+    }
 }
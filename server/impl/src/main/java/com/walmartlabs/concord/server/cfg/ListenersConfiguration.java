@@ -0,0 +1,141 @@
+package com.walmartlabs.concord.server.cfg;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.ollie.config.Config;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+@Named
+@Singleton
+public class ListenersConfiguration implements Serializable {
+
+    @Inject
+    @Config("listeners.queueSize")
+    private int queueSize;
+
+    @Inject
+    @Config("listeners.batchSize")
+    private int batchSize;
+
+    @Inject
+    @Config("listeners.flushInterval")
+    private Duration flushInterval;
+
+    @Inject
+    @Config("listeners.overflowPolicy")
+    private String overflowPolicy;
+
+    @Inject
+    @Config("listeners.blockTimeout")
+    private Duration blockTimeout;
+
+    @Inject
+    @Config("listeners.durable")
+    private boolean durable;
+
+    @Nullable
+    @Inject
+    @Config("listeners.serverId")
+    private String serverId;
+
+    public ListenersConfiguration() {
+    }
+
+    public ListenersConfiguration(int queueSize, int batchSize, Duration flushInterval, OverflowPolicy overflowPolicy, Duration blockTimeout, boolean durable) {
+        this(queueSize, batchSize, flushInterval, overflowPolicy, blockTimeout, durable, null);
+    }
+
+    public ListenersConfiguration(int queueSize, int batchSize, Duration flushInterval, OverflowPolicy overflowPolicy, Duration blockTimeout, boolean durable, String serverId) {
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.overflowPolicy = overflowPolicy.name();
+        this.blockTimeout = blockTimeout;
+        this.durable = durable;
+        this.serverId = serverId;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return OverflowPolicy.valueOf(overflowPolicy.toUpperCase());
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /**
+     * @return ID of this server. Items saved into the DB are delivered only
+     * by the server that saved them. Defaults to the host name.
+     */
+    public String getServerId() {
+        if (serverId != null) {
+            return serverId;
+        }
+
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new RuntimeException("Can't determine the server ID, please specify 'listeners.serverId'", e);
+        }
+    }
+
+    public enum OverflowPolicy {
+
+        /**
+         * Wait for a free slot in the queue, up to {@link #getBlockTimeout()}.
+         */
+        BLOCK,
+
+        /**
+         * Drop the item.
+         */
+        DROP,
+
+        /**
+         * Save the item into the DB.
+         */
+        SPILL
+    }
+}
@@ -87,6 +87,30 @@ public class ProcessConfiguration implements Serializable {
     @Config("process.checkLogPermissions")
     private boolean checkLogPermissions;
 
+    @Inject
+    @Config("process.indexedMetaKeys")
+    private List<String> indexedMetaKeys;
+
+    @Inject
+    @Config("process.statisticsInterval")
+    private Duration statisticsInterval;
+
+    @Inject
+    @Config("process.partitioning.enabled")
+    private boolean partitioningEnabled;
+
+    @Inject
+    @Config("process.partitioning.interval")
+    private Duration partitioningInterval;
+
+    @Inject
+    @Config("process.partitioning.precreateDays")
+    private int partitioningPrecreateDays;
+
+    @Inject
+    @Config("process.partitioning.detachExpired")
+    private boolean partitioningDetachExpired;
+
     @Inject
     public ProcessConfiguration(@Config("process.signingKeyPath") @Nullable String signingKeyPath) {
         this.signingKeyPath = signingKeyPath != null ? Paths.get(signingKeyPath) : null;
@@ -148,4 +172,28 @@ public class ProcessConfiguration implements Serializable {
     public boolean isCheckLogPermissions() {
         return checkLogPermissions;
     }
+
+    public List<String> getIndexedMetaKeys() {
+        return indexedMetaKeys;
+    }
+
+    public Duration getStatisticsInterval() {
+        return statisticsInterval;
+    }
+
+    public boolean isPartitioningEnabled() {
+        return partitioningEnabled;
+    }
+
+    public Duration getPartitioningInterval() {
+        return partitioningInterval;
+    }
+
+    public int getPartitioningPrecreateDays() {
+        return partitioningPrecreateDays;
+    }
+
+    public boolean isPartitioningDetachExpired() {
+        return partitioningDetachExpired;
+    }
 }
@@ -40,6 +40,10 @@ public class ProcessWaitWatchdogConfiguration implements Serializable {
     @Config("process.waitCheckPollLimit")
     private int pollLimit;
 
+    @Inject
+    @Config("process.waitCheckPartitions")
+    private int partitions;
+
     public Duration getPeriod() {
         return period;
     }
@@ -47,4 +51,8 @@ public class ProcessWaitWatchdogConfiguration implements Serializable {
     public int getPollLimit() {
         return pollLimit;
     }
+
+    public int getPartitions() {
+        return partitions;
+    }
 }
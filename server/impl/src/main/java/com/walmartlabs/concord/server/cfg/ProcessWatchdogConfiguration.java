@@ -36,6 +36,10 @@ public class ProcessWatchdogConfiguration implements Serializable {
     @Config("process.watchdogPeriod")
     private Duration period;
 
+    @Inject
+    @Config("process.watchdogPartitions")
+    private int partitions;
+
     @Inject
     @Config("process.maxFailureHandlingAge")
     private String maxFailureHandlingAge;
@@ -52,6 +56,10 @@ public class ProcessWatchdogConfiguration implements Serializable {
         return period;
     }
 
+    public int getPartitions() {
+        return partitions;
+    }
+
     public String getMaxFailureHandlingAge() {
         return maxFailureHandlingAge;
     }
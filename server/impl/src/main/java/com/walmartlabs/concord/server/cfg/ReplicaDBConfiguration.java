@@ -0,0 +1,110 @@
+package com.walmartlabs.concord.server.cfg;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.ReplicaDB;
+import com.walmartlabs.concord.db.ReplicaDatabaseConfiguration;
+import com.walmartlabs.ollie.config.Config;
+import org.eclipse.sisu.Nullable;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Named
+@Singleton
+@ReplicaDB
+public class ReplicaDBConfiguration implements ReplicaDatabaseConfiguration {
+
+    @Inject
+    @Config("db.replica.enabled")
+    private boolean enabled;
+
+    @Inject
+    @Config("db.replica.url")
+    @Nullable
+    private String url;
+
+    @Inject
+    @Config("db.replica.username")
+    private String username;
+
+    @Inject
+    @Config("db.replica.password")
+    @Nullable
+    private String password;
+
+    @Inject
+    @Config("db.replica.maxPoolSize")
+    private int maxPoolSize;
+
+    @Inject
+    @Config("db.maxLifetime")
+    private Duration maxLifetime;
+
+    @Inject
+    @Config("db.replica.maxLag")
+    private Duration maxLag;
+
+    @Inject
+    @Config("db.replica.checkInterval")
+    private Duration checkInterval;
+
+    @Override
+    public boolean enabled() {
+        return enabled && url != null;
+    }
+
+    @Override
+    public String url() {
+        return url;
+    }
+
+    @Override
+    public String username() {
+        return username;
+    }
+
+    @Override
+    public String password() {
+        return password;
+    }
+
+    @Override
+    public int maxPoolSize() {
+        return maxPoolSize;
+    }
+
+    @Override
+    public Duration maxLifetime() {
+        return maxLifetime;
+    }
+
+    @Override
+    public Duration maxLag() {
+        return maxLag;
+    }
+
+    public Duration checkInterval() {
+        return checkInterval;
+    }
+}
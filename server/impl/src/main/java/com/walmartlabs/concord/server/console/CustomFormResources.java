@@ -0,0 +1,107 @@
+package com.walmartlabs.concord.server.console;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.server.process.form.FormServiceV1;
+import com.walmartlabs.concord.server.process.state.ProcessStateManager;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static com.walmartlabs.concord.server.process.state.ProcessStateManager.copyTo;
+
+/**
+ * Exports the branding resources of custom forms from the process state.
+ * The results are cached by process, form and form revision, so the resources
+ * are exported once per form call instead of on every session start.
+ */
+@Named
+@Singleton
+public class CustomFormResources {
+
+    public static final String FORM_DIR_NAME = "form";
+    public static final String SHARED_DIR_NAME = "shared";
+
+    private static final int CACHE_MAX_SIZE = 10000;
+    private static final long CACHE_EXPIRE_AFTER_ACCESS = TimeUnit.HOURS.toMillis(1);
+
+    private final ProcessStateManager stateManager;
+    private final Cache<String, Boolean> cache;
+
+    @Inject
+    public CustomFormResources(ProcessStateManager stateManager) {
+        this.stateManager = stateManager;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_MAX_SIZE)
+                .expireAfterAccess(CACHE_EXPIRE_AFTER_ACCESS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Exports the form's branding files into {@code dst/form} and the shared
+     * resources (if present) into {@code dst/shared}.
+     *
+     * @param revision identifies the specific form call, e.g. the form's instance ID
+     * @return {@code true} if the form is branded
+     */
+    public boolean export(ProcessKey processKey, String formName, String revision, Path dst) throws IOException {
+        String key = processKey + "/" + formName + "/" + revision;
+
+        Path formDir = dst.resolve(FORM_DIR_NAME);
+
+        Boolean branded = cache.getIfPresent(key);
+        if (branded != null && (!branded || Files.exists(formDir))) {
+            return branded;
+        }
+
+        if (!Files.exists(formDir)) {
+            Files.createDirectories(formDir);
+        }
+
+        // copy original branding files into the target directory
+        String resource = FormServiceV1.FORMS_RESOURCES_PATH + "/" + formName;
+        branded = stateManager.exportDirectory(processKey, resource, copyTo(formDir));
+        if (branded) {
+            copySharedResources(processKey, dst);
+        }
+
+        cache.put(key, branded);
+        return branded;
+    }
+
+    private void copySharedResources(ProcessKey processKey, Path dst) throws IOException {
+        Path sharedDir = dst.resolve(SHARED_DIR_NAME);
+        if (!Files.exists(sharedDir)) {
+            Files.createDirectories(sharedDir);
+        }
+
+        String resource = FormServiceV1.FORMS_RESOURCES_PATH + "/" + SHARED_DIR_NAME;
+        stateManager.exportDirectory(processKey, resource, copyTo(sharedDir));
+    }
+}
@@ -34,6 +34,8 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
 import java.util.UUID;
 
@@ -74,16 +76,17 @@ public class CustomFormService implements Resource {
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
     @Validate
-    public Response continueSession(@Context UriInfo uriInfo,
-                                    @Context HttpHeaders headers,
-                                    @PathParam("processInstanceId") UUID processInstanceId,
-                                    @PathParam("formName") String formName,
-                                    MultivaluedMap<String, String> data) {
+    public void continueSession(@Context UriInfo uriInfo,
+                                @Context HttpHeaders headers,
+                                @PathParam("processInstanceId") UUID processInstanceId,
+                                @PathParam("formName") String formName,
+                                MultivaluedMap<String, String> data,
+                                @Suspended AsyncResponse asyncResponse) {
 
         if (isV2(processInstanceId)) {
-            return customFormServiceV2.continueSession(uriInfo, headers, processInstanceId, formName, data);
+            customFormServiceV2.continueSession(uriInfo, headers, processInstanceId, formName, data, asyncResponse);
         } else {
-            return customFormServiceV1.continueSession(uriInfo, headers, processInstanceId, formName, data);
+            customFormServiceV1.continueSession(uriInfo, headers, processInstanceId, formName, data, asyncResponse);
         }
     }
 
@@ -91,16 +94,17 @@ public class CustomFormService implements Resource {
     @javax.ws.rs.Path("{processInstanceId}/{formName}/continue")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response continueSession(@Context UriInfo uriInfo,
-                                    @Context HttpHeaders headers,
-                                    @PathParam("processInstanceId") UUID processInstanceId,
-                                    @PathParam("formName") String formName,
-                                    MultipartInput data) {
+    public void continueSession(@Context UriInfo uriInfo,
+                                @Context HttpHeaders headers,
+                                @PathParam("processInstanceId") UUID processInstanceId,
+                                @PathParam("formName") String formName,
+                                MultipartInput data,
+                                @Suspended AsyncResponse asyncResponse) {
 
         if (isV2(processInstanceId)) {
-            return customFormServiceV2.continueSession(uriInfo, headers, processInstanceId, formName, data);
+            customFormServiceV2.continueSession(uriInfo, headers, processInstanceId, formName, data, asyncResponse);
         } else {
-            return customFormServiceV1.continueSession(uriInfo, headers, processInstanceId, formName, data);
+            customFormServiceV1.continueSession(uriInfo, headers, processInstanceId, formName, data, asyncResponse);
         }
     }
 
@@ -29,16 +29,17 @@ import com.walmartlabs.concord.forms.ValidationError;
 import com.walmartlabs.concord.server.MultipartUtils;
 import com.walmartlabs.concord.server.cfg.CustomFormConfiguration;
 import com.walmartlabs.concord.server.process.form.ExternalFileFormValidatorLocaleV2;
-import com.walmartlabs.concord.server.process.form.FormServiceV1;
 import com.walmartlabs.concord.server.process.form.FormServiceV2;
 import com.walmartlabs.concord.server.process.form.FormSubmitResult;
 import com.walmartlabs.concord.server.process.queue.ProcessKeyCache;
-import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessStatusWaiter;
 import com.walmartlabs.concord.server.process.state.ProcessStateManager;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.subject.Subject;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartInput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +52,8 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.Status;
 import java.io.IOException;
@@ -59,11 +62,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.console.CustomFormServiceV1.FormData;
 import static com.walmartlabs.concord.server.console.CustomFormServiceV1.FormDataDefinition;
-import static com.walmartlabs.concord.server.process.state.ProcessStateManager.copyTo;
 
 @Named
 @Singleton
@@ -72,35 +76,42 @@ public class CustomFormServiceV2 {
     private static final Logger log = LoggerFactory.getLogger(CustomFormServiceV2.class);
 
     private static final String FORMS_PATH_PREFIX = "/forms/";
-    private static final String FORM_DIR_NAME = "form";
-    private static final String SHARED_DIR_NAME = "shared";
+    private static final String FORM_DIR_NAME = CustomFormResources.FORM_DIR_NAME;
     private static final String FORMS_PATH_TEMPLATE = FORMS_PATH_PREFIX + "%s/%s/" + FORM_DIR_NAME + "/";
     private static final String DATA_FILE_TEMPLATE = "data = %s;";
 
     private static final String NON_BRANDED_FORM_URL_TEMPLATE = "/#/process/%s/form/%s?fullScreen=true&wizard=true";
     private static final String FORM_WIZARD_CONTINUE_URL_TEMPLATE = "/api/service/custom_form/%s/%s/continue";
 
-    private static final long STATUS_REFRESH_DELAY = 250;
+    private static final Set<ProcessStatus> WIZARD_STATUSES = EnumSet.of(
+            ProcessStatus.SUSPENDED,
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
 
     private final CustomFormConfiguration cfg;
     private final FormServiceV2 formService;
     private final ProcessStateManager stateManager;
-    private final ProcessQueueDao queueDao;
+    private final ProcessStatusWaiter statusWaiter;
     private final ProcessKeyCache processKeyCache;
+    private final CustomFormResources formResources;
     private final ObjectMapper objectMapper;
 
     @Inject
     public CustomFormServiceV2(CustomFormConfiguration cfg,
                                FormServiceV2 formService,
                                ProcessStateManager stateManager,
-                               ProcessQueueDao queueDao,
-                               ProcessKeyCache processKeyCache) {
+                               ProcessStatusWaiter statusWaiter,
+                               ProcessKeyCache processKeyCache,
+                               CustomFormResources formResources) {
 
         this.cfg = cfg;
         this.formService = formService;
         this.stateManager = stateManager;
-        this.queueDao = queueDao;
+        this.statusWaiter = statusWaiter;
         this.processKeyCache = processKeyCache;
+        this.formResources = formResources;
 
         this.objectMapper = new ObjectMapper()
                 .enable(SerializationFeature.INDENT_OUTPUT);
@@ -127,14 +138,7 @@ public class CustomFormServiceV2 {
                 .resolve(formName);
 
         try {
-            Path formDir = dst.resolve(FORM_DIR_NAME);
-            if (!Files.exists(formDir)) {
-                Files.createDirectories(formDir);
-            }
-
-            String resource = FormServiceV1.FORMS_RESOURCES_PATH + "/" + form.name();
-            // copy original branding files into the target directory
-            boolean branded = stateManager.exportDirectory(processKey, resource, copyTo(formDir));
+            boolean branded = formResources.export(processKey, form.name(), form.eventName(), dst);
             if (!branded) {
                 // not branded, redirect to the default wizard
                 String uri = String.format(NON_BRANDED_FORM_URL_TEMPLATE, processKey, formName);
@@ -142,10 +146,7 @@ public class CustomFormServiceV2 {
             }
 
             // create JS file containing the form's data
-            writeData(formDir, initialData(form, processKey.getInstanceId()));
-
-            // copy shared resources (if present)
-            copySharedResources(processKey, dst);
+            writeData(dst.resolve(FORM_DIR_NAME), initialData(form, processKey.getInstanceId()));
         } catch (IOException e) {
             log.warn("startSession ['{}', '{}'] -> error while preparing a custom form: {}", processKey, formName, e);
             throw new ConcordApplicationException("Error while preparing a custom form", e);
@@ -159,32 +160,34 @@ public class CustomFormServiceV2 {
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
     @Validate
-    public Response continueSession(@Context UriInfo uriInfo,
-                                    @Context HttpHeaders headers,
-                                    @PathParam("processInstanceId") UUID processInstanceId,
-                                    @PathParam("formName") String formName,
-                                    MultivaluedMap<String, String> data) {
+    public void continueSession(@Context UriInfo uriInfo,
+                                @Context HttpHeaders headers,
+                                @PathParam("processInstanceId") UUID processInstanceId,
+                                @PathParam("formName") String formName,
+                                MultivaluedMap<String, String> data,
+                                @Suspended AsyncResponse asyncResponse) {
 
         ProcessKey processKey = assertKey(processInstanceId);
-        return continueSession(uriInfo, headers, processKey, formName, com.walmartlabs.concord.server.process.form.FormUtils.convert(data));
+        continueSession(uriInfo, headers, processKey, formName, com.walmartlabs.concord.server.process.form.FormUtils.convert(data), asyncResponse);
     }
 
     @POST
     @javax.ws.rs.Path("{processInstanceId}/{formName}/continue")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response continueSession(@Context UriInfo uriInfo,
-                                    @Context HttpHeaders headers,
-                                    @PathParam("processInstanceId") UUID processInstanceId,
-                                    @PathParam("formName") String formName,
-                                    MultipartInput data) {
+    public void continueSession(@Context UriInfo uriInfo,
+                                @Context HttpHeaders headers,
+                                @PathParam("processInstanceId") UUID processInstanceId,
+                                @PathParam("formName") String formName,
+                                MultipartInput data,
+                                @Suspended AsyncResponse asyncResponse) {
 
         ProcessKey processKey = assertKey(processInstanceId);
-        return continueSession(uriInfo, headers, processKey, formName, MultipartUtils.toMap(data));
+        continueSession(uriInfo, headers, processKey, formName, MultipartUtils.toMap(data), asyncResponse);
     }
 
-    private Response continueSession(UriInfo uriInfo, HttpHeaders headers, ProcessKey processKey,
-                                     String formName, Map<String, Object> data) {
+    private void continueSession(UriInfo uriInfo, HttpHeaders headers, ProcessKey processKey,
+                                 String formName, Map<String, Object> data, AsyncResponse asyncResponse) {
         // TODO locking
         Form form = assertForm(processKey, formName);
 
@@ -196,6 +199,9 @@ public class CustomFormServiceV2 {
 
         Path formDir = dst.resolve(FORM_DIR_NAME);
 
+        // computed while still in the request's thread
+        Response formRedirect = redirectToForm(uriInfo, headers, processKey, formName);
+
         try {
             Map<String, Object> m = new HashMap<>();
             try {
@@ -208,33 +214,26 @@ public class CustomFormServiceV2 {
                         // and users should get a success page.
                         writeData(formDir, success(form, m, processKey.getInstanceId()));
                     } else {
-                        while (true) {
-                            ProcessStatus s = queueDao.getStatus(processKey);
-
-                            if (s == ProcessStatus.SUSPENDED) {
-                                String nextFormId = formService.nextFormId(processKey);
-                                if (nextFormId == null) {
-                                    writeData(formDir, success(form, m, processKey.getInstanceId()));
-                                    break;
-                                } else {
-                                    FormSessionResponse nextSession = startSession(processKey, nextFormId);
-                                    return redirectTo(nextSession.getUri());
-                                }
-                            } else if (s == ProcessStatus.FAILED || s == ProcessStatus.CANCELLED || s == ProcessStatus.TIMED_OUT) {
-                                writeData(formDir, processFailed(form, m, processKey.getInstanceId()));
-                                break;
-                            } else if (s == ProcessStatus.FINISHED) {
-                                writeData(formDir, success(form, m, processKey.getInstanceId()));
-                                break;
-                            }
-
-                            try {
-                                // TODO exp back off?
-                                Thread.sleep(STATUS_REFRESH_DELAY);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }
+                        // wait for the next form without holding the request thread
+                        Map<String, Object> values = m;
+                        Subject subject = SecurityUtils.getSubject();
+                        statusWaiter.waitFor(processKey, WIZARD_STATUSES, cfg.getContinueTimeout())
+                                .whenComplete((s, e) -> {
+                                    if (e != null && !(e instanceof TimeoutException)) {
+                                        asyncResponse.resume(e);
+                                        return;
+                                    }
+
+                                    try {
+                                        Response next = subject.execute(() -> nextStep(processKey, form, formDir, values, s, formRedirect));
+                                        asyncResponse.resume(next);
+                                    } catch (ExecutionException ex) {
+                                        asyncResponse.resume(ex.getCause());
+                                    } catch (Exception ex) {
+                                        asyncResponse.resume(ex);
+                                    }
+                                });
+                        return;
                     }
                 } else {
                     writeData(formDir, prepareData(form, m, r.getErrors(), processKey.getInstanceId()));
@@ -248,7 +247,34 @@ public class CustomFormServiceV2 {
             throw new ConcordApplicationException("Error while submitting a form", e);
         }
 
-        return redirectToForm(uriInfo, headers, processKey, formName);
+        asyncResponse.resume(formRedirect);
+    }
+
+    /**
+     * Redirects to the next form of the wizard or prepares the final page.
+     *
+     * @param s the current status of the process or {@code null} if the process
+     *          didn't reach the next form in time and continues in background
+     */
+    private Response nextStep(ProcessKey processKey, Form form, Path formDir, Map<String, Object> values,
+                              ProcessStatus s, Response formRedirect) throws IOException {
+
+        UUID instanceId = processKey.getInstanceId();
+
+        if (s == ProcessStatus.SUSPENDED) {
+            String nextFormId = formService.nextFormId(processKey);
+            if (nextFormId != null) {
+                FormSessionResponse nextSession = startSession(processKey, nextFormId);
+                return redirectTo(nextSession.getUri());
+            }
+            writeData(formDir, success(form, values, instanceId));
+        } else if (s == ProcessStatus.FAILED || s == ProcessStatus.CANCELLED || s == ProcessStatus.TIMED_OUT) {
+            writeData(formDir, processFailed(form, values, instanceId));
+        } else {
+            writeData(formDir, success(form, values, instanceId));
+        }
+
+        return formRedirect;
     }
 
     private Form assertForm(ProcessKey processKey, String formName) {
@@ -354,16 +380,6 @@ public class CustomFormServiceV2 {
         Files.write(dst, s.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     }
 
-    private void copySharedResources(ProcessKey processKey, Path dst) throws IOException {
-        Path sharedDir = dst.resolve(SHARED_DIR_NAME);
-        if (!Files.exists(sharedDir)) {
-            Files.createDirectories(sharedDir);
-        }
-
-        String resource = FormServiceV1.FORMS_RESOURCES_PATH + "/" + SHARED_DIR_NAME;
-        stateManager.exportDirectory(processKey, resource, copyTo(sharedDir));
-    }
-
     private ProcessKey assertKey(UUID processInstanceId) {
         Optional<ProcessKey> pk = processKeyCache.getUncached(processInstanceId);
         return pk.orElseThrow(() -> new ConcordApplicationException("Process not found: " + processInstanceId, Status.NOT_FOUND));
@@ -0,0 +1,384 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.*;
+import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.sdk.MapUtils;
+import com.walmartlabs.concord.server.cfg.GithubConfiguration;
+import com.walmartlabs.concord.server.events.github.GithubTriggerProcessor;
+import com.walmartlabs.concord.server.events.github.Payload;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.security.github.GithubRealm;
+import com.walmartlabs.concord.server.security.ldap.LdapManager;
+import com.walmartlabs.concord.server.security.ldap.LdapPrincipal;
+import com.walmartlabs.concord.server.user.UserEntry;
+import com.walmartlabs.concord.server.user.UserManager;
+import com.walmartlabs.concord.server.user.UserType;
+import org.apache.shiro.util.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.walmartlabs.concord.common.MemoSupplier.memo;
+import static com.walmartlabs.concord.server.events.github.Constants.COMMIT_ID_KEY;
+import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
+
+/**
+ * Durable inbox for GitHub webhook deliveries.
+ * <p>
+ * {@link GithubEventResource} saves each delivery into the inbox and returns
+ * immediately. The events are processed by a pool of workers which can run
+ * on any server node. Deliveries with the same {@code X-GitHub-Delivery} ID
+ * are processed only once, as long as the original delivery is still within
+ * the {@link GithubConfiguration#getInboxRetention()} window.
+ */
+@Named
+@Singleton
+public class GithubEventInbox implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(GithubEventInbox.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(10);
+    private static final long CLEANUP_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    private final GithubConfiguration githubCfg;
+    private final GithubEventInboxDao dao;
+    private final TriggerProcessExecutor executor;
+    private final List<GithubTriggerProcessor> processors;
+    private final UserManager userManager;
+    private final LdapManager ldapManager;
+    private final TriggerEventInitiatorResolver initiatorResolver;
+    private final ProcessSecurityContext securityContext;
+
+    private final Object wakeup = new Object();
+    private final AtomicLong lastCleanupAt = new AtomicLong();
+
+    private final Histogram startedProcessesPerEvent;
+    private final Timer latency;
+    private final Meter duplicates;
+    private final Meter failures;
+
+    private ExecutorService workers;
+
+    @Inject
+    public GithubEventInbox(GithubConfiguration githubCfg,
+                            GithubEventInboxDao dao,
+                            TriggerProcessExecutor executor,
+                            List<GithubTriggerProcessor> processors,
+                            UserManager userManager,
+                            LdapManager ldapManager,
+                            TriggerEventInitiatorResolver initiatorResolver,
+                            ProcessSecurityContext securityContext,
+                            MetricRegistry metricRegistry) {
+
+        this.githubCfg = githubCfg;
+        this.dao = dao;
+        this.executor = executor;
+        this.processors = processors;
+        this.userManager = userManager;
+        this.ldapManager = ldapManager;
+        this.initiatorResolver = initiatorResolver;
+        this.securityContext = securityContext;
+
+        this.startedProcessesPerEvent = metricRegistry.histogram("started-processes-per-github-event");
+        this.latency = metricRegistry.timer("github-inbox-latency");
+        this.duplicates = metricRegistry.meter("github-inbox-duplicates");
+        this.failures = metricRegistry.meter("github-inbox-failures");
+
+        Gauge<Integer> depth = new CachedGauge<Integer>(5, TimeUnit.SECONDS) {
+            @Override
+            protected Integer loadValue() {
+                return dao.countPending();
+            }
+        };
+        metricRegistry.register("github-inbox-depth", depth);
+
+        Gauge<Long> oldestAge = new CachedGauge<Long>(5, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                OffsetDateTime t = dao.getOldestPending();
+                return t != null ? Duration.between(t, OffsetDateTime.now()).toMillis() : 0L;
+            }
+        };
+        metricRegistry.register("github-inbox-oldest-event-age", oldestAge);
+    }
+
+    public boolean isDisabled(String eventName) {
+        return executor.isDisabled(eventName);
+    }
+
+    /**
+     * Saves the event into the inbox. Must be called by the webhook's
+     * request thread, the current user's roles are checked here.
+     *
+     * @return {@code false} if the event was already received
+     */
+    public boolean submit(String deliveryId, String eventName, UUID projectId, Map<String, Object> data) {
+        executor.assertRoles(eventName);
+
+        boolean inserted = dao.insert(deliveryId, eventName, projectId, data);
+        if (!inserted) {
+            duplicates.mark();
+            return false;
+        }
+
+        // wake up the local workers, no need to wait for the next poll
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the event was processed, {@code false} if the event
+     * is still pending or {@code null} if the event doesn't exist
+     */
+    public Boolean isProcessed(String deliveryId) {
+        return dao.isProcessed(deliveryId);
+    }
+
+    @Override
+    public void start() {
+        int n = githubCfg.getInboxWorkers();
+        if (n <= 0) {
+            log.warn("start -> no workers configured, GitHub events won't be processed on this node");
+            return;
+        }
+
+        workers = Executors.newFixedThreadPool(n, r -> new Thread(r, "github-inbox-worker"));
+        for (int i = 0; i < n; i++) {
+            workers.submit(this::run);
+        }
+
+        log.info("start -> done, {} worker(s)", n);
+    }
+
+    @Override
+    public void stop() {
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+
+        log.info("stop -> done");
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<GithubInboxEntry> entries = dao.claim(githubCfg.getInboxBatchSize(), githubCfg.getInboxClaimTimeout());
+                if (entries.isEmpty()) {
+                    cleanup();
+                    waitForEvents(githubCfg.getInboxPollInterval().toMillis());
+                    continue;
+                }
+
+                for (GithubInboxEntry e : entries) {
+                    process(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("run -> error: {}. Will retry in {}ms...", e.getMessage(), ERROR_DELAY, e);
+                sleep(ERROR_DELAY);
+            }
+        }
+    }
+
+    void process(GithubInboxEntry e) {
+        String deliveryId = e.deliveryId();
+        String eventName = e.eventName();
+
+        try {
+            log.info("process ['{}', '{}'] -> processing...", deliveryId, eventName);
+
+            // the same user as the one used to authenticate the webhook requests
+            securityContext.runAs(GithubRealm.USER_ID, () -> {
+                handle(e);
+                return null;
+            });
+        } catch (Exception ex) {
+            failures.mark();
+
+            if (e.attempts() < githubCfg.getInboxMaxAttempts()) {
+                log.warn("process ['{}', '{}'] -> error (attempt {}), will retry: {}", deliveryId, eventName, e.attempts(), ex.getMessage(), ex);
+                return;
+            }
+
+            log.error("process ['{}', '{}'] -> error (attempt {}), giving up: {}", deliveryId, eventName, e.attempts(), ex.getMessage(), ex);
+        } finally {
+            ThreadContext.unbindSubject();
+            ThreadContext.unbindSecurityManager();
+        }
+
+        dao.markProcessed(deliveryId);
+        latency.update(Duration.between(e.receivedAt(), OffsetDateTime.now()).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void handle(GithubInboxEntry e) {
+        String deliveryId = e.deliveryId();
+        String eventName = e.eventName();
+
+        Payload payload = Payload.from(eventName, e.payload());
+        if (payload == null) {
+            log.warn("event ['{}', '{}'] -> can't parse payload", deliveryId, eventName);
+            return;
+        }
+
+        List<GithubTriggerProcessor.Result> results = new ArrayList<>();
+        processors.forEach(p -> p.process(eventName, payload, e.projectId(), results));
+
+        Supplier<UserEntry> initiatorSupplier = memo(new GithubEventInitiatorSupplier(userManager, ldapManager, payload));
+
+        int startedProcesses = 0;
+        for (GithubTriggerProcessor.Result r : results) {
+            // skip the triggers processed by the previous attempts
+            List<TriggerEntry> triggers = r.triggers().stream()
+                    .filter(t -> !e.startedTriggers().contains(t.getId()))
+                    .collect(Collectors.toList());
+
+            if (triggers.isEmpty()) {
+                continue;
+            }
+
+            Event ev = Event.builder()
+                    .id(deliveryId)
+                    .name(EVENT_SOURCE)
+                    .attributes(r.event())
+                    .initiator(initiatorSupplier)
+                    .build();
+
+            List<PartialProcessKey> processes = executor.execute(ev, triggers, initiatorResolver, (t, cfg) -> {
+                // if `useEventCommitId` is true then the process is forced to use the specified commit ID
+                String commitId = MapUtils.getString(r.event(), COMMIT_ID_KEY);
+                if (commitId != null && TriggerUtils.isUseEventCommitId(t)) {
+                    cfg.put(Constants.Request.REPO_COMMIT_ID, commitId);
+                }
+                return cfg;
+            }, (t, processKey) -> {
+                // record each trigger as soon as its process is started, the retries won't start it again
+                dao.addStartedTriggers(deliveryId, Collections.singletonList(t.getId()));
+            });
+            startedProcesses += processes.size();
+        }
+        startedProcessesPerEvent.update(startedProcesses);
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        long last = lastCleanupAt.get();
+        if (now - last < CLEANUP_INTERVAL || !lastCleanupAt.compareAndSet(last, now)) {
+            return;
+        }
+
+        int deleted = dao.deleteProcessed(githubCfg.getInboxRetention());
+        if (deleted > 0) {
+            log.info("cleanup -> removed {} processed event(s)", deleted);
+        }
+    }
+
+    private void waitForEvents(long ms) throws InterruptedException {
+        synchronized (wakeup) {
+            wakeup.wait(ms);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class GithubEventInitiatorSupplier implements Supplier<UserEntry> {
+
+        private final UserManager userManager;
+        private final LdapManager ldapManager;
+        private final Payload payload;
+        private final Supplier<UserEntry> fallback;
+
+        public GithubEventInitiatorSupplier(UserManager userManager, LdapManager ldapManager, Payload payload) {
+            this.userManager = userManager;
+            this.ldapManager = ldapManager;
+            this.payload = payload;
+            this.fallback = () -> {
+                String initiator = payload.getSender();
+                if (initiator == null || initiator.trim().isEmpty()) {
+                    throw new ConcordApplicationException("Can't determine initiator: " + payload);
+                }
+
+                return userManager.getOrCreate(initiator, null, UserType.LDAP)
+                        .orElseThrow(() -> new ConcordApplicationException("User not found: " + initiator));
+            };
+        }
+
+        @Override
+        public UserEntry get() {
+            if (!githubCfg.isUseSenderLdapDn()) {
+                return fallback.get();
+            }
+
+            String ldapDn = payload.getSenderLdapDn();
+            if (ldapDn == null || ldapDn.trim().isEmpty()) {
+                log.warn("getOrCreateUserEntry ['{}'] -> can't determine the sender's 'ldap_dn', falling back to 'login'", payload);
+                return fallback.get();
+            }
+
+            // only LDAP users are supported in GitHub triggers
+            try {
+                LdapPrincipal p = ldapManager.getPrincipalByDn(ldapDn);
+                if (p == null) {
+                    log.warn("getOrCreateUserEntry ['{}'] -> can't find user by ldap DN ({})", payload, ldapDn);
+                    return fallback.get();
+                }
+
+                return userManager.getOrCreate(p.getUsername(), p.getDomain(), UserType.LDAP)
+                        .orElseThrow(() -> new ConcordApplicationException("User not found: " + p.getUsername()));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
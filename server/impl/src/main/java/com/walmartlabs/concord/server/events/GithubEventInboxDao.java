@@ -0,0 +1,184 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.GithubEventInbox;
+import com.walmartlabs.concord.server.jooq.tables.records.GithubEventInboxRecord;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.impl.DSL;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.jooq.Tables.GITHUB_EVENT_INBOX;
+import static org.jooq.impl.DSL.*;
+
+@Named
+public class GithubEventInboxDao extends AbstractDao {
+
+    private final ConcordObjectMapper objectMapper;
+
+    @Inject
+    public GithubEventInboxDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
+        super(cfg);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Saves a new event.
+     *
+     * @return {@code false} if an event with the same delivery ID already exists
+     */
+    public boolean insert(String deliveryId, String eventName, UUID projectId, Map<String, Object> payload) {
+        return txResult(tx -> tx.insertInto(GITHUB_EVENT_INBOX)
+                .columns(GITHUB_EVENT_INBOX.DELIVERY_ID,
+                        GITHUB_EVENT_INBOX.EVENT_NAME,
+                        GITHUB_EVENT_INBOX.PROJECT_ID,
+                        GITHUB_EVENT_INBOX.PAYLOAD)
+                .values(deliveryId, eventName, projectId, objectMapper.toJSONB(payload))
+                .onConflictDoNothing()
+                .execute() > 0);
+    }
+
+    /**
+     * Claims up to {@code limit} unprocessed events. Events claimed by other
+     * workers are skipped unless their claim is older than {@code claimTimeout}.
+     */
+    public List<GithubInboxEntry> claim(int limit, Duration claimTimeout) {
+        return txResult(tx -> {
+            GithubEventInbox i = GITHUB_EVENT_INBOX.as("i");
+
+            Field<OffsetDateTime> cutOff = currentOffsetDateTime().minus(interval(claimTimeout.getSeconds() + " seconds"));
+
+            List<String> ids = tx.select(i.DELIVERY_ID)
+                    .from(i)
+                    .where(i.PROCESSED_AT.isNull()
+                            .and(i.CLAIMED_AT.isNull().or(i.CLAIMED_AT.lessThan(cutOff))))
+                    .orderBy(i.RECEIVED_AT)
+                    .limit(limit)
+                    .forUpdate()
+                    .skipLocked()
+                    .fetch(i.DELIVERY_ID);
+
+            if (ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            return tx.update(GITHUB_EVENT_INBOX)
+                    .set(GITHUB_EVENT_INBOX.CLAIMED_AT, currentOffsetDateTime())
+                    .set(GITHUB_EVENT_INBOX.ATTEMPTS, GITHUB_EVENT_INBOX.ATTEMPTS.plus(1))
+                    .where(GITHUB_EVENT_INBOX.DELIVERY_ID.in(ids))
+                    .returning()
+                    .fetch()
+                    .map(this::toEntry);
+        });
+    }
+
+    /**
+     * Records the triggers processed for the event. The triggers
+     * are skipped if the event's processing is retried.
+     */
+    public void addStartedTriggers(String deliveryId, Collection<UUID> triggerIds) {
+        if (triggerIds.isEmpty()) {
+            return;
+        }
+
+        UUID[] ids = triggerIds.toArray(new UUID[0]);
+        tx(tx -> tx.update(GITHUB_EVENT_INBOX)
+                .set(GITHUB_EVENT_INBOX.STARTED_TRIGGERS, field("array_cat({0}, {1})", UUID[].class, GITHUB_EVENT_INBOX.STARTED_TRIGGERS, value(ids)))
+                .where(GITHUB_EVENT_INBOX.DELIVERY_ID.eq(deliveryId))
+                .execute());
+    }
+
+    /**
+     * @return {@code true} if the event was processed, {@code false} if the event
+     * is still pending or {@code null} if the event doesn't exist
+     */
+    public Boolean isProcessed(String deliveryId) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.select(GITHUB_EVENT_INBOX.PROCESSED_AT.isNotNull())
+                    .from(GITHUB_EVENT_INBOX)
+                    .where(GITHUB_EVENT_INBOX.DELIVERY_ID.eq(deliveryId))
+                    .fetchOne(Record1::value1);
+        }
+    }
+
+    public void markProcessed(String deliveryId) {
+        tx(tx -> tx.update(GITHUB_EVENT_INBOX)
+                .set(GITHUB_EVENT_INBOX.PROCESSED_AT, currentOffsetDateTime())
+                .where(GITHUB_EVENT_INBOX.DELIVERY_ID.eq(deliveryId))
+                .execute());
+    }
+
+    /**
+     * Removes processed events older than {@code maxAge}.
+     */
+    public int deleteProcessed(Duration maxAge) {
+        return txResult(tx -> tx.deleteFrom(GITHUB_EVENT_INBOX)
+                .where(GITHUB_EVENT_INBOX.PROCESSED_AT.lessThan(currentOffsetDateTime().minus(interval(maxAge.getSeconds() + " seconds"))))
+                .execute());
+    }
+
+    public int countPending() {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.fetchCount(GITHUB_EVENT_INBOX, GITHUB_EVENT_INBOX.PROCESSED_AT.isNull());
+        }
+    }
+
+    /**
+     * @return the receive time of the oldest unprocessed event or {@code null}
+     */
+    public OffsetDateTime getOldestPending() {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.select(min(GITHUB_EVENT_INBOX.RECEIVED_AT))
+                    .from(GITHUB_EVENT_INBOX)
+                    .where(GITHUB_EVENT_INBOX.PROCESSED_AT.isNull())
+                    .fetchOne(min(GITHUB_EVENT_INBOX.RECEIVED_AT));
+        }
+    }
+
+    private GithubInboxEntry toEntry(GithubEventInboxRecord r) {
+        return GithubInboxEntry.builder()
+                .deliveryId(r.getDeliveryId())
+                .eventName(r.getEventName())
+                .projectId(r.getProjectId())
+                .payload(objectMapper.fromJSONB(r.getPayload()))
+                .receivedAt(r.getReceivedAt())
+                .attempts(r.getAttempts())
+                .startedTriggers(r.getStartedTriggers() != null ? Arrays.asList(r.getStartedTriggers()) : Collections.emptyList())
+                .build();
+    }
+}
@@ -20,25 +20,13 @@ package com.walmartlabs.concord.server.events;
  * =====
  */
 
-import com.codahale.metrics.Histogram;
-import com.codahale.metrics.MetricRegistry;
-import com.walmartlabs.concord.sdk.Constants;
-import com.walmartlabs.concord.sdk.MapUtils;
 import com.walmartlabs.concord.server.audit.AuditAction;
 import com.walmartlabs.concord.server.audit.AuditLog;
 import com.walmartlabs.concord.server.audit.AuditObject;
 import com.walmartlabs.concord.server.cfg.GithubConfiguration;
-import com.walmartlabs.concord.server.events.github.GithubTriggerProcessor;
-import com.walmartlabs.concord.server.events.github.Payload;
-import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
-import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
-import com.walmartlabs.concord.server.security.ldap.LdapManager;
-import com.walmartlabs.concord.server.security.ldap.LdapPrincipal;
-import com.walmartlabs.concord.server.user.UserEntry;
-import com.walmartlabs.concord.server.user.UserManager;
-import com.walmartlabs.concord.server.user.UserType;
+import com.walmartlabs.concord.server.security.github.GithubKey;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -50,16 +38,11 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.ws.rs.*;
-import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.UriInfo;
-import java.util.ArrayList;
-import java.util.List;
+import javax.ws.rs.core.Response;
 import java.util.Map;
-import java.util.function.Supplier;
+import java.util.UUID;
 
-import static com.walmartlabs.concord.common.MemoSupplier.memo;
-import static com.walmartlabs.concord.server.events.github.Constants.COMMIT_ID_KEY;
 import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
 
 /**
@@ -78,33 +61,23 @@ public class GithubEventResource implements Resource {
     private static final Logger log = LoggerFactory.getLogger(GithubEventResource.class);
 
     private final GithubConfiguration githubCfg;
-    private final TriggerProcessExecutor executor;
     private final AuditLog auditLog;
-    private final List<GithubTriggerProcessor> processors;
-    private final UserManager userManager;
-    private final LdapManager ldapManager;
-    private final TriggerEventInitiatorResolver initiatorResolver;
-    private final Histogram startedProcessesPerEvent;
+    private final GithubEventInbox inbox;
 
     @Inject
     public GithubEventResource(GithubConfiguration githubCfg,
-                               TriggerProcessExecutor executor, AuditLog auditLog,
-                               List<GithubTriggerProcessor> processors,
-                               UserManager userManager,
-                               LdapManager ldapManager,
-                               TriggerEventInitiatorResolver initiatorResolver,
-                               MetricRegistry metricRegistry) {
+                               AuditLog auditLog,
+                               GithubEventInbox inbox) {
 
         this.githubCfg = githubCfg;
-        this.executor = executor;
         this.auditLog = auditLog;
-        this.processors = processors;
-        this.userManager = userManager;
-        this.ldapManager = ldapManager;
-        this.initiatorResolver = initiatorResolver;
-        this.startedProcessesPerEvent = metricRegistry.histogram("started-processes-per-github-event");
+        this.inbox = inbox;
     }
 
+    /**
+     * Saves the event into the inbox, the actual processing is performed
+     * asynchronously, see {@link GithubEventInbox}.
+     */
     @POST
     @ApiOperation("Handles GitHub repository level events")
     @Path("/webhook")
@@ -113,8 +86,7 @@ public class GithubEventResource implements Resource {
     @WithTimer
     public String onEvent(@ApiParam Map<String, Object> data,
                           @HeaderParam("X-GitHub-Delivery") String deliveryId,
-                          @HeaderParam("X-GitHub-Event") String eventName,
-                          @Context UriInfo uriInfo) {
+                          @HeaderParam("X-GitHub-Event") String eventName) {
 
         log.info("onEvent ['{}', '{}'] -> processing...", deliveryId, eventName);
 
@@ -122,11 +94,16 @@ public class GithubEventResource implements Resource {
             return "ok";
         }
 
-        if (executor.isDisabled(eventName)) {
+        if (inbox.isDisabled(eventName)) {
             log.warn("event ['{}', '{}'] -> disabled", deliveryId, eventName);
             return "ok";
         }
 
+        if (deliveryId == null || deliveryId.trim().isEmpty()) {
+            // can't detect redeliveries of such events
+            deliveryId = UUID.randomUUID().toString();
+        }
+
         if (githubCfg.isLogEvents()) {
             auditLog.add(AuditObject.EXTERNAL_EVENT, AuditAction.ACCESS)
                     .field("source", EVENT_SOURCE)
@@ -136,88 +113,30 @@ public class GithubEventResource implements Resource {
                     .log();
         }
 
-        Payload payload = Payload.from(eventName, data);
-        if (payload == null) {
-            log.warn("event ['{}', '{}'] -> can't parse payload", deliveryId, eventName);
-            return "ok";
-        }
+        // the webhook's project (if any) is known only while handling the request
+        UUID projectId = GithubKey.getCurrent().getProjectId();
 
-        List<GithubTriggerProcessor.Result> results = new ArrayList<>();
-        processors.forEach(p -> p.process(eventName, payload, uriInfo, results));
-
-        Supplier<UserEntry> initiatorSupplier = memo(new GithubEventInitiatorSupplier(userManager, ldapManager, payload));
-
-        int startedProcesses = 0;
-        for (GithubTriggerProcessor.Result r : results) {
-            Event e = Event.builder()
-                    .id(deliveryId)
-                    .name(EVENT_SOURCE)
-                    .attributes(r.event())
-                    .initiator(initiatorSupplier)
-                    .build();
-
-            List<PartialProcessKey> processes = executor.execute(e, r.triggers(), initiatorResolver, (t, cfg) -> {
-                // if `useEventCommitId` is true then the process is forced to use the specified commit ID
-                String commitId = MapUtils.getString(r.event(), COMMIT_ID_KEY);
-                if (commitId != null && TriggerUtils.isUseEventCommitId(t)) {
-                    cfg.put(Constants.Request.REPO_COMMIT_ID, commitId);
-                }
-                return cfg;
-            });
-            startedProcesses += processes.size();
+        if (!inbox.submit(deliveryId, eventName, projectId, data)) {
+            log.info("onEvent ['{}', '{}'] -> already received, skipping", deliveryId, eventName);
         }
-        startedProcessesPerEvent.update(startedProcesses);
 
         return "ok";
     }
 
-    private class GithubEventInitiatorSupplier implements Supplier<UserEntry> {
-
-        private final UserManager userManager;
-        private final LdapManager ldapManager;
-        private final Payload payload;
-        private final Supplier<UserEntry> fallback;
-
-        public GithubEventInitiatorSupplier(UserManager userManager, LdapManager ldapManager, Payload payload) {
-            this.userManager = userManager;
-            this.ldapManager = ldapManager;
-            this.payload = payload;
-            this.fallback = () -> {
-                String initiator = payload.getSender();
-                if (initiator == null || initiator.trim().isEmpty()) {
-                    throw new ConcordApplicationException("Can't determine initiator: " + payload);
-                }
-
-                return userManager.getOrCreate(initiator, null, UserType.LDAP)
-                        .orElseThrow(() -> new ConcordApplicationException("User not found: " + initiator));
-            };
+    /**
+     * Returns the processing status of a previously received event.
+     */
+    @GET
+    @ApiOperation("Returns the processing status of a GitHub event")
+    @Path("/webhook/{deliveryId}")
+    @Produces(MediaType.TEXT_PLAIN)
+    @WithTimer
+    public String getEventStatus(@ApiParam @PathParam("deliveryId") String deliveryId) {
+        Boolean processed = inbox.isProcessed(deliveryId);
+        if (processed == null) {
+            throw new ConcordApplicationException("Event not found: " + deliveryId, Response.Status.NOT_FOUND);
         }
 
-        @Override
-        public UserEntry get() {
-            if (!githubCfg.isUseSenderLdapDn()) {
-                return fallback.get();
-            }
-
-            String ldapDn = payload.getSenderLdapDn();
-            if (ldapDn == null || ldapDn.trim().isEmpty()) {
-                log.warn("getOrCreateUserEntry ['{}'] -> can't determine the sender's 'ldap_dn', falling back to 'login'", payload);
-                return fallback.get();
-            }
-
-            // only LDAP users are supported in GitHub triggers
-            try {
-                LdapPrincipal p = ldapManager.getPrincipalByDn(ldapDn);
-                if (p == null) {
-                    log.warn("getOrCreateUserEntry ['{}'] -> can't find user by ldap DN ({})", payload, ldapDn);
-                    return fallback.get();
-                }
-
-                return userManager.getOrCreate(p.getUsername(), p.getDomain(), UserType.LDAP)
-                        .orElseThrow(() -> new ConcordApplicationException("User not found: " + p.getUsername()));
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
+        return processed ? "processed" : "pending";
     }
 }
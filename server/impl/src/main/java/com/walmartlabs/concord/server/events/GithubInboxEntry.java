@@ -0,0 +1,55 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Value.Immutable
+public interface GithubInboxEntry {
+
+    String deliveryId();
+
+    String eventName();
+
+    @Nullable
+    UUID projectId();
+
+    Map<String, Object> payload();
+
+    OffsetDateTime receivedAt();
+
+    int attempts();
+
+    /**
+     * IDs of the triggers processed by the previous attempts.
+     */
+    Set<UUID> startedTriggers();
+
+    static ImmutableGithubInboxEntry.Builder builder() {
+        return ImmutableGithubInboxEntry.builder();
+    }
+}
@@ -54,6 +54,15 @@ public class TriggerProcessExecutor {
         Map<String, Object> enrich(TriggerEntry t, Map<String, Object> cfg);
     }
 
+    public interface ProcessStartListener {
+
+        /**
+         * Called as soon as the trigger's process is started. Exceptions are
+         * propagated to the caller of {@link #execute(Event, List, TriggerEventInitiatorResolver, ProcessConfigurationEnricher, ProcessStartListener)}.
+         */
+        void onStart(TriggerEntry t, PartialProcessKey processKey);
+    }
+
     private static final Logger log = LoggerFactory.getLogger(TriggerProcessExecutor.class);
 
     private final ExternalEventsConfiguration eventsCfg;
@@ -92,12 +101,21 @@ public class TriggerProcessExecutor {
         return execute(event, triggers, initiatorResolver, null);
     }
 
-    @WithTimer
     public List<PartialProcessKey> execute(Event event,
                                            List<TriggerEntry> triggers,
                                            TriggerEventInitiatorResolver initiatorResolver,
                                            ProcessConfigurationEnricher cfgEnricher) {
 
+        return execute(event, triggers, initiatorResolver, cfgEnricher, null);
+    }
+
+    @WithTimer
+    public List<PartialProcessKey> execute(Event event,
+                                           List<TriggerEntry> triggers,
+                                           TriggerEventInitiatorResolver initiatorResolver,
+                                           ProcessConfigurationEnricher cfgEnricher,
+                                           ProcessStartListener startListener) {
+
         if (isDisabled(event.name())) {
             log.warn("process ['{}'] event '{}' disabled", event.id(), event.name());
             return Collections.emptyList();
@@ -107,7 +125,7 @@ public class TriggerProcessExecutor {
 
         return triggers.stream()
                 .filter(t -> !isRepositoryDisabled(t))
-                .map(t -> submitProcess(event, t, initiatorResolver, cfgEnricher))
+                .map(t -> submitProcess(event, t, initiatorResolver, cfgEnricher, startListener))
                 .collect(Collectors.toList()) // collect all "futures"
                 .stream()
                 .map(TriggerProcessExecutor::resolve)
@@ -115,7 +133,10 @@ public class TriggerProcessExecutor {
                 .collect(Collectors.toList());
     }
 
-    private void assertRoles(String eventName) {
+    /**
+     * Checks if the current user has the roles required to send the specified event.
+     */
+    public void assertRoles(String eventName) {
         if (Roles.isAdmin()) {
             return;
         }
@@ -142,7 +163,8 @@ public class TriggerProcessExecutor {
     private Future<PartialProcessKey> submitProcess(Event event,
                                                     TriggerEntry t,
                                                     TriggerEventInitiatorResolver initiatorResolver,
-                                                    ProcessConfigurationEnricher cfgEnricher) {
+                                                    ProcessConfigurationEnricher cfgEnricher,
+                                                    ProcessStartListener startListener) {
 
         UserEntry initiator;
         try {
@@ -182,16 +204,22 @@ public class TriggerProcessExecutor {
                 cfg = cfgEnricher.enrich(t, cfg);
             }
 
+            PartialProcessKey pk;
             try {
                 UUID orgId = projectDao.getOrgId(t.getProjectId());
 
-                PartialProcessKey pk = startProcess(event.id(), orgId, t, cfg, initiator);
+                pk = startProcess(event.id(), orgId, t, cfg, initiator);
                 log.info("process ['{}'] -> new process ('{}') triggered by {}", event.id(), pk, t);
-                return pk;
             } catch (Exception e) {
                 log.error("process ['{}', '{}', '{}'] -> error", event.id(), event.name(), t.getId(), e);
                 return null;
             }
+
+            if (startListener != null) {
+                startListener.onStart(t, pk);
+            }
+
+            return pk;
         });
     }
 
@@ -0,0 +1,248 @@
+package com.walmartlabs.concord.server.events.github;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.GithubConfiguration;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.org.triggers.TriggersDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.walmartlabs.concord.server.events.github.Constants.*;
+
+/**
+ * In-memory index of v2 GitHub triggers, keyed by the trigger's {@code githubOrg}
+ * and {@code githubRepo} conditions.
+ * <p>
+ * Conditions that are plain literals go into exact-match buckets, anything else
+ * (regular expressions, lists, missing conditions) goes into the "wildcard" bucket
+ * which is matched using precompiled patterns. The final matching is still done
+ * by {@link com.walmartlabs.concord.server.events.DefaultEventFilter}, the index
+ * only narrows down the list of candidates.
+ * <p>
+ * The index is reloaded when the local node refreshes a repository's triggers
+ * (see {@link #invalidate()}) or when the triggers' fingerprint in the DB changes,
+ * which is checked at most once per {@link GithubConfiguration#getTriggerIndexCheckInterval()}.
+ */
+@Named
+@Singleton
+public class GithubTriggerIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(GithubTriggerIndex.class);
+
+    private static final int VERSION_ID = 2;
+    private static final String WILDCARD = "*";
+
+    private final TriggersDao dao;
+    private final long checkInterval;
+
+    private volatile Snapshot snapshot;
+
+    @Inject
+    public GithubTriggerIndex(GithubConfiguration cfg, TriggersDao dao) {
+        this.dao = dao;
+        this.checkInterval = cfg.getTriggerIndexCheckInterval().toMillis();
+    }
+
+    /**
+     * Returns the triggers that might match an event with the specified
+     * organization and repository names.
+     *
+     * @param projectId if not {@code null} only the project's triggers are returned
+     */
+    public List<TriggerEntry> find(UUID projectId, String org, String repo) {
+        Snapshot s = current();
+
+        List<TriggerEntry> result = new ArrayList<>();
+        for (String orgKey : keys(org)) {
+            Map<String, List<IndexEntry>> byRepo = s.entries.get(orgKey);
+            if (byRepo == null) {
+                continue;
+            }
+
+            for (String repoKey : keys(repo)) {
+                List<IndexEntry> entries = byRepo.get(repoKey);
+                if (entries == null) {
+                    continue;
+                }
+
+                for (IndexEntry e : entries) {
+                    if (projectId != null && !projectId.equals(e.trigger.getProjectId())) {
+                        continue;
+                    }
+
+                    if (e.matches(org, repo)) {
+                        result.add(e.trigger);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Forces the index to reload on the next lookup.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        long now = System.currentTimeMillis();
+
+        Snapshot s = snapshot;
+        if (s != null && s.checkedAt + checkInterval > now) {
+            return s;
+        }
+
+        synchronized (this) {
+            s = snapshot;
+            if (s != null && s.checkedAt + checkInterval > now) {
+                return s;
+            }
+
+            // read the fingerprint first, any changes made after this point
+            // will be picked up on the next check
+            String fingerprint = dao.fingerprint(EVENT_SOURCE);
+            if (s != null && s.fingerprint.equals(fingerprint)) {
+                s = new Snapshot(fingerprint, now, s.entries);
+            } else {
+                s = load(fingerprint, now);
+            }
+
+            snapshot = s;
+            return s;
+        }
+    }
+
+    private Snapshot load(String fingerprint, long now) {
+        List<TriggerEntry> triggers = dao.list(EVENT_SOURCE, VERSION_ID);
+
+        Map<String, Map<String, List<IndexEntry>>> entries = new HashMap<>();
+        for (TriggerEntry t : triggers) {
+            IndexEntry e = new IndexEntry(t);
+            entries.computeIfAbsent(e.orgKey, k -> new HashMap<>())
+                    .computeIfAbsent(e.repoKey, k -> new ArrayList<>())
+                    .add(e);
+        }
+
+        log.info("load -> done, {} trigger(s)", triggers.size());
+        return new Snapshot(fingerprint, now, entries);
+    }
+
+    private static List<String> keys(String value) {
+        if (value == null) {
+            // literal conditions can't match a missing value
+            return Collections.singletonList(WILDCARD);
+        }
+        return Arrays.asList(value, WILDCARD);
+    }
+
+    private static boolean isLiteral(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static final class Snapshot {
+
+        private final String fingerprint;
+        private final long checkedAt;
+        private final Map<String, Map<String, List<IndexEntry>>> entries;
+
+        private Snapshot(String fingerprint, long checkedAt, Map<String, Map<String, List<IndexEntry>>> entries) {
+            this.fingerprint = fingerprint;
+            this.checkedAt = checkedAt;
+            this.entries = entries;
+        }
+    }
+
+    private static final class IndexEntry {
+
+        private final TriggerEntry trigger;
+        private final String orgKey;
+        private final String repoKey;
+        private final Pattern orgPattern;
+        private final Pattern repoPattern;
+
+        private IndexEntry(TriggerEntry trigger) {
+            this.trigger = trigger;
+
+            Map<String, Object> conditions = trigger.getConditions();
+            Object org = conditions != null ? conditions.get(GITHUB_ORG_KEY) : null;
+            Object repo = conditions != null ? conditions.get(GITHUB_REPO_KEY) : null;
+
+            this.orgKey = key(org);
+            this.repoKey = key(repo);
+            this.orgPattern = WILDCARD.equals(orgKey) ? compile(org) : null;
+            this.repoPattern = WILDCARD.equals(repoKey) ? compile(repo) : null;
+        }
+
+        /**
+         * Same as the condition clause previously used in the DB query:
+         * a missing value or a missing condition matches anything.
+         */
+        private boolean matches(String org, String repo) {
+            return matches(orgPattern, org) && matches(repoPattern, repo);
+        }
+
+        private static boolean matches(Pattern p, String value) {
+            return p == null || value == null || p.matcher(value).find();
+        }
+
+        private static String key(Object condition) {
+            if (condition instanceof String && isLiteral((String) condition)) {
+                return (String) condition;
+            }
+            return WILDCARD;
+        }
+
+        private static Pattern compile(Object condition) {
+            if (!(condition instanceof String)) {
+                return null;
+            }
+
+            try {
+                return Pattern.compile((String) condition);
+            } catch (PatternSyntaxException e) {
+                // let the event filter deal with it
+                return null;
+            }
+        }
+    }
+}
@@ -26,14 +26,11 @@ import com.walmartlabs.concord.server.events.DefaultEventFilter;
 import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.project.RepositoryEntry;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
-import com.walmartlabs.concord.server.security.github.GithubKey;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.ws.rs.core.UriInfo;
 import java.util.*;
 
 import static com.walmartlabs.concord.server.events.github.Constants.*;
@@ -44,21 +41,18 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
     private static final int VERSION_ID = 2;
 
-    private final TriggersDao dao;
+    private final GithubTriggerIndex triggerIndex;
     private final List<EventEnricher> eventEnrichers;
 
     @Inject
-    public GithubTriggerV2Processor(TriggersDao dao, List<EventEnricher> eventEnrichers) {
-        this.dao = dao;
+    public GithubTriggerV2Processor(GithubTriggerIndex triggerIndex, List<EventEnricher> eventEnrichers) {
+        this.triggerIndex = triggerIndex;
         this.eventEnrichers = eventEnrichers;
     }
 
     @Override
     @WithTimer
-    public void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result) {
-        GithubKey githubKey = GithubKey.getCurrent();
-        UUID projectId = githubKey.getProjectId();
-
+    public void process(String eventName, Payload payload, UUID projectId, List<Result> result) {
         List<TriggerEntry> triggers = listTriggers(projectId, payload.getOrg(), payload.getRepo());
         for (TriggerEntry t : triggers) {
             // skip empty push events if the trigger's configuration says so
@@ -83,17 +77,7 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
     @WithTimer
     List<TriggerEntry> listTriggers(UUID projectId, String org, String repo) {
-        Map<String, String> conditions = new HashMap<>();
-
-        if (org != null) {
-            conditions.put(GITHUB_ORG_KEY, org);
-        }
-
-        if (repo != null) {
-            conditions.put(GITHUB_REPO_KEY, repo);
-        }
-
-        return dao.list(projectId, EVENT_SOURCE, VERSION_ID, conditions);
+        return triggerIndex.find(projectId, org, repo);
     }
 
     private Map<String, Object> buildEvent(String eventName, Payload payload) {
@@ -0,0 +1,348 @@
+package com.walmartlabs.concord.server.listeners;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.cfg.ListenersConfiguration;
+import com.walmartlabs.concord.server.cfg.ListenersConfiguration.OverflowPolicy;
+import org.jooq.DSLContext;
+import org.jooq.JSONB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Delivers items to a single listener using a bounded queue and a background
+ * thread. Items are delivered in batches of up to {@code listeners.batchSize}.
+ * <p>
+ * When the queue is full the item is handled according to the configured
+ * {@link OverflowPolicy}. In the "durable" mode all items are saved into
+ * the DB first and removed only after a successful delivery.
+ * <p>
+ * Items offered with the caller's transaction are saved using that transaction,
+ * so the items of rolled back transactions are never delivered from the DB.
+ * Such items become visible after the commit and are picked up by the periodic
+ * check of the DB. Saved items are delivered only by the server that saved them.
+ * <p>
+ * If the outbox is not started, items are delivered synchronously.
+ */
+public class ListenerOutbox<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerOutbox.class);
+
+    private final String name;
+    private final String serverId;
+    private final Class<T> itemType;
+    private final Consumer<List<T>> delivery;
+    private final ListenersConfiguration cfg;
+    private final ListenerOutboxDao dao;
+    private final ConcordObjectMapper objectMapper;
+
+    private final BlockingQueue<QueuedItem<T>> queue;
+    private final QueuedItem<T> wakeUp = new QueuedItem<>(null, 0);
+
+    /**
+     * {@code true} if the DB might contain items of this outbox, e.g. spilled
+     * items or items left after a restart.
+     */
+    private final AtomicBoolean storeDirty;
+
+    /**
+     * {@code true} if items can be saved into the DB. Such items might be saved
+     * with the caller's transaction, so the DB is checked periodically.
+     */
+    private final boolean storeEnabled;
+    private long lastStoreCheck;
+
+    private final Meter delivered;
+    private final Meter dropped;
+    private final Meter spilled;
+    private final Meter failed;
+
+    private volatile Thread worker;
+
+    public ListenerOutbox(String name,
+                          Class<T> itemType,
+                          Consumer<List<T>> delivery,
+                          ListenersConfiguration cfg,
+                          ListenerOutboxDao dao,
+                          ConcordObjectMapper objectMapper,
+                          MetricRegistry metricRegistry) {
+
+        this.name = name;
+        this.serverId = cfg.getServerId();
+        this.itemType = itemType;
+        this.delivery = delivery;
+        this.cfg = cfg;
+        this.dao = dao;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(cfg.getQueueSize());
+
+        // replay the items left after the previous run
+        this.storeEnabled = cfg.isDurable() || cfg.getOverflowPolicy() == OverflowPolicy.SPILL;
+        this.storeDirty = new AtomicBoolean(storeEnabled);
+
+        String prefix = "listener-" + name;
+        this.delivered = metricRegistry.meter(prefix + "-delivered");
+        this.dropped = metricRegistry.meter(prefix + "-dropped");
+        this.spilled = metricRegistry.meter(prefix + "-spilled");
+        this.failed = metricRegistry.meter(prefix + "-failed");
+        metricRegistry.register(prefix + "-queue-size", (Gauge<Integer>) queue::size);
+        metricRegistry.register(prefix + "-lag", (Gauge<Long>) this::lag);
+    }
+
+    public void offer(T item) {
+        offerAll(Collections.singletonList(item));
+    }
+
+    public void offerAll(List<T> items) {
+        offerAll(null, items);
+    }
+
+    /**
+     * @param tx the caller's transaction or {@code null}. If specified, the items
+     *           saved into the DB are saved using the transaction.
+     */
+    public void offerAll(DSLContext tx, List<T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        if (worker == null) {
+            deliver(items);
+            return;
+        }
+
+        if (cfg.isDurable() && store(tx, items)) {
+            // wake up the worker, if the queue is full the worker is busy anyway
+            queue.offer(wakeUp);
+            return;
+        }
+
+        for (T item : items) {
+            enqueue(tx, item);
+        }
+    }
+
+    private void enqueue(DSLContext tx, T item) {
+        QueuedItem<T> i = new QueuedItem<>(item, System.currentTimeMillis());
+        if (queue.offer(i)) {
+            return;
+        }
+
+        OverflowPolicy policy = cfg.getOverflowPolicy();
+        switch (policy) {
+            case BLOCK: {
+                try {
+                    if (queue.offer(i, cfg.getBlockTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            }
+            case SPILL: {
+                if (store(tx, Collections.singletonList(item))) {
+                    spilled.mark();
+                    return;
+                }
+                break;
+            }
+            case DROP: {
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown overflow policy: " + policy);
+        }
+
+        dropped.mark();
+        log.warn("offer ['{}'] -> queue is full, dropping an item", name);
+    }
+
+    public void start() {
+        Thread t = new Thread(this::run, "listener-outbox-" + name);
+        t.setDaemon(true);
+
+        this.worker = t;
+        t.start();
+    }
+
+    public void stop() {
+        Thread t = worker;
+        if (t == null) {
+            return;
+        }
+
+        // let the worker finish the current batch
+        worker = null;
+
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // deliver whatever is left in the queue
+        // items saved in the DB are delivered after restart
+        List<QueuedItem<T>> batch = new ArrayList<>();
+        while (queue.drainTo(batch, cfg.getBatchSize()) > 0) {
+            deliverQueued(batch);
+            batch.clear();
+        }
+    }
+
+    private void run() {
+        int batchSize = cfg.getBatchSize();
+        long flushInterval = cfg.getFlushInterval().toMillis();
+
+        List<QueuedItem<T>> batch = new ArrayList<>(batchSize);
+        while (worker == Thread.currentThread()) {
+            try {
+                QueuedItem<T> first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    deliverQueued(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // the items are lost, but the worker must keep going
+                failed.mark(batch.size());
+                log.error("run ['{}'] -> error while delivering {} item(s): {}", name, batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+
+            try {
+                drainStore(batchSize);
+            } catch (Exception e) {
+                // the items stay in the DB, retry on the next iteration
+                storeDirty.set(true);
+                log.error("run ['{}'] -> error while delivering stored items: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void drainStore(int batchSize) {
+        long now = System.currentTimeMillis();
+        boolean recheck = storeEnabled && now - lastStoreCheck >= cfg.getFlushInterval().toMillis();
+        if (!storeDirty.getAndSet(false) && !recheck) {
+            return;
+        }
+
+        lastStoreCheck = now;
+
+        int n = dao.consume(serverId, name, batchSize, payloads -> {
+            List<T> items = new ArrayList<>(payloads.size());
+            for (JSONB p : payloads) {
+                items.add(objectMapper.fromJSONB(p, itemType));
+            }
+            deliver(items);
+        });
+
+        if (n >= batchSize) {
+            // there might be more
+            storeDirty.set(true);
+        }
+    }
+
+    private boolean store(DSLContext tx, List<T> items) {
+        if (tx != null) {
+            // errors are not handled here: a failed statement aborts the caller's transaction anyway.
+            // The items are picked up by the periodic check after the commit
+            dao.insert(tx, serverId, name, toPayloads(items));
+            return true;
+        }
+
+        try {
+            dao.insert(serverId, name, toPayloads(items));
+            storeDirty.set(true);
+            return true;
+        } catch (Exception e) {
+            log.warn("store ['{}'] -> error while saving {} item(s): {}", name, items.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private List<JSONB> toPayloads(List<T> items) {
+        List<JSONB> payloads = new ArrayList<>(items.size());
+        for (T i : items) {
+            payloads.add(objectMapper.toJSONB(i));
+        }
+        return payloads;
+    }
+
+    private void deliverQueued(List<QueuedItem<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (QueuedItem<T> i : batch) {
+            if (i.item != null) {
+                items.add(i.item);
+            }
+        }
+
+        if (items.isEmpty()) {
+            return;
+        }
+
+        deliver(items);
+    }
+
+    private void deliver(List<T> items) {
+        delivery.accept(items);
+        delivered.mark(items.size());
+    }
+
+    /**
+     * @return age of the oldest queued item in milliseconds
+     */
+    private long lag() {
+        QueuedItem<T> i = queue.peek();
+        if (i == null || i.item == null) {
+            return 0;
+        }
+        return System.currentTimeMillis() - i.queuedAt;
+    }
+
+    private static final class QueuedItem<T> {
+
+        private final T item;
+        private final long queuedAt;
+
+        private QueuedItem(T item, long queuedAt) {
+            this.item = item;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.walmartlabs.concord.server.listeners;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.jooq.tables.records.ListenerOutboxRecord;
+import org.jooq.*;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.walmartlabs.concord.server.jooq.Tables.LISTENER_OUTBOX;
+
+/**
+ * Storage for listener items that can't be (or must not be) kept in memory.
+ */
+@Named
+public class ListenerOutboxDao extends AbstractDao {
+
+    @Inject
+    public ListenerOutboxDao(@MainDB Configuration cfg) {
+        super(cfg);
+    }
+
+    public void insert(String serverId, String sinkName, List<JSONB> payloads) {
+        tx(tx -> insert(tx, serverId, sinkName, payloads));
+    }
+
+    /**
+     * Saves the items using the caller's transaction. The items become visible
+     * to {@link #consume(String, String, int, Consumer)} only after the commit.
+     */
+    public void insert(DSLContext tx, String serverId, String sinkName, List<JSONB> payloads) {
+        InsertValuesStep3<ListenerOutboxRecord, String, String, JSONB> q = tx.insertInto(LISTENER_OUTBOX)
+                .columns(LISTENER_OUTBOX.SERVER_ID, LISTENER_OUTBOX.SINK_NAME, LISTENER_OUTBOX.PAYLOAD);
+
+        for (JSONB p : payloads) {
+            q = q.values(serverId, sinkName, p);
+        }
+
+        q.execute();
+    }
+
+    /**
+     * Fetches up to {@code limit} oldest items of the specified server and sink
+     * and passes them to the consumer. The items are removed only if the consumer
+     * returns normally. Items saved without a server ID can be consumed by any
+     * server, items locked by other servers are skipped.
+     *
+     * @return number of consumed items
+     */
+    public int consume(String serverId, String sinkName, int limit, Consumer<List<JSONB>> consumer) {
+        return txResult(tx -> {
+            Result<Record2<Long, JSONB>> r = tx.select(LISTENER_OUTBOX.ITEM_SEQ, LISTENER_OUTBOX.PAYLOAD)
+                    .from(LISTENER_OUTBOX)
+                    .where(LISTENER_OUTBOX.SINK_NAME.eq(sinkName)
+                            .and(LISTENER_OUTBOX.SERVER_ID.eq(serverId).or(LISTENER_OUTBOX.SERVER_ID.isNull())))
+                    .orderBy(LISTENER_OUTBOX.ITEM_SEQ)
+                    .limit(limit)
+                    .forUpdate()
+                    .skipLocked()
+                    .fetch();
+
+            if (r.isEmpty()) {
+                return 0;
+            }
+
+            List<Long> seqs = new ArrayList<>(r.size());
+            List<JSONB> payloads = new ArrayList<>(r.size());
+            for (Record2<Long, JSONB> i : r) {
+                seqs.add(i.value1());
+                payloads.add(i.value2());
+            }
+
+            consumer.accept(payloads);
+
+            tx.deleteFrom(LISTENER_OUTBOX)
+                    .where(LISTENER_OUTBOX.ITEM_SEQ.in(seqs))
+                    .execute();
+
+            return r.size();
+        });
+    }
+}
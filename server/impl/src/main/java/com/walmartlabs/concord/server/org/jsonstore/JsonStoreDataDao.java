@@ -119,6 +119,39 @@ public class JsonStoreDataDao extends AbstractDao {
                         .fetchOne(r -> r.value1().longValue()));
     }
 
+    /**
+     * Creates a partial GIN index on the store's data. The index speeds up
+     * only containment ({@code @>}) queries on {@code ITEM_DATA}, e.g.
+     * {@code where item @> '{"x": 1}'}. Queries using other operators
+     * ({@code ->}, {@code ->>}, {@code ?}, etc.) don't use the index.
+     * <p>
+     * The index is created concurrently, so the method can take a while on
+     * large stores, but it doesn't block writes.
+     */
+    public void createIndex(UUID storeId) {
+        // "concurrently" can't be used inside a transaction
+        executeAutoCommit("create index concurrently if not exists " + indexName(storeId) +
+                " on " + JSON_STORE_DATA.getName() +
+                " using gin (" + JSON_STORE_DATA.ITEM_DATA.getName() + " jsonb_path_ops)" +
+                " where " + JSON_STORE_DATA.JSON_STORE_ID.getName() + " = '" + storeId + "'");
+    }
+
+    public void dropIndex(UUID storeId) {
+        executeAutoCommit("drop index concurrently if exists " + indexName(storeId));
+    }
+
+    /**
+     * @return {@code null} if the store has no index, {@code true} if the index
+     * is ready to use or {@code false} if it is still being built (or its creation failed)
+     */
+    public Boolean isIndexValid(UUID storeId) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.resultQuery("select i.indisvalid from pg_index i join pg_class c on c.oid = i.indexrelid where c.relname = ?",
+                    indexName(storeId).toLowerCase())
+                    .fetchOne(r -> r.get(0, Boolean.class));
+        }
+    }
+
     public boolean delete(UUID storeId, String itemPath) {
         return txResult(tx -> tx.deleteFrom(JSON_STORE_DATA)
                 .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)
@@ -126,6 +159,10 @@ public class JsonStoreDataDao extends AbstractDao {
                 .execute() > 0);
     }
 
+    private static String indexName(UUID storeId) {
+        return "IDX_JSON_STORE_DATA_" + storeId.toString().replace("-", "");
+    }
+
     private JsonStoreDataEntry toDataEntry(Record2<String, JSONB> r) {
         return JsonStoreDataEntry.builder()
                 .path(r.value1())
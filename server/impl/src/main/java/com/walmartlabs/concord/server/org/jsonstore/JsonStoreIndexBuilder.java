@@ -0,0 +1,105 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Builds the stores' data indexes in background. "Create index concurrently"
+ * can take minutes on large stores, so it shouldn't run on request threads.
+ * Indexes are built one at a time to limit the load on the shared
+ * {@code JSON_STORE_DATA} table.
+ */
+@Named
+@Singleton
+public class JsonStoreIndexBuilder implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonStoreIndexBuilder.class);
+
+    private final JsonStoreDataDao storeDataDao;
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "json-store-index-builder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Inject
+    public JsonStoreIndexBuilder(JsonStoreDataDao storeDataDao) {
+        this.storeDataDao = storeDataDao;
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Schedules the creation of the store's index.
+     *
+     * @return {@code false} if the index is already scheduled or being built
+     */
+    public boolean submit(UUID storeId) {
+        if (!pending.add(storeId)) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> build(storeId));
+        } catch (RejectedExecutionException e) {
+            pending.remove(storeId);
+            throw e;
+        }
+
+        return true;
+    }
+
+    private void build(UUID storeId) {
+        try {
+            if (Boolean.FALSE.equals(storeDataDao.isIndexValid(storeId))) {
+                // a previous attempt failed, the invalid index must be removed first
+                storeDataDao.dropIndex(storeId);
+            }
+
+            log.info("build ['{}'] -> creating the index...", storeId);
+            long t1 = System.currentTimeMillis();
+            storeDataDao.createIndex(storeId);
+            log.info("build ['{}'] -> done in {}ms", storeId, System.currentTimeMillis() - t1);
+        } catch (Exception e) {
+            log.error("build ['{}'] -> error while creating the index: {}", storeId, e.getMessage());
+        } finally {
+            pending.remove(storeId);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+@Value.Immutable
+@JsonSerialize(as = ImmutableJsonStoreIndexEntry.class)
+@JsonDeserialize(as = ImmutableJsonStoreIndexEntry.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public interface JsonStoreIndexEntry {
+
+    /**
+     * {@code true} if the store has a data index.
+     */
+    boolean exists();
+
+    /**
+     * {@code true} if the index is ready to use. An index that is still
+     * being built or that failed to build is not valid.
+     */
+    boolean valid();
+
+    static ImmutableJsonStoreIndexEntry.Builder builder() {
+        return ImmutableJsonStoreIndexEntry.builder();
+    }
+}
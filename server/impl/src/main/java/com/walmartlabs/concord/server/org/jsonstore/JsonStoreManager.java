@@ -40,6 +40,7 @@ import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.user.UserEntry;
 import com.walmartlabs.concord.server.user.UserManager;
 import com.walmartlabs.concord.server.user.UserType;
+import org.apache.shiro.authz.UnauthorizedException;
 import org.sonatype.siesta.ValidationErrorsException;
 
 import javax.inject.Inject;
@@ -64,6 +65,7 @@ public class JsonStoreManager {
     private final AuditLog auditLog;
     private final JsonStoreDao storeDao;
     private final JsonStoreDataDao storeDataDao;
+    private final JsonStoreIndexBuilder indexBuilder;
     private final OrganizationDao orgDao;
     private final TeamDao teamDao;
 
@@ -75,6 +77,7 @@ public class JsonStoreManager {
                             AuditLog auditLog,
                             JsonStoreDao storeDao,
                             JsonStoreDataDao storeDataDao,
+                            JsonStoreIndexBuilder indexBuilder,
                             OrganizationDao orgDao,
                             TeamDao teamDao) {
 
@@ -85,6 +88,7 @@ public class JsonStoreManager {
         this.auditLog = auditLog;
         this.storeDao = storeDao;
         this.storeDataDao = storeDataDao;
+        this.indexBuilder = indexBuilder;
         this.orgDao = orgDao;
         this.teamDao = teamDao;
     }
@@ -125,11 +129,53 @@ public class JsonStoreManager {
                 .build();
     }
 
+    public JsonStoreIndexEntry getIndex(String orgName, String storeName) {
+        OrganizationEntry org = orgManager.assertAccess(orgName, false);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
+
+        Boolean valid = storeDataDao.isIndexValid(store.id());
+        return JsonStoreIndexEntry.builder()
+                .exists(valid != null)
+                .valid(valid != null && valid)
+                .build();
+    }
+
+    /**
+     * Schedules the creation of the store's index. Indexes are created on the
+     * shared data table, so only admins can manage them.
+     *
+     * @return {@code false} if the index is already being built
+     */
+    public boolean createIndex(String orgName, String storeName) {
+        assertAdmin();
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.OWNER, true);
+
+        boolean submitted = indexBuilder.submit(store.id());
+        if (submitted) {
+            addIndexAuditLog(store, true);
+        }
+        return submitted;
+    }
+
+    public void dropIndex(String orgName, String storeName) {
+        assertAdmin();
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.OWNER, true);
+
+        storeDataDao.dropIndex(store.id());
+
+        addIndexAuditLog(store, false);
+    }
+
     public void delete(String orgName, String storeName) {
         OrganizationEntry org = orgManager.assertAccess(orgName, false);
 
         JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.OWNER, true);
 
+        storeDataDao.dropIndex(store.id());
         storeDao.delete(store.id());
 
         addAuditLog(AuditAction.DELETE, org.getId(), store.id(), store.name());
@@ -252,6 +298,12 @@ public class JsonStoreManager {
         return defaultOwner;
     }
 
+    private static void assertAdmin() {
+        if (!Roles.isAdmin()) {
+            throw new UnauthorizedException("Only admins can manage JSON store indexes");
+        }
+    }
+
     private void assertStoragePolicy(UUID orgId) {
         PolicyEngine policy = policyManager.get(orgId, null, UserPrincipal.assertCurrent().getUser().getId());
         if (policy == null) {
@@ -297,6 +349,15 @@ public class JsonStoreManager {
                 .log();
     }
 
+    private void addIndexAuditLog(JsonStoreEntry store, boolean indexed) {
+        auditLog.add(AuditObject.JSON_STORE, AuditAction.UPDATE)
+                .field("orgId", store.orgId())
+                .field("jsonStoreId", store.id())
+                .field("name", store.name())
+                .field("indexed", indexed)
+                .log();
+    }
+
     private void addAuditLog(UUID storeId, Collection<ResourceAccessEntry> entries, boolean isReplace) {
         List<ImmutableMap<String, ? extends Serializable>> teams = entries.stream()
                 .map(e -> ImmutableMap.of("id", e.getTeamId(), "level", e.getLevel()))
@@ -21,6 +21,8 @@ package com.walmartlabs.concord.server.org.jsonstore;
  */
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.JsonStorageDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
@@ -56,9 +58,19 @@ import static org.jooq.impl.DSL.val;
 @Named
 public class JsonStoreQueryExecDao extends AbstractDao {
 
+    private static final int MAX_CACHED_QUERIES = 1000;
+
     private final ConcordObjectMapper objectMapper;
     private final JsonStoreQueryDao storeQueryDao;
 
+    /**
+     * Parsed and rewritten named queries by query ID. Each entry keeps the text
+     * it was created from, so queries updated on other servers are parsed again.
+     */
+    private final Cache<UUID, ParsedQuery> queries = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_QUERIES)
+            .build();
+
     @Inject
     public JsonStoreQueryExecDao(@JsonStorageDB Configuration cfg,
                                  ConcordObjectMapper objectMapper,
@@ -75,12 +87,35 @@ public class JsonStoreQueryExecDao extends AbstractDao {
             throw new ValidationErrorsException("Query not found: " + queryName);
         }
 
-        return execSql(q.storeId(), q.text(), params, null);
+        return exec(q.storeId(), getSql(q), params);
     }
 
     public List<Object> execSql(UUID storeId, String query, Map<String, Object> params, Integer maxLimit) {
-        String sql = createQuery(query, maxLimit);
+        // ad-hoc queries are not cached
+        return exec(storeId, createQuery(query, maxLimit), params);
+    }
+
+    /**
+     * Removes the cached copy of the query. Must be called after the query is
+     * updated or deleted.
+     */
+    public void invalidate(UUID queryId) {
+        queries.invalidate(queryId);
+    }
+
+    String getSql(JsonStoreQueryEntry q) {
+        ParsedQuery cached = queries.getIfPresent(q.id());
+        if (cached != null && cached.text.equals(q.text())) {
+            return cached.sql;
+        }
 
+        // invalid queries are not cached, the parser will report the same error each time
+        String sql = createQuery(q.text(), null);
+        queries.put(q.id(), new ParsedQuery(q.text(), sql));
+        return sql;
+    }
+
+    private List<Object> exec(UUID storeId, String sql, Map<String, Object> params) {
         try (DSLContext tx = DSL.using(cfg)) {
             // TODO we should probably inspect the query to determine whether we need to bind the params or not
 
@@ -205,4 +240,15 @@ public class JsonStoreQueryExecDao extends AbstractDao {
             throw new IllegalArgumentException("Query parse error: " + t.getMessage(), t);
         }
     }
+
+    private static final class ParsedQuery {
+
+        private final String text;
+        private final String sql;
+
+        private ParsedQuery(String text, String sql) {
+            this.text = text;
+            this.sql = sql;
+        }
+    }
 }
@@ -109,6 +109,7 @@ public class JsonStoreQueryManager {
             }
 
             queryDao.update(queryId, text);
+            execDao.invalidate(queryId);
             addAuditLog(AuditAction.UPDATE, org.getId(), store.id(), queryName, prevEntry.text(), text);
 
             return OperationResult.UPDATED;
@@ -125,6 +126,7 @@ public class JsonStoreQueryManager {
         }
 
         queryDao.delete(store.id(), queryName);
+        execDao.invalidate(id);
 
         addAuditLog(AuditAction.DELETE, org.getId(), store.id(), queryName);
     }
@@ -139,6 +139,62 @@ public class JsonStoreResource implements Resource {
         return storeManager.getCapacity(orgName, storeName);
     }
 
+    /**
+     * Get the status of the store's data index.
+     *
+     * @param storeName store's name
+     * @return
+     */
+    @GET
+    @ApiOperation("Get the status of the store's data index")
+    @Path("/{orgName}/jsonstore/{storeName}/index")
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonStoreIndexEntry getIndex(@ApiParam @PathParam("orgName") @ConcordKey String orgName,
+                                        @ApiParam @PathParam("storeName") @ConcordKey String storeName) {
+
+        return storeManager.getIndex(orgName, storeName);
+    }
+
+    /**
+     * Create a GIN index on the store's data. The index is used only by queries
+     * with JSONB containment ({@code @>}) conditions, e.g. {@code where item @> '{"x": 1}'}.
+     * Conditions using other operators ({@code ->}, {@code ->>}, etc.) don't use the index.
+     * <p>
+     * The index is built in background, use {@link #getIndex(String, String)} to check
+     * whether it is ready. Requires admin privileges.
+     *
+     * @param storeName store's name
+     * @return
+     */
+    @PUT
+    @ApiOperation(value = "Create an index on the store's data", notes = "The index is used only by queries with JSONB containment (@>) conditions. " +
+            "The index is built in background. Requires admin privileges.")
+    @Path("/{orgName}/jsonstore/{storeName}/index")
+    @Produces(MediaType.APPLICATION_JSON)
+    public GenericOperationResult createIndex(@ApiParam @PathParam("orgName") @ConcordKey String orgName,
+                                              @ApiParam @PathParam("storeName") @ConcordKey String storeName) {
+
+        boolean created = storeManager.createIndex(orgName, storeName);
+        return new GenericOperationResult(created ? OperationResult.CREATED : OperationResult.ALREADY_EXISTS);
+    }
+
+    /**
+     * Remove the store's data index. Requires admin privileges.
+     *
+     * @param storeName store's name
+     * @return
+     */
+    @DELETE
+    @ApiOperation("Remove the store's data index")
+    @Path("/{orgName}/jsonstore/{storeName}/index")
+    @Produces(MediaType.APPLICATION_JSON)
+    public GenericOperationResult dropIndex(@ApiParam @PathParam("orgName") @ConcordKey String orgName,
+                                            @ApiParam @PathParam("storeName") @ConcordKey String storeName) {
+
+        storeManager.dropIndex(orgName, storeName);
+        return new GenericOperationResult(OperationResult.DELETED);
+    }
+
     @GET
     @ApiOperation("Get a store's team access parameters")
     @Path("/{orgName}/jsonstore/{storeName}/access")
@@ -33,6 +33,7 @@ import org.jooq.impl.DSL;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -41,8 +42,7 @@ import java.util.UUID;
 import static com.walmartlabs.concord.db.PgUtils.jsonbText;
 import static com.walmartlabs.concord.server.jooq.Tables.*;
 import static com.walmartlabs.concord.server.jooq.tables.Triggers.TRIGGERS;
-import static org.jooq.impl.DSL.select;
-import static org.jooq.impl.DSL.value;
+import static org.jooq.impl.DSL.*;
 
 @Named
 public class TriggersDao extends AbstractDao {
@@ -138,6 +138,23 @@ public class TriggersDao extends AbstractDao {
                 .fetch(this::toEntity);
     }
 
+    /**
+     * Returns a value that changes whenever triggers of the specified event source
+     * are added or removed. Existing triggers are never updated in place,
+     * see {@link TriggerManager#refresh(UUID, UUID, com.walmartlabs.concord.process.loader.model.ProcessDefinition)}.
+     */
+    public String fingerprint(String eventSource) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Field<Integer> hash = field("hashtext({0}::text)", Integer.class, TRIGGERS.TRIGGER_ID);
+            Record2<Integer, BigDecimal> r = tx.select(count(), coalesce(sum(hash), BigDecimal.ZERO))
+                    .from(TRIGGERS)
+                    .where(TRIGGERS.EVENT_SOURCE.eq(eventSource))
+                    .fetchOne();
+
+            return r.value1() + ":" + r.value2();
+        }
+    }
+
     public List<TriggerEntry> list(UUID orgId, UUID projectId, UUID repositoryId, String type) {
         try (DSLContext tx = DSL.using(cfg)) {
             SelectJoinStep<Record12<UUID, UUID, String, UUID, String, UUID, String, String, String[], JSONB, JSONB, JSONB>> query = selectTriggers(tx);
@@ -21,6 +21,7 @@ package com.walmartlabs.concord.server.policy;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walmartlabs.concord.common.AllowNulls;
 import com.walmartlabs.concord.common.ConfigurationUtils;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
@@ -67,6 +68,12 @@ public class PolicyCache implements BackgroundTask {
     private Map<UUID, PolicyEngine> byUser = Collections.emptyMap();
     private List<PolicyItem> otherUserPolicies = Collections.emptyList();
 
+    /**
+     * Compiled policies from the previous reload, keyed by the policy document.
+     * Unchanged policies are not recompiled.
+     */
+    private Map<PolicyDocument, PolicyEngine> engines = Collections.emptyMap();
+
     private volatile long lastRefreshRequestAt = -1;
     private Thread loader;
 
@@ -190,7 +197,7 @@ public class PolicyCache implements BackgroundTask {
         }
     }
 
-    private void reloadPolicies() {
+    private synchronized void reloadPolicies() {
         PolicyEngine defaultPolicy = null;
         Map<UUID, PolicyEngine> byOrg = new HashMap<>();
         Map<UUID, PolicyEngine> byProject = new HashMap<>();
@@ -199,17 +206,34 @@ public class PolicyCache implements BackgroundTask {
 
         List<PolicyLink> links = dao.listLinks();
         if (links.isEmpty()) {
+            this.engines = Collections.emptyMap();
             setPolicies(defaultPolicy, byOrg, byProject, byUser, otherUserPolicies);
             return;
         }
 
         Map<UUID, Policy> policies = mergePolicies(dao.listPolicies());
+
+        // the same policy can be linked to many entities, compile each policy only once
+        Map<PolicyDocument, PolicyEngine> newEngines = new HashMap<>();
+        Map<UUID, PolicyEngine> byPolicyId = new HashMap<>();
+        for (Policy p : policies.values()) {
+            PolicyEngine pe = engines.get(p.document());
+            if (pe == null) {
+                pe = newEngines.get(p.document());
+            }
+            if (pe == null) {
+                pe = new PolicyEngine(p.policyNames(), p.rules());
+            }
+            newEngines.put(p.document(), pe);
+            byPolicyId.put(p.id(), pe);
+        }
+        this.engines = newEngines;
+
         for (PolicyLink l : links) {
-            Policy policy = policies.get(l.policyId());
-            if (policy == null) {
+            PolicyEngine pe = byPolicyId.get(l.policyId());
+            if (pe == null) {
                 continue;
             }
-            PolicyEngine pe = new PolicyEngine(policy.policyNames(), policy.rules());
             if (l.orgId() == null && l.projectId() == null && l.userId() == null) {
                 defaultPolicy = pe;
             } else if (l.orgId() != null && l.projectId() == null && l.userId() == null) {
@@ -252,11 +276,16 @@ public class PolicyCache implements BackgroundTask {
         for (PolicyRules p : policies) {
             List<PolicyRules> rules = combinePolicies(p, policies);
             Map<String, Object> mergedRules = mergeRules(rules);
+            List<String> policyNames = rules.stream().map(PolicyRules::name).collect(Collectors.toList());
+
+            PolicyDocument document = PolicyDocument.of(policyNames, mergedRules);
+            PolicyEngine cached = engines.get(document);
 
             result.put(p.id(), ImmutablePolicy.builder()
                     .id(p.id())
-                    .addAllPolicyNames(rules.stream().map(PolicyRules::name).collect(Collectors.toList()))
-                    .rules(objectMapper.convertValue(mergedRules, PolicyEngineRules.class))
+                    .addAllPolicyNames(policyNames)
+                    .rules(cached != null ? cached.getRules() : objectMapper.convertValue(mergedRules, PolicyEngineRules.class))
+                    .document(document)
                     .build());
         }
         return result;
@@ -375,5 +404,25 @@ public class PolicyCache implements BackgroundTask {
         List<String> policyNames();
 
         PolicyEngineRules rules();
+
+        PolicyDocument document();
+    }
+
+    /**
+     * Names and merged rules of a policy, used as the compiled policy's cache key.
+     */
+    @Value.Immutable
+    interface PolicyDocument {
+
+        @Value.Parameter
+        List<String> policyNames();
+
+        @AllowNulls
+        @Value.Parameter
+        Map<String, Object> rules();
+
+        static PolicyDocument of(List<String> policyNames, Map<String, Object> rules) {
+            return ImmutablePolicyDocument.of(policyNames, rules);
+        }
     }
 }
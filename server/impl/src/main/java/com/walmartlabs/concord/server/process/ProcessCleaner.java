@@ -22,6 +22,7 @@ package com.walmartlabs.concord.server.process;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.Partitions;
 import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
@@ -33,6 +34,9 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.db.PgUtils.interval;
@@ -50,7 +54,7 @@ public class ProcessCleaner implements ScheduledTask {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessCleaner.class);
 
-    private static final String[] EXCLUDE_STATUSES = {
+    static final String[] EXCLUDE_STATUSES = {
             ProcessStatus.STARTING.toString(),
             ProcessStatus.RUNNING.toString(),
             ProcessStatus.RESUMING.toString()
@@ -89,6 +93,8 @@ public class ProcessCleaner implements ScheduledTask {
             long t1 = System.currentTimeMillis();
 
             tx(tx -> {
+                Set<String> partitioned = partitionedTables(tx, jobCfg);
+
                 SelectConditionStep<Record1<UUID>> ids = tx.select(PROCESS_QUEUE.INSTANCE_ID)
                         .from(PROCESS_QUEUE)
                         .where(PROCESS_QUEUE.LAST_UPDATED_AT.lessThan(cutoff)
@@ -102,14 +108,14 @@ public class ProcessCleaner implements ScheduledTask {
                 }
 
                 int stateRecords = 0;
-                if (jobCfg.isStateCleanup()) {
+                if (jobCfg.isStateCleanup() && !partitioned.contains(PROCESS_STATE.getName())) {
                     stateRecords = tx.deleteFrom(PROCESS_STATE)
                             .where(PROCESS_STATE.INSTANCE_ID.in(ids))
                             .execute();
                 }
 
                 int events = 0;
-                if (jobCfg.isEventsCleanup()) {
+                if (jobCfg.isEventsCleanup() && !partitioned.contains(PROCESS_EVENTS.getName())) {
                     events = tx.deleteFrom(PROCESS_EVENTS)
                             .where(PROCESS_EVENTS.INSTANCE_ID.in(ids))
                             .execute();
@@ -117,18 +123,20 @@ public class ProcessCleaner implements ScheduledTask {
 
                 int logDataEntries = 0;
                 int logSegmentEntries = 0;
-                if (jobCfg.isLogsCleanup()) {
+                if (jobCfg.isLogsCleanup() && !partitioned.contains(PROCESS_LOG_DATA.getName())) {
                     logDataEntries = tx.deleteFrom(PROCESS_LOG_DATA)
                             .where(PROCESS_LOG_DATA.INSTANCE_ID.in(ids))
                             .execute();
+                }
 
+                if (jobCfg.isLogsCleanup() && !partitioned.contains(PROCESS_LOG_SEGMENTS.getName())) {
                     logSegmentEntries = tx.deleteFrom(PROCESS_LOG_SEGMENTS)
                             .where(PROCESS_LOG_SEGMENTS.INSTANCE_ID.in(ids))
                             .execute();
                 }
 
                 int checkpoints = 0;
-                if (jobCfg.isCheckpointCleanup()) {
+                if (jobCfg.isCheckpointCleanup() && !partitioned.contains(PROCESS_CHECKPOINTS.getName())) {
                     checkpoints = tx.deleteFrom(PROCESS_CHECKPOINTS)
                             .where(PROCESS_CHECKPOINTS.INSTANCE_ID.in(ids))
                             .execute();
@@ -146,24 +154,26 @@ public class ProcessCleaner implements ScheduledTask {
             long t1 = System.currentTimeMillis();
 
             tx(tx -> {
+                Set<String> partitioned = partitionedTables(tx, jobCfg);
+
                 SelectJoinStep<Record1<UUID>> alive = tx.select(PROCESS_QUEUE.INSTANCE_ID).from(PROCESS_QUEUE);
 
                 int stateRecords = 0;
-                if (jobCfg.isStateCleanup()) {
+                if (jobCfg.isStateCleanup() && !partitioned.contains(PROCESS_STATE.getName())) {
                     stateRecords = tx.deleteFrom(PROCESS_STATE)
                             .where(PROCESS_STATE.INSTANCE_ID.notIn(alive))
                             .execute();
                 }
 
                 int events = 0;
-                if (jobCfg.isEventsCleanup()) {
+                if (jobCfg.isEventsCleanup() && !partitioned.contains(PROCESS_EVENTS.getName())) {
                     events = tx.deleteFrom(PROCESS_EVENTS)
                             .where(PROCESS_EVENTS.INSTANCE_ID.notIn(alive))
                             .execute();
                 }
 
                 int checkpoints = 0;
-                if (jobCfg.isCheckpointCleanup()) {
+                if (jobCfg.isCheckpointCleanup() && !partitioned.contains(PROCESS_CHECKPOINTS.getName())) {
                     checkpoints = tx.deleteFrom(PROCESS_CHECKPOINTS)
                             .where(PROCESS_CHECKPOINTS.INSTANCE_ID.notIn(alive))
                             .execute();
@@ -176,5 +186,22 @@ public class ProcessCleaner implements ScheduledTask {
             long t2 = System.currentTimeMillis();
             log.info("deleteOrphans -> took {}ms", (t2 - t1));
         }
+
+        /**
+         * @return tables with data removed by {@link ProcessPartitionManager}
+         */
+        private static Set<String> partitionedTables(DSLContext tx, ProcessConfiguration jobCfg) {
+            if (!jobCfg.isPartitioningEnabled()) {
+                return Collections.emptySet();
+            }
+
+            Set<String> result = new HashSet<>();
+            for (String t : ProcessPartitionManager.TABLES.keySet()) {
+                if (Partitions.isPartitioned(tx, t)) {
+                    result.add(t);
+                }
+            }
+            return result;
+        }
     }
 }
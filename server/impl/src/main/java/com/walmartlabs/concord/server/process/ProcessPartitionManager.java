@@ -0,0 +1,377 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.Partitions;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOG_DATA;
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOG_SEGMENTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessCheckpoints.PROCESS_CHECKPOINTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessEvents.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessState.PROCESS_STATE;
+import static org.jooq.impl.DSL.currentOffsetDateTime;
+
+/**
+ * Maintains daily partitions of the process data tables, partitioned by
+ * {@code INSTANCE_CREATED_AT}. Expired data is removed by dropping (or
+ * detaching) whole partitions instead of deleting individual rows
+ * in {@link ProcessCleaner}.
+ * <p>
+ * On the first run, each table is converted into a partitioned table.
+ * The existing table becomes the "legacy" partition covering all values
+ * up to the conversion date. The legacy partition is dropped as a whole
+ * when all processes it contains are expired, no data is copied.
+ * <p>
+ * {@code PROCESS_QUEUE} is not partitioned: it is referenced by foreign
+ * keys and its rows are small, it is still cleaned up by {@link ProcessCleaner}.
+ */
+@Named("process-partition-manager")
+@Singleton
+public class ProcessPartitionManager implements ScheduledTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessPartitionManager.class);
+
+    private static final int MIN_SERVER_VERSION = 110000;
+    private static final String PARTITION_KEY = "INSTANCE_CREATED_AT";
+    private static final String LEGACY_SUFFIX = "_legacy";
+    private static final String DEFAULT_SUFFIX = "_default";
+
+    /**
+     * Partitioned tables and the configuration flags that enable their cleanup.
+     */
+    static final Map<String, Predicate<ProcessConfiguration>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put(PROCESS_STATE.getName(), ProcessConfiguration::isStateCleanup);
+        TABLES.put(PROCESS_EVENTS.getName(), ProcessConfiguration::isEventsCleanup);
+        TABLES.put(PROCESS_LOG_DATA.getName(), ProcessConfiguration::isLogsCleanup);
+        TABLES.put(PROCESS_LOG_SEGMENTS.getName(), ProcessConfiguration::isLogsCleanup);
+        TABLES.put(PROCESS_CHECKPOINTS.getName(), ProcessConfiguration::isCheckpointCleanup);
+    }
+
+    private final ProcessConfiguration cfg;
+    private final Dao dao;
+
+    @Inject
+    public ProcessPartitionManager(ProcessConfiguration cfg, Dao dao) {
+        this.cfg = cfg;
+        this.dao = dao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        return cfg.isPartitioningEnabled() ? cfg.getPartitioningInterval().getSeconds() : 0;
+    }
+
+    @Override
+    public void performTask() {
+        if (!dao.isSupported()) {
+            log.warn("performTask -> partitioning of process data requires PostgreSQL 11+, skipping...");
+            return;
+        }
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        OffsetDateTime cutoff = dao.cutoff(cfg.getMaxStateAge());
+
+        for (Map.Entry<String, Predicate<ProcessConfiguration>> e : TABLES.entrySet()) {
+            String table = e.getKey();
+
+            try {
+                if (!dao.isPartitioned(table)) {
+                    // leave a day for the conversion to complete before the new partitions kick in
+                    convert(table, today.plusDays(2));
+                }
+
+                createPartitions(table, today);
+
+                if (e.getValue().test(cfg)) {
+                    removeExpired(table, cutoff);
+                }
+            } catch (Exception ex) {
+                log.error("performTask -> error while processing {}: {}", table, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void convert(String table, LocalDate legacyBound) {
+        long t1 = System.currentTimeMillis();
+        log.info("convert ['{}'] -> converting into a partitioned table...", table);
+
+        dao.prepareConversion(table, legacyBound);
+        dao.convert(table, legacyBound);
+
+        log.info("convert ['{}'] -> done in {}ms", table, System.currentTimeMillis() - t1);
+    }
+
+    private void createPartitions(String table, LocalDate today) {
+        List<String> partitions = dao.listPartitions(table);
+
+        LocalDate start = today;
+        for (String p : partitions) {
+            LocalDate legacyBound = Partitions.parsePartitionDay(table + LEGACY_SUFFIX, p);
+            if (legacyBound != null && legacyBound.isAfter(start)) {
+                // the legacy partition still covers the first days
+                start = legacyBound;
+            }
+        }
+
+        for (LocalDate d = start; !d.isAfter(today.plusDays(cfg.getPartitioningPrecreateDays())); d = d.plusDays(1)) {
+            if (!partitions.contains(Partitions.partitionName(table, d).toLowerCase())) {
+                dao.createPartition(table, d);
+                log.info("createPartitions ['{}'] -> created {}", table, Partitions.partitionName(table, d));
+            }
+        }
+
+        String defaultPartition = (table + DEFAULT_SUFFIX).toLowerCase();
+        if (!partitions.contains(defaultPartition)) {
+            dao.createDefaultPartition(table, defaultPartition);
+        }
+    }
+
+    private void removeExpired(String table, OffsetDateTime cutoff) {
+        for (String p : dao.listPartitions(table)) {
+            OffsetDateTime lower;
+            OffsetDateTime upper;
+
+            LocalDate legacyBound = Partitions.parsePartitionDay(table + LEGACY_SUFFIX, p);
+            LocalDate day = Partitions.parsePartitionDay(table, p);
+            if (legacyBound != null) {
+                lower = null;
+                upper = legacyBound.atStartOfDay().atOffset(ZoneOffset.UTC);
+            } else if (day != null) {
+                lower = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+                upper = day.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+            } else {
+                // the default partition
+                continue;
+            }
+
+            if (upper.isAfter(cutoff)) {
+                continue;
+            }
+
+            if (dao.hasRetainedProcesses(lower, upper, cutoff)) {
+                log.info("removeExpired ['{}'] -> {} contains processes that are not expired yet, skipping...", table, p);
+                continue;
+            }
+
+            if (cfg.isPartitioningDetachExpired()) {
+                dao.detachPartition(table, p);
+                log.info("removeExpired ['{}'] -> detached {}", table, p);
+            } else {
+                dao.dropPartition(p);
+                log.info("removeExpired ['{}'] -> dropped {}", table, p);
+            }
+        }
+    }
+
+    @Named
+    static class Dao extends AbstractDao {
+
+        /**
+         * {@code CREATE [UNIQUE] INDEX name ON table USING ...}, as returned by {@code pg_get_indexdef}.
+         */
+        private static final Pattern INDEX_DEF_PATTERN = Pattern.compile("^CREATE (UNIQUE )?INDEX (\\S+) ON (\\S+) (USING .*)$");
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        public boolean isSupported() {
+            return txResult(tx -> Partitions.serverVersion(tx) >= MIN_SERVER_VERSION);
+        }
+
+        public boolean isPartitioned(String table) {
+            return txResult(tx -> Partitions.isPartitioned(tx, table));
+        }
+
+        public List<String> listPartitions(String table) {
+            return txResult(tx -> Partitions.listPartitions(tx, table));
+        }
+
+        public OffsetDateTime cutoff(String maxAge) {
+            return txResult(tx -> tx.select(currentOffsetDateTime().minus(interval(maxAge))).fetchOne().value1());
+        }
+
+        public void createPartition(String table, LocalDate day) {
+            tx(tx -> Partitions.createDailyPartition(tx, table, day));
+        }
+
+        public void createDefaultPartition(String table, String name) {
+            tx(tx -> tx.execute("create table if not exists " + name + " partition of " + table + " default"));
+        }
+
+        public void detachPartition(String table, String name) {
+            tx(tx -> Partitions.detachPartition(tx, table, name));
+        }
+
+        public void dropPartition(String name) {
+            tx(tx -> Partitions.dropPartition(tx, name));
+        }
+
+        /**
+         * Returns {@code true} if there are processes created in the specified range
+         * that are not going to be removed by {@link ProcessCleaner} yet.
+         */
+        public boolean hasRetainedProcesses(OffsetDateTime lower, OffsetDateTime upper, OffsetDateTime cutoff) {
+            return txResult(tx -> tx.fetchExists(tx.selectOne()
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.CREATED_AT.lessThan(upper)
+                            .and(lower != null ? PROCESS_QUEUE.CREATED_AT.greaterOrEqual(lower) : DSL.trueCondition())
+                            .and(PROCESS_QUEUE.LAST_UPDATED_AT.greaterOrEqual(cutoff)
+                                    .or(PROCESS_QUEUE.CURRENT_STATUS.in(ProcessCleaner.EXCLUDE_STATUSES))))));
+        }
+
+        /**
+         * Validates the legacy partition's bound and creates non-unique copies of
+         * the unique indexes that don't include the partition key. Performed
+         * without blocking writes, so {@link #convert(String, LocalDate)} doesn't
+         * have to scan the table or build any indexes.
+         */
+        public void prepareConversion(String table, LocalDate legacyBound) {
+            String constraintName = legacyName(table) + "_chk";
+
+            // "not valid" constraints are added without a scan, the validation
+            // runs in a separate transaction and doesn't block writes
+            tx(tx -> {
+                tx.execute("alter table " + table + " drop constraint if exists " + constraintName);
+                tx.execute("alter table " + table + " add constraint " + constraintName +
+                        " check (" + PARTITION_KEY + " < " + Partitions.bound(legacyBound) + ") not valid");
+            });
+            tx(tx -> tx.execute("alter table " + table + " validate constraint " + constraintName));
+
+            List<IndexDef> indexes = txResult(tx -> listIndexes(tx, table));
+            for (IndexDef i : indexes) {
+                if (i.unique && !i.definition.toLowerCase().contains(PARTITION_KEY.toLowerCase())) {
+                    // "concurrently" can't be used inside a transaction
+                    executeAutoCommit("create index concurrently if not exists " + i.name + "_nu on " + table + " " + i.definition);
+                }
+            }
+        }
+
+        public void convert(String table, LocalDate legacyBound) {
+            String legacyTable = Partitions.partitionName(legacyName(table), legacyBound);
+
+            tx(tx -> {
+                tx.execute("lock table " + table + " in access exclusive mode");
+
+                // non-unique copies created in prepareConversion
+                List<IndexDef> indexes = new ArrayList<>();
+                for (IndexDef i : listIndexes(tx, table)) {
+                    if (!i.name.endsWith("_nu")) {
+                        indexes.add(i);
+                    }
+                }
+
+                tx.execute("alter table " + table + " rename to " + legacyTable);
+                for (IndexDef i : indexes) {
+                    tx.execute("alter index " + i.name + " rename to " + i.name + LEGACY_SUFFIX);
+                }
+
+                tx.execute("create table " + table + " (like " + legacyTable + " including defaults including constraints including storage)" +
+                        " partition by range (" + PARTITION_KEY + ")");
+                // copied from the legacy table by "including constraints"
+                tx.execute("alter table " + table + " drop constraint if exists " + legacyName(table) + "_chk");
+
+                for (IndexDef i : indexes) {
+                    boolean unique = i.unique && i.definition.toLowerCase().contains(PARTITION_KEY.toLowerCase());
+                    tx.execute("create " + (unique ? "unique " : "") + "index " + i.name + " on " + table + " " + i.definition);
+                }
+
+                // keep the sequences alive after the legacy partition is dropped
+                List<String> sequences = tx.resultQuery("select a.attname, pg_get_serial_sequence(?, a.attname) from pg_attribute a " +
+                                "where a.attrelid = ?::regclass and a.attnum > 0 and not a.attisdropped",
+                        legacyTable.toLowerCase(), legacyTable.toLowerCase())
+                        .fetch(r -> r.get(1, String.class) != null ? r.get(1, String.class) + " owned by " + table + "." + r.get(0, String.class) : null);
+                for (String s : sequences) {
+                    if (s != null) {
+                        tx.execute("alter sequence " + s);
+                    }
+                }
+
+                tx.execute("alter table " + table + " attach partition " + legacyTable +
+                        " for values from (minvalue) to (" + Partitions.bound(legacyBound) + ")");
+            });
+        }
+
+        private static List<IndexDef> listIndexes(DSLContext tx, String table) {
+            return tx.resultQuery("select pg_get_indexdef(i.indexrelid) from pg_index i " +
+                            "join pg_class c on c.oid = i.indrelid " +
+                            "where c.relname = ?",
+                    table.toLowerCase())
+                    .fetch(r -> {
+                        String def = r.get(0, String.class);
+                        Matcher m = INDEX_DEF_PATTERN.matcher(def);
+                        if (!m.matches()) {
+                            throw new IllegalStateException("Unexpected index definition: " + def);
+                        }
+                        return new IndexDef(m.group(2), m.group(1) != null, m.group(4));
+                    });
+        }
+
+        private static String legacyName(String table) {
+            return table + LEGACY_SUFFIX;
+        }
+    }
+
+    private static final class IndexDef {
+
+        private final String name;
+        private final boolean unique;
+
+        /**
+         * The index definition starting with {@code USING}.
+         */
+        private final String definition;
+
+        private IndexDef(String name, boolean unique, String definition) {
+            this.name = name;
+            this.unique = unique;
+            this.definition = definition;
+        }
+    }
+}
@@ -45,6 +45,7 @@ import com.walmartlabs.concord.server.process.ProcessEntry.ProcessStatusHistoryE
 import com.walmartlabs.concord.server.process.ProcessEntry.ProcessWaitHistoryEntry;
 import com.walmartlabs.concord.server.process.ProcessManager.ProcessResult;
 import com.walmartlabs.concord.server.process.event.ProcessEventDao;
+import com.walmartlabs.concord.server.process.form.FormManager;
 import com.walmartlabs.concord.server.process.logs.ProcessLogAccessManager;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.process.logs.ProcessLogsDao.ProcessLog;
@@ -114,6 +115,7 @@ public class ProcessResource implements Resource {
     private final ProcessEventDao processEventDao;
     private final ProcessLogManager processLogManager;
     private final PolicyManager policyManager;
+    private final FormManager formManager;
 
     private final ProcessResourceV2 v2;
 
@@ -133,6 +135,7 @@ public class ProcessResource implements Resource {
                            ProcessLogAccessManager logAccessManager, ProcessEventDao processEventDao,
                            ProcessLogManager processLogManager,
                            PolicyManager policyManager,
+                           FormManager formManager,
                            ProcessResourceV2 v2) {
 
         this.processManager = processManager;
@@ -151,6 +154,7 @@ public class ProcessResource implements Resource {
         this.processEventDao = processEventDao;
         this.processLogManager = processLogManager;
         this.policyManager = policyManager;
+        this.formManager = formManager;
 
         this.v2 = v2;
     }
@@ -940,6 +944,7 @@ public class ProcessResource implements Resource {
             stateManager.tx(tx -> {
                 stateManager.deleteDirectory(tx, processKey, path(Constants.Files.JOB_ATTACHMENTS_DIR_NAME, Constants.Files.JOB_STATE_DIR_NAME));
                 stateManager.importPath(tx, processKey, Constants.Files.JOB_ATTACHMENTS_DIR_NAME, finalTmpDir, (p, attrs) -> true);
+                formManager.register(tx, processKey, finalTmpDir);
             });
 
             Map<String, Object> out = OutVariablesUtils.read(tmpDir);
@@ -37,10 +37,8 @@ import com.walmartlabs.concord.server.security.Permission;
 import com.walmartlabs.concord.server.security.Roles;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.user.UserDao;
-import io.swagger.annotations.Api;
-import io.swagger.annotations.ApiOperation;
-import io.swagger.annotations.ApiParam;
-import io.swagger.annotations.Authorization;
+import io.swagger.annotations.*;
+import org.apache.shiro.authz.UnauthorizedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.siesta.Resource;
@@ -49,16 +47,17 @@ import org.sonatype.siesta.ValidationErrorsException;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.Utils.unwrap;
 
@@ -70,6 +69,9 @@ public class ProcessResourceV2 implements Resource {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessResourceV2.class);
 
+    public static final String NEXT_CURSOR_HEADER = "X-Concord-Next-Cursor";
+    private static final char CURSOR_SEPARATOR = '/';
+
     private final ProcessQueueDao queueDao;
     private final ProcessQueueManager processQueueManager;
     private final ProjectDao projectDao;
@@ -77,6 +79,8 @@ public class ProcessResourceV2 implements Resource {
     private final UserDao userDao;
     private final OrganizationManager orgManager;
     private final ProjectAccessManager projectAccessManager;
+    private final ProcessMetaIndexes metaIndexes;
+    private final ProcessQueueStatistics queueStatistics;
 
     @Inject
     public ProcessResourceV2(ProcessQueueDao queueDao,
@@ -85,7 +89,9 @@ public class ProcessResourceV2 implements Resource {
                              RepositoryDao repositoryDao,
                              UserDao userDao,
                              OrganizationManager orgManager,
-                             ProjectAccessManager projectAccessManager) {
+                             ProjectAccessManager projectAccessManager,
+                             ProcessMetaIndexes metaIndexes,
+                             ProcessQueueStatistics queueStatistics) {
 
         this.queueDao = queueDao;
         this.processQueueManager = processQueueManager;
@@ -94,6 +100,8 @@ public class ProcessResourceV2 implements Resource {
         this.userDao = userDao;
         this.orgManager = orgManager;
         this.projectAccessManager = projectAccessManager;
+        this.metaIndexes = metaIndexes;
+        this.queueStatistics = queueStatistics;
     }
 
     /**
@@ -124,9 +132,17 @@ public class ProcessResourceV2 implements Resource {
 
     /**
      * Returns a list of processes applying the specified filters.
+     * <p>
+     * If the returned page is full, the {@link #NEXT_CURSOR_HEADER} response header contains
+     * a cursor which can be passed as the {@code cursor} parameter to fetch the next page.
+     * Unlike {@code offset}, cursors don't require the DB to skip any rows and remain stable
+     * when new processes are created.
      */
     @GET
     @ApiOperation(value = "List processes", responseContainer = "list", response = ProcessEntry.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK",
+                    responseHeaders = @ResponseHeader(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page", response = String.class))})
     @Produces(MediaType.APPLICATION_JSON)
     @WithTimer
     public List<ProcessEntry> list(@ApiParam @QueryParam("orgId") UUID orgId,
@@ -144,7 +160,9 @@ public class ProcessResourceV2 implements Resource {
                                    @ApiParam @QueryParam("include") Set<ProcessDataInclude> processData,
                                    @ApiParam @QueryParam("limit") @DefaultValue("30") int limit,
                                    @ApiParam @QueryParam("offset") @DefaultValue("0") int offset,
-                                   @Context UriInfo uriInfo) {
+                                   @ApiParam @QueryParam("cursor") String cursor,
+                                   @Context UriInfo uriInfo,
+                                   @Context HttpServletResponse response) {
 
         if (limit <= 0) {
             throw new ValidationErrorsException("'limit' must be a positive number");
@@ -154,10 +172,25 @@ public class ProcessResourceV2 implements Resource {
             throw new ValidationErrorsException("'offset' must be a positive number or zero");
         }
 
-        ProcessFilter filter = createProcessFilter(orgId, orgName, projectId, projectName, repoId, repoName,
-                afterCreatedAt, beforeCreatedAt, tags, processStatus, initiator, parentId, processData, limit, offset, uriInfo);
+        if (cursor != null && offset > 0) {
+            throw new ValidationErrorsException("'cursor' and 'offset' can't be used together");
+        }
+
+        ProcessFilter filter = ProcessFilter.builder()
+                .from(createProcessFilter(orgId, orgName, projectId, projectName, repoId, repoName,
+                        afterCreatedAt, beforeCreatedAt, tags, processStatus, initiator, parentId, processData, limit, offset, uriInfo))
+                .cursor(cursor != null ? decodeCursor(cursor) : null)
+                .build();
 
-        return queueDao.list(filter);
+        // subprocesses are listed right after forking, the replica may not have them yet
+        List<ProcessEntry> result = parentId != null ? queueDao.list(filter) : queueDao.listFromReplica(filter);
+
+        if (result.size() >= limit) {
+            ProcessEntry last = result.get(result.size() - 1);
+            response.setHeader(NEXT_CURSOR_HEADER, encodeCursor(ProcessFilter.Cursor.of(last.createdAt(), last.instanceId())));
+        }
+
+        return result;
     }
 
     @GET
@@ -218,6 +251,46 @@ public class ProcessResourceV2 implements Resource {
         return queueDao.count(filter);
     }
 
+    /**
+     * Returns the number of processes per status. The values are refreshed
+     * periodically (see {@code process.statisticsInterval}).
+     */
+    @GET
+    @ApiOperation(value = "Process queue statistics")
+    @Path("/statistics")
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public Map<String, Long> statistics(@ApiParam @QueryParam("orgName") String orgName,
+                                        @ApiParam @QueryParam("projectName") String projectName) {
+
+        if (orgName == null) {
+            if (projectName != null) {
+                throw new ValidationErrorsException("Organization name is required");
+            }
+
+            boolean canSeeAllOrgs = Roles.isAdmin() || Permission.isPermitted(Permission.GET_PROCESS_QUEUE_ALL_ORGS);
+            if (!canSeeAllOrgs) {
+                throw new UnauthorizedException("Only admins can see the statistics of all organizations");
+            }
+
+            return queueStatistics.getStatistics(null, null);
+        }
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, false);
+        if (projectName == null) {
+            return queueStatistics.getStatistics(org.getId(), null);
+        }
+
+        UUID projectId = projectDao.getId(org.getId(), projectName);
+        if (projectId == null) {
+            throw new ConcordApplicationException("Project not found: " + projectName, Response.Status.NOT_FOUND);
+        }
+
+        projectAccessManager.assertAccess(org.getId(), projectId, null, ResourceAccessLevel.READER, false);
+
+        return queueStatistics.getStatistics(org.getId(), projectId);
+    }
+
     private ProcessFilter createProcessFilter(UUID orgId,
                                               String orgName,
                                               UUID projectId,
@@ -284,10 +357,11 @@ public class ProcessResourceV2 implements Resource {
         }
 
         // collect all metadata filters, we assume that they have "meta." prefix in their query parameter names
-        List<MetadataFilter> metaFilters = MetadataUtils.parseMetadataFilters(uriInfo);
+        List<MetadataFilter> metaFilters = MetadataUtils.parseMetadataFilters(uriInfo, metaIndexes::isIndexed);
 
-        // can't allow seq scans, we don't index PROCESS_QUEUE.META (yet?)
-        if (!metaFilters.isEmpty() && effectiveProjectId == null) {
+        // can't allow seq scans, only the keys listed in process.indexedMetaKeys have their own indexes
+        boolean allIndexed = metaFilters.stream().allMatch(MetadataFilter::indexed);
+        if (!allIndexed && effectiveProjectId == null) {
             throw new ValidationErrorsException("Process metadata filters require a project name or an ID to be included in the query.");
         }
 
@@ -312,6 +386,24 @@ public class ProcessResourceV2 implements Resource {
                 .build();
     }
 
+    private static String encodeCursor(ProcessFilter.Cursor cursor) {
+        String s = cursor.createdAt().toString() + CURSOR_SEPARATOR + cursor.instanceId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ProcessFilter.Cursor decodeCursor(String s) {
+        try {
+            String v = new String(Base64.getUrlDecoder().decode(s), StandardCharsets.UTF_8);
+            int idx = v.indexOf(CURSOR_SEPARATOR);
+            if (idx <= 0) {
+                throw new IllegalArgumentException("Invalid cursor format");
+            }
+            return ProcessFilter.Cursor.of(OffsetDateTime.parse(v.substring(0, idx)), UUID.fromString(v.substring(idx + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationErrorsException("Invalid 'cursor' value: " + s);
+        }
+    }
+
     private Set<UUID> getCurrentUserOrgIds() {
         UserPrincipal p = UserPrincipal.assertCurrent();
         return userDao.getOrgIds(p.getId());
@@ -23,6 +23,8 @@ package com.walmartlabs.concord.server.process.event;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.ReplicaDB;
+import com.walmartlabs.concord.db.ReplicaRouter;
 import com.walmartlabs.concord.db.PgUtils;
 import com.walmartlabs.concord.sdk.EventType;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
@@ -53,8 +55,11 @@ public class ProcessEventDao extends AbstractDao {
     private final ConcordObjectMapper objectMapper;
 
     @Inject
-    public ProcessEventDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
-        super(cfg);
+    public ProcessEventDao(@MainDB Configuration cfg,
+                           @ReplicaDB ReplicaRouter replicaRouter,
+                           ConcordObjectMapper objectMapper) {
+
+        super(cfg, replicaRouter);
         this.objectMapper = objectMapper;
     }
 
@@ -68,8 +73,11 @@ public class ProcessEventDao extends AbstractDao {
         return super.txResult(t);
     }
 
+    /**
+     * Replica-safe: the result may lag behind the primary by up to {@code db.replica.maxLag}.
+     */
     public List<ProcessEventEntry> list(ProcessEventFilter filter) {
-        try (DSLContext tx = DSL.using(cfg)) {
+        try (DSLContext tx = DSL.using(replicaCfg())) {
 
             ProcessKey processKey = filter.processKey();
 
@@ -228,8 +236,11 @@ public class ProcessEventDao extends AbstractDao {
         return result;
     }
 
+    /**
+     * Replica-safe, see {@link #list(ProcessEventFilter)}.
+     */
     public List<ProcessEntry.ProcessWaitHistoryEntry> getWaitHistory(ProcessKey processKey, int limit, int offset) {
-        try (DSLContext tx = DSL.using(cfg)) {
+        try (DSLContext tx = DSL.using(replicaCfg())) {
             ProcessEvents pe = ProcessEvents.PROCESS_EVENTS.as("pe");
             return tx.select(waitEntryToJsonb(pe))
                     .from(pe)
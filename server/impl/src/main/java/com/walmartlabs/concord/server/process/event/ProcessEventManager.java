@@ -109,7 +109,7 @@ public class ProcessEventManager {
     public void event(DSLContext tx, List<NewProcessEvent> events) {
         // TODO consider returning a callback that can be called outside of the transaction
         List<ProcessEvent> insertedEvents = doEvent(tx, events);
-        listeners.onProcessEvent(insertedEvents);
+        listeners.onProcessEvent(tx, insertedEvents);
     }
 
     private List<ProcessEvent> doEvent(DSLContext tx, List<NewProcessEvent> events) {
@@ -123,7 +123,10 @@ public class FormAccessManager {
         }
     }
 
-    private static boolean matchesLdapGroup(String pattern, Set<String> userLdapGroups) {
+    /**
+     * @param pattern a regular expression, matched case-insensitively against the whole group name
+     */
+    static boolean matchesLdapGroup(String pattern, Set<String> userLdapGroups) {
         if (userLdapGroups == null) {
             return false;
         }
@@ -24,6 +24,11 @@ import com.walmartlabs.concord.forms.Form;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.process.state.ProcessStateManager;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.security.UserPrincipal;
+import com.walmartlabs.concord.server.security.ldap.LdapPrincipal;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -31,9 +36,11 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Function;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
 
 import static com.walmartlabs.concord.server.process.state.ProcessStateManager.path;
 
@@ -41,11 +48,15 @@ import static com.walmartlabs.concord.server.process.state.ProcessStateManager.p
 @Singleton
 public class FormManager {
 
+    private static final Logger log = LoggerFactory.getLogger(FormManager.class);
+
     private final ProcessStateManager stateManager;
+    private final ProcessFormsDao formsDao;
 
     @Inject
-    public FormManager(ProcessStateManager stateManager) {
+    public FormManager(ProcessStateManager stateManager, ProcessFormsDao formsDao) {
         this.stateManager = stateManager;
+        this.formsDao = formsDao;
     }
 
     public Form get(ProcessKey processKey, String formName) {
@@ -64,35 +75,130 @@ public class FormManager {
                 Constants.Files.JOB_FORMS_V2_DIR_NAME,
                 formName);
 
-        stateManager.deleteFile(processKey, resource);
+        stateManager.tx(tx -> {
+            formsDao.delete(tx, processKey, formName);
+            stateManager.deleteFile(tx, processKey, resource);
+        });
     }
 
-    public List<Form> list(ProcessKey processKey) {
-        String resource = path(Constants.Files.JOB_ATTACHMENTS_DIR_NAME,
-                Constants.Files.JOB_STATE_DIR_NAME,
-                Constants.Files.JOB_FORMS_V2_DIR_NAME);
-
-        return stateManager.forEach(processKey, resource, FormManager::deserialize);
+    /**
+     * Lists the forms the process is currently waiting on. Uses the form registry
+     * instead of reading the form files.
+     */
+    public List<ProcessFormEntry> list(ProcessKey processKey) {
+        List<ProcessFormEntry> result = formsDao.list(processKey);
+        if (result.isEmpty()) {
+            return backfill(processKey);
+        }
+        return result;
     }
 
     public String nextFormId(ProcessKey processKey) {
+        String result = formsDao.firstFormName(processKey);
+        if (result == null) {
+            return backfill(processKey).stream()
+                    .findFirst()
+                    .map(ProcessFormEntry::name)
+                    .orElse(null);
+        }
+        return result;
+    }
+
+    /**
+     * Lists the forms of suspended processes which can be submitted by the current user.
+     * The listing is advisory, the access to each form is still checked on submit.
+     */
+    public List<PendingFormEntry> listPending(int offset, int limit) {
+        UserPrincipal p = UserPrincipal.assertCurrent();
+
+        Set<String> ldapGroups = Optional.ofNullable(LdapPrincipal.getCurrent())
+                .map(LdapPrincipal::getGroups)
+                .orElse(null);
+
+        return formsDao.listPending(p.getId(), p.getUsername(), ldapGroups, offset, limit);
+    }
+
+    /**
+     * Updates the form registry using the form files of the process' attachments.
+     * Must be called in the same transaction that imports the attachments into the process state.
+     *
+     * @param attachmentsDir the directory with the process' attachments (i.e. the {@code _attachments} directory)
+     */
+    public void register(DSLContext tx, ProcessKey processKey, Path attachmentsDir) throws IOException {
+        Path formsDir = attachmentsDir.resolve(Constants.Files.JOB_STATE_DIR_NAME)
+                .resolve(Constants.Files.JOB_FORMS_V2_DIR_NAME);
+
+        List<Form> forms = new ArrayList<>();
+        if (Files.isDirectory(formsDir)) {
+            try (Stream<Path> files = Files.list(formsDir)) {
+                Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+                while (it.hasNext()) {
+                    try (InputStream in = Files.newInputStream(it.next())) {
+                        deserialize(in).ifPresent(forms::add);
+                    }
+                }
+            }
+        }
+
+        formsDao.replace(tx, processKey, toEntries(processKey, forms));
+    }
+
+    /**
+     * Registers the forms of processes which were suspended before the form registry was introduced.
+     * Each process is backfilled only once, the concurrent submits wait for the backfill to complete.
+     */
+    private List<ProcessFormEntry> backfill(ProcessKey processKey) {
         String resource = path(Constants.Files.JOB_ATTACHMENTS_DIR_NAME,
                 Constants.Files.JOB_STATE_DIR_NAME,
                 Constants.Files.JOB_FORMS_V2_DIR_NAME);
 
-        Function<String, Optional<String>> getId = s -> {
-            int i = s.lastIndexOf("/");
-            if (i < 0 || i + 1 >= s.length()) {
-                return Optional.empty();
+        return formsDao.txResult(tx -> {
+            if (!formsDao.claimBackfill(tx, processKey)) {
+                return Collections.emptyList();
             }
-            return Optional.of(s.substring(i + 1));
-        };
 
-        // TODO this probably should be replaced with ProcessStateManager#findFirst
-        Optional<String> o = stateManager.findPath(processKey, resource,
-                files -> files.findFirst().flatMap(getId));
+            List<Form> forms = Collections.emptyList();
+            if (stateManager.exists(processKey, resource)) {
+                forms = stateManager.forEach(processKey, resource, FormManager::deserialize);
+            }
 
-        return o.orElse(null);
+            List<ProcessFormEntry> result = toEntries(processKey, forms);
+            formsDao.replace(tx, processKey, result);
+
+            result.sort(Comparator.comparing(ProcessFormEntry::name));
+            return result;
+        });
+    }
+
+    private List<ProcessFormEntry> toEntries(ProcessKey processKey, List<Form> forms) {
+        List<ProcessFormEntry> result = new ArrayList<>(forms.size());
+        for (Form f : forms) {
+            String name = f.name();
+            Map<String, Serializable> runAs = f.options().runAs();
+
+            Set<String> users = Collections.emptySet();
+            Set<String> groups = Collections.emptySet();
+            try {
+                users = com.walmartlabs.concord.forms.FormUtils.getRunAsUsers(name, runAs);
+                groups = com.walmartlabs.concord.forms.FormUtils.getRunAsLdapGroups(name, runAs);
+            } catch (RuntimeException e) {
+                // the form is still registered, the access is checked using the form's definition
+                log.warn("toEntries ['{}'] -> invalid runAs in the form '{}': {}", processKey, name, e.getMessage());
+            }
+
+            boolean branded = stateManager.exists(processKey, FormServiceV2.FORMS_RESOURCES_PATH + "/" + name);
+
+            result.add(ProcessFormEntry.builder()
+                    .name(name)
+                    .eventName(f.eventName())
+                    .runAs(runAs != null ? new HashMap<String, Object>(runAs) : null)
+                    .runAsUsers(users)
+                    .runAsLdapGroups(groups)
+                    .yield(f.options().yield())
+                    .branded(branded)
+                    .build());
+        }
+        return result;
     }
 
     private static Optional<Form> deserialize(InputStream data) {
@@ -94,17 +94,11 @@ public class FormServiceV2 {
         return list(processKey);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     public List<FormListEntry> list(ProcessKey processKey) {
-        List<Form> forms = formManager.list(processKey);
-        List<FormListEntry> result = new ArrayList<>();
-        for (Form f : forms) {
-            String name = f.name();
-            String s = FORMS_RESOURCES_PATH + "/" + f.name();
-            boolean branding = stateManager.exists(processKey, s);
-            Map runAs = f.options().runAs();
-
-            result.add(new FormListEntry(name, branding, f.options().yield(), runAs));
+        List<ProcessFormEntry> forms = formManager.list(processKey);
+        List<FormListEntry> result = new ArrayList<>(forms.size());
+        for (ProcessFormEntry f : forms) {
+            result.add(new FormListEntry(f.name(), f.branded(), f.yield(), f.runAs()));
         }
         return result;
     }
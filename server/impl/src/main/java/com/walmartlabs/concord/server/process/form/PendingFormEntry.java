@@ -0,0 +1,67 @@
+package com.walmartlabs.concord.server.process.form;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A form waiting for the current user's input.
+ */
+@Value.Immutable
+@JsonInclude(Include.NON_EMPTY)
+@JsonSerialize(as = ImmutablePendingFormEntry.class)
+@JsonDeserialize(as = ImmutablePendingFormEntry.class)
+public interface PendingFormEntry extends Serializable {
+
+    UUID instanceId();
+
+    @Nullable
+    String orgName();
+
+    @Nullable
+    String projectName();
+
+    String name();
+
+    boolean custom();
+
+    boolean yield();
+
+    /**
+     * When the process started to wait on the form.
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX")
+    OffsetDateTime createdAt();
+
+    static ImmutablePendingFormEntry.Builder builder() {
+        return ImmutablePendingFormEntry.builder();
+    }
+}
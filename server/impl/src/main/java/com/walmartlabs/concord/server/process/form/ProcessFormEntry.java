@@ -0,0 +1,63 @@
+package com.walmartlabs.concord.server.process.form;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An entry of the form registry: a form the process is currently waiting on.
+ * The form itself (fields, values, etc) is stored in the process state.
+ */
+@Value.Immutable
+public interface ProcessFormEntry {
+
+    String name();
+
+    String eventName();
+
+    @Nullable
+    Map<String, Object> runAs();
+
+    /**
+     * Usernames allowed to submit the form, extracted from {@link #runAs()}.
+     */
+    Set<String> runAsUsers();
+
+    /**
+     * LDAP group patterns allowed to submit the form, extracted from {@link #runAs()}.
+     */
+    Set<String> runAsLdapGroups();
+
+    boolean yield();
+
+    /**
+     * {@code true} if the process provides a custom form (branding) for the form.
+     */
+    boolean branded();
+
+    static ImmutableProcessFormEntry.Builder builder() {
+        return ImmutableProcessFormEntry.builder();
+    }
+}
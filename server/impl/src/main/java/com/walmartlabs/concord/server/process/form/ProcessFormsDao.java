@@ -0,0 +1,287 @@
+package com.walmartlabs.concord.server.process.form;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.PgUtils;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.ProcessForms;
+import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.jooq.tables.Projects;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.*;
+import java.util.regex.PatternSyntaxException;
+
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_FORMS;
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_FORMS_BACKFILL;
+import static com.walmartlabs.concord.server.jooq.tables.Organizations.ORGANIZATIONS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static com.walmartlabs.concord.server.jooq.tables.Projects.PROJECTS;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Form registry. Keeps track of the forms processes are currently waiting on.
+ */
+@Named
+public class ProcessFormsDao extends AbstractDao {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessFormsDao.class);
+
+    private static final String[] EMPTY = new String[0];
+    private static final int PENDING_FETCH_SIZE = 100;
+
+    private final ConcordObjectMapper objectMapper;
+
+    @Inject
+    public ProcessFormsDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
+        super(cfg);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public <T> T txResult(TxResult<T> t) {
+        return super.txResult(t);
+    }
+
+    /**
+     * Replaces the registered forms of the specified process.
+     * Forms that were already registered keep their original creation date.
+     * The registry becomes the source of the process' forms, no backfill is needed after that.
+     */
+    public void replace(DSLContext tx, ProcessKey processKey, List<ProcessFormEntry> forms) {
+        UUID instanceId = processKey.getInstanceId();
+
+        tx.deleteFrom(PROCESS_FORMS_BACKFILL)
+                .where(PROCESS_FORMS_BACKFILL.INSTANCE_ID.eq(instanceId))
+                .execute();
+
+        List<String> names = new ArrayList<>(forms.size());
+        for (ProcessFormEntry f : forms) {
+            names.add(f.name());
+        }
+
+        tx.deleteFrom(PROCESS_FORMS)
+                .where(PROCESS_FORMS.INSTANCE_ID.eq(instanceId)
+                        .and(PROCESS_FORMS.FORM_NAME.notIn(names)))
+                .execute();
+
+        if (forms.isEmpty()) {
+            return;
+        }
+
+        List<Query> queries = new ArrayList<>(forms.size());
+        for (ProcessFormEntry f : forms) {
+            JSONB runAs = f.runAs() != null ? objectMapper.toJSONB(f.runAs()) : null;
+            String[] users = f.runAsUsers().toArray(EMPTY);
+            String[] groups = f.runAsLdapGroups().toArray(EMPTY);
+
+            queries.add(tx.insertInto(PROCESS_FORMS)
+                    .columns(PROCESS_FORMS.INSTANCE_ID,
+                            PROCESS_FORMS.FORM_NAME,
+                            PROCESS_FORMS.EVENT_NAME,
+                            PROCESS_FORMS.RUN_AS,
+                            PROCESS_FORMS.RUN_AS_USERS,
+                            PROCESS_FORMS.RUN_AS_LDAP_GROUPS,
+                            PROCESS_FORMS.IS_YIELD,
+                            PROCESS_FORMS.IS_BRANDED)
+                    .values(instanceId, f.name(), f.eventName(), runAs, users, groups, f.yield(), f.branded())
+                    .onConflict(PROCESS_FORMS.INSTANCE_ID, PROCESS_FORMS.FORM_NAME)
+                    .doUpdate()
+                    .set(PROCESS_FORMS.EVENT_NAME, f.eventName())
+                    .set(PROCESS_FORMS.RUN_AS, runAs)
+                    .set(PROCESS_FORMS.RUN_AS_USERS, users)
+                    .set(PROCESS_FORMS.RUN_AS_LDAP_GROUPS, groups)
+                    .set(PROCESS_FORMS.IS_YIELD, f.yield())
+                    .set(PROCESS_FORMS.IS_BRANDED, f.branded()));
+        }
+
+        tx.batch(queries).execute();
+    }
+
+    public void delete(DSLContext tx, ProcessKey processKey, String formName) {
+        // wait for a concurrent backfill of the same process, otherwise it can re-register the form
+        tx.selectOne()
+                .from(PROCESS_FORMS_BACKFILL)
+                .where(PROCESS_FORMS_BACKFILL.INSTANCE_ID.eq(processKey.getInstanceId()))
+                .forUpdate()
+                .fetch();
+
+        tx.deleteFrom(PROCESS_FORMS)
+                .where(PROCESS_FORMS.INSTANCE_ID.eq(processKey.getInstanceId())
+                        .and(PROCESS_FORMS.FORM_NAME.eq(formName)))
+                .execute();
+    }
+
+    public List<ProcessFormEntry> list(ProcessKey processKey) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.selectFrom(PROCESS_FORMS)
+                    .where(PROCESS_FORMS.INSTANCE_ID.eq(processKey.getInstanceId()))
+                    .orderBy(PROCESS_FORMS.FORM_NAME)
+                    .fetch(this::toEntry);
+        }
+    }
+
+    /**
+     * Removes the process from the list of processes suspended before the form registry
+     * was introduced. The row stays locked until the end of the transaction, so concurrent
+     * {@link #delete(DSLContext, ProcessKey, String)} calls wait for the backfill to complete.
+     *
+     * @return {@code true} if the forms of the process must be backfilled
+     */
+    public boolean claimBackfill(DSLContext tx, ProcessKey processKey) {
+        return tx.deleteFrom(PROCESS_FORMS_BACKFILL)
+                .where(PROCESS_FORMS_BACKFILL.INSTANCE_ID.eq(processKey.getInstanceId()))
+                .execute() > 0;
+    }
+
+    /**
+     * Returns the name of the first registered form of the process or {@code null}
+     * if the process has no forms.
+     */
+    public String firstFormName(ProcessKey processKey) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.select(PROCESS_FORMS.FORM_NAME)
+                    .from(PROCESS_FORMS)
+                    .where(PROCESS_FORMS.INSTANCE_ID.eq(processKey.getInstanceId()))
+                    .orderBy(PROCESS_FORMS.FORM_NAME)
+                    .limit(1)
+                    .fetchOne(PROCESS_FORMS.FORM_NAME);
+        }
+    }
+
+    /**
+     * Lists forms of suspended processes which can be submitted by the specified user:
+     * <ul>
+     *     <li>forms that list the user in {@code runAs.username};</li>
+     *     <li>forms restricted only by LDAP groups that match one of the user's groups;</li>
+     *     <li>unrestricted forms of the processes started by the user.</li>
+     * </ul>
+     * LDAP group patterns are Java regular expressions, so they are matched
+     * in the same way as in {@link FormAccessManager}, outside of the DB.
+     */
+    public List<PendingFormEntry> listPending(UUID userId, String username, Set<String> ldapGroups, int offset, int limit) {
+        ProcessForms f = PROCESS_FORMS.as("f");
+        ProcessQueue q = PROCESS_QUEUE.as("q");
+        Projects p = PROJECTS.as("p");
+
+        boolean hasGroups = ldapGroups != null && !ldapGroups.isEmpty();
+
+        Condition noUsers = cardinality(f.RUN_AS_USERS).eq(0);
+        Condition noGroups = cardinality(f.RUN_AS_LDAP_GROUPS).eq(0);
+
+        // forms with LDAP groups are filtered below
+        Condition byUser = PgUtils.contains(f.RUN_AS_USERS, new String[]{username})
+                .and(hasGroups ? trueCondition() : noGroups);
+        Condition byGroup = hasGroups ? noUsers.and(noGroups.not()) : falseCondition();
+        Condition byInitiator = noUsers.and(noGroups).and(q.INITIATOR_ID.eq(userId));
+
+        Field<String> orgName = select(ORGANIZATIONS.ORG_NAME)
+                .from(ORGANIZATIONS)
+                .where(ORGANIZATIONS.ORG_ID.eq(p.ORG_ID))
+                .asField();
+
+        return txResult(tx -> {
+            List<PendingFormEntry> result = new ArrayList<>();
+            int skipped = 0;
+
+            try (Cursor<? extends Record> cursor = tx.select(f.INSTANCE_ID, orgName, p.PROJECT_NAME, f.FORM_NAME, f.IS_BRANDED, f.IS_YIELD, f.CREATED_AT, f.RUN_AS_LDAP_GROUPS)
+                    .from(f)
+                    .join(q).on(q.INSTANCE_ID.eq(f.INSTANCE_ID))
+                    .leftJoin(p).on(p.PROJECT_ID.eq(q.PROJECT_ID))
+                    .where(q.CURRENT_STATUS.eq(ProcessStatus.SUSPENDED.name())
+                            .and(byUser.or(byGroup).or(byInitiator)))
+                    .orderBy(f.CREATED_AT.desc(), f.INSTANCE_ID, f.FORM_NAME)
+                    .fetchSize(PENDING_FETCH_SIZE)
+                    .fetchLazy()) {
+
+                for (Record r : cursor) {
+                    if (!matchesLdapGroups(r.get(f.RUN_AS_LDAP_GROUPS), ldapGroups)) {
+                        continue;
+                    }
+
+                    if (skipped < offset) {
+                        skipped++;
+                        continue;
+                    }
+
+                    result.add(PendingFormEntry.builder()
+                            .instanceId(r.get(f.INSTANCE_ID))
+                            .orgName(r.get(orgName))
+                            .projectName(r.get(p.PROJECT_NAME))
+                            .name(r.get(f.FORM_NAME))
+                            .custom(r.get(f.IS_BRANDED))
+                            .yield(r.get(f.IS_YIELD))
+                            .createdAt(r.get(f.CREATED_AT))
+                            .build());
+
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * @return {@code true} if there are no group restrictions or if one of the patterns
+     * matches one of the user's groups
+     */
+    static boolean matchesLdapGroups(String[] patterns, Set<String> ldapGroups) {
+        if (patterns == null || patterns.length == 0) {
+            return true;
+        }
+
+        for (String pattern : patterns) {
+            try {
+                if (FormAccessManager.matchesLdapGroup(pattern, ldapGroups)) {
+                    return true;
+                }
+            } catch (PatternSyntaxException e) {
+                log.warn("matchesLdapGroups -> invalid LDAP group pattern '{}': {}", pattern, e.getMessage());
+            }
+        }
+
+        return false;
+    }
+
+    private ProcessFormEntry toEntry(Record r) {
+        JSONB runAs = r.get(PROCESS_FORMS.RUN_AS);
+        return ProcessFormEntry.builder()
+                .name(r.get(PROCESS_FORMS.FORM_NAME))
+                .eventName(r.get(PROCESS_FORMS.EVENT_NAME))
+                .runAs(runAs != null ? objectMapper.fromJSONB(runAs) : null)
+                .runAsUsers(Arrays.asList(r.get(PROCESS_FORMS.RUN_AS_USERS)))
+                .runAsLdapGroups(Arrays.asList(r.get(PROCESS_FORMS.RUN_AS_LDAP_GROUPS)))
+                .yield(r.get(PROCESS_FORMS.IS_YIELD))
+                .branded(r.get(PROCESS_FORMS.IS_BRANDED))
+                .build();
+    }
+}
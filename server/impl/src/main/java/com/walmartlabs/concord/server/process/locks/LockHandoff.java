@@ -0,0 +1,49 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * The result of a released lock being transferred to the next process in the queue.
+ */
+@Value.Immutable
+public interface LockHandoff {
+
+    /**
+     * The lock, already owned by the new process.
+     */
+    LockEntry lock();
+
+    ProcessKey processKey();
+
+    /**
+     * How long the new owner was waiting in the queue.
+     */
+    Duration waitTime();
+
+    static ImmutableLockHandoff.Builder builder() {
+        return ImmutableLockHandoff.builder();
+    }
+}
@@ -0,0 +1,167 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.PayloadManager;
+import com.walmartlabs.concord.server.process.ProcessManager;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process locks with FIFO queues. When a lock is released it is transferred
+ * to the first waiting process which is resumed immediately.
+ */
+@Named
+@Singleton
+public class ProcessLockManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessLockManager.class);
+
+    private final ProcessLocksDao dao;
+    private final ProcessQueueManager queueManager;
+    private final PayloadManager payloadManager;
+    private final ProcessManager processManager;
+    private final MetricRegistry metricRegistry;
+    private final Histogram waitTime;
+    private final Map<String, Integer> queueLengths = new ConcurrentHashMap<>();
+
+    @Inject
+    public ProcessLockManager(ProcessLocksDao dao,
+                              ProcessQueueManager queueManager,
+                              PayloadManager payloadManager,
+                              ProcessManager processManager,
+                              MetricRegistry metricRegistry) {
+
+        this.dao = dao;
+        this.queueManager = queueManager;
+        this.payloadManager = payloadManager;
+        this.processManager = processManager;
+        this.metricRegistry = metricRegistry;
+        this.waitTime = metricRegistry.histogram("process-locks-wait-time");
+
+        metricRegistry.gauge("process-locks-waiters", () -> () -> queueLengths.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    /**
+     * Acquires the lock or puts the process into the lock's queue.
+     *
+     * @return the current owner of the lock
+     */
+    public LockEntry tryLock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        return dao.tryLock(instanceId, orgId, projectId, scope, lockName);
+    }
+
+    /**
+     * Releases the lock and hands it off to the next process in the queue.
+     */
+    public void unlock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        LockHandoff h = dao.release(instanceId, orgId, projectId, scope, lockName);
+        if (h != null) {
+            onHandoff(h);
+        }
+    }
+
+    /**
+     * Releases all locks of the process, e.g. when the process is finished.
+     */
+    public void releaseAll(UUID instanceId) {
+        dao.releaseAll(instanceId).forEach(this::onHandoff);
+    }
+
+    /**
+     * Resumes the process that was waiting for the specified lock.
+     * Does nothing if the process is not SUSPENDED yet, in that case
+     * the process will be resumed by the process wait watchdog.
+     */
+    public void resume(ProcessKey processKey, String lockName) {
+        if (!queueManager.claimResume(processKey)) {
+            return;
+        }
+
+        Payload payload;
+        try {
+            payload = payloadManager.createResumePayload(processKey, lockName, null);
+        } catch (IOException e) {
+            throw new ConcordApplicationException("Error creating a payload", e);
+        }
+
+        processManager.resume(payload);
+    }
+
+    /**
+     * Updates the queue length metrics.
+     *
+     * @param lengths number of waiting processes by {@link ProcessLocksDao#lockKey}
+     */
+    public void updateQueueLengths(Map<String, Integer> lengths) {
+        queueLengths.keySet().removeIf(k -> {
+            if (lengths.containsKey(k)) {
+                return false;
+            }
+
+            metricRegistry.remove(queueLengthMetricName(k));
+            return true;
+        });
+
+        lengths.forEach((k, v) -> {
+            if (queueLengths.put(k, v) == null) {
+                metricRegistry.gauge(queueLengthMetricName(k), () -> () -> queueLengths.getOrDefault(k, 0));
+            }
+        });
+    }
+
+    private void onHandoff(LockHandoff h) {
+        LockEntry l = h.lock();
+        String key = ProcessLocksDao.lockKey(l.orgId(), l.projectId(), l.scope(), l.name());
+
+        // a single histogram for all locks, lock names are not bounded
+        long ms = h.waitTime().toMillis();
+        waitTime.update(ms);
+
+        log.info("onHandoff ['{}'] -> lock '{}' acquired after {}ms", h.processKey(), key, ms);
+
+        try {
+            resume(h.processKey(), l.name());
+        } catch (Exception e) {
+            log.warn("onHandoff ['{}'] -> error while resuming the process (will be retried by the wait watchdog): {}",
+                    h.processKey(), e.getMessage());
+        }
+    }
+
+    private static String queueLengthMetricName(String lockKey) {
+        return MetricRegistry.name("process-locks-queue-length", lockKey);
+    }
+}
@@ -22,57 +22,216 @@ package com.walmartlabs.concord.server.process.locks;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.jooq.tables.ProcessLockWaiters;
 import com.walmartlabs.concord.server.jooq.tables.ProcessLocks;
+import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
 import com.walmartlabs.concord.server.jooq.tables.records.ProcessLocksRecord;
-import org.jooq.Configuration;
-import org.jooq.DSLContext;
-import org.jooq.SelectConditionStep;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.*;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.UUID;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOCKS;
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOCK_WAITERS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static org.jooq.impl.DSL.count;
 
+/**
+ * Process locks and their FIFO queues of waiting processes.
+ * All operations on a lock are serialized using an advisory lock on the lock's key.
+ */
 @Named
 public class ProcessLocksDao extends AbstractDao {
 
+    private static final Set<ProcessStatus> FINISHED_STATUSES = EnumSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
+
+    private final Locks locks;
+
     @Inject
-    protected ProcessLocksDao(@MainDB Configuration cfg) {
+    protected ProcessLocksDao(@MainDB Configuration cfg, Locks locks) {
         super(cfg);
+        this.locks = locks;
     }
 
+    /**
+     * Acquires the lock if it is available. Otherwise adds the process to
+     * the end of the lock's queue (if it's not there already).
+     *
+     * @return the current owner of the lock
+     */
     public LockEntry tryLock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        while (true) {
-            boolean locked = insert(instanceId, orgId, projectId, scope, lockName);
-            if (locked) {
-                return LockEntry.builder()
-                        .instanceId(instanceId)
-                        .orgId(orgId)
-                        .projectId(projectId)
-                        .scope(scope)
-                        .name(lockName)
-                        .build();
-            } else {
-                LockEntry e = get(orgId, projectId, scope, lockName);
-                if (e != null) {
-                    return e;
+        return txResult(tx -> {
+            locks.lock(tx, lockKey(orgId, projectId, scope, lockName));
+
+            while (true) {
+                if (insert(tx, instanceId, orgId, projectId, scope, lockName)) {
+                    deleteWaiter(tx, instanceId, scope, lockName);
+                    return LockEntry.builder()
+                            .instanceId(instanceId)
+                            .orgId(orgId)
+                            .projectId(projectId)
+                            .scope(scope)
+                            .name(lockName)
+                            .build();
                 }
+
+                LockEntry e = get(tx, orgId, projectId, scope, lockName);
+                if (e == null) {
+                    // removed in the meantime, try again
+                    continue;
+                }
+
+                if (e.instanceId().equals(instanceId)) {
+                    // already acquired, e.g. handed off by the previous owner
+                    deleteWaiter(tx, instanceId, scope, lockName);
+                } else {
+                    enqueue(tx, instanceId, orgId, projectId, scope, lockName);
+                }
+
+                return e;
             }
-        }
+        });
     }
 
     public LockEntry get(UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         return txResult(tx -> get(tx, orgId, projectId, scope, lockName));
     }
 
-    public boolean insert(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        return txResult(tx -> insert(tx, instanceId, orgId, projectId, scope, lockName));
+    /**
+     * Releases the lock and, in the same transaction, transfers it to
+     * the first process in the lock's queue.
+     *
+     * @return the new owner of the lock or {@code null} if the lock wasn't
+     * held by the process or there are no waiting processes
+     */
+    public LockHandoff release(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        return txResult(tx -> {
+            locks.lock(tx, lockKey(orgId, projectId, scope, lockName));
+
+            deleteWaiter(tx, instanceId, scope, lockName);
+
+            if (!delete(tx, instanceId, orgId, projectId, scope, lockName)) {
+                return null;
+            }
+
+            return handOff(tx, orgId, projectId, scope, lockName);
+        });
     }
 
-    public void delete(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        tx(tx -> delete(tx, instanceId, orgId, projectId, scope, lockName));
+    /**
+     * Releases all locks held by the process and removes the process from all queues.
+     *
+     * @return the new owners of the released locks
+     */
+    public List<LockHandoff> releaseAll(UUID instanceId) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        tx(tx -> tx.deleteFrom(w)
+                .where(w.INSTANCE_ID.eq(instanceId))
+                .execute());
+
+        // release each lock in a separate transaction to avoid holding multiple advisory locks at once
+        List<LockHandoff> result = new ArrayList<>();
+        for (LockEntry l : listOwned(instanceId)) {
+            LockHandoff h = release(instanceId, l.orgId(), l.projectId(), l.scope(), l.name());
+            if (h != null) {
+                result.add(h);
+            }
+        }
+        return result;
+    }
+
+    public List<LockEntry> listOwned(UUID instanceId) {
+        ProcessLocks l = PROCESS_LOCKS.as("l");
+        return txResult(tx -> tx.selectFrom(l)
+                .where(l.INSTANCE_ID.eq(instanceId))
+                .fetch(ProcessLocksDao::toEntry));
+    }
+
+    /**
+     * @return number of waiting processes for each lock with a non-empty queue, by {@link #lockKey}
+     */
+    public Map<String, Integer> countWaiters() {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        return txResult(tx -> {
+            Map<String, Integer> result = new HashMap<>();
+            tx.select(w.ORG_ID, w.PROJECT_ID, w.LOCK_SCOPE, w.LOCK_NAME, count())
+                    .from(w)
+                    .groupBy(w.ORG_ID, w.PROJECT_ID, w.LOCK_SCOPE, w.LOCK_NAME)
+                    .forEach(r -> result.merge(lockKey(r.value1(), r.value2(), r.value3(), r.value4()), r.value5(), Integer::sum));
+            return result;
+        });
+    }
+
+    /**
+     * @return unique key of the lock, ORG locks are shared by all projects in the organization
+     */
+    public static String lockKey(UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        switch (scope) {
+            case ORG:
+                return "process-lock/ORG/" + orgId + "/" + lockName;
+            case PROJECT:
+                return "process-lock/PROJECT/" + projectId + "/" + lockName;
+            default:
+                throw new IllegalArgumentException("unknown lock scope: " + scope);
+        }
+    }
+
+    private LockHandoff handOff(DSLContext tx, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        ProcessQueue q = PROCESS_QUEUE.as("q");
+
+        while (true) {
+            Record r = tx.select(w.WAITER_SEQ, w.INSTANCE_ID, w.ORG_ID, w.PROJECT_ID, w.WAIT_SINCE, q.CREATED_AT, q.CURRENT_STATUS)
+                    .from(w)
+                    .join(q).on(q.INSTANCE_ID.eq(w.INSTANCE_ID))
+                    .where(lockCondition(w.ORG_ID, w.PROJECT_ID, w.LOCK_SCOPE, w.LOCK_NAME, orgId, projectId, scope, lockName))
+                    .orderBy(w.WAITER_SEQ)
+                    .limit(1)
+                    .fetchOne();
+
+            if (r == null) {
+                return null;
+            }
+
+            tx.deleteFrom(w)
+                    .where(w.WAITER_SEQ.eq(r.get(w.WAITER_SEQ)))
+                    .execute();
+
+            if (FINISHED_STATUSES.contains(ProcessStatus.valueOf(r.get(q.CURRENT_STATUS)))) {
+                // the process is not waiting anymore, skip it
+                continue;
+            }
+
+            UUID instanceId = r.get(w.INSTANCE_ID);
+            UUID waiterOrgId = r.get(w.ORG_ID);
+            UUID waiterProjectId = r.get(w.PROJECT_ID);
+            insert(tx, instanceId, waiterOrgId, waiterProjectId, scope, lockName);
+
+            Duration waitTime = Duration.between(r.get(w.WAIT_SINCE), OffsetDateTime.now());
+
+            return LockHandoff.builder()
+                    .lock(LockEntry.builder()
+                            .instanceId(instanceId)
+                            .orgId(waiterOrgId)
+                            .projectId(waiterProjectId)
+                            .scope(scope)
+                            .name(lockName)
+                            .build())
+                    .processKey(new ProcessKey(instanceId, r.get(q.CREATED_AT)))
+                    .waitTime(waitTime.isNegative() ? Duration.ZERO : waitTime)
+                    .build();
+        }
     }
 
     private boolean insert(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
@@ -85,38 +244,62 @@ public class ProcessLocksDao extends AbstractDao {
 
     private LockEntry get(DSLContext tx, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         ProcessLocks l = PROCESS_LOCKS.as("l");
-        SelectConditionStep<ProcessLocksRecord> q = tx.selectFrom(l)
-                .where(l.LOCK_NAME.eq(lockName)
-                        .and(l.LOCK_SCOPE.eq(scope)));
+        return tx.selectFrom(l)
+                .where(lockCondition(l.ORG_ID, l.PROJECT_ID, l.LOCK_SCOPE, l.LOCK_NAME, orgId, projectId, scope, lockName))
+                .fetchOne(ProcessLocksDao::toEntry);
+    }
+
+    private boolean delete(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        ProcessLocks l = PROCESS_LOCKS.as("l");
+        return tx.deleteFrom(l)
+                .where(l.INSTANCE_ID.eq(instanceId)
+                        .and(l.ORG_ID.eq(orgId))
+                        .and(l.PROJECT_ID.eq(projectId))
+                        .and(l.LOCK_SCOPE.eq(scope))
+                        .and(l.LOCK_NAME.eq(lockName)))
+                .execute() > 0;
+    }
+
+    private void enqueue(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        tx.insertInto(w, w.INSTANCE_ID, w.ORG_ID, w.PROJECT_ID, w.LOCK_SCOPE, w.LOCK_NAME)
+                .values(instanceId, orgId, projectId, scope, lockName)
+                .onConflictDoNothing()
+                .execute();
+    }
+
+    private void deleteWaiter(DSLContext tx, UUID instanceId, ProcessLockScope scope, String lockName) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        tx.deleteFrom(w)
+                .where(w.INSTANCE_ID.eq(instanceId)
+                        .and(w.LOCK_SCOPE.eq(scope))
+                        .and(w.LOCK_NAME.eq(lockName)))
+                .execute();
+    }
+
+    private static Condition lockCondition(Field<UUID> orgIdField, Field<UUID> projectIdField,
+                                           Field<ProcessLockScope> scopeField, Field<String> nameField,
+                                           UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+
+        Condition c = nameField.eq(lockName).and(scopeField.eq(scope));
 
         switch (scope) {
             case ORG:
-                q.and(l.ORG_ID.eq(orgId));
-                break;
+                return c.and(orgIdField.eq(orgId));
             case PROJECT:
-                q.and(l.PROJECT_ID.eq(projectId));
-                break;
+                return c.and(projectIdField.eq(projectId));
             default:
                 throw new IllegalArgumentException("unknown lock scope: " + scope);
         }
+    }
 
-        return q.fetchOne(r -> LockEntry.builder()
+    private static LockEntry toEntry(ProcessLocksRecord r) {
+        return LockEntry.builder()
                 .instanceId(r.getInstanceId())
                 .orgId(r.getOrgId())
                 .projectId(r.getProjectId())
                 .scope(r.getLockScope())
                 .name(r.getLockName())
-                .build());
-    }
-
-    private void delete(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        ProcessLocks l = PROCESS_LOCKS.as("l");
-        tx.deleteFrom(l)
-                .where(l.INSTANCE_ID.eq(instanceId)
-                        .and(l.ORG_ID.eq(orgId))
-                        .and(l.PROJECT_ID.eq(projectId))
-                        .and(l.LOCK_SCOPE.eq(scope))
-                        .and(l.LOCK_NAME.eq(lockName)))
-                .execute();
+                .build();
     }
 }
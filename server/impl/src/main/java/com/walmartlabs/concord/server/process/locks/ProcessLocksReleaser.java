@@ -0,0 +1,120 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.sdk.EventType;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.sdk.SynchronousListener;
+import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
+import com.walmartlabs.concord.server.sdk.events.ProcessEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases the locks of finished processes as soon as the process' final
+ * status is recorded, without waiting for {@link ProcessLocksWatchdog}.
+ */
+@Named
+@Singleton
+@SynchronousListener
+public class ProcessLocksReleaser implements ProcessEventListener, BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessLocksReleaser.class);
+
+    private static final Set<String> FINISHED_STATUSES = new HashSet<>(Arrays.asList(
+            ProcessStatus.FINISHED.name(),
+            ProcessStatus.FAILED.name(),
+            ProcessStatus.CANCELLED.name(),
+            ProcessStatus.TIMED_OUT.name()));
+
+    private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    // a provider to break the Listeners -> ProcessLockManager -> ProcessEventManager -> Listeners cycle
+    private final Provider<ProcessLockManager> lockManager;
+    private final ExecutorService executor;
+
+    @Inject
+    public ProcessLocksReleaser(Provider<ProcessLockManager> lockManager) {
+        this.lockManager = lockManager;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "process-locks-releaser");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                log.warn("stop -> timeout waiting for the pending releases (will be released by the watchdog)");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onEvents(List<ProcessEvent> events) {
+        for (ProcessEvent e : events) {
+            if (!EventType.PROCESS_STATUS.name().equals(e.eventType()) || e.data() == null) {
+                continue;
+            }
+
+            Object status = e.data().get("status");
+            if (status != null && FINISHED_STATUSES.contains(status.toString())) {
+                // listeners are called before the status is committed, release asynchronously
+                ProcessKey processKey = e.processKey();
+                try {
+                    executor.submit(() -> release(processKey));
+                } catch (RejectedExecutionException ex) {
+                    log.warn("onEvents ['{}'] -> the server is shutting down (will be released by the watchdog)", processKey);
+                }
+            }
+        }
+    }
+
+    private void release(ProcessKey processKey) {
+        try {
+            lockManager.get().releaseAll(processKey.getInstanceId());
+        } catch (Exception e) {
+            log.warn("release ['{}'] -> error (will be retried by the watchdog): {}", processKey, e.getMessage());
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOCKS;
@@ -43,7 +44,8 @@ import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QU
 
 /**
  * Takes care of processes dead process locks.
- * E.g. removes locks for finished processes.
+ * E.g. releases locks of finished processes, handing them off to the waiting processes.
+ * Updates the lock queue metrics.
  */
 @Named("process-locks-watchdog")
 @Singleton
@@ -52,10 +54,14 @@ public class ProcessLocksWatchdog implements ScheduledTask {
     private static final Logger log = LoggerFactory.getLogger(ProcessLocksWatchdog.class);
 
     private final WatchdogDao dao;
+    private final ProcessLocksDao locksDao;
+    private final ProcessLockManager lockManager;
 
     @Inject
-    public ProcessLocksWatchdog(WatchdogDao dao) {
+    public ProcessLocksWatchdog(WatchdogDao dao, ProcessLocksDao locksDao, ProcessLockManager lockManager) {
         this.dao = dao;
+        this.locksDao = locksDao;
+        this.lockManager = lockManager;
     }
 
     @Override
@@ -66,8 +72,11 @@ public class ProcessLocksWatchdog implements ScheduledTask {
 
     @Override
     public void performTask() {
-        int count = dao.deleteStalledLocks();
-        log.debug("performTask -> {} locks deleted", count);
+        List<UUID> owners = dao.findStalledLockOwners();
+        owners.forEach(lockManager::releaseAll);
+        log.debug("performTask -> released locks of {} processes", owners.size());
+
+        lockManager.updateQueueLengths(locksDao.countWaiters());
     }
 
     @Named
@@ -85,7 +94,7 @@ public class ProcessLocksWatchdog implements ScheduledTask {
             super(cfg);
         }
 
-        public int deleteStalledLocks() {
+        public List<UUID> findStalledLockOwners() {
             return txResult(tx -> {
                 ProcessQueue q = PROCESS_QUEUE.as("q");
                 ProcessLocks l = PROCESS_LOCKS.as("l");
@@ -95,9 +104,10 @@ public class ProcessLocksWatchdog implements ScheduledTask {
                         .where(q.INSTANCE_ID.eq(l.INSTANCE_ID)
                                 .and(q.CURRENT_STATUS.in(Utils.toString(FINISHED_STATUSES))));
 
-                return tx.deleteFrom(l)
+                return tx.selectDistinct(l.INSTANCE_ID)
+                        .from(l)
                         .where(l.INSTANCE_ID.in(finishedProcesses))
-                        .execute();
+                        .fetch(l.INSTANCE_ID);
             });
         }
     }
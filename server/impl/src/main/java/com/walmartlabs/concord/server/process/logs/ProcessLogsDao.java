@@ -22,6 +22,8 @@ package com.walmartlabs.concord.server.process.logs;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.ReplicaDB;
+import com.walmartlabs.concord.db.ReplicaRouter;
 import com.walmartlabs.concord.db.PgIntRange;
 import com.walmartlabs.concord.server.jooq.tables.records.ProcessLogDataRecord;
 import com.walmartlabs.concord.server.jooq.tables.records.ProcessLogSegmentsRecord;
@@ -48,8 +50,8 @@ import static org.jooq.impl.DSL.*;
 public class ProcessLogsDao extends AbstractDao {
 
     @Inject
-    public ProcessLogsDao(@MainDB Configuration cfg) {
-        super(cfg);
+    public ProcessLogsDao(@MainDB Configuration cfg, @ReplicaDB ReplicaRouter replicaRouter) {
+        super(cfg, replicaRouter);
     }
 
     /**
@@ -131,11 +133,14 @@ public class ProcessLogsDao extends AbstractDao {
         q.execute();
     }
 
+    /**
+     * Replica-safe: the result may lag behind the primary by up to {@code db.replica.maxLag}.
+     */
     public List<LogSegment> listSegments(ProcessKey processKey, int limit, int offset) {
         UUID instanceId = processKey.getInstanceId();
         OffsetDateTime createdAt = processKey.getCreatedAt();
 
-        try (DSLContext tx = DSL.using(cfg)) {
+        try (DSLContext tx = DSL.using(replicaCfg())) {
             return tx.select(PROCESS_LOG_SEGMENTS.SEGMENT_ID, PROCESS_LOG_SEGMENTS.CORRELATION_ID,
                     PROCESS_LOG_SEGMENTS.SEGMENT_NAME,
                     PROCESS_LOG_SEGMENTS.SEGMENT_TS,
@@ -152,11 +157,14 @@ public class ProcessLogsDao extends AbstractDao {
         }
     }
 
+    /**
+     * Replica-safe, see {@link #listSegments(ProcessKey, int, int)}.
+     */
     public ProcessLog segmentData(ProcessKey processKey, long segmentId, Integer start, Integer end) {
         UUID instanceId = processKey.getInstanceId();
         OffsetDateTime createdAt = processKey.getCreatedAt();
 
-        try (DSLContext tx = DSL.using(cfg)) {
+        try (DSLContext tx = DSL.using(replicaCfg())) {
             List<ProcessLogChunk> chunks = getSegmentChunks(tx, processKey, segmentId, start, end);
 
             Field<Integer> upperRange = max(upperRange(PROCESS_LOG_DATA.SEGMENT_RANGE));
@@ -172,11 +180,14 @@ public class ProcessLogsDao extends AbstractDao {
         }
     }
 
+    /**
+     * Replica-safe, see {@link #listSegments(ProcessKey, int, int)}.
+     */
     public ProcessLog data(ProcessKey processKey, Integer start, Integer end) {
         UUID instanceId = processKey.getInstanceId();
         OffsetDateTime createdAt = processKey.getCreatedAt();
 
-        try (DSLContext tx = DSL.using(cfg)) {
+        try (DSLContext tx = DSL.using(replicaCfg())) {
             List<ProcessLogChunk> chunks = getDataChunks(tx, processKey, start, end);
 
             Field<Integer> upperRange = max(upperRange(PROCESS_LOG_DATA.LOG_RANGE));
@@ -28,6 +28,7 @@ import org.jooq.SelectQuery;
 
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.db.PgUtils.jsonbEq;
@@ -37,9 +38,18 @@ import static com.walmartlabs.concord.db.PgUtils.jsonbText;
 public final class MetadataUtils {
 
     public static List<MetadataFilter> parseMetadataFilters(UriInfo uriInfo) {
+        return parseMetadataFilters(uriInfo, k -> false);
+    }
+
+    /**
+     * @param isIndexed returns {@code true} for keys with a dedicated index
+     *                  (see {@link ProcessMetaIndexes})
+     */
+    public static List<MetadataFilter> parseMetadataFilters(UriInfo uriInfo, Predicate<String> isIndexed) {
         return uriInfo.getQueryParameters().entrySet().stream()
                 .filter(e -> e.getKey().startsWith("meta."))
                 .map(e -> parseMetadataFilter(e.getKey().substring("meta.".length()), e.getValue().get(0)))
+                .map(f -> isIndexed.test(f.key()) ? MetadataFilter.builder().from(f).indexed(true).build() : f)
                 .collect(Collectors.toList());
     }
 
@@ -59,7 +69,12 @@ public final class MetadataUtils {
                     break;
                 }
                 case EQUALS: {
-                    q.addConditions(jsonbEq(column, f.key(), f.value()));
+                    if (f.indexed()) {
+                        // matches the expression index
+                        q.addConditions(jsonbText(column, f.key()).eq(f.value()));
+                    } else {
+                        q.addConditions(jsonbEq(column, f.key(), f.value()));
+                    }
                     break;
                 }
                 case NOT_EQUALS: {
@@ -93,6 +93,13 @@ public interface ProcessFilter {
     @Nullable
     Integer offset();
 
+    /**
+     * Keyset pagination cursor. If specified, only processes "older" than
+     * the cursor's position are returned (ordered by CREATED_AT and INSTANCE_ID).
+     */
+    @Nullable
+    Cursor cursor();
+
     static ImmutableProcessFilter.Builder builder() {
         return ImmutableProcessFilter.builder();
     }
@@ -139,11 +146,34 @@ public interface ProcessFilter {
 
         String value();
 
+        /**
+         * {@code true} if the key has a dedicated expression index.
+         * See {@link ProcessMetaIndexes}.
+         */
+        @Value.Default
+        default boolean indexed() {
+            return false;
+        }
+
         static ImmutableMetadataFilter.Builder builder() {
             return ImmutableMetadataFilter.builder();
         }
     }
 
+    @Value.Immutable
+    interface Cursor {
+
+        @Value.Parameter
+        OffsetDateTime createdAt();
+
+        @Value.Parameter
+        UUID instanceId();
+
+        static Cursor of(OffsetDateTime createdAt, UUID instanceId) {
+            return ImmutableCursor.of(createdAt, instanceId);
+        }
+    }
+
     enum FilterType {
         CONTAINS,
         NOT_CONTAINS,
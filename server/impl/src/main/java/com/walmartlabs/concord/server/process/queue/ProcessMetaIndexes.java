@@ -0,0 +1,189 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static org.jooq.impl.DSL.inline;
+
+/**
+ * Maintains expression indexes for the process metadata keys declared in
+ * {@code process.indexedMetaKeys}. The indexes are created in background
+ * and each key is considered "indexed" only after its index becomes valid.
+ */
+@Named
+@Singleton
+public class ProcessMetaIndexes implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessMetaIndexes.class);
+
+    private static final String INDEX_PREFIX = "IDX_PROC_META_";
+    private static final int MAX_KEY_PART_LENGTH = 32;
+
+    private final List<String> keys;
+    private final Dao dao;
+
+    private volatile Set<String> validKeys = Collections.emptySet();
+    private Thread worker;
+
+    @Inject
+    public ProcessMetaIndexes(ProcessConfiguration cfg, Dao dao) {
+        this.keys = cfg.getIndexedMetaKeys() != null ? cfg.getIndexedMetaKeys() : Collections.emptyList();
+        this.dao = dao;
+    }
+
+    @Override
+    public void start() {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        this.worker = new Thread(this::run, "process-meta-indexes");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    public boolean isIndexed(String key) {
+        return validKeys.contains(key);
+    }
+
+    private void run() {
+        Set<String> result = new HashSet<>();
+
+        for (String k : keys) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            String indexName = indexName(k);
+            try {
+                Boolean valid = dao.isIndexValid(indexName);
+                if (Boolean.FALSE.equals(valid)) {
+                    // a leftover from a failed "create index concurrently"
+                    log.warn("run -> dropping the invalid index {} (key: '{}')", indexName, k);
+                    dao.dropIndex(indexName);
+                    valid = null;
+                }
+
+                if (valid == null) {
+                    log.info("run -> creating {} (key: '{}')...", indexName, k);
+                    long t1 = System.currentTimeMillis();
+                    dao.createIndex(indexName, k);
+                    log.info("run -> {} created in {}ms", indexName, System.currentTimeMillis() - t1);
+                }
+
+                result.add(k);
+                validKeys = Collections.unmodifiableSet(new HashSet<>(result));
+            } catch (Exception e) {
+                log.error("run -> error while creating {} (key: '{}'): {}", indexName, k, e.getMessage());
+            }
+        }
+    }
+
+    static String indexName(String key) {
+        String s = key.replaceAll("[^A-Za-z0-9]", "_").toUpperCase();
+        if (s.length() > MAX_KEY_PART_LENGTH) {
+            s = s.substring(0, MAX_KEY_PART_LENGTH);
+        }
+        // keys can differ only in characters replaced above, add a hash to avoid collisions
+        return INDEX_PREFIX + s + "_" + hash(key);
+    }
+
+    private static String hash(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] ab = md.digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                sb.append(String.format("%02X", ab[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Named
+    static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        /**
+         * Creates an index matching the conditions produced by {@link MetadataUtils}
+         * for indexed keys. CREATED_AT and INSTANCE_ID are included to allow
+         * top-N scans for keyset-paginated queries.
+         */
+        public void createIndex(String indexName, String key) {
+            String sql;
+            try (DSLContext tx = DSL.using(cfg)) {
+                sql = tx.renderInlined(DSL.query("create index concurrently if not exists " + indexName +
+                                " on " + PROCESS_QUEUE.getName() +
+                                " ((" + PROCESS_QUEUE.META.getName() + "::jsonb->>{0}) text_pattern_ops, " +
+                                PROCESS_QUEUE.CREATED_AT.getName() + " desc, " +
+                                PROCESS_QUEUE.INSTANCE_ID.getName() + " desc)",
+                        inline(key)));
+            }
+
+            // "concurrently" can't be used inside a transaction
+            executeAutoCommit(sql);
+        }
+
+        public void dropIndex(String indexName) {
+            executeAutoCommit("drop index concurrently if exists " + indexName);
+        }
+
+        public Boolean isIndexValid(String indexName) {
+            try (DSLContext tx = DSL.using(cfg)) {
+                return tx.resultQuery("select i.indisvalid from pg_index i join pg_class c on c.oid = i.indexrelid where c.relname = ?",
+                        indexName.toLowerCase())
+                        .fetchOne(r -> r.get(0, Boolean.class));
+            }
+        }
+    }
+}
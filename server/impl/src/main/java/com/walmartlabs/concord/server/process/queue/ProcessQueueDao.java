@@ -23,6 +23,8 @@ package com.walmartlabs.concord.server.process.queue;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.ReplicaDB;
+import com.walmartlabs.concord.db.ReplicaRouter;
 import com.walmartlabs.concord.db.PgUtils;
 import com.walmartlabs.concord.imports.Imports;
 import com.walmartlabs.concord.sdk.EventType;
@@ -79,9 +81,16 @@ public class ProcessQueueDao extends AbstractDao {
 
     private final ConcordObjectMapper objectMapper;
 
-    @Inject
     public ProcessQueueDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
-        super(cfg);
+        this(cfg, null, objectMapper);
+    }
+
+    @Inject
+    public ProcessQueueDao(@MainDB Configuration cfg,
+                           @ReplicaDB ReplicaRouter replicaRouter,
+                           ConcordObjectMapper objectMapper) {
+
+        super(cfg, replicaRouter);
         this.objectMapper = objectMapper;
     }
 
@@ -372,6 +381,17 @@ public class ProcessQueueDao extends AbstractDao {
         }
     }
 
+    public Map<UUID, ProcessStatus> getStatuses(Collection<UUID> instanceIds) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Map<UUID, ProcessStatus> result = new HashMap<>();
+            tx.select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.CURRENT_STATUS)
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.INSTANCE_ID.in(instanceIds))
+                    .forEach(r -> result.put(r.value1(), ProcessStatus.valueOf(r.value2())));
+            return result;
+        }
+    }
+
     public ProcessStatus getStatus(PartialProcessKey processKey) {
         try (DSLContext tx = DSL.using(cfg)) {
             String status = tx.select(PROCESS_QUEUE.CURRENT_STATUS)
@@ -454,24 +474,32 @@ public class ProcessQueueDao extends AbstractDao {
         }
     }
 
+    /**
+     * Reads from the primary. Use for queries that must see the latest changes,
+     * e.g. listing the subprocesses of a parent process right after forking.
+     */
     public List<ProcessEntry> list(ProcessFilter filter) {
-        try (DSLContext tx = DSL.using(cfg)) {
-            SelectQuery<Record> query = buildSelect(tx, filter);
+        return list(cfg, filter);
+    }
 
-            boolean findAdjacentToDateRows = filter.beforeCreatedAt() == null && filter.beforeCreatedAt() != null;
-            if (findAdjacentToDateRows) {
-                query.addOrderBy(PROCESS_QUEUE.CREATED_AT.asc());
-            } else {
-                query.addOrderBy(PROCESS_QUEUE.CREATED_AT.desc());
-            }
+    /**
+     * Replica-safe: the result may lag behind the primary by up to {@code db.replica.maxLag}.
+     * Use only for listings displayed in the UI.
+     */
+    public List<ProcessEntry> listFromReplica(ProcessFilter filter) {
+        return list(replicaCfg(), filter);
+    }
 
-            List<ProcessEntry> processEntries = query.fetch(this::toEntry);
+    private List<ProcessEntry> list(Configuration dbCfg, ProcessFilter filter) {
+        try (DSLContext tx = DSL.using(dbCfg)) {
+            SelectQuery<Record> query = buildSelect(tx, filter);
 
-            if (findAdjacentToDateRows) {
-                Collections.reverse(processEntries);
-            }
+            // always newest first: the next page's cursor is taken from the last row
+            // and applied as "(CREATED_AT, INSTANCE_ID) < cursor".
+            // INSTANCE_ID is used as a tie-breaker to keep the order stable
+            query.addOrderBy(PROCESS_QUEUE.CREATED_AT.desc(), PROCESS_QUEUE.INSTANCE_ID.desc());
 
-            return processEntries;
+            return query.fetch(this::toEntry);
         }
     }
 
@@ -495,21 +523,27 @@ public class ProcessQueueDao extends AbstractDao {
         }
     }
 
+    /**
+     * Replica-safe, see {@link #listFromReplica(ProcessFilter)}.
+     */
     public int count(ProcessFilter filter) {
-        try (DSLContext tx = DSL.using(cfg)) {
+        try (DSLContext tx = DSL.using(replicaCfg())) {
             SelectQuery<Record> query = buildSelect(tx, filter);
             return tx.selectCount().from(query)
                     .fetchOne().value1();
         }
     }
 
-    public Map<String, Integer> getStatistics() {
+    /**
+     * Counts ENQUEUED processes that are ready to start and ENQUEUED processes
+     * with wait conditions. Uses the partial index on ENQUEUED processes.
+     * Per-status counters are maintained by {@link ProcessQueueStatistics}.
+     */
+    public Map<String, Integer> getEnqueuedStatistics() {
         try (DSLContext tx = DSL.using(cfg)) {
-            return tx.select(PROCESS_QUEUE.CURRENT_STATUS, DSL.count(asterisk())).from(PROCESS_QUEUE)
-                    .groupBy(PROCESS_QUEUE.CURRENT_STATUS)
-                    .union(select(value(ENQUEUED_NOW_METRIC), DSL.count(asterisk())).from(PROCESS_QUEUE)
-                            .where(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.ENQUEUED.name()))
-                            .and(or(PROCESS_QUEUE.START_AT.isNull(), PROCESS_QUEUE.START_AT.lessOrEqual(currentOffsetDateTime()))))
+            return tx.select(value(ENQUEUED_NOW_METRIC), DSL.count(asterisk())).from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.ENQUEUED.name()))
+                    .and(or(PROCESS_QUEUE.START_AT.isNull(), PROCESS_QUEUE.START_AT.lessOrEqual(currentOffsetDateTime())))
                     .union(select(value(ENQUEUED_WAIT_METRIC), DSL.count(asterisk())).from(PROCESS_QUEUE)
                             .where(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.ENQUEUED.name()))
                             .and(or(PROCESS_QUEUE.START_AT.isNull(), PROCESS_QUEUE.START_AT.lessOrEqual(currentOffsetDateTime())))
@@ -740,6 +774,12 @@ public class ProcessQueueDao extends AbstractDao {
             query.addSelect(history.asField("status_history"));
         }
 
+        ProcessFilter.Cursor cursor = filter.cursor();
+        if (cursor != null) {
+            query.addConditions(row(PROCESS_QUEUE.CREATED_AT, PROCESS_QUEUE.INSTANCE_ID)
+                    .lessThan(cursor.createdAt(), cursor.instanceId()));
+        }
+
         Integer limit = filter.limit();
         if (limit != null && limit > 0) {
             query.addLimit(limit);
@@ -20,7 +20,6 @@ package com.walmartlabs.concord.server.process.queue;
  * =====
  */
 
-import com.codahale.metrics.CachedGauge;
 import com.codahale.metrics.DerivativeGauge;
 import com.codahale.metrics.Gauge;
 import com.google.inject.AbstractModule;
@@ -31,22 +30,17 @@ import com.walmartlabs.concord.server.sdk.metrics.GaugeProvider;
 
 import javax.inject.Named;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 @Named
 public class ProcessQueueGaugeModule extends AbstractModule {
 
     @Override
     protected void configure() {
-        Provider<ProcessQueueDao> queueDaoProvider = getProvider(ProcessQueueDao.class);
+        Provider<ProcessQueueStatistics> statisticsProvider = getProvider(ProcessQueueStatistics.class);
 
-        // create the base gauge that caches all individual values
-        Gauge<Map<String, Integer>> base = new CachedGauge<Map<String, Integer>>(15, TimeUnit.SECONDS) {
-            @Override
-            protected Map<String, Integer> loadValue() {
-                return queueDaoProvider.get().getStatistics();
-            }
-        };
+        // the base gauge returns all individual values
+        // the values are refreshed by ProcessQueueStatistics, no need to cache them here
+        Gauge<Map<String, Integer>> base = () -> statisticsProvider.get().getStatistics();
 
         Multibinder<GaugeProvider> gauges = Multibinder.newSetBinder(binder(), GaugeProvider.class);
         gauges.addBinding().toInstance(createBaseProvider(base));
@@ -173,6 +173,24 @@ public class ProcessQueueManager {
         });
     }
 
+    /**
+     * Moves a SUSPENDED process into the RESUMING status and clears its wait conditions.
+     * Makes sure only one of the concurrent callers resumes the process.
+     *
+     * @return {@code true} if the process was SUSPENDED
+     */
+    public boolean claimResume(ProcessKey processKey) {
+        return queueDao.txResult(tx -> {
+            if (!queueDao.updateStatus(tx, processKey, ProcessStatus.SUSPENDED, ProcessStatus.RESUMING)) {
+                return false;
+            }
+
+            eventManager.insertStatusHistory(tx, processKey, ProcessStatus.RESUMING, Collections.emptyMap());
+            updateWait(tx, processKey, null);
+            return true;
+        });
+    }
+
     /**
      * @see #updateAgentId(DSLContext, ProcessKey, String, ProcessStatus)
      */
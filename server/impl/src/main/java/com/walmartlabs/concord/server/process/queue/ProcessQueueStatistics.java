@@ -0,0 +1,163 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import org.jooq.Configuration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_QUEUE_STATS;
+import static com.walmartlabs.concord.server.jooq.Tables.PROJECTS;
+
+/**
+ * Number of processes per project and status.
+ * <p>
+ * The counters are maintained by triggers on {@code PROCESS_QUEUE}: each status
+ * transition adds a row into {@code PROCESS_QUEUE_STATS_DELTAS}. The task
+ * periodically folds the deltas into {@code PROCESS_QUEUE_STATS} and keeps
+ * a snapshot of the result in memory, so reading the statistics never scans
+ * the queue.
+ */
+@Named
+@Singleton
+public class ProcessQueueStatistics extends PeriodicTask {
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Used instead of NULL for processes without projects.
+     */
+    private static final UUID NO_PROJECT_ID = new UUID(0, 0);
+
+    private final ProcessQueueDao queueDao;
+    private final Dao dao;
+
+    private volatile List<StatsEntry> entries = Collections.emptyList();
+    private volatile Map<String, Integer> enqueued = Collections.emptyMap();
+
+    @Inject
+    public ProcessQueueStatistics(ProcessConfiguration cfg, ProcessQueueDao queueDao, Dao dao) {
+        super(cfg.getStatisticsInterval().toMillis(), ERROR_DELAY);
+        this.queueDao = queueDao;
+        this.dao = dao;
+    }
+
+    @Override
+    protected boolean performTask() {
+        dao.fold();
+        entries = dao.list();
+        enqueued = queueDao.getEnqueuedStatistics();
+        return false;
+    }
+
+    /**
+     * @return the number of processes per status in the whole queue plus
+     * {@link ProcessQueueDao#ENQUEUED_NOW_METRIC} and {@link ProcessQueueDao#ENQUEUED_WAIT_METRIC}
+     */
+    public Map<String, Integer> getStatistics() {
+        Map<String, Integer> result = new HashMap<>();
+        for (StatsEntry e : entries) {
+            result.merge(e.status, (int) e.count, Integer::sum);
+        }
+        result.putAll(enqueued);
+        return result;
+    }
+
+    /**
+     * @param orgId     if not {@code null} only processes of the specified organization are counted
+     * @param projectId if not {@code null} only processes of the specified project are counted
+     * @return the number of processes per status
+     */
+    public Map<String, Long> getStatistics(UUID orgId, UUID projectId) {
+        Map<String, Long> result = new HashMap<>();
+        for (StatsEntry e : entries) {
+            if (orgId != null && !orgId.equals(e.orgId)) {
+                continue;
+            }
+
+            if (projectId != null && !projectId.equals(e.projectId)) {
+                continue;
+            }
+
+            result.merge(e.status, e.count, Long::sum);
+        }
+        return result;
+    }
+
+    static final class StatsEntry {
+
+        private final UUID orgId;
+        private final UUID projectId;
+        private final String status;
+        private final long count;
+
+        StatsEntry(UUID orgId, UUID projectId, String status, long count) {
+            this.orgId = orgId;
+            this.projectId = projectId;
+            this.status = status;
+            this.count = count;
+        }
+    }
+
+    @Named
+    static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        /**
+         * Moves the accumulated deltas into the counters table.
+         * The rows are processed in a stable order to avoid deadlocks between server instances.
+         */
+        public void fold() {
+            tx(tx -> {
+                tx.execute("with D as (delete from PROCESS_QUEUE_STATS_DELTAS returning PROJECT_ID, CURRENT_STATUS, DELTA) " +
+                        "insert into PROCESS_QUEUE_STATS (PROJECT_ID, CURRENT_STATUS, PROCESS_COUNT) " +
+                        "select PROJECT_ID, CURRENT_STATUS, sum(DELTA) from D group by PROJECT_ID, CURRENT_STATUS order by PROJECT_ID, CURRENT_STATUS " +
+                        "on conflict (PROJECT_ID, CURRENT_STATUS) do update set PROCESS_COUNT = PROCESS_QUEUE_STATS.PROCESS_COUNT + excluded.PROCESS_COUNT");
+
+                tx.deleteFrom(PROCESS_QUEUE_STATS)
+                        .where(PROCESS_QUEUE_STATS.PROCESS_COUNT.le(0L))
+                        .execute();
+            });
+        }
+
+        public List<StatsEntry> list() {
+            return txResult(tx -> tx.select(PROJECTS.ORG_ID, PROCESS_QUEUE_STATS.PROJECT_ID, PROCESS_QUEUE_STATS.CURRENT_STATUS, PROCESS_QUEUE_STATS.PROCESS_COUNT)
+                    .from(PROCESS_QUEUE_STATS)
+                    .leftJoin(PROJECTS).on(PROJECTS.PROJECT_ID.eq(PROCESS_QUEUE_STATS.PROJECT_ID))
+                    .fetch(r -> new StatsEntry(r.get(PROJECTS.ORG_ID),
+                            NO_PROJECT_ID.equals(r.get(PROCESS_QUEUE_STATS.PROJECT_ID)) ? null : r.get(PROCESS_QUEUE_STATS.PROJECT_ID),
+                            r.get(PROCESS_QUEUE_STATS.CURRENT_STATUS),
+                            r.get(PROCESS_QUEUE_STATS.PROCESS_COUNT))));
+        }
+    }
+}
@@ -39,7 +39,8 @@ import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
-import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.sdk.ShardedScheduledTask;
+import com.walmartlabs.concord.server.sdk.TaskPartition;
 import com.walmartlabs.concord.server.user.UserDao;
 import org.jooq.*;
 import org.slf4j.Logger;
@@ -60,7 +61,7 @@ import static org.jooq.impl.DSL.*;
 
 @Named("process-queue-watchdog")
 @Singleton
-public class ProcessQueueWatchdog implements ScheduledTask {
+public class ProcessQueueWatchdog implements ShardedScheduledTask {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessQueueWatchdog.class);
 
@@ -146,21 +147,32 @@ public class ProcessQueueWatchdog implements ScheduledTask {
     }
 
     @Override
-    public void performTask() {
-        new ProcessHandlersWorker().run();
-        new ProcessStalledWorker().run();
-        new ProcessStartFailuresWorker().run();
-        new ProcessTimedOutWorker().run();
+    public int getPartitionCount() {
+        return cfg.getPartitions();
+    }
+
+    @Override
+    public void performTask(TaskPartition partition) {
+        new ProcessHandlersWorker(partition).run();
+        new ProcessStalledWorker(partition).run();
+        new ProcessStartFailuresWorker(partition).run();
+        new ProcessTimedOutWorker(partition).run();
     }
 
     private final class ProcessHandlersWorker implements Runnable {
 
+        private final TaskPartition partition;
+
+        private ProcessHandlersWorker(TaskPartition partition) {
+            this.partition = partition;
+        }
+
         @Override
         public void run() {
             Field<OffsetDateTime> maxAge = currentOffsetDateTime().minus(interval(cfg.getMaxFailureHandlingAge()));
 
             for (PollEntry e : POLL_ENTRIES) {
-                List<ProcessEntry> parents = watchdogDao.poll(e, maxAge, 1);
+                List<ProcessEntry> parents = watchdogDao.poll(partition, e, maxAge, 1);
 
                 for (ProcessEntry parent : parents) {
                     process(e, parent);
@@ -195,6 +207,13 @@ public class ProcessQueueWatchdog implements ScheduledTask {
     }
 
     private final class ProcessStalledWorker implements Runnable {
+
+        private final TaskPartition partition;
+
+        private ProcessStalledWorker(TaskPartition partition) {
+            this.partition = partition;
+        }
+
         @Override
         public void run() {
             String maxAge = cfg.getMaxStalledAge();
@@ -202,7 +221,7 @@ public class ProcessQueueWatchdog implements ScheduledTask {
             watchdogDao.transaction(tx -> {
                 Field<OffsetDateTime> cutOff = currentOffsetDateTime().minus(interval(maxAge));
 
-                List<ProcessKey> pks = watchdogDao.pollStalled(tx, POTENTIAL_STALLED_STATUSES, cutOff, 1);
+                List<ProcessKey> pks = watchdogDao.pollStalled(tx, partition, POTENTIAL_STALLED_STATUSES, cutOff, 1);
                 for (ProcessKey pk : pks) {
                     queueManager.updateAgentId(tx, pk, null, ProcessStatus.FAILED);
                     logManager.warn(pk, "Process stalled, no heartbeat for more than '{}'", maxAge);
@@ -213,6 +232,13 @@ public class ProcessQueueWatchdog implements ScheduledTask {
     }
 
     private final class ProcessStartFailuresWorker implements Runnable {
+
+        private final TaskPartition partition;
+
+        private ProcessStartFailuresWorker(TaskPartition partition) {
+            this.partition = partition;
+        }
+
         @Override
         public void run() {
             String maxAge = cfg.getMaxStartFailureAge();
@@ -220,7 +246,7 @@ public class ProcessQueueWatchdog implements ScheduledTask {
             watchdogDao.transaction(tx -> {
                 Field<OffsetDateTime> cutOff = currentOffsetDateTime().minus(interval(maxAge));
 
-                List<ProcessKey> pks = watchdogDao.pollStalled(tx, FAILED_TO_START_STATUSES, cutOff, 1);
+                List<ProcessKey> pks = watchdogDao.pollStalled(tx, partition, FAILED_TO_START_STATUSES, cutOff, 1);
                 for (ProcessKey pk : pks) {
                     queueManager.updateAgentId(tx, pk, null, ProcessStatus.FAILED);
                     logManager.warn(pk, "Process failed to start for more than '{}'", maxAge);
@@ -231,10 +257,17 @@ public class ProcessQueueWatchdog implements ScheduledTask {
     }
 
     private final class ProcessTimedOutWorker implements Runnable {
+
+        private final TaskPartition partition;
+
+        private ProcessTimedOutWorker(TaskPartition partition) {
+            this.partition = partition;
+        }
+
         @Override
         public void run() {
             watchdogDao.transaction(tx -> {
-                List<TimedOutEntry> items = watchdogDao.pollExpired(tx, 1);
+                List<TimedOutEntry> items = watchdogDao.pollExpired(tx, partition, 1);
                 for (TimedOutEntry i : items) {
                     queueManager.updateAgentId(tx, i.processKey, null, ProcessStatus.TIMED_OUT);
 
@@ -279,7 +312,7 @@ public class ProcessQueueWatchdog implements ScheduledTask {
             tx(t);
         }
 
-        public List<ProcessEntry> poll(PollEntry entry, Field<OffsetDateTime> maxAge, int maxEntries) {
+        public List<ProcessEntry> poll(TaskPartition partition, PollEntry entry, Field<OffsetDateTime> maxAge, int maxEntries) {
             ProcessQueue q = PROCESS_QUEUE.as("q");
 
             return txResult(tx -> tx.select(q.INSTANCE_ID, q.CREATED_AT, q.PROJECT_ID, q.INITIATOR_ID, q.IMPORTS)
@@ -290,24 +323,26 @@ public class ProcessQueueWatchdog implements ScheduledTask {
                             .and(PgUtils.contains(q.HANDLERS, new String[]{entry.flow}))
                             .and(noSuccessfulHandlers(q.INSTANCE_ID, entry.handlerKind))
                             .and(count(tx, q.INSTANCE_ID, entry.handlerKind).lessThan(entry.maxTries))
-                            .and(noRunningHandlers(q.INSTANCE_ID)))
+                            .and(noRunningHandlers(q.INSTANCE_ID))
+                            .and(inPartition(q.INSTANCE_ID, partition)))
                     .limit(maxEntries)
                     .fetch(this::toEntry));
         }
 
-        public List<ProcessKey> pollStalled(DSLContext tx, ProcessStatus[] statuses, Field<OffsetDateTime> cutOff, int maxEntries) {
+        public List<ProcessKey> pollStalled(DSLContext tx, TaskPartition partition, ProcessStatus[] statuses, Field<OffsetDateTime> cutOff, int maxEntries) {
             ProcessQueue q = PROCESS_QUEUE.as("q");
             return tx.select(q.INSTANCE_ID, q.CREATED_AT)
                     .from(q)
                     .where(q.CURRENT_STATUS.in(Utils.toString(statuses))
-                            .and(q.LAST_UPDATED_AT.lessThan(cutOff)))
+                            .and(q.LAST_UPDATED_AT.lessThan(cutOff))
+                            .and(inPartition(q.INSTANCE_ID, partition)))
                     .limit(maxEntries)
                     .forUpdate()
                     .skipLocked()
                     .fetch(r -> new ProcessKey(r.value1(), r.value2()));
         }
 
-        public List<TimedOutEntry> pollExpired(DSLContext tx, int maxEntries) {
+        public List<TimedOutEntry> pollExpired(DSLContext tx, TaskPartition partition, int maxEntries) {
             ProcessQueue q = PROCESS_QUEUE.as("q");
 
             @SuppressWarnings("unchecked")
@@ -316,13 +351,18 @@ public class ProcessQueueWatchdog implements ScheduledTask {
             return tx.select(q.INSTANCE_ID, q.CREATED_AT, q.LAST_AGENT_ID, q.TIMEOUT)
                     .from(q)
                     .where(q.CURRENT_STATUS.eq(ProcessStatus.RUNNING.toString())
-                            .and(q.LAST_RUN_AT.plus(q.TIMEOUT.mul(i)).lessOrEqual(currentOffsetDateTime())))
+                            .and(q.LAST_RUN_AT.plus(q.TIMEOUT.mul(i)).lessOrEqual(currentOffsetDateTime()))
+                            .and(inPartition(q.INSTANCE_ID, partition)))
                     .limit(maxEntries)
                     .forUpdate()
                     .skipLocked()
                     .fetch(WatchdogDao::toExpiredEntry);
         }
 
+        private static Condition inPartition(Field<UUID> instanceId, TaskPartition partition) {
+            return PgUtils.uuidPartition(instanceId, partition.index(), partition.count());
+        }
+
         private Field<Number> count(DSLContext tx, Field<UUID> parentInstanceId, ProcessKind kind) {
             return tx.selectCount()
                     .from(PROCESS_QUEUE)
@@ -0,0 +1,182 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Notifies callers when processes reach one of the expected statuses, without
+ * holding a thread per caller.
+ * <p/>
+ * The statuses of all awaited processes are polled at once, so status changes
+ * are picked up only after they are committed, regardless of the server
+ * that made them.
+ */
+@Named
+@Singleton
+public class ProcessStatusWaiter implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessStatusWaiter.class);
+
+    private static final long POLL_INTERVAL = 500;
+    private static final int WORKER_THREADS = 4;
+
+    private final ProcessQueueDao queueDao;
+    private final long pollInterval;
+    private final Map<UUID, List<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+
+    @Inject
+    public ProcessStatusWaiter(ProcessQueueDao queueDao) {
+        this(queueDao, POLL_INTERVAL);
+    }
+
+    ProcessStatusWaiter(ProcessQueueDao queueDao, long pollInterval) {
+        this.queueDao = queueDao;
+        this.pollInterval = pollInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("process-status-waiter"));
+        this.workers = Executors.newFixedThreadPool(WORKER_THREADS, daemonThreadFactory("process-status-waiter-worker"));
+    }
+
+    @Override
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+
+        // the executors are gone, complete the remaining waiters directly
+        waiters.values().forEach(l -> l.forEach(w -> w.future.completeExceptionally(new CancellationException("The server is shutting down"))));
+        waiters.clear();
+    }
+
+    /**
+     * Returns a future which is completed when the process reaches one of the
+     * specified statuses or completed exceptionally with {@link TimeoutException}
+     * after the specified timeout. Dependent actions are executed in
+     * a separate thread pool.
+     */
+    public CompletableFuture<ProcessStatus> waitFor(ProcessKey processKey, Set<ProcessStatus> statuses, Duration timeout) {
+        UUID instanceId = processKey.getInstanceId();
+
+        Waiter w = new Waiter(statuses);
+        waiters.compute(instanceId, (k, l) -> {
+            List<Waiter> result = l != null ? l : new CopyOnWriteArrayList<>();
+            result.add(w);
+            return result;
+        });
+
+        ScheduledFuture<?> t = scheduler.schedule(() -> w.completeExceptionally(new TimeoutException("Timeout waiting for " + processKey + " to reach " + statuses)),
+                timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        w.future.whenComplete((s, e) -> {
+            t.cancel(false);
+            remove(instanceId, w);
+        });
+
+        // the process might already be in one of the expected statuses
+        scheduler.execute(() -> check(Collections.singleton(instanceId)));
+
+        return w.future;
+    }
+
+    private void poll() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+
+        check(new HashSet<>(waiters.keySet()));
+    }
+
+    private void check(Set<UUID> instanceIds) {
+        Map<UUID, ProcessStatus> statuses;
+        try {
+            statuses = queueDao.getStatuses(instanceIds);
+        } catch (Exception e) {
+            log.warn("check -> error while fetching process statuses (will retry): {}", e.getMessage());
+            return;
+        }
+
+        for (UUID instanceId : instanceIds) {
+            List<Waiter> l = waiters.get(instanceId);
+            if (l == null) {
+                continue;
+            }
+
+            ProcessStatus s = statuses.get(instanceId);
+            for (Waiter w : l) {
+                if (s == null) {
+                    w.completeExceptionally(new IllegalStateException("Process not found: " + instanceId));
+                } else if (w.statuses.contains(s)) {
+                    w.complete(s);
+                }
+            }
+        }
+    }
+
+    private void remove(UUID instanceId, Waiter w) {
+        waiters.computeIfPresent(instanceId, (k, l) -> {
+            l.remove(w);
+            return l.isEmpty() ? null : l;
+        });
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private final class Waiter {
+
+        private final Set<ProcessStatus> statuses;
+        private final CompletableFuture<ProcessStatus> future = new CompletableFuture<>();
+
+        private Waiter(Set<ProcessStatus> statuses) {
+            this.statuses = statuses;
+        }
+
+        private void complete(ProcessStatus s) {
+            workers.execute(() -> future.complete(s));
+        }
+
+        private void completeExceptionally(Throwable t) {
+            workers.execute(() -> future.completeExceptionally(t));
+        }
+    }
+}
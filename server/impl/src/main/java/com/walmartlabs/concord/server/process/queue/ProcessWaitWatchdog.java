@@ -22,12 +22,14 @@ package com.walmartlabs.concord.server.process.queue;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.PgUtils;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.cfg.ProcessWaitWatchdogConfiguration;
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
-import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.sdk.ShardedScheduledTask;
+import com.walmartlabs.concord.server.sdk.TaskPartition;
 import org.immutables.value.Value;
 import org.jooq.Configuration;
 import org.jooq.JSONB;
@@ -50,7 +52,7 @@ import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QU
  */
 @Named("process-wait-watchdog")
 @Singleton
-public class ProcessWaitWatchdog implements ScheduledTask {
+public class ProcessWaitWatchdog implements ShardedScheduledTask {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessWaitWatchdog.class);
 
@@ -86,10 +88,15 @@ public class ProcessWaitWatchdog implements ScheduledTask {
     }
 
     @Override
-    public void performTask() {
+    public int getPartitionCount() {
+        return cfg.getPartitions();
+    }
+
+    @Override
+    public void performTask(TaskPartition partition) {
         Long lastId = null;
         while (true) {
-            List<WaitingProcess> processes = dao.nextWaitItems(lastId, cfg.getPollLimit());
+            List<WaitingProcess> processes = dao.nextWaitItems(partition, lastId, cfg.getPollLimit());
             if (processes.isEmpty()) {
                 return;
             }
@@ -158,7 +165,7 @@ public class ProcessWaitWatchdog implements ScheduledTask {
             this.objectMapper = objectMapper;
         }
 
-        public List<WaitingProcess> nextWaitItems(Long lastId, int pollLimit) {
+        public List<WaitingProcess> nextWaitItems(TaskPartition partition, Long lastId, int pollLimit) {
             return txResult(tx -> {
                 ProcessQueue q = PROCESS_QUEUE.as("q");
                 SelectConditionStep<Record5<UUID, String, OffsetDateTime, Long, JSONB>> s = tx.select(
@@ -168,7 +175,8 @@ public class ProcessWaitWatchdog implements ScheduledTask {
                         q.ID_SEQ,
                         q.WAIT_CONDITIONS)
                         .from(q)
-                        .where(q.WAIT_CONDITIONS.isNotNull());
+                        .where(q.WAIT_CONDITIONS.isNotNull()
+                                .and(PgUtils.uuidPartition(q.INSTANCE_ID, partition.index(), partition.count())));
 
                 if (lastId != null) {
                     s.and(q.ID_SEQ.greaterThan(lastId));
@@ -20,19 +20,13 @@ package com.walmartlabs.concord.server.process.queue;
  * =====
  */
 
-import com.walmartlabs.concord.server.process.Payload;
-import com.walmartlabs.concord.server.process.PayloadManager;
-import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.locks.LockEntry;
-import com.walmartlabs.concord.server.process.locks.ProcessLocksDao;
-import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
-import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.process.locks.ProcessLockManager;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.io.IOException;
 import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
@@ -40,6 +34,10 @@ import java.util.UUID;
 /**
  * Handles the processes that are waiting for locks. Resumes a suspended process
  * if the lock was acquired successfully.
+ * <p/>
+ * Normally the lock is handed off to the next waiting process when the lock is released
+ * and the process is resumed right away. This handler takes care of the processes that
+ * weren't suspended yet at that moment.
  */
 @Named
 @Singleton
@@ -47,15 +45,13 @@ public class WaitProcessLockHandler implements ProcessWaitHandler<ProcessLockCon
 
     private static final Set<ProcessStatus> STATUSES = Collections.singleton(ProcessStatus.SUSPENDED);
 
-    private final ProcessLocksDao locksDao;
-    private final ProcessManager processManager;
-    private final PayloadManager payloadManager;
+    private final ProcessLockManager lockManager;
+    private final ProcessKeyCache processKeyCache;
 
     @Inject
-    public WaitProcessLockHandler(ProcessLocksDao locksDao, ProcessManager processManager, PayloadManager payloadManager) {
-        this.locksDao = locksDao;
-        this.processManager = processManager;
-        this.payloadManager = payloadManager;
+    public WaitProcessLockHandler(ProcessLockManager lockManager, ProcessKeyCache processKeyCache) {
+        this.lockManager = lockManager;
+        this.processKeyCache = processKeyCache;
     }
 
     @Override
@@ -70,23 +66,12 @@ public class WaitProcessLockHandler implements ProcessWaitHandler<ProcessLockCon
 
     @Override
     public ProcessLockCondition process(UUID instanceId, ProcessStatus status, ProcessLockCondition wait) {
-        LockEntry lock = locksDao.tryLock(instanceId, wait.orgId(), wait.projectId(), wait.scope(), wait.name());
+        LockEntry lock = lockManager.tryLock(instanceId, wait.orgId(), wait.projectId(), wait.scope(), wait.name());
         if (lock.instanceId().equals(instanceId)) {
-            resumeProcess(instanceId, wait.name());
+            lockManager.resume(processKeyCache.assertKey(instanceId), wait.name());
             return null;
         }
 
         return ProcessLockCondition.from(lock);
     }
-
-    private void resumeProcess(UUID instanceId, String eventName) {
-        Payload payload;
-        try {
-            payload = payloadManager.createResumePayload(PartialProcessKey.from(instanceId), eventName, null);
-        } catch (IOException e) {
-            throw new ConcordApplicationException("Error creating a payload", e);
-        }
-
-        processManager.resume(payload);
-    }
 }
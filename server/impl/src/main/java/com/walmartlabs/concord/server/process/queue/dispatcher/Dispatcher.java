@@ -37,7 +37,8 @@ import com.walmartlabs.concord.server.process.SessionTokenCreator;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
-import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.ProcessBatchResponse;
 import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
 import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
@@ -127,14 +128,16 @@ public class Dispatcher extends PeriodicTask {
     protected boolean performTask() {
         // TODO the WebSocketChannelManager business can be replaced with an async jax-rs endpoint and an "inbox" queue
 
-        // grab the requests w/o responses
-        Map<WebSocketChannel, ProcessRequest> requests = this.channelManager.getRequests(MessageType.PROCESS_REQUEST);
+        // grab the requests w/o responses, grouped by the agent's capabilities
+        Map<Map<String, Object>, Map<WebSocketChannel, ProcessRequest>> requests = this.channelManager.getProcessRequestsByCapabilities();
         if (requests.isEmpty()) {
             return false;
         }
 
-        List<Request> l = requests.entrySet().stream()
-                .map(e -> new Request(e.getKey(), e.getValue()))
+        List<RequestGroup> l = requests.entrySet().stream()
+                .map(e -> new RequestGroup(e.getKey(), e.getValue().entrySet().stream()
+                        .map(r -> new Request(r.getKey(), r.getValue()))
+                        .collect(Collectors.toList())))
                 .collect(Collectors.toList());
 
         // prepare all responses in a single transaction
@@ -155,17 +158,23 @@ public class Dispatcher extends PeriodicTask {
             return false;
         }
 
+        // group the matches by request, agents that asked for multiple processes
+        // receive all of them in a single response
+        Map<Request, List<ProcessQueueEntry>> responses = matches.stream()
+                .collect(Collectors.groupingBy(m -> m.request, LinkedHashMap::new,
+                        Collectors.mapping(m -> m.response, Collectors.toList())));
+
         // send all responses in parallel
-        withTimer(responseTimer, () -> matches.stream()
+        withTimer(responseTimer, () -> responses.entrySet().stream()
                 .parallel()
-                .forEach(this::sendResponse));
+                .forEach(e -> sendResponse(e.getKey(), e.getValue())));
 
         return true;
     }
 
-    private List<Match> match(DSLContext tx, List<Request> requests) {
+    private List<Match> match(DSLContext tx, List<RequestGroup> requests) {
         // we need it modifiable
-        List<Request> inbox = new ArrayList<>(requests);
+        List<RequestGroup> inbox = new ArrayList<>(requests);
 
         int offset = 0;
         List<Match> matches = new ArrayList<>();
@@ -178,9 +187,9 @@ public class Dispatcher extends PeriodicTask {
 
             // filter out the candidates that shouldn't be dispatched at the moment (e.g. due to concurrency limits)
             for (ProcessQueueEntry e : candidates) {
-                // find request/agent who can handle process
-                Request req = findRequest(e, inbox);
-                if (req == null) {
+                // find agents who can handle process
+                RequestGroup group = findGroup(e, inbox);
+                if (group == null) {
                     continue;
                 }
 
@@ -189,8 +198,19 @@ public class Dispatcher extends PeriodicTask {
                 List<ProcessQueueEntry> startingProcesses = matches.stream().map(m -> m.response).collect(Collectors.toList());
 
                 if (pass(tx, e, startingProcesses)) {
+                    Request req = group.requests.pollFirst();
                     matches.add(new Match(req, e));
-                    inbox.remove(req);
+
+                    // agents can ask for multiple processes at once
+                    // to keep it fair, the agent (and its group) goes to the end of the line after each match
+                    if (++req.matched < req.request.getMaxProcesses()) {
+                        group.requests.addLast(req);
+                    }
+
+                    inbox.remove(group);
+                    if (!group.requests.isEmpty()) {
+                        inbox.add(group);
+                    }
 
                     if (inbox.isEmpty()) {
                         break;
@@ -215,12 +235,11 @@ public class Dispatcher extends PeriodicTask {
         return matches;
     }
 
-    private static Request findRequest(ProcessQueueEntry candidate, List<Request> requests) {
-        for (Request req : requests) {
-            Map<String, Object> capabilities = req.request.getCapabilities();
-            Map<String, Object> m = getAgentRequirements(candidate);
-            if (MapMatcher.matches(capabilities, m)) {
-                return req;
+    private static RequestGroup findGroup(ProcessQueueEntry candidate, List<RequestGroup> groups) {
+        Map<String, Object> m = getAgentRequirements(candidate);
+        for (RequestGroup g : groups) {
+            if (MapMatcher.matches(g.capabilities, m)) {
+                return g;
             }
         }
 
@@ -252,39 +271,55 @@ public class Dispatcher extends PeriodicTask {
         return true;
     }
 
-    private void sendResponse(Match match) {
-        WebSocketChannel channel = match.request.channel;
-        long correlationId = match.request.request.getCorrelationId();
-        ProcessQueueEntry item = match.response;
+    private void sendResponse(Request request, List<ProcessQueueEntry> items) {
+        WebSocketChannel channel = request.channel;
+        long correlationId = request.request.getCorrelationId();
 
         try {
-            SecretReference secret = null;
-            if (item.repoId() != null) {
-                secret = dao.getSecretReference(item.repoId());
+            List<ProcessResponse> l = new ArrayList<>(items.size());
+            for (ProcessQueueEntry item : items) {
+                l.add(toResponse(correlationId, item));
             }
 
-            // backward compatibility with old process queue entries that are not normalized
-            Imports imports = importsNormalizerFactory.forProject(item.projectId())
-                    .normalize(item.imports());
-
-            ProcessResponse resp = new ProcessResponse(correlationId,
-                    sessionTokenCreator.create(item.key()),
-                    item.key().getInstanceId(),
-                    secret != null ? secret.orgName : null,
-                    item.repoUrl(),
-                    item.repoPath(),
-                    item.commitId(),
-                    secret != null ? secret.secretName : null,
-                    imports);
+            Message resp;
+            if (request.request.getMaxProcesses() > 1) {
+                resp = new ProcessBatchResponse(correlationId, l);
+            } else {
+                resp = l.get(0);
+            }
 
             if (!channelManager.sendResponse(channel.getChannelId(), resp)) {
                 log.warn("sendResponse ['{}'] -> failed", correlationId);
             }
 
-            logManager.info(item.key(), "Acquired by: " + channel.getUserAgent());
+            for (ProcessQueueEntry item : items) {
+                logManager.info(item.key(), "Acquired by: " + channel.getUserAgent());
+            }
         } catch (Exception e) {
-            log.error("sendResponse ['{}'] -> failed (instanceId: {})", correlationId, item.key().getInstanceId());
+            log.error("sendResponse ['{}'] -> failed (instanceIds: {})", correlationId,
+                    items.stream().map(i -> i.key().getInstanceId()).collect(Collectors.toList()));
+        }
+    }
+
+    private ProcessResponse toResponse(long correlationId, ProcessQueueEntry item) {
+        SecretReference secret = null;
+        if (item.repoId() != null) {
+            secret = dao.getSecretReference(item.repoId());
         }
+
+        // backward compatibility with old process queue entries that are not normalized
+        Imports imports = importsNormalizerFactory.forProject(item.projectId())
+                .normalize(item.imports());
+
+        return new ProcessResponse(correlationId,
+                sessionTokenCreator.create(item.key()),
+                item.key().getInstanceId(),
+                secret != null ? secret.orgName : null,
+                item.repoUrl(),
+                item.repoPath(),
+                item.commitId(),
+                secret != null ? secret.secretName : null,
+                imports);
     }
 
     @Named
@@ -377,12 +412,31 @@ public class Dispatcher extends PeriodicTask {
         private final WebSocketChannel channel;
         private final ProcessRequest request;
 
+        /**
+         * Number of processes matched to this request in the current cycle.
+         */
+        private int matched = 0;
+
         private Request(WebSocketChannel channel, ProcessRequest request) {
             this.channel = channel;
             this.request = request;
         }
     }
 
+    /**
+     * Requests of agents with the same capabilities.
+     */
+    private static final class RequestGroup {
+
+        private final Map<String, Object> capabilities;
+        private final Deque<Request> requests;
+
+        private RequestGroup(Map<String, Object> capabilities, List<Request> requests) {
+            this.capabilities = capabilities;
+            this.requests = new ArrayDeque<>(requests);
+        }
+    }
+
     private static final class Match {
 
         private final Request request;
@@ -22,6 +22,8 @@ package com.walmartlabs.concord.server.process.state;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.db.ReplicaDB;
+import com.walmartlabs.concord.db.ReplicaRouter;
 import com.walmartlabs.concord.server.process.ImmutableProcessCheckpointEntry;
 import com.walmartlabs.concord.server.process.ProcessEntry.ProcessCheckpointEntry;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
@@ -47,12 +49,15 @@ import static com.walmartlabs.concord.server.jooq.tables.ProcessCheckpoints.PROC
 public class ProcessCheckpointDao extends AbstractDao {
 
     @Inject
-    public ProcessCheckpointDao(@MainDB Configuration cfg) {
-        super(cfg);
+    public ProcessCheckpointDao(@MainDB Configuration cfg, @ReplicaDB ReplicaRouter replicaRouter) {
+        super(cfg, replicaRouter);
     }
 
+    /**
+     * Replica-safe: the result may lag behind the primary by up to {@code db.replica.maxLag}.
+     */
     public List<ProcessCheckpointEntry> list(ProcessKey processKey) {
-        return txResult(tx -> tx.select()
+        return replicaTxResult(tx -> tx.select()
                 .from(PROCESS_CHECKPOINTS)
                 .where(PROCESS_CHECKPOINTS.INSTANCE_ID.eq(processKey.getInstanceId())
                         .and(PROCESS_CHECKPOINTS.INSTANCE_CREATED_AT.eq(processKey.getCreatedAt())))
@@ -22,6 +22,7 @@ package com.walmartlabs.concord.server.repository.listeners;
 
 import com.walmartlabs.concord.process.loader.ProjectLoader;
 import com.walmartlabs.concord.process.loader.model.ProcessDefinition;
+import com.walmartlabs.concord.server.events.github.GithubTriggerIndex;
 import com.walmartlabs.concord.server.org.project.ProjectValidator;
 import com.walmartlabs.concord.server.org.project.RepositoryEntry;
 import com.walmartlabs.concord.server.org.triggers.TriggerManager;
@@ -43,15 +44,18 @@ public class TriggerRefreshListener implements RepositoryRefreshListener {
     private final TriggerManager triggerManager;
     private final ProjectLoader projectLoader;
     private final ImportsNormalizerFactory importsNormalizer;
+    private final GithubTriggerIndex githubTriggerIndex;
 
     @Inject
     public TriggerRefreshListener(TriggerManager triggerManager,
                                   ProjectLoader projectLoader,
-                                  ImportsNormalizerFactory importsNormalizer) {
+                                  ImportsNormalizerFactory importsNormalizer,
+                                  GithubTriggerIndex githubTriggerIndex) {
 
         this.triggerManager = triggerManager;
         this.projectLoader = projectLoader;
         this.importsNormalizer = importsNormalizer;
+        this.githubTriggerIndex = githubTriggerIndex;
     }
 
     @Override
@@ -67,5 +71,6 @@ public class TriggerRefreshListener implements RepositoryRefreshListener {
         }
 
         triggerManager.refresh(repo.getProjectId(), repo.getId(), pd);
+        githubTriggerIndex.invalidate();
     }
 }
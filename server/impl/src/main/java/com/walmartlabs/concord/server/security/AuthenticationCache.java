@@ -0,0 +1,401 @@
+package com.walmartlabs.concord.server.security;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.AuthCacheConfiguration;
+import com.walmartlabs.concord.server.security.apikey.ApiKeyEntry;
+import com.walmartlabs.concord.server.user.UserEntry;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.jooq.Configuration;
+import org.jooq.Record1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.jooq.Tables.AUTH_CACHE_INVALIDATIONS;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Caches the results of API key and session key lookups.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the credential, so the cache never
+ * holds plain text keys. Entries are removed when the API key is deleted, when
+ * the user is changed or disabled and when the process is finished. The changes
+ * are recorded by DB triggers in {@code AUTH_CACHE_INVALIDATIONS}, which
+ * allows other server instances to drop their entries too.
+ * <p>
+ * The feed is read using the last seen {@code SEQ} value. Gaps in the sequence
+ * (e.g. transactions that are not yet committed) are re-checked until
+ * the cached entries they might affect are expired.
+ */
+@Named
+@Singleton
+public class AuthenticationCache extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationCache.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(10);
+    private static final long CLEANUP_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    private static final int POLL_LIMIT = 1000;
+    private static final int MAX_TRACKED_GAPS = 10000;
+
+    private static final String API_KEY = "API_KEY";
+    private static final String USER = "USER";
+    private static final String PROCESS = "PROCESS";
+
+    private final boolean enabled;
+    private final long ttl;
+    private final long gapTimeout;
+    private final String retention;
+    private final Dao dao;
+    private final Cache<String, Entry> cache;
+
+    // cache keys by entity ID
+    private final Map<UUID, Set<String>> byUser = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> byApiKey = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> byProcess = new ConcurrentHashMap<>();
+
+    /**
+     * Max SEQ of the applied feed entries.
+     */
+    private long lastSeq = -1;
+
+    /**
+     * Missing SEQ values and the time they were detected at.
+     */
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    private long lastCleanup = 0;
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Counter invalidations;
+
+    @Inject
+    public AuthenticationCache(AuthCacheConfiguration cfg, Dao dao, MetricRegistry metricRegistry) {
+        super(cfg.isEnabled() ? cfg.getPollInterval().toMillis() : 0, ERROR_DELAY);
+
+        this.enabled = cfg.isEnabled() && cfg.getTtl().toMillis() > 0;
+        this.ttl = cfg.getTtl().toMillis();
+        // after that any entry cached before the gap was detected is expired
+        this.gapTimeout = cfg.getTtl().toMillis() + cfg.getPollInterval().toMillis();
+        this.retention = cfg.getInvalidationRetention().getSeconds() + " seconds";
+        this.dao = dao;
+
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cfg.getMaxSize())
+                .expireAfterWrite(cfg.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+
+        this.hits = metricRegistry.meter("auth-cache-hits");
+        this.misses = metricRegistry.meter("auth-cache-misses");
+        this.invalidations = metricRegistry.counter("auth-cache-invalidations");
+        metricRegistry.gauge("auth-cache-size", () -> cache::size);
+    }
+
+    public ApiKeyEntry getApiKey(String key) {
+        return get("apikey:" + hash(key), ApiKeyEntry.class);
+    }
+
+    public void putApiKey(String key, ApiKeyEntry e) {
+        put("apikey:" + hash(key), new Entry(e, e.getUserId(), e.getId(), null, e.getExpiredAt()));
+    }
+
+    public UserEntry getApiKeyUser(String key) {
+        return get("apikey-user:" + hash(key), UserEntry.class);
+    }
+
+    public void putApiKeyUser(String key, UUID apiKeyId, UserEntry u) {
+        put("apikey-user:" + hash(key), new Entry(u, u.getId(), apiKeyId, null, null));
+    }
+
+    public PrincipalCollection getSessionPrincipals(UUID instanceId) {
+        return get("session:" + hash(instanceId.toString()), PrincipalCollection.class);
+    }
+
+    public void putSessionPrincipals(UUID instanceId, UUID userId, PrincipalCollection principals) {
+        put("session:" + hash(instanceId.toString()), new Entry(principals, userId, null, instanceId, null));
+    }
+
+    public void invalidateApiKey(UUID apiKeyId) {
+        invalidate(byApiKey, apiKeyId);
+    }
+
+    public void invalidateUser(UUID userId) {
+        invalidate(byUser, userId);
+    }
+
+    public void invalidateProcess(UUID instanceId) {
+        invalidate(byProcess, instanceId);
+    }
+
+    @Override
+    protected boolean performTask() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup >= CLEANUP_INTERVAL) {
+            int deleted = dao.deleteOlderThan(retention);
+            if (deleted > 0) {
+                log.info("performTask -> removed {} old invalidation(s)", deleted);
+            }
+            lastCleanup = now;
+        }
+
+        if (lastSeq < 0) {
+            // nothing is cached yet, start from the current position
+            lastSeq = dao.getMaxSeq();
+            return false;
+        }
+
+        gaps.values().removeIf(detectedAt -> now - detectedAt > gapTimeout);
+
+        List<Invalidation> items = dao.poll(lastSeq, gaps.keySet(), POLL_LIMIT);
+        for (Invalidation i : items) {
+            if (i.seq > lastSeq) {
+                trackGaps(lastSeq, i.seq, now);
+                lastSeq = i.seq;
+            } else {
+                gaps.remove(i.seq);
+            }
+
+            apply(i);
+        }
+
+        return items.size() >= POLL_LIMIT;
+    }
+
+    private void trackGaps(long from, long to, long now) {
+        for (long seq = from + 1; seq < to; seq++) {
+            if (gaps.size() >= MAX_TRACKED_GAPS) {
+                log.warn("trackGaps -> too many gaps in the invalidation feed, some invalidations might be delayed up to {}ms", ttl);
+                return;
+            }
+            gaps.put(seq, now);
+        }
+    }
+
+    private void apply(Invalidation i) {
+        switch (i.entityType) {
+            case API_KEY: {
+                invalidateApiKey(i.entityId);
+                break;
+            }
+            case USER: {
+                invalidateUser(i.entityId);
+                break;
+            }
+            case PROCESS: {
+                invalidateProcess(i.entityId);
+                break;
+            }
+            default: {
+                log.warn("apply -> unknown entity type: {}", i.entityType);
+            }
+        }
+    }
+
+    private <T> T get(String key, Class<T> type) {
+        if (!enabled) {
+            return null;
+        }
+
+        Entry e = cache.getIfPresent(key);
+        if (e == null || e.notAfter < System.currentTimeMillis()) {
+            misses.mark();
+            return null;
+        }
+
+        hits.mark();
+        return type.cast(e.value);
+    }
+
+    private void put(String key, Entry e) {
+        if (!enabled) {
+            return;
+        }
+
+        // index first, so a concurrent invalidation can't miss the entry
+        index(byUser, e.userId, key);
+        index(byApiKey, e.apiKeyId, key);
+        index(byProcess, e.instanceId, key);
+
+        cache.put(key, e);
+    }
+
+    private void invalidate(Map<UUID, Set<String>> index, UUID id) {
+        if (!enabled) {
+            return;
+        }
+
+        Set<String> keys = index.remove(id);
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+
+        cache.invalidateAll(keys);
+        invalidations.inc();
+    }
+
+    private void onRemoval(RemovalNotification<String, Entry> n) {
+        Entry e = n.getValue();
+        if (e == null) {
+            return;
+        }
+
+        // the key might be already re-used by a newer entry
+        String key = n.getKey();
+        Entry current = cache.asMap().get(key);
+        if (current == null || !Objects.equals(current.userId, e.userId)) {
+            unindex(byUser, e.userId, key);
+        }
+        if (current == null || !Objects.equals(current.apiKeyId, e.apiKeyId)) {
+            unindex(byApiKey, e.apiKeyId, key);
+        }
+        if (current == null || !Objects.equals(current.instanceId, e.instanceId)) {
+            unindex(byProcess, e.instanceId, key);
+        }
+    }
+
+    private static void index(Map<UUID, Set<String>> index, UUID id, String key) {
+        if (id == null) {
+            return;
+        }
+
+        index.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private static void unindex(Map<UUID, Set<String>> index, UUID id, String key) {
+        if (id == null) {
+            return;
+        }
+
+        index.computeIfPresent(id, (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static String hash(String s) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        byte[] ab = md.digest(s.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().withoutPadding().encodeToString(ab);
+    }
+
+    private final class Entry {
+
+        private final Object value;
+        private final UUID userId;
+        private final UUID apiKeyId;
+        private final UUID instanceId;
+        private final long notAfter;
+
+        private Entry(Object value, UUID userId, UUID apiKeyId, UUID instanceId, OffsetDateTime expiredAt) {
+            this.value = value;
+            this.userId = userId;
+            this.apiKeyId = apiKeyId;
+            this.instanceId = instanceId;
+
+            long t = System.currentTimeMillis() + ttl;
+            if (expiredAt != null) {
+                t = Math.min(t, expiredAt.toInstant().toEpochMilli());
+            }
+            this.notAfter = t;
+        }
+    }
+
+    static final class Invalidation {
+
+        private final long seq;
+        private final String entityType;
+        private final UUID entityId;
+
+        Invalidation(long seq, String entityType, UUID entityId) {
+            this.seq = seq;
+            this.entityType = entityType;
+            this.entityId = entityId;
+        }
+    }
+
+    @Named
+    static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        public long getMaxSeq() {
+            Long seq = txResult(tx -> tx.select(max(AUTH_CACHE_INVALIDATIONS.SEQ))
+                    .from(AUTH_CACHE_INVALIDATIONS)
+                    .fetchOne(Record1::value1));
+
+            return seq != null ? seq : 0;
+        }
+
+        /**
+         * Returns the feed entries after {@code afterSeq} and the entries
+         * with the specified {@code SEQ} values (gaps), ordered by {@code SEQ}.
+         */
+        public List<Invalidation> poll(long afterSeq, Collection<Long> gaps, int limit) {
+            return txResult(tx -> tx.select(AUTH_CACHE_INVALIDATIONS.SEQ,
+                    AUTH_CACHE_INVALIDATIONS.ENTITY_TYPE,
+                    AUTH_CACHE_INVALIDATIONS.ENTITY_ID)
+                    .from(AUTH_CACHE_INVALIDATIONS)
+                    .where(AUTH_CACHE_INVALIDATIONS.SEQ.greaterThan(afterSeq)
+                            .or(gaps.isEmpty() ? falseCondition() : AUTH_CACHE_INVALIDATIONS.SEQ.in(gaps)))
+                    .orderBy(AUTH_CACHE_INVALIDATIONS.SEQ)
+                    .limit(limit)
+                    .fetch(r -> new Invalidation(r.value1(), r.value2(), r.value3())));
+        }
+
+        public int deleteOlderThan(String retention) {
+            return txResult(tx -> tx.deleteFrom(AUTH_CACHE_INVALIDATIONS)
+                    .where(AUTH_CACHE_INVALIDATIONS.CREATED_AT.lessThan(currentOffsetDateTime().minus(interval(retention))))
+                    .execute());
+        }
+    }
+}
@@ -42,10 +42,11 @@ import java.util.UUID;
 @Named
 public class GithubRealm extends AuthorizingRealm {
 
+    public static final UUID USER_ID = UUID.fromString("acc17a02-b471-46af-9914-48cba3dd31ab"); // as in v0.47.0.xml
+
     private static final Logger log = LoggerFactory.getLogger(GithubRealm.class);
 
     private static final String REALM_NAME = "github";
-    private static final UUID USER_ID = UUID.fromString("acc17a02-b471-46af-9914-48cba3dd31ab"); // as in v0.47.0.xml
 
     private final UserManager userManager;
 
@@ -20,11 +20,17 @@ package com.walmartlabs.concord.server.task;
  * =====
  */
 
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.DerivativeGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.db.PgUtils;
 import com.walmartlabs.concord.server.PeriodicTask;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.sdk.ShardedScheduledTask;
+import com.walmartlabs.concord.server.sdk.TaskPartition;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -42,9 +48,18 @@ import java.util.concurrent.TimeUnit;
 
 import static com.walmartlabs.concord.db.PgUtils.interval;
 import static com.walmartlabs.concord.server.jooq.Tables.TASKS;
-import static org.jooq.impl.DSL.currentOffsetDateTime;
-import static org.jooq.impl.DSL.value;
-
+import static com.walmartlabs.concord.server.jooq.Tables.TASK_SCHEDULER_NODES;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Runs {@link ScheduledTask}s. Each task runs on exactly one server node at a time.
+ * <p>
+ * {@link ShardedScheduledTask}s are split into partitions, each partition is
+ * scheduled as a separate task. A node takes at most its "fair share" of
+ * a task's partitions at the same time, based on the number of live nodes,
+ * so the partitions are spread across the cluster. Partitions of a node that
+ * stopped sending heartbeats are marked as failed and picked up by other nodes.
+ */
 @Named
 @Singleton
 public class TaskScheduler extends PeriodicTask {
@@ -54,26 +69,37 @@ public class TaskScheduler extends PeriodicTask {
     private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
     private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(10);
     private static final String MAX_STALLED_AGE = "1 minute";
+    private static final String MAX_NODE_AGE = "30 seconds";
+    private static final String PARTITION_SEPARATOR = "#";
 
+    private final UUID nodeId = UUID.randomUUID();
     private final ExecutorService executor;
     private final SchedulerDao dao;
-    private final Map<String, ScheduledTask> tasks;
+    private final Map<String, TaskRef> tasks;
     private final Set<String> runningTasks = Collections.synchronizedSet(new HashSet<>());
 
     @Inject
-    public TaskScheduler(Map<String, ScheduledTask> tasks, SchedulerDao dao) {
+    public TaskScheduler(Map<String, ScheduledTask> tasks, SchedulerDao dao, MetricRegistry metricRegistry) {
         super(POLL_INTERVAL, ERROR_DELAY);
 
         this.executor = Executors.newCachedThreadPool();
         this.dao = dao;
-        this.tasks = tasks;
+        this.tasks = partition(tasks);
+
+        this.dao.updateTaskIntervals(tasks.keySet(), this.tasks);
 
-        this.dao.updateTaskIntervals(tasks);
+        registerMetrics(metricRegistry);
     }
 
     @Override
     protected boolean performTask() {
-        List<String> ids = dao.poll();
+        int liveNodes = dao.heartbeat(nodeId);
+
+        List<String> ids = dao.poll(candidates -> {
+            synchronized (runningTasks) {
+                return selectFairShare(tasks, runningTasks, candidates, liveNodes);
+            }
+        });
         if (ids.isEmpty()) {
             return false;
         }
@@ -102,20 +128,26 @@ public class TaskScheduler extends PeriodicTask {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+
+        dao.removeNode(nodeId);
     }
 
     private void startTask(String id) {
-        ScheduledTask task = tasks.get(id);
-        if (task == null) {
+        TaskRef ref = tasks.get(id);
+        if (ref == null) {
             log.error("startTask -> task with id '{}' not found", id);
             return;
         }
 
+        runningTasks.add(id);
+
         executor.submit(() -> {
             try {
-                runningTasks.add(id);
-
-                task.performTask();
+                if (ref.partition != null) {
+                    ((ShardedScheduledTask) ref.task).performTask(ref.partition);
+                } else {
+                    ref.task.performTask();
+                }
 
                 dao.success(id);
 
@@ -130,6 +162,40 @@ public class TaskScheduler extends PeriodicTask {
         });
     }
 
+    /**
+     * Limits the number of partitions of each sharded task this node
+     * can run simultaneously to {@code ceil(partitions / liveNodes)}.
+     */
+    static List<String> selectFairShare(Map<String, TaskRef> tasks, Collection<String> runningTasks, List<String> candidates, int liveNodes) {
+        Map<String, Integer> running = new HashMap<>();
+        for (String id : runningTasks) {
+            TaskRef ref = tasks.get(id);
+            if (ref != null && ref.partition != null) {
+                running.merge(ref.taskId, 1, Integer::sum);
+            }
+        }
+
+        List<String> result = new ArrayList<>(candidates.size());
+        for (String id : candidates) {
+            TaskRef ref = tasks.get(id);
+            if (ref == null || ref.partition == null) {
+                result.add(id);
+                continue;
+            }
+
+            int count = ref.partition.count();
+            int fairShare = (count + Math.max(liveNodes, 1) - 1) / Math.max(liveNodes, 1);
+            int current = running.getOrDefault(ref.taskId, 0);
+            if (current >= fairShare) {
+                continue;
+            }
+
+            running.put(ref.taskId, current + 1);
+            result.add(id);
+        }
+        return result;
+    }
+
     private void updateRunningTasks() {
         synchronized (runningTasks) {
             dao.updateRunning(runningTasks);
@@ -148,6 +214,96 @@ public class TaskScheduler extends PeriodicTask {
         });
     }
 
+    private void registerMetrics(MetricRegistry metricRegistry) {
+        Gauge<Map<String, TaskStats>> base = new CachedGauge<Map<String, TaskStats>>(15, TimeUnit.SECONDS) {
+            @Override
+            protected Map<String, TaskStats> loadValue() {
+                return dao.stats();
+            }
+        };
+
+        for (Map.Entry<String, TaskRef> e : tasks.entrySet()) {
+            TaskRef ref = e.getValue();
+            if (ref.partition == null) {
+                continue;
+            }
+
+            String id = e.getKey();
+            String prefix = "task-scheduler-" + ref.taskId + "-partition-" + ref.partition.index();
+
+            metricRegistry.register(prefix + "-lag", new DerivativeGauge<Map<String, TaskStats>, Long>(base) {
+                @Override
+                protected Long transform(Map<String, TaskStats> value) {
+                    TaskStats s = value.get(id);
+                    return s != null ? s.lag : null;
+                }
+            });
+
+            metricRegistry.register(prefix + "-duration", new DerivativeGauge<Map<String, TaskStats>, Long>(base) {
+                @Override
+                protected Long transform(Map<String, TaskStats> value) {
+                    TaskStats s = value.get(id);
+                    return s != null ? s.duration : null;
+                }
+            });
+        }
+    }
+
+    static Map<String, TaskRef> partition(Map<String, ScheduledTask> tasks) {
+        Map<String, TaskRef> result = new HashMap<>();
+        for (Map.Entry<String, ScheduledTask> e : tasks.entrySet()) {
+            String taskId = e.getKey();
+            ScheduledTask task = e.getValue();
+
+            int partitions = 1;
+            if (task instanceof ShardedScheduledTask) {
+                partitions = ((ShardedScheduledTask) task).getPartitionCount();
+            }
+
+            if (partitions <= 1) {
+                result.put(taskId, new TaskRef(taskId, task, null));
+                continue;
+            }
+
+            log.info("partition ['{}'] -> using {} partitions", taskId, partitions);
+            for (int i = 0; i < partitions; i++) {
+                result.put(taskId + PARTITION_SEPARATOR + i, new TaskRef(taskId, task, new TaskPartition(i, partitions)));
+            }
+        }
+        return result;
+    }
+
+    static final class TaskRef {
+
+        private final String taskId;
+        private final ScheduledTask task;
+        private final TaskPartition partition;
+
+        private TaskRef(String taskId, ScheduledTask task, TaskPartition partition) {
+            this.taskId = taskId;
+            this.task = task;
+            this.partition = partition;
+        }
+    }
+
+    private static final class TaskStats {
+
+        /**
+         * Time since the last run was finished (or started, if it's still running), ms.
+         */
+        private final Long lag;
+
+        /**
+         * Duration of the last run, ms.
+         */
+        private final Long duration;
+
+        private TaskStats(Long lag, Long duration) {
+            this.lag = lag;
+            this.duration = duration;
+        }
+    }
+
     @Named
     private static final class SchedulerDao extends AbstractDao {
 
@@ -156,12 +312,12 @@ public class TaskScheduler extends PeriodicTask {
             super(cfg);
         }
 
-        public List<String> poll() {
+        public List<String> poll(Selector selector) {
             @SuppressWarnings("unchecked")
             Field<? extends Number> i = (Field<? extends Number>) PgUtils.interval("1 second");
 
             return txResult(tx -> {
-                List<String> ids = tx.select(TASKS.TASK_ID)
+                List<String> candidates = tx.select(TASKS.TASK_ID)
                         .from(TASKS)
                         .where(TASKS.TASK_INTERVAL.greaterThan(0L).and(TASKS.STARTED_AT.isNull()
                                 .or(TASKS.FINISHED_AT.isNotNull()
@@ -170,6 +326,11 @@ public class TaskScheduler extends PeriodicTask {
                         .skipLocked()
                         .fetch(TASKS.TASK_ID);
 
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
+
+                List<String> ids = selector.select(candidates);
                 if (ids.isEmpty()) {
                     return ids;
                 }
@@ -197,6 +358,36 @@ public class TaskScheduler extends PeriodicTask {
                     .fetch(TASKS.TASK_ID);
         }
 
+        /**
+         * Updates the node's heartbeat.
+         *
+         * @return number of live nodes
+         */
+        public int heartbeat(UUID nodeId) {
+            return txResult(tx -> {
+                tx.insertInto(TASK_SCHEDULER_NODES)
+                        .columns(TASK_SCHEDULER_NODES.NODE_ID, TASK_SCHEDULER_NODES.LAST_SEEN_AT)
+                        .values(value(nodeId), currentOffsetDateTime())
+                        .onDuplicateKeyUpdate()
+                        .set(TASK_SCHEDULER_NODES.LAST_SEEN_AT, currentOffsetDateTime())
+                        .execute();
+
+                Field<OffsetDateTime> cutOff = currentOffsetDateTime().minus(interval(MAX_NODE_AGE));
+
+                tx.deleteFrom(TASK_SCHEDULER_NODES)
+                        .where(TASK_SCHEDULER_NODES.LAST_SEEN_AT.lessThan(cutOff))
+                        .execute();
+
+                return tx.fetchCount(TASK_SCHEDULER_NODES);
+            });
+        }
+
+        public void removeNode(UUID nodeId) {
+            tx(tx -> tx.deleteFrom(TASK_SCHEDULER_NODES)
+                    .where(TASK_SCHEDULER_NODES.NODE_ID.eq(nodeId))
+                    .execute());
+        }
+
         public void success(String taskId) {
             tx(tx -> taskFinished(tx, taskId, "OK"));
         }
@@ -209,10 +400,10 @@ public class TaskScheduler extends PeriodicTask {
             taskFinished(tx, taskId, "ERROR");
         }
 
-        public void updateTaskIntervals(Map<String, ScheduledTask> tasks) {
+        public void updateTaskIntervals(Set<String> taskIds, Map<String, TaskRef> tasks) {
             tx(tx -> {
-                for (Map.Entry<String, ScheduledTask> e : tasks.entrySet()) {
-                    ScheduledTask task = e.getValue();
+                for (Map.Entry<String, TaskRef> e : tasks.entrySet()) {
+                    ScheduledTask task = e.getValue().task;
 
                     if (task.getIntervalInSec() <= 0) {
                         log.warn("{} has period <= 0, the task will be disabled", e.getKey());
@@ -223,6 +414,14 @@ public class TaskScheduler extends PeriodicTask {
                             .onDuplicateKeyUpdate().set(TASKS.TASK_INTERVAL, task.getIntervalInSec())
                             .execute();
                 }
+
+                // remove the partitions that are no longer used (e.g. the number of partitions was changed)
+                for (String taskId : taskIds) {
+                    tx.deleteFrom(TASKS)
+                            .where(TASKS.TASK_ID.eq(taskId).or(TASKS.TASK_ID.startsWith(taskId + PARTITION_SEPARATOR))
+                                    .and(TASKS.TASK_ID.notIn(tasks.keySet())))
+                            .execute();
+                }
             });
         }
 
@@ -235,6 +434,31 @@ public class TaskScheduler extends PeriodicTask {
             });
         }
 
+        public Map<String, TaskStats> stats() {
+            long now = System.currentTimeMillis();
+
+            return txResult(tx -> tx.select(TASKS.TASK_ID, TASKS.STARTED_AT, TASKS.FINISHED_AT)
+                    .from(TASKS)
+                    .fetchMap(TASKS.TASK_ID, r -> {
+                        OffsetDateTime startedAt = r.value2();
+                        OffsetDateTime finishedAt = r.value3();
+
+                        Long lag = null;
+                        Long duration = null;
+                        if (finishedAt != null) {
+                            lag = now - finishedAt.toInstant().toEpochMilli();
+                            if (startedAt != null) {
+                                duration = finishedAt.toInstant().toEpochMilli() - startedAt.toInstant().toEpochMilli();
+                            }
+                        } else if (startedAt != null) {
+                            // still running
+                            lag = now - startedAt.toInstant().toEpochMilli();
+                        }
+
+                        return new TaskStats(lag, duration);
+                    }));
+        }
+
         private void transaction(Tx t) {
             tx(t);
         }
@@ -248,4 +472,10 @@ public class TaskScheduler extends PeriodicTask {
                     .execute();
         }
     }
+
+    @FunctionalInterface
+    private interface Selector {
+
+        List<String> select(List<String> candidates);
+    }
 }
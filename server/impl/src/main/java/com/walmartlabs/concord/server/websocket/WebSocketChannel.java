@@ -22,15 +22,12 @@ package com.walmartlabs.concord.server.websocket;
 
 import com.walmartlabs.concord.server.queueclient.MessageSerializer;
 import com.walmartlabs.concord.server.queueclient.message.Message;
-import com.walmartlabs.concord.server.queueclient.message.MessageType;
 import org.eclipse.jetty.websocket.api.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class WebSocketChannel {
 
@@ -41,8 +38,6 @@ public class WebSocketChannel {
     private final String userAgent;
     private final Session session;
 
-    private final Map<Long, Message> requests = new ConcurrentHashMap<>();
-
     public WebSocketChannel(UUID channelId, String agentId, Session session, String userAgent) {
         this.channelId = channelId;
         this.agentId = agentId;
@@ -62,29 +57,16 @@ public class WebSocketChannel {
         return userAgent;
     }
 
-    public void onRequest(Message request) {
-        Message old = requests.put(request.getCorrelationId(), request);
-        if (old != null) {
-            log.error("request ['{}', '{}'] -> duplicate request. closing channel", channelId, request);
-            close();
-        }
+    public boolean isOpen() {
+        return session.isOpen();
     }
 
-    /**
-     * Sends the response and removes the associated request from the queue.
-     */
     public boolean sendResponse(Message response) {
         if (!session.isOpen()) {
             log.warn("response ['{}', '{}'] -> session is closed", channelId, response);
             return false;
         }
 
-        Message request = requests.remove(response.getCorrelationId());
-        if (request == null) {
-            log.warn("response ['{}', '{}'] -> request not found", channelId, response);
-            return false;
-        }
-
         try {
             session.getRemote().sendString(MessageSerializer.serialize(response));
             return true;
@@ -104,12 +86,6 @@ public class WebSocketChannel {
         }
     }
 
-    public Message getRequest(MessageType requestType) {
-        return requests.values().stream()
-                .filter(m -> m.getMessageType() == requestType)
-                .findAny().orElse(null);
-    }
-
     public void close() {
         if (!session.isOpen()) {
             return;
@@ -20,17 +20,22 @@ package com.walmartlabs.concord.server.websocket;
  * =====
  */
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.walmartlabs.concord.server.queueclient.message.Message;
 import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
+import com.walmartlabs.concord.server.websocket.WebSocketRequestRegistry.PendingRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 @Named
 @Singleton
@@ -39,9 +44,30 @@ public class WebSocketChannelManager {
     private static final Logger log = LoggerFactory.getLogger(WebSocketChannelManager.class);
 
     private final Map<UUID, WebSocketChannel> channels = new ConcurrentHashMap<>();
+    private final WebSocketRequestRegistry requests = new WebSocketRequestRegistry();
+    private final Map<MessageType, List<Consumer<Message>>> requestListeners = new EnumMap<>(MessageType.class);
+
+    private final Meter servedRequests;
 
     private volatile boolean isShutdown;
 
+    @Inject
+    public WebSocketChannelManager(MetricRegistry metricRegistry) {
+        this.servedRequests = metricRegistry.meter("websocket-served-requests");
+
+        for (MessageType t : MessageType.values()) {
+            requestListeners.put(t, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    /**
+     * Registers a listener which is called after a new request of the specified type
+     * is added to the queue. Listeners are called on the websocket's thread and must not block.
+     */
+    public void addRequestListener(MessageType requestType, Consumer<Message> listener) {
+        requestListeners.get(requestType).add(listener);
+    }
+
     public boolean isShutdown() {
         return isShutdown;
     }
@@ -55,6 +81,7 @@ public class WebSocketChannelManager {
 
     public void close(UUID channelId) {
         WebSocketChannel channel = channels.remove(channelId);
+        requests.removeAll(channelId);
         if (channel == null) {
             log.warn("close ['{}'] -> channel not found", channelId);
             return;
@@ -72,7 +99,25 @@ public class WebSocketChannelManager {
             return;
         }
 
-        channel.onRequest(message);
+        if (!requests.add(channel, message)) {
+            log.error("request ['{}', '{}'] -> duplicate request. closing channel", channelId, message);
+            channel.close();
+            return;
+        }
+
+        if (!channels.containsKey(channelId)) {
+            // the channel was closed concurrently
+            requests.removeAll(channelId);
+            return;
+        }
+
+        for (Consumer<Message> l : requestListeners.get(message.getMessageType())) {
+            try {
+                l.accept(message);
+            } catch (Exception e) {
+                log.warn("request ['{}', '{}'] -> listener error: {}", channelId, message, e.getMessage());
+            }
+        }
     }
 
     /**
@@ -85,7 +130,17 @@ public class WebSocketChannelManager {
             return false;
         }
 
-        return channel.sendResponse(response);
+        PendingRequest request = requests.remove(channelId, response.getCorrelationId());
+        if (request == null) {
+            log.warn("response ['{}', '{}'] -> request not found", channelId, response);
+            return false;
+        }
+
+        boolean sent = channel.sendResponse(response);
+        if (sent) {
+            servedRequests.mark();
+        }
+        return sent;
     }
 
     public boolean pong(UUID channelId) {
@@ -98,18 +153,26 @@ public class WebSocketChannelManager {
         return channel.pong();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns pending requests of the specified type, at most one request per channel.
+     */
     public <E> Map<WebSocketChannel, E> getRequests(MessageType requestType) {
-        Map<WebSocketChannel, E> result = new HashMap<>();
-        channels.forEach((channelId, channel) -> {
-            Message m = channel.getRequest(requestType);
-            if (m != null) {
-                result.put(channel, (E)m);
-            }
-        });
+        return toMap(requests.get(requestType));
+    }
+
+    /**
+     * Returns pending process requests grouped by the agent's capabilities.
+     */
+    public Map<Map<String, Object>, Map<WebSocketChannel, ProcessRequest>> getProcessRequestsByCapabilities() {
+        Map<Map<String, Object>, Map<WebSocketChannel, ProcessRequest>> result = new HashMap<>();
+        requests.getByCapabilities().forEach((capabilities, l) -> result.put(capabilities, toMap(l)));
         return result;
     }
 
+    public int pendingRequestsCount() {
+        return requests.size();
+    }
+
     public void add(UUID channelId, WebSocketChannel channel) {
         channels.put(channelId, channel);
     }
@@ -117,4 +180,16 @@ public class WebSocketChannelManager {
     public int connectedClientsCount() {
         return channels.size();
     }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Map<WebSocketChannel, E> toMap(Collection<PendingRequest> l) {
+        Map<WebSocketChannel, E> result = new HashMap<>();
+        for (PendingRequest r : l) {
+            // skip the requests of the channels that are being closed
+            if (r.getChannel().isOpen()) {
+                result.put(r.getChannel(), (E) r.getRequest());
+            }
+        }
+        return result;
+    }
 }
@@ -39,6 +39,7 @@ public class WebSocketMetricsModule extends AbstractModule {
         Multibinder<GaugeProvider> gauges = Multibinder.newSetBinder(binder(), GaugeProvider.class);
         gauges.addBinding().toInstance(createGauge(channelManagerProvider));
         gauges.addBinding().toInstance(create(channelManagerProvider));
+        gauges.addBinding().toInstance(createPendingRequestsGauge(channelManagerProvider));
     }
 
     private static GaugeProvider<Integer> createGauge(Provider<WebSocketChannelManager> channelManagerProvider) {
@@ -68,4 +69,18 @@ public class WebSocketMetricsModule extends AbstractModule {
             }
         };
     }
+
+    private static GaugeProvider<Integer> createPendingRequestsGauge(Provider<WebSocketChannelManager> channelManagerProvider) {
+        return new GaugeProvider<Integer>() {
+            @Override
+            public String name() {
+                return "websocket-pending-requests";
+            }
+
+            @Override
+            public Gauge<Integer> gauge() {
+                return () -> channelManagerProvider.get().pendingRequestsCount();
+            }
+        };
+    }
 }
@@ -0,0 +1,202 @@
+package com.walmartlabs.concord.server.websocket;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pending requests of all connected channels. The requests are indexed by
+ * channel, by message type and, for {@link ProcessRequest}, by the agent's
+ * capabilities, so the dispatchers don't need to scan every channel.
+ */
+final class WebSocketRequestRegistry {
+
+    private final Map<UUID, Map<Long, PendingRequest>> byChannel = new ConcurrentHashMap<>();
+    private final Map<MessageType, Map<RequestKey, PendingRequest>> byType = new EnumMap<>(MessageType.class);
+    private final Map<Map<String, Object>, Map<RequestKey, PendingRequest>> byCapabilities = new ConcurrentHashMap<>();
+
+    WebSocketRequestRegistry() {
+        for (MessageType t : MessageType.values()) {
+            byType.put(t, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @return {@code false} if the channel already has a request with the same correlation ID
+     */
+    synchronized boolean add(WebSocketChannel channel, Message request) {
+        Map<Long, PendingRequest> channelRequests = byChannel.computeIfAbsent(channel.getChannelId(), k -> new ConcurrentHashMap<>());
+        if (channelRequests.containsKey(request.getCorrelationId())) {
+            return false;
+        }
+
+        PendingRequest r = new PendingRequest(channel, request);
+        channelRequests.put(request.getCorrelationId(), r);
+        byType.get(request.getMessageType()).put(r.key, r);
+
+        Map<String, Object> capabilities = r.getCapabilities();
+        if (capabilities != null) {
+            byCapabilities.computeIfAbsent(capabilities, k -> new ConcurrentHashMap<>()).put(r.key, r);
+        }
+
+        return true;
+    }
+
+    synchronized PendingRequest remove(UUID channelId, long correlationId) {
+        Map<Long, PendingRequest> channelRequests = byChannel.get(channelId);
+        if (channelRequests == null) {
+            return null;
+        }
+
+        PendingRequest r = channelRequests.remove(correlationId);
+        if (r == null) {
+            return null;
+        }
+
+        unindex(r);
+        return r;
+    }
+
+    synchronized void removeAll(UUID channelId) {
+        Map<Long, PendingRequest> channelRequests = byChannel.remove(channelId);
+        if (channelRequests == null) {
+            return;
+        }
+
+        channelRequests.values().forEach(this::unindex);
+    }
+
+    /**
+     * Returns pending requests of the specified type, at most one request per channel.
+     */
+    Collection<PendingRequest> get(MessageType type) {
+        return onePerChannel(byType.get(type).values());
+    }
+
+    /**
+     * Returns pending {@link ProcessRequest}s grouped by the agent's capabilities,
+     * at most one request per channel.
+     */
+    Map<Map<String, Object>, Collection<PendingRequest>> getByCapabilities() {
+        Map<Map<String, Object>, Collection<PendingRequest>> result = new HashMap<>();
+        byCapabilities.forEach((capabilities, requests) -> {
+            Collection<PendingRequest> l = onePerChannel(requests.values());
+            if (!l.isEmpty()) {
+                result.put(capabilities, l);
+            }
+        });
+        return result;
+    }
+
+    int size() {
+        int result = 0;
+        for (Map<RequestKey, PendingRequest> m : byType.values()) {
+            result += m.size();
+        }
+        return result;
+    }
+
+    private void unindex(PendingRequest r) {
+        byType.get(r.request.getMessageType()).remove(r.key);
+
+        Map<String, Object> capabilities = r.getCapabilities();
+        if (capabilities != null) {
+            Map<RequestKey, PendingRequest> m = byCapabilities.get(capabilities);
+            if (m != null) {
+                m.remove(r.key);
+                if (m.isEmpty()) {
+                    byCapabilities.remove(capabilities);
+                }
+            }
+        }
+    }
+
+    private static Collection<PendingRequest> onePerChannel(Collection<PendingRequest> requests) {
+        Map<UUID, PendingRequest> result = new HashMap<>();
+        for (PendingRequest r : requests) {
+            result.putIfAbsent(r.key.channelId, r);
+        }
+        return result.values();
+    }
+
+    static final class PendingRequest {
+
+        private final RequestKey key;
+        private final WebSocketChannel channel;
+        private final Message request;
+
+        private PendingRequest(WebSocketChannel channel, Message request) {
+            this.key = new RequestKey(channel.getChannelId(), request.getCorrelationId());
+            this.channel = channel;
+            this.request = request;
+        }
+
+        WebSocketChannel getChannel() {
+            return channel;
+        }
+
+        Message getRequest() {
+            return request;
+        }
+
+        private Map<String, Object> getCapabilities() {
+            if (!(request instanceof ProcessRequest)) {
+                return null;
+            }
+
+            Map<String, Object> capabilities = ((ProcessRequest) request).getCapabilities();
+            return capabilities != null ? capabilities : Collections.emptyMap();
+        }
+    }
+
+    private static final class RequestKey {
+
+        private final UUID channelId;
+        private final long correlationId;
+
+        private RequestKey(UUID channelId, long correlationId) {
+            this.channelId = channelId;
+            this.correlationId = correlationId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RequestKey that = (RequestKey) o;
+            return correlationId == that.correlationId && channelId.equals(that.channelId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(channelId, correlationId);
+        }
+    }
+}
@@ -20,15 +20,23 @@ package com.walmartlabs.concord.server;
  * =====
  */
 
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.ListenersConfiguration;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.Range;
+import com.walmartlabs.concord.server.sdk.SynchronousListener;
 import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
 import com.walmartlabs.concord.server.sdk.events.ProcessEventListener;
+import com.walmartlabs.concord.server.sdk.log.ProcessLogEntry;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class ListenersTest {
 
@@ -41,15 +49,143 @@ public class ListenersTest {
             }
         });
 
-        Listeners listeners = new Listeners(processEventListeners, Collections.emptyList(), Collections.emptyList());
-        listeners.onProcessEvent(Collections.singletonList(ProcessEvent.builder()
+        // not started, the events are delivered synchronously
+        Listeners listeners = createListeners(processEventListeners);
+        listeners.onProcessEvent(Collections.singletonList(createEvent()));
+
+        assertEquals(1, receivedEvents.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testAsync() throws Exception {
+        int count = 100;
+
+        CountDownLatch latch = new CountDownLatch(count);
+        CountDownLatch slowListener = new CountDownLatch(1);
+
+        Collection<ProcessEventListener> processEventListeners = Arrays.asList(
+                events -> events.forEach(e -> latch.countDown()),
+                events -> {
+                    try {
+                        slowListener.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        Listeners listeners = createListeners(processEventListeners);
+        listeners.start();
+        try {
+            for (int i = 0; i < count; i++) {
+                // must not wait for the slow listener
+                listeners.onProcessEvent(Collections.singletonList(createEvent()));
+            }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            slowListener.countDown();
+            listeners.stop();
+        }
+    }
+
+    @Test
+    public void testSynchronousListener() {
+        SyncListener syncListener = new SyncListener();
+
+        CountDownLatch slowListener = new CountDownLatch(1);
+        Collection<ProcessEventListener> processEventListeners = Arrays.asList(syncListener,
+                events -> {
+                    try {
+                        slowListener.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        // a small queue, the slow listener's items overflow
+        ListenersConfiguration cfg = new ListenersConfiguration(1, 1, Duration.ofMillis(100),
+                ListenersConfiguration.OverflowPolicy.DROP, Duration.ofSeconds(3), false, "test");
+
+        Listeners listeners = new Listeners(processEventListeners, Collections.emptyList(), Collections.emptyList(),
+                cfg, null, null, new MetricRegistry());
+        listeners.start();
+        try {
+            int count = 100;
+            for (int i = 0; i < count; i++) {
+                listeners.onProcessEvent(Collections.singletonList(createEvent()));
+
+                // delivered before the call returns
+                assertEquals(i + 1, syncListener.received.size());
+            }
+        } finally {
+            slowListener.countDown();
+            listeners.stop();
+        }
+    }
+
+    @Test
+    public void testMergeLogEntries() {
+        ProcessKey a = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+        ProcessKey b = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+
+        List<ProcessLogEntry> l = Listeners.mergeLogEntries(Arrays.asList(
+                createLogEntry(a, 0, "aaa"),
+                createLogEntry(b, 0, "xx"),
+                createLogEntry(a, 3, "bb"),
+                createLogEntry(b, 10, "yy"),
+                createLogEntry(a, 5, "c")));
+
+        assertEquals(3, l.size());
+
+        assertEquals(a, l.get(0).processKey());
+        assertEquals("aaabbc", new String(l.get(0).msg()));
+        assertEquals(0, l.get(0).range().lower());
+        assertEquals(6, l.get(0).range().upper());
+
+        // not adjacent
+        assertEquals("xx", new String(l.get(1).msg()));
+        assertEquals("yy", new String(l.get(2).msg()));
+    }
+
+    private static Listeners createListeners(Collection<ProcessEventListener> processEventListeners) {
+        ListenersConfiguration cfg = new ListenersConfiguration(1000, 10, Duration.ofMillis(100),
+                ListenersConfiguration.OverflowPolicy.BLOCK, Duration.ofSeconds(3), false, "test");
+
+        return new Listeners(processEventListeners, Collections.emptyList(), Collections.emptyList(),
+                cfg, null, null, new MetricRegistry());
+    }
+
+    private static ProcessEvent createEvent() {
+        return ProcessEvent.builder()
                 .processKey(new ProcessKey(UUID.randomUUID(), OffsetDateTime.now()))
                 .eventSeq(0)
                 .eventDate(OffsetDateTime.now())
                 .eventType("TEST")
                 .data(Collections.singletonMap("x", 123))
-                .build()));
+                .build();
+    }
 
-        assertEquals(1, receivedEvents.size());
+    private static ProcessLogEntry createLogEntry(ProcessKey processKey, int start, String msg) {
+        return ProcessLogEntry.builder()
+                .processKey(processKey)
+                .range(Range.builder()
+                        .lowerMode(Range.Mode.INCLUSIVE)
+                        .lower(start)
+                        .upper(start + msg.length())
+                        .upperMode(Range.Mode.EXCLUSIVE)
+                        .build())
+                .msg(msg.getBytes())
+                .build();
+    }
+
+    @SynchronousListener
+    private static class SyncListener implements ProcessEventListener {
+
+        private final List<ProcessEvent> received = new ArrayList<>();
+
+        @Override
+        public void onEvents(List<ProcessEvent> events) {
+            received.addAll(events);
+        }
     }
 }
@@ -0,0 +1,70 @@
+package com.walmartlabs.concord.server;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplicaLagMonitorTest {
+
+    private static final long MAX_LAG = 5000;
+
+    @Test
+    public void testNotReplica() {
+        Long lag = ReplicaLagMonitor.lag(false, false, null, null);
+        assertEquals(Long.valueOf(0), lag);
+        assertTrue(ReplicaLagMonitor.isAvailable(lag, MAX_LAG));
+    }
+
+    @Test
+    public void testReceiverDisconnected() {
+        // the receive and replay positions are equal, but nothing is being received
+        Long lag = ReplicaLagMonitor.lag(true, false, true, 100);
+        assertNull(lag);
+        assertFalse(ReplicaLagMonitor.isAvailable(lag, MAX_LAG));
+    }
+
+    @Test
+    public void testCaughtUp() {
+        // an idle primary, the last replayed transaction can be old
+        Long lag = ReplicaLagMonitor.lag(true, true, true, 3_600_000);
+        assertEquals(Long.valueOf(0), lag);
+        assertTrue(ReplicaLagMonitor.isAvailable(lag, MAX_LAG));
+    }
+
+    @Test
+    public void testLagging() {
+        Long lag = ReplicaLagMonitor.lag(true, true, false, 1000.5);
+        assertEquals(Long.valueOf(1000), lag);
+        assertTrue(ReplicaLagMonitor.isAvailable(lag, MAX_LAG));
+
+        lag = ReplicaLagMonitor.lag(true, true, false, MAX_LAG + 1);
+        assertFalse(ReplicaLagMonitor.isAvailable(lag, MAX_LAG));
+    }
+
+    @Test
+    public void testNothingReplayed() {
+        Long lag = ReplicaLagMonitor.lag(true, true, false, null);
+        assertNull(lag);
+        assertFalse(ReplicaLagMonitor.isAvailable(lag, MAX_LAG));
+    }
+}
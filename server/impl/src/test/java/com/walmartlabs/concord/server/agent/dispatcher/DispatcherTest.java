@@ -0,0 +1,111 @@
+package com.walmartlabs.concord.server.agent.dispatcher;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.agent.AgentCommand;
+import com.walmartlabs.concord.server.agent.AgentCommandsDao;
+import com.walmartlabs.concord.server.agent.Commands;
+import com.walmartlabs.concord.server.cfg.AgentConfiguration;
+import com.walmartlabs.concord.server.queueclient.message.CommandRequest;
+import com.walmartlabs.concord.server.websocket.WebSocketChannel;
+import com.walmartlabs.concord.server.websocket.WebSocketChannelManager;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@Ignore("requires a local DB instance")
+public class DispatcherTest extends AbstractDaoTest {
+
+    /**
+     * Cancels a large number of processes running on the same agent and measures how long it takes
+     * to deliver all commands. The sweep interval is longer than the test's timeout, so the commands
+     * can be delivered only by pushing them to the agent.
+     */
+    @Test(timeout = 60000)
+    public void testBulkCancelLatency() throws Exception {
+        int count = 500;
+        Duration pollDelay = Duration.ofMinutes(10);
+
+        AgentConfiguration cfg = mock(AgentConfiguration.class);
+        when(cfg.getCommandPollDelay()).thenReturn(pollDelay);
+
+        WebSocketChannelManager channelManager = new WebSocketChannelManager(new MetricRegistry());
+        Dispatcher dispatcher = new Dispatcher(cfg, new Dispatcher.DispatcherDao(getConfiguration()), channelManager, new MetricRegistry());
+
+        UUID agentId = UUID.randomUUID();
+        UUID channelId = UUID.randomUUID();
+        AtomicLong correlationId = new AtomicLong();
+        CountDownLatch delivered = new CountDownLatch(count);
+
+        // the agent sends a new command request after receiving a command
+        RemoteEndpoint remote = mock(RemoteEndpoint.class);
+        doAnswer(inv -> {
+            delivered.countDown();
+            channelManager.onRequest(channelId, commandRequest(agentId, correlationId.incrementAndGet()));
+            return null;
+        }).when(remote).sendString(anyString());
+
+        Session session = mock(Session.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemote()).thenReturn(remote);
+
+        channelManager.add(channelId, new WebSocketChannel(channelId, agentId.toString(), session, "test"));
+        channelManager.onRequest(channelId, commandRequest(agentId, correlationId.incrementAndGet()));
+
+        List<AgentCommand> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            commands.add(new AgentCommand(UUID.randomUUID(), agentId.toString(), AgentCommand.Status.CREATED,
+                    OffsetDateTime.now(), Commands.cancel(UUID.randomUUID().toString())));
+        }
+
+        dispatcher.start();
+        try {
+            new AgentCommandsDao(getConfiguration()).insertBatch(commands);
+            dispatcher.signal(agentId.toString());
+
+            assertTrue(delivered.await(30, TimeUnit.SECONDS));
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    private static CommandRequest commandRequest(UUID agentId, long correlationId) {
+        CommandRequest r = new CommandRequest(agentId);
+        r.setCorrelationId(correlationId);
+        return r;
+    }
+}
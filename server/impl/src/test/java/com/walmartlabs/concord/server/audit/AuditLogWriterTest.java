@@ -0,0 +1,173 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.AuditConfiguration;
+import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class AuditLogWriterTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong entrySeq = new AtomicLong();
+
+    private volatile CountDownLatch insertLatch;
+
+    private Listeners listeners;
+    private MetricRegistry metricRegistry;
+    private AuditLogWriter writer;
+
+    @Before
+    public void setUp() {
+        AuditConfiguration cfg = mock(AuditConfiguration.class);
+        when(cfg.isAsyncEnabled()).thenReturn(true);
+        when(cfg.getAsyncQueueSize()).thenReturn(100);
+        when(cfg.getAsyncBatchSize()).thenReturn(BATCH_SIZE);
+        when(cfg.getAsyncFlushInterval()).thenReturn(Duration.ofMillis(10));
+
+        AuditDao dao = mock(AuditDao.class);
+        when(dao.insert(anyList())).thenAnswer(i -> insert(i.getArgument(0)));
+
+        listeners = mock(Listeners.class);
+        metricRegistry = new MetricRegistry();
+
+        writer = new AuditLogWriter(cfg, dao, listeners, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        writer.stop();
+    }
+
+    @Test(timeout = 30000)
+    public void testBatching() {
+        writer.start();
+
+        for (int i = 0; i < 50; i++) {
+            writer.write(entry("e" + i));
+        }
+
+        writer.stop();
+
+        assertEquals(50, written.size());
+        verify(listeners, times(50)).onAuditEvent(any());
+        assertEquals(50, metricRegistry.meter("audit-log-written").getCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testFlushOnStop() throws Exception {
+        insertLatch = new CountDownLatch(1);
+        writer.start();
+
+        // the worker is stuck on the first entry, the rest stays in the queue
+        writer.write(entry("first"));
+        for (int i = 0; i < 5; i++) {
+            writer.write(entry("e" + i));
+        }
+
+        Thread stop = new Thread(writer::stop);
+        stop.start();
+
+        insertLatch.countDown();
+        stop.join();
+
+        assertEquals(6, written.size());
+        assertTrue(written.containsAll(Arrays.asList("first", "e0", "e1", "e2", "e3", "e4")));
+    }
+
+    @Test(timeout = 30000)
+    public void testWriteAfterStop() {
+        writer.start();
+        writer.stop();
+
+        // written synchronously
+        writer.write(entry("late"));
+        assertEquals(Collections.singletonList("late"), written);
+    }
+
+    @Test(timeout = 30000)
+    public void testBatchError() throws Exception {
+        insertLatch = new CountDownLatch(1);
+        writer.start();
+
+        writer.write(entry("first"));
+
+        // queued while the worker is busy, written as a single batch
+        writer.write(entry("good1"));
+        writer.write(entry("bad"));
+        writer.write(entry("good2"));
+
+        insertLatch.countDown();
+        writer.stop();
+
+        // the batch is retried entry by entry, only the bad entry is lost
+        assertEquals(Arrays.asList("first", "good1", "good2"), written);
+        assertEquals(1, metricRegistry.meter("audit-log-dropped").getCount());
+    }
+
+    private List<AuditEvent> insert(List<AuditLogWriter.PendingEntry> entries) throws Exception {
+        CountDownLatch l = insertLatch;
+        if (l != null) {
+            assertTrue(l.await(10, TimeUnit.SECONDS));
+        }
+
+        for (AuditLogWriter.PendingEntry e : entries) {
+            if ("bad".equals(e.details().get("name"))) {
+                throw new RuntimeException("bad entry");
+            }
+        }
+
+        List<AuditEvent> result = new ArrayList<>();
+        for (AuditLogWriter.PendingEntry e : entries) {
+            written.add((String) e.details().get("name"));
+            result.add(AuditEvent.builder()
+                    .entrySeq(entrySeq.incrementAndGet())
+                    .entryDate(OffsetDateTime.now())
+                    .object(e.object().toString())
+                    .action(e.action().toString())
+                    .details(e.details())
+                    .build());
+        }
+        return result;
+    }
+
+    private static AuditLogWriter.PendingEntry entry(String name) {
+        return new AuditLogWriter.PendingEntry(null, AuditObject.PROJECT, AuditAction.UPDATE, Collections.singletonMap("name", name));
+    }
+}
@@ -0,0 +1,191 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.GithubConfiguration;
+import com.walmartlabs.concord.server.events.github.GithubTriggerProcessor;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.security.ldap.LdapManager;
+import com.walmartlabs.concord.server.user.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class GithubEventInboxTest {
+
+    private static final String DELIVERY_ID = "delivery-1";
+    private static final String EVENT_NAME = "push";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private GithubEventInboxDao dao;
+    private TriggerProcessExecutor executor;
+    private MetricRegistry metricRegistry;
+    private GithubEventInbox inbox;
+
+    private final TriggerEntry t1 = trigger();
+    private final TriggerEntry t2 = trigger();
+
+    @Before
+    public void setUp() throws Exception {
+        GithubConfiguration cfg = mock(GithubConfiguration.class);
+        when(cfg.getInboxMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        dao = mock(GithubEventInboxDao.class);
+        executor = mock(TriggerProcessExecutor.class);
+
+        // both triggers match every event
+        GithubTriggerProcessor processor = (eventName, payload, projectId, result) ->
+                result.add(new GithubTriggerProcessor.Result(Collections.singletonMap("type", eventName), Arrays.asList(t1, t2)));
+
+        ProcessSecurityContext securityContext = mock(ProcessSecurityContext.class);
+        when(securityContext.runAs(any(), any())).thenAnswer(i -> ((Callable<?>) i.getArgument(1)).call());
+
+        metricRegistry = new MetricRegistry();
+
+        inbox = new GithubEventInbox(cfg, dao, executor, Collections.singletonList(processor),
+                mock(UserManager.class), mock(LdapManager.class), mock(TriggerEventInitiatorResolver.class),
+                securityContext, metricRegistry);
+    }
+
+    @Test
+    public void testDuplicates() {
+        when(dao.insert(eq(DELIVERY_ID), eq(EVENT_NAME), any(), any())).thenReturn(true, false);
+
+        assertTrue(inbox.submit(DELIVERY_ID, EVENT_NAME, null, payload()));
+        assertFalse(inbox.submit(DELIVERY_ID, EVENT_NAME, null, payload()));
+
+        // the roles are checked on every delivery
+        verify(executor, times(2)).assertRoles(EVENT_NAME);
+        assertEquals(1, metricRegistry.meter("github-inbox-duplicates").getCount());
+    }
+
+    @Test
+    public void testProcess() {
+        mockExecutor(Integer.MAX_VALUE);
+
+        inbox.process(entry(1));
+
+        verify(dao).addStartedTriggers(DELIVERY_ID, Collections.singletonList(t1.getId()));
+        verify(dao).addStartedTriggers(DELIVERY_ID, Collections.singletonList(t2.getId()));
+        verify(dao).markProcessed(DELIVERY_ID);
+    }
+
+    @Test
+    public void testPartialFailure() {
+        // the second process fails to start
+        mockExecutor(1);
+
+        inbox.process(entry(1));
+
+        // the first trigger is recorded, the event is left for the next attempt
+        verify(dao).addStartedTriggers(DELIVERY_ID, Collections.singletonList(t1.getId()));
+        verify(dao, never()).addStartedTriggers(DELIVERY_ID, Collections.singletonList(t2.getId()));
+        verify(dao, never()).markProcessed(anyString());
+        assertEquals(1, metricRegistry.meter("github-inbox-failures").getCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRetrySkipsStartedTriggers() {
+        mockExecutor(Integer.MAX_VALUE);
+
+        inbox.process(entry(2, t1.getId()));
+
+        ArgumentCaptor<List<TriggerEntry>> triggers = ArgumentCaptor.forClass(List.class);
+        verify(executor).execute(any(), triggers.capture(), any(), any(), any());
+        assertEquals(Collections.singletonList(t2), triggers.getValue());
+
+        verify(dao).markProcessed(DELIVERY_ID);
+    }
+
+    @Test
+    public void testAllTriggersStarted() {
+        inbox.process(entry(2, t1.getId(), t2.getId()));
+
+        verify(executor, never()).execute(any(), any(), any(), any(), any());
+        verify(dao).markProcessed(DELIVERY_ID);
+    }
+
+    @Test
+    public void testGiveUp() {
+        mockExecutor(0);
+
+        inbox.process(entry(MAX_ATTEMPTS));
+
+        // no more attempts left
+        verify(dao).markProcessed(DELIVERY_ID);
+    }
+
+    /**
+     * Starts the processes of the specified triggers, fails after {@code maxProcesses}.
+     */
+    private void mockExecutor(int maxProcesses) {
+        when(executor.execute(any(), any(), any(), any(), any())).thenAnswer(i -> {
+            List<TriggerEntry> triggers = i.getArgument(1);
+            TriggerProcessExecutor.ProcessStartListener listener = i.getArgument(4);
+
+            List<PartialProcessKey> result = new ArrayList<>();
+            for (TriggerEntry t : triggers) {
+                if (result.size() >= maxProcesses) {
+                    throw new RuntimeException("boom");
+                }
+
+                PartialProcessKey pk = PartialProcessKey.create();
+                listener.onStart(t, pk);
+                result.add(pk);
+            }
+            return result;
+        });
+    }
+
+    private static GithubInboxEntry entry(int attempts, UUID... startedTriggers) {
+        return GithubInboxEntry.builder()
+                .deliveryId(DELIVERY_ID)
+                .eventName(EVENT_NAME)
+                .payload(payload())
+                .receivedAt(OffsetDateTime.now())
+                .attempts(attempts)
+                .addStartedTriggers(startedTriggers)
+                .build();
+    }
+
+    private static Map<String, Object> payload() {
+        return Collections.singletonMap("repository", Collections.singletonMap("full_name", "org/repo"));
+    }
+
+    private static TriggerEntry trigger() {
+        return new TriggerEntry(UUID.randomUUID(), UUID.randomUUID(), "org", UUID.randomUUID(), "project",
+                UUID.randomUUID(), "repo", "github", null, null, null, null);
+    }
+}
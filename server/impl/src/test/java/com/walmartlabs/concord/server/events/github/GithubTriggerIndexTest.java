@@ -0,0 +1,129 @@
+package com.walmartlabs.concord.server.events.github;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.GithubConfiguration;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.org.triggers.TriggersDao;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.*;
+
+import static com.walmartlabs.concord.server.events.github.Constants.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class GithubTriggerIndexTest {
+
+    private TriggersDao dao;
+    private GithubTriggerIndex index;
+
+    @Before
+    public void setUp() {
+        GithubConfiguration cfg = mock(GithubConfiguration.class);
+        // check the fingerprint on every lookup
+        when(cfg.getTriggerIndexCheckInterval()).thenReturn(Duration.ZERO);
+
+        dao = mock(TriggersDao.class);
+        when(dao.fingerprint(EVENT_SOURCE)).thenReturn("1");
+
+        index = new GithubTriggerIndex(cfg, dao);
+    }
+
+    @Test
+    public void testLiterals() {
+        TriggerEntry t = trigger("org1", "repo1");
+        when(dao.list(EVENT_SOURCE, 2)).thenReturn(Collections.singletonList(t));
+
+        assertEquals(Collections.singletonList(t), index.find(null, "org1", "repo1"));
+        assertTrue(index.find(null, "org1", "repo2").isEmpty());
+        assertTrue(index.find(null, "org2", "repo1").isEmpty());
+    }
+
+    @Test
+    public void testWildcards() {
+        TriggerEntry regex = trigger("org.*", "repo[0-9]");
+        TriggerEntry noConditions = trigger(null, null);
+        TriggerEntry list = trigger(Arrays.asList("org1", "org2"), "repo1");
+        TriggerEntry invalid = trigger("org(", "repo1");
+        when(dao.list(EVENT_SOURCE, 2)).thenReturn(Arrays.asList(regex, noConditions, list, invalid));
+
+        assertEquals(set(regex, noConditions, list, invalid), set(index.find(null, "org1", "repo1")));
+        assertEquals(set(noConditions), set(index.find(null, "other", "repoX")));
+
+        // missing values match the wildcard entries
+        assertEquals(set(regex, noConditions, list, invalid), set(index.find(null, null, "repo1")));
+    }
+
+    @Test
+    public void testProjectFilter() {
+        TriggerEntry a = trigger("org1", "repo1");
+        TriggerEntry b = trigger("org1", "repo1");
+        when(dao.list(EVENT_SOURCE, 2)).thenReturn(Arrays.asList(a, b));
+
+        assertEquals(Collections.singletonList(b), index.find(b.getProjectId(), "org1", "repo1"));
+    }
+
+    @Test
+    public void testReload() {
+        TriggerEntry a = trigger("org1", "repo1");
+        TriggerEntry b = trigger("org1", "repo1");
+        when(dao.list(EVENT_SOURCE, 2)).thenReturn(Collections.singletonList(a), Arrays.asList(a, b));
+
+        index.find(null, "org1", "repo1");
+        index.find(null, "org1", "repo1");
+
+        // the fingerprint is the same, no need to reload
+        verify(dao, times(1)).list(EVENT_SOURCE, 2);
+
+        when(dao.fingerprint(EVENT_SOURCE)).thenReturn("2");
+        assertEquals(set(a, b), set(index.find(null, "org1", "repo1")));
+        verify(dao, times(2)).list(EVENT_SOURCE, 2);
+
+        index.invalidate();
+        index.find(null, "org1", "repo1");
+        verify(dao, times(3)).list(EVENT_SOURCE, 2);
+    }
+
+    private static Set<TriggerEntry> set(TriggerEntry... triggers) {
+        return new HashSet<>(Arrays.asList(triggers));
+    }
+
+    private static Set<TriggerEntry> set(List<TriggerEntry> triggers) {
+        return new HashSet<>(triggers);
+    }
+
+    private static TriggerEntry trigger(Object org, Object repo) {
+        Map<String, Object> conditions = new HashMap<>();
+        conditions.put("version", 2);
+        if (org != null) {
+            conditions.put(GITHUB_ORG_KEY, org);
+        }
+        if (repo != null) {
+            conditions.put(GITHUB_REPO_KEY, repo);
+        }
+
+        return new TriggerEntry(UUID.randomUUID(), UUID.randomUUID(), "org", UUID.randomUUID(), "project",
+                UUID.randomUUID(), "repo", EVENT_SOURCE, null, null, conditions, null);
+    }
+}
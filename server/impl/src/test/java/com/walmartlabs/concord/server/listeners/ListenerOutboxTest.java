@@ -0,0 +1,104 @@
+package com.walmartlabs.concord.server.listeners;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.cfg.ListenersConfiguration;
+import org.jooq.DSLContext;
+import org.jooq.JSONB;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ListenerOutboxTest {
+
+    private static final String SERVER_ID = "server-1";
+    private static final String SINK_NAME = "test";
+
+    @Test(timeout = 10000)
+    public void testDurableWithCallerTx() throws Exception {
+        List<JSONB> uncommitted = new CopyOnWriteArrayList<>();
+        List<JSONB> committed = new CopyOnWriteArrayList<>();
+
+        ListenerOutboxDao dao = mock(ListenerOutboxDao.class);
+        doAnswer(invocation -> {
+            List<JSONB> payloads = invocation.getArgument(3);
+            uncommitted.addAll(payloads);
+            return null;
+        }).when(dao).insert(any(DSLContext.class), eq(SERVER_ID), eq(SINK_NAME), anyList());
+
+        when(dao.consume(eq(SERVER_ID), eq(SINK_NAME), anyInt(), any())).thenAnswer(invocation -> {
+            List<JSONB> payloads = new ArrayList<>(committed);
+            if (payloads.isEmpty()) {
+                return 0;
+            }
+
+            Consumer<List<JSONB>> consumer = invocation.getArgument(3);
+            consumer.accept(payloads);
+            committed.removeAll(payloads);
+            return payloads.size();
+        });
+
+        ListenersConfiguration cfg = new ListenersConfiguration(1000, 10, Duration.ofMillis(50),
+                ListenersConfiguration.OverflowPolicy.BLOCK, Duration.ofSeconds(3), true, SERVER_ID);
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        ListenerOutbox<String> outbox = new ListenerOutbox<>(SINK_NAME, String.class, received::addAll,
+                cfg, dao, new ConcordObjectMapper(TestObjectMapper.INSTANCE), new MetricRegistry());
+
+        outbox.start();
+        try {
+            DSLContext tx = mock(DSLContext.class);
+            outbox.offerAll(tx, Arrays.asList("a", "b"));
+
+            // saved using the caller's transaction
+            verify(dao).insert(eq(tx), eq(SERVER_ID), eq(SINK_NAME), anyList());
+            verify(dao, never()).insert(anyString(), anyString(), anyList());
+
+            // not committed yet, nothing to deliver
+            Thread.sleep(200);
+            assertTrue(received.isEmpty());
+
+            // commit, the items are picked up by the periodic check
+            committed.addAll(uncommitted);
+            uncommitted.clear();
+
+            while (received.size() < 2) {
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("a", "b"), received);
+        } finally {
+            outbox.stop();
+        }
+    }
+}
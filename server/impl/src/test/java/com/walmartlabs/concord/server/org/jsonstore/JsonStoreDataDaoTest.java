@@ -0,0 +1,54 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@Ignore("local DB connection required")
+public class JsonStoreDataDaoTest extends AbstractDaoTest {
+
+    @Test
+    public void testCreateDropIndex() {
+        JsonStoreDataDao dao = new JsonStoreDataDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+
+        UUID storeId = UUID.randomUUID();
+        assertNull(dao.isIndexValid(storeId));
+
+        dao.createIndex(storeId);
+        assertEquals(Boolean.TRUE, dao.isIndexValid(storeId));
+
+        // "if not exists"
+        dao.createIndex(storeId);
+        assertEquals(Boolean.TRUE, dao.isIndexValid(storeId));
+
+        dao.dropIndex(storeId);
+        assertNull(dao.isIndexValid(storeId));
+    }
+}
@@ -0,0 +1,104 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class JsonStoreIndexBuilderTest {
+
+    private final JsonStoreDataDao dao = mock(JsonStoreDataDao.class);
+    private final JsonStoreIndexBuilder builder = new JsonStoreIndexBuilder(dao);
+
+    @After
+    public void tearDown() {
+        builder.stop();
+    }
+
+    @Test
+    public void testCreateIndex() {
+        UUID storeId = UUID.randomUUID();
+
+        assertTrue(builder.submit(storeId));
+
+        verify(dao, timeout(5000)).createIndex(storeId);
+        verify(dao, never()).dropIndex(storeId);
+    }
+
+    @Test
+    public void testInvalidIndexIsDropped() {
+        UUID storeId = UUID.randomUUID();
+        when(dao.isIndexValid(storeId)).thenReturn(false);
+
+        assertTrue(builder.submit(storeId));
+
+        verify(dao, timeout(5000)).createIndex(storeId);
+        verify(dao).dropIndex(storeId);
+    }
+
+    @Test
+    public void testDuplicateRequests() throws Exception {
+        UUID storeId = UUID.randomUUID();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(dao).createIndex(storeId);
+
+        assertTrue(builder.submit(storeId));
+        started.await();
+
+        // the index is still being built
+        assertFalse(builder.submit(storeId));
+
+        release.countDown();
+        verify(dao, timeout(5000)).createIndex(storeId);
+    }
+
+    @Test
+    public void testRetryAfterError() {
+        UUID storeId = UUID.randomUUID();
+        doThrow(new RuntimeException("test")).doNothing().when(dao).createIndex(storeId);
+
+        assertTrue(builder.submit(storeId));
+        verify(dao, timeout(5000)).createIndex(storeId);
+
+        // the failed build is no longer pending, wait until the builder lets it go
+        long deadline = System.currentTimeMillis() + 5000;
+        boolean submitted = false;
+        while (!submitted && System.currentTimeMillis() < deadline) {
+            submitted = builder.submit(storeId);
+        }
+        assertTrue(submitted);
+
+        verify(dao, timeout(5000).times(2)).createIndex(storeId);
+    }
+}
@@ -0,0 +1,87 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class JsonStoreQueryCacheTest {
+
+    private final JsonStoreQueryExecDao dao = new JsonStoreQueryExecDao(null, null, mock(JsonStoreQueryDao.class));
+
+    @Test
+    public void testCacheHit() {
+        JsonStoreQueryEntry q = query(UUID.randomUUID(), "select item_data from json_store_data");
+
+        String a = dao.getSql(q);
+        String b = dao.getSql(q);
+        assertSame(a, b);
+        assertTrue(a.toLowerCase().contains("json_store_id"));
+    }
+
+    @Test
+    public void testUpdatedText() {
+        UUID queryId = UUID.randomUUID();
+
+        String a = dao.getSql(query(queryId, "select item_data from json_store_data"));
+        String b = dao.getSql(query(queryId, "select item_data from json_store_data where item_data @> ?::jsonb"));
+        assertNotEquals(a, b);
+        assertTrue(b.contains("@>"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        JsonStoreQueryEntry q = query(UUID.randomUUID(), "select item_data from json_store_data");
+
+        String a = dao.getSql(q);
+        dao.invalidate(q.id());
+        String b = dao.getSql(q);
+        assertNotSame(a, b);
+        assertEquals(a, b);
+    }
+
+    @Test
+    public void testInvalidQueryIsNotCached() {
+        JsonStoreQueryEntry q = query(UUID.randomUUID(), "select from where");
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                dao.getSql(q);
+                fail("exception expected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Query parse error"));
+            }
+        }
+    }
+
+    private static JsonStoreQueryEntry query(UUID id, String text) {
+        return JsonStoreQueryEntry.builder()
+                .id(id)
+                .storeId(UUID.randomUUID())
+                .name("test")
+                .text(text)
+                .build();
+    }
+}
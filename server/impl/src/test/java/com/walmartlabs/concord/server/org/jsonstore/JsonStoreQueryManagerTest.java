@@ -0,0 +1,114 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.OperationResult;
+import com.walmartlabs.concord.server.audit.AuditLog;
+import com.walmartlabs.concord.server.org.OrganizationEntry;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.org.ResourceAccessLevel;
+import com.walmartlabs.concord.server.policy.PolicyManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class JsonStoreQueryManagerTest {
+
+    private static final String ORG_NAME = "org";
+    private static final String STORE_NAME = "store";
+    private static final String QUERY_NAME = "query";
+
+    private final UUID queryId = UUID.randomUUID();
+    private final UUID storeId = UUID.randomUUID();
+
+    private JsonStoreQueryDao queryDao;
+    private JsonStoreQueryExecDao execDao;
+    private JsonStoreQueryManager manager;
+
+    @Before
+    public void setUp() {
+        UUID orgId = UUID.randomUUID();
+
+        OrganizationManager orgManager = mock(OrganizationManager.class);
+        when(orgManager.assertAccess(ORG_NAME, true)).thenReturn(new OrganizationEntry(orgId, ORG_NAME, null, null, null, null));
+
+        JsonStoreAccessManager accessManager = mock(JsonStoreAccessManager.class);
+        when(accessManager.assertAccess(orgId, null, STORE_NAME, ResourceAccessLevel.READER, true)).thenReturn(JsonStoreEntry.builder()
+                .id(storeId)
+                .name(STORE_NAME)
+                .orgId(orgId)
+                .orgName(ORG_NAME)
+                .build());
+
+        queryDao = mock(JsonStoreQueryDao.class);
+        when(queryDao.getId(storeId, QUERY_NAME)).thenReturn(queryId);
+        when(queryDao.get(queryId)).thenReturn(JsonStoreQueryEntry.builder()
+                .id(queryId)
+                .storeId(storeId)
+                .name(QUERY_NAME)
+                .text("select item_data from json_store_data")
+                .build());
+
+        execDao = mock(JsonStoreQueryExecDao.class);
+
+        manager = new JsonStoreQueryManager(mock(PolicyManager.class), orgManager, accessManager,
+                queryDao, execDao, mock(AuditLog.class, RETURNS_DEEP_STUBS));
+    }
+
+    @Test
+    public void testUpdateInvalidatesCache() {
+        OperationResult result = manager.createOrUpdate(ORG_NAME, STORE_NAME, JsonStoreQueryRequest.builder()
+                .name(QUERY_NAME)
+                .text("select item_data from json_store_data where item_data @> ?::jsonb")
+                .build());
+
+        assertEquals(OperationResult.UPDATED, result);
+
+        verify(queryDao).update(eq(queryId), any());
+        verify(execDao).invalidate(queryId);
+    }
+
+    @Test
+    public void testNoChanges() {
+        OperationResult result = manager.createOrUpdate(ORG_NAME, STORE_NAME, JsonStoreQueryRequest.builder()
+                .name(QUERY_NAME)
+                .text("select item_data from json_store_data")
+                .build());
+
+        assertEquals(OperationResult.ALREADY_EXISTS, result);
+
+        verify(execDao, never()).invalidate(any());
+    }
+
+    @Test
+    public void testDeleteInvalidatesCache() {
+        manager.delete(ORG_NAME, STORE_NAME, QUERY_NAME);
+
+        verify(queryDao).delete(storeId, QUERY_NAME);
+        verify(execDao).invalidate(queryId);
+    }
+}
@@ -0,0 +1,107 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.Partitions;
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import org.jooq.impl.DSL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class ProcessPartitionManagerTest extends AbstractDaoTest {
+
+    private String table;
+    private ProcessPartitionManager.Dao dao;
+
+    @Before
+    public void setUp() {
+        table = "test_partitions_" + System.currentTimeMillis();
+        dao = new ProcessPartitionManager.Dao(getConfiguration());
+
+        tx(tx -> {
+            tx.execute("create table " + table + " (" +
+                    "ID serial primary key, " +
+                    "INSTANCE_ID uuid not null, " +
+                    "INSTANCE_CREATED_AT timestamptz not null, " +
+                    "unique (INSTANCE_ID, INSTANCE_CREATED_AT))");
+            tx.execute("insert into " + table + " (INSTANCE_ID, INSTANCE_CREATED_AT) values (md5(random()::text)::uuid, now() - interval '1 day')");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        tx(tx -> tx.execute("drop table if exists " + table + " cascade"));
+    }
+
+    @Test
+    public void testConvertAndManagePartitions() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate legacyBound = today.plusDays(1);
+
+        assertFalse(dao.isPartitioned(table));
+
+        dao.prepareConversion(table, legacyBound);
+        dao.convert(table, legacyBound);
+
+        assertTrue(dao.isPartitioned(table));
+
+        String legacyPartition = Partitions.partitionName(table + "_legacy", legacyBound).toLowerCase();
+        List<String> partitions = dao.listPartitions(table);
+        assertEquals(1, partitions.size());
+        assertTrue(partitions.contains(legacyPartition));
+
+        // the existing data is kept, the sequence still works
+        tx(tx -> {
+            assertEquals(1, tx.fetchCount(DSL.table(table)));
+            tx.execute("insert into " + table + " (INSTANCE_ID, INSTANCE_CREATED_AT) values (md5(random()::text)::uuid, now())");
+        });
+
+        LocalDate day = legacyBound.plusDays(1);
+        String dayPartition = Partitions.partitionName(table, day).toLowerCase();
+        String defaultPartition = table + "_default";
+
+        dao.createPartition(table, day);
+        dao.createDefaultPartition(table, defaultPartition);
+
+        partitions = dao.listPartitions(table);
+        assertTrue(partitions.contains(dayPartition));
+        assertTrue(partitions.contains(defaultPartition));
+
+        dao.detachPartition(table, dayPartition);
+        assertFalse(dao.listPartitions(table).contains(dayPartition));
+
+        dao.dropPartition(dayPartition);
+        dao.dropPartition(legacyPartition);
+
+        partitions = dao.listPartitions(table);
+        assertEquals(1, partitions.size());
+        assertTrue(partitions.contains(defaultPartition));
+    }
+}
@@ -0,0 +1,71 @@
+package com.walmartlabs.concord.server.process.form;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LdapGroupPatternTest {
+
+    private static final Set<String> GROUPS = new HashSet<>(Arrays.asList("CN=Admins,OU=Groups", "CN=Dev-Team,OU=Groups"));
+
+    @Test
+    public void testNoRestrictions() {
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[0], null));
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[0], GROUPS));
+    }
+
+    @Test
+    public void testJavaRegex() {
+        // the whole group name must match, case-insensitive
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[]{"cn=admins,.*"}, GROUPS));
+        assertFalse(ProcessFormsDao.matchesLdapGroups(new String[]{"cn=admins"}, GROUPS));
+
+        // Java-specific syntax
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[]{"CN=\\p{Alpha}+-Team,.*"}, GROUPS));
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[]{"\\QCN=Dev-Team,OU=Groups\\E"}, GROUPS));
+    }
+
+    @Test
+    public void testAnyPattern() {
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[]{"CN=Ops,.*", "CN=Dev-Team,.*"}, GROUPS));
+        assertFalse(ProcessFormsDao.matchesLdapGroups(new String[]{"CN=Ops,.*"}, GROUPS));
+    }
+
+    @Test
+    public void testNoUserGroups() {
+        assertFalse(ProcessFormsDao.matchesLdapGroups(new String[]{".*"}, null));
+        assertFalse(ProcessFormsDao.matchesLdapGroups(new String[]{".*"}, Collections.emptySet()));
+    }
+
+    @Test
+    public void testInvalidPattern() {
+        assertFalse(ProcessFormsDao.matchesLdapGroups(new String[]{"CN=(Admins"}, GROUPS));
+        assertTrue(ProcessFormsDao.matchesLdapGroups(new String[]{"CN=(Admins", "CN=Admins,.*"}, GROUPS));
+    }
+}
@@ -0,0 +1,196 @@
+package com.walmartlabs.concord.server.process.form;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.user.UserDao;
+import com.walmartlabs.concord.server.user.UserType;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_FORMS_BACKFILL;
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class ProcessFormsDaoTest extends AbstractDaoTest {
+
+    private ProcessQueueDao queueDao;
+    private ProcessFormsDao formsDao;
+    private UUID userId;
+    private String username;
+
+    @Before
+    public void setUp() {
+        ConcordObjectMapper objectMapper = new ConcordObjectMapper(TestObjectMapper.INSTANCE);
+        queueDao = new ProcessQueueDao(getConfiguration(), objectMapper);
+        formsDao = new ProcessFormsDao(getConfiguration(), objectMapper);
+
+        username = "user#" + System.currentTimeMillis();
+        userId = new UserDao(getConfiguration()).insertOrUpdate(username, null, null, null, UserType.LOCAL, null);
+    }
+
+    @Test
+    public void testListPending() {
+        // started by someone else
+        ProcessKey p = newProcess(ProcessStatus.SUSPENDED, null);
+        register(p,
+                form("forUser", Collections.singleton(username), Collections.emptySet()),
+                form("forOtherUser", Collections.singleton("someone-else"), Collections.emptySet()),
+                form("forGroup", Collections.emptySet(), Collections.singleton("CN=\\p{Alpha}+-Team,.*")),
+                form("forOtherGroup", Collections.emptySet(), Collections.singleton("CN=Ops,.*")),
+                form("forUserAndGroup", Collections.singleton(username), Collections.singleton("CN=Ops,.*")),
+                form("invalidPattern", Collections.emptySet(), Collections.singleton("CN=(")),
+                form("unrestricted", Collections.emptySet(), Collections.emptySet()));
+
+        // started by the user
+        ProcessKey own = newProcess(ProcessStatus.SUSPENDED, userId);
+        register(own, form("unrestricted", Collections.emptySet(), Collections.emptySet()));
+
+        // not suspended
+        ProcessKey running = newProcess(ProcessStatus.RUNNING, userId);
+        register(running, form("unrestricted", Collections.emptySet(), Collections.emptySet()));
+
+        Set<String> groups = Collections.singleton("cn=dev-team,ou=groups");
+
+        Set<String> l = pendingNames(groups, 0, 100, p, own, running);
+        assertEquals(new HashSet<>(Arrays.asList(
+                p.getInstanceId() + "/forUser",
+                p.getInstanceId() + "/forGroup",
+                own.getInstanceId() + "/unrestricted")), l);
+
+        // without LDAP groups only the forms without group restrictions are listed
+        l = pendingNames(null, 0, 100, p, own, running);
+        assertEquals(new HashSet<>(Arrays.asList(
+                p.getInstanceId() + "/forUser",
+                own.getInstanceId() + "/unrestricted")), l);
+    }
+
+    @Test
+    public void testListPendingPagination() {
+        ProcessKey p = newProcess(ProcessStatus.SUSPENDED, null);
+
+        // unique group names to avoid matching the forms of other tests
+        String suffix = "" + System.currentTimeMillis();
+
+        List<ProcessFormEntry> forms = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // the non-matching forms are skipped without breaking the pages
+            forms.add(form("a" + i, Collections.emptySet(), Collections.singleton("CN=Ops" + suffix + ",.*")));
+            forms.add(form("b" + i, Collections.emptySet(), Collections.singleton("CN=Dev" + suffix + ",.*")));
+        }
+        register(p, forms.toArray(new ProcessFormEntry[0]));
+
+        Set<String> groups = Collections.singleton("CN=Dev" + suffix + ",OU=Groups");
+
+        List<String> all = new ArrayList<>();
+        for (int offset = 0; offset < 10; offset += 2) {
+            List<PendingFormEntry> page = formsDao.listPending(userId, username, groups, offset, 2);
+            assertTrue(page.size() <= 2);
+            page.forEach(e -> all.add(e.name()));
+        }
+
+        assertEquals(Arrays.asList("b0", "b1", "b2", "b3", "b4"), all);
+    }
+
+    @Test
+    public void testBackfillIsClaimedOnce() {
+        ProcessKey p = newProcess(ProcessStatus.SUSPENDED, null);
+        tx(tx -> tx.insertInto(PROCESS_FORMS_BACKFILL)
+                .set(PROCESS_FORMS_BACKFILL.INSTANCE_ID, p.getInstanceId())
+                .execute());
+
+        assertTrue(formsDao.txResult(tx -> formsDao.claimBackfill(tx, p)));
+        assertFalse(formsDao.txResult(tx -> formsDao.claimBackfill(tx, p)));
+
+        // processes created after the registry was introduced are never backfilled
+        ProcessKey p2 = newProcess(ProcessStatus.SUSPENDED, null);
+        assertFalse(formsDao.txResult(tx -> formsDao.claimBackfill(tx, p2)));
+    }
+
+    @Test
+    public void testReplaceAndDelete() {
+        ProcessKey p = newProcess(ProcessStatus.SUSPENDED, null);
+        tx(tx -> tx.insertInto(PROCESS_FORMS_BACKFILL)
+                .set(PROCESS_FORMS_BACKFILL.INSTANCE_ID, p.getInstanceId())
+                .execute());
+
+        register(p, form("b", Collections.emptySet(), Collections.emptySet()),
+                form("a", Collections.emptySet(), Collections.emptySet()));
+
+        // registered forms don't need a backfill
+        assertFalse(formsDao.txResult(tx -> formsDao.claimBackfill(tx, p)));
+
+        assertEquals("a", formsDao.firstFormName(p));
+
+        tx(tx -> formsDao.delete(tx, p, "a"));
+        assertEquals("b", formsDao.firstFormName(p));
+        assertEquals(1, formsDao.list(p).size());
+
+        register(p);
+        assertNull(formsDao.firstFormName(p));
+    }
+
+    private Set<String> pendingNames(Set<String> groups, int offset, int limit, ProcessKey... processes) {
+        Set<UUID> ids = Arrays.stream(processes).map(ProcessKey::getInstanceId).collect(Collectors.toSet());
+
+        // other tests can leave their own forms, so fetch everything and filter out the unrelated ones
+        List<PendingFormEntry> l = formsDao.listPending(userId, username, groups, 0, Integer.MAX_VALUE);
+
+        return l.stream()
+                .filter(e -> ids.contains(e.instanceId()))
+                .skip(offset)
+                .limit(limit)
+                .map(e -> e.instanceId() + "/" + e.name())
+                .collect(Collectors.toSet());
+    }
+
+    private ProcessKey newProcess(ProcessStatus status, UUID initiatorId) {
+        ProcessKey k = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+        tx(tx -> queueDao.insert(tx, k, status, ProcessKind.DEFAULT, null, null, null, initiatorId, Collections.emptyMap(), null));
+        return k;
+    }
+
+    private void register(ProcessKey processKey, ProcessFormEntry... forms) {
+        tx(tx -> formsDao.replace(tx, processKey, Arrays.asList(forms)));
+    }
+
+    private static ProcessFormEntry form(String name, Set<String> users, Set<String> groups) {
+        return ProcessFormEntry.builder()
+                .name(name)
+                .eventName(name + "-event")
+                .runAsUsers(users)
+                .runAsLdapGroups(groups)
+                .yield(false)
+                .branded(false)
+                .build();
+    }
+}
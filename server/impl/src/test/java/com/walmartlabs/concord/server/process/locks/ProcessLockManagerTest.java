@@ -0,0 +1,78 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.process.PayloadManager;
+import com.walmartlabs.concord.server.process.ProcessManager;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessLockManagerTest {
+
+    @Test
+    public void testWaitTimeHistogram() {
+        UUID orgId = UUID.randomUUID();
+        UUID projectId = UUID.randomUUID();
+
+        ProcessLocksDao dao = mock(ProcessLocksDao.class);
+        when(dao.release(any(), eq(orgId), eq(projectId), eq(ProcessLockScope.PROJECT), anyString())).thenAnswer(invocation -> LockHandoff.builder()
+                .lock(LockEntry.builder()
+                        .instanceId(UUID.randomUUID())
+                        .orgId(orgId)
+                        .projectId(projectId)
+                        .scope(ProcessLockScope.PROJECT)
+                        .name(invocation.getArgument(4))
+                        .build())
+                .processKey(new ProcessKey(UUID.randomUUID(), OffsetDateTime.now()))
+                .waitTime(Duration.ofMillis(100))
+                .build());
+
+        // the next owner is not suspended yet, nothing to resume
+        ProcessQueueManager queueManager = mock(ProcessQueueManager.class);
+        when(queueManager.claimResume(any())).thenReturn(false);
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        ProcessLockManager manager = new ProcessLockManager(dao, queueManager, mock(PayloadManager.class), mock(ProcessManager.class), metricRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            manager.unlock(UUID.randomUUID(), orgId, projectId, ProcessLockScope.PROJECT, "lock-" + i);
+        }
+
+        // one histogram for all locks
+        assertEquals(Collections.singleton("process-locks-wait-time"), metricRegistry.getHistograms().keySet());
+        assertEquals(10, metricRegistry.histogram("process-locks-wait-time").getCount());
+    }
+}
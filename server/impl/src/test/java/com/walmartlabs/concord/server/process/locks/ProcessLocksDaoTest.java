@@ -0,0 +1,199 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.Locks;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.cfg.LockingConfiguration;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.org.project.ProjectDao;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.process.event.ProcessEventManager;
+import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import com.walmartlabs.concord.server.process.queue.ProcessKeyCache;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+@Ignore("requires a local DB instance")
+public class ProcessLocksDaoTest extends AbstractDaoTest {
+
+    private static final UUID ORG_ID = OrganizationManager.DEFAULT_ORG_ID;
+
+    private ProcessQueueDao queueDao;
+    private ProcessLocksDao locksDao;
+    private UUID projectId;
+
+    @Before
+    public void setUp() {
+        ConcordObjectMapper objectMapper = new ConcordObjectMapper(TestObjectMapper.INSTANCE);
+        queueDao = new ProcessQueueDao(getConfiguration(), objectMapper);
+        locksDao = new ProcessLocksDao(getConfiguration(), new Locks(new LockingConfiguration(1024)));
+
+        ProjectDao projectDao = new ProjectDao(getConfiguration(), objectMapper);
+        projectId = projectDao.insert(ORG_ID, "project#" + System.currentTimeMillis(), "test", null, null, null, null, new byte[0], null, null);
+    }
+
+    @Test
+    public void testFifoHandOff() {
+        String lockName = "lock#" + System.currentTimeMillis();
+
+        ProcessKey p1 = newProcess(ProcessStatus.RUNNING);
+        ProcessKey p2 = newProcess(ProcessStatus.RUNNING);
+        ProcessKey p3 = newProcess(ProcessStatus.RUNNING);
+
+        assertOwner(p1, tryLock(p1, lockName));
+        assertOwner(p1, tryLock(p2, lockName));
+        assertOwner(p1, tryLock(p3, lockName));
+
+        // repeated attempts don't change the position in the queue
+        assertOwner(p1, tryLock(p2, lockName));
+        assertEquals(2, countWaiters(lockName));
+
+        LockHandoff h = release(p1, lockName);
+        assertNotNull(h);
+        assertEquals(p2.getInstanceId(), h.processKey().getInstanceId());
+        assertOwner(p2, get(lockName));
+        assertEquals(1, countWaiters(lockName));
+
+        // the new owner "retries" after being resumed
+        assertOwner(p2, tryLock(p2, lockName));
+
+        h = release(p2, lockName);
+        assertNotNull(h);
+        assertEquals(p3.getInstanceId(), h.processKey().getInstanceId());
+        assertOwner(p3, get(lockName));
+        assertEquals(0, countWaiters(lockName));
+
+        assertNull(release(p3, lockName));
+        assertNull(get(lockName));
+    }
+
+    @Test
+    public void testFinishedWaitersAreSkipped() {
+        String lockName = "lock#" + System.currentTimeMillis();
+
+        ProcessKey p1 = newProcess(ProcessStatus.RUNNING);
+        ProcessKey p2 = newProcess(ProcessStatus.RUNNING);
+        ProcessKey p3 = newProcess(ProcessStatus.RUNNING);
+
+        tryLock(p1, lockName);
+        tryLock(p2, lockName);
+        tryLock(p3, lockName);
+
+        tx(tx -> queueDao.updateStatus(tx, p2, ProcessStatus.CANCELLED));
+
+        LockHandoff h = release(p1, lockName);
+        assertNotNull(h);
+        assertEquals(p3.getInstanceId(), h.processKey().getInstanceId());
+        assertOwner(p3, get(lockName));
+        assertEquals(0, countWaiters(lockName));
+    }
+
+    @Test
+    public void testReleaseAllRemovesWaiters() {
+        String lockA = "lockA#" + System.currentTimeMillis();
+        String lockB = "lockB#" + System.currentTimeMillis();
+
+        ProcessKey p1 = newProcess(ProcessStatus.RUNNING);
+        ProcessKey p2 = newProcess(ProcessStatus.RUNNING);
+        ProcessKey p3 = newProcess(ProcessStatus.RUNNING);
+
+        // p1 holds A and waits for B, p3 waits for A
+        tryLock(p1, lockA);
+        tryLock(p2, lockB);
+        tryLock(p1, lockB);
+        tryLock(p3, lockA);
+        assertEquals(1, countWaiters(lockB));
+
+        List<LockHandoff> handoffs = locksDao.releaseAll(p1.getInstanceId());
+        assertEquals(1, handoffs.size());
+        assertEquals(p3.getInstanceId(), handoffs.get(0).processKey().getInstanceId());
+        assertOwner(p3, get(lockA));
+
+        // p1 is not in the queue of B anymore
+        assertEquals(0, countWaiters(lockB));
+        assertNull(release(p2, lockB));
+        assertNull(get(lockB));
+    }
+
+    @Test
+    public void testClaimResume() {
+        ProcessQueueManager queueManager = new ProcessQueueManager(queueDao,
+                new ConcordObjectMapper(TestObjectMapper.INSTANCE),
+                mock(ProcessKeyCache.class),
+                mock(ProcessEventManager.class),
+                mock(ProcessLogManager.class));
+
+        ProcessKey running = newProcess(ProcessStatus.RUNNING);
+        assertFalse(queueManager.claimResume(running));
+        assertEquals(ProcessStatus.RUNNING, queueDao.getStatus(running));
+
+        ProcessKey suspended = newProcess(ProcessStatus.SUSPENDED);
+        assertTrue(queueManager.claimResume(suspended));
+        assertEquals(ProcessStatus.RESUMING, queueDao.getStatus(suspended));
+
+        // only one of the hand-off and the wait watchdog can resume the process
+        assertFalse(queueManager.claimResume(suspended));
+    }
+
+    private ProcessKey newProcess(ProcessStatus status) {
+        ProcessKey k = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+        tx(tx -> queueDao.insert(tx, k, status, ProcessKind.DEFAULT, null, projectId, null, null, Collections.emptyMap(), null));
+        return k;
+    }
+
+    private LockEntry tryLock(ProcessKey k, String lockName) {
+        return locksDao.tryLock(k.getInstanceId(), ORG_ID, projectId, ProcessLockScope.PROJECT, lockName);
+    }
+
+    private LockHandoff release(ProcessKey k, String lockName) {
+        return locksDao.release(k.getInstanceId(), ORG_ID, projectId, ProcessLockScope.PROJECT, lockName);
+    }
+
+    private LockEntry get(String lockName) {
+        return locksDao.get(ORG_ID, projectId, ProcessLockScope.PROJECT, lockName);
+    }
+
+    private int countWaiters(String lockName) {
+        return locksDao.countWaiters().getOrDefault(ProcessLocksDao.lockKey(ORG_ID, projectId, ProcessLockScope.PROJECT, lockName), 0);
+    }
+
+    private static void assertOwner(ProcessKey expected, LockEntry e) {
+        assertNotNull(e);
+        assertEquals(expected.getInstanceId(), e.instanceId());
+    }
+}
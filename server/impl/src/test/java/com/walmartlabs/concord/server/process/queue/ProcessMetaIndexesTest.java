@@ -0,0 +1,47 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@Ignore("requires a local DB instance")
+public class ProcessMetaIndexesTest extends AbstractDaoTest {
+
+    @Test
+    public void testCreateDropIndex() {
+        ProcessMetaIndexes.Dao dao = new ProcessMetaIndexes.Dao(getConfiguration());
+
+        String key = "test'Key-" + System.currentTimeMillis();
+        String indexName = ProcessMetaIndexes.indexName(key);
+        assertNull(dao.isIndexValid(indexName));
+
+        dao.createIndex(indexName, key);
+        assertEquals(Boolean.TRUE, dao.isIndexValid(indexName));
+
+        dao.dropIndex(indexName);
+        assertNull(dao.isIndexValid(indexName));
+    }
+}
@@ -0,0 +1,168 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessEntry;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Ignore("requires a local DB instance")
+public class ProcessQueueDaoTest extends AbstractDaoTest {
+
+    @Test
+    public void testCursorPagination() {
+        ProcessQueueDao dao = new ProcessQueueDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+
+        UUID parentId = UUID.randomUUID();
+
+        // processes with the same CREATED_AT must be ordered by INSTANCE_ID
+        OffsetDateTime createdAt = OffsetDateTime.now();
+        Set<UUID> expected = new HashSet<>();
+        tx(tx -> {
+            for (int i = 0; i < 10; i++) {
+                ProcessKey k = new ProcessKey(UUID.randomUUID(), createdAt.minusSeconds(i % 3));
+                dao.insert(tx, k, ProcessStatus.NEW, ProcessKind.DEFAULT, parentId, null, null, null, Collections.emptyMap(), null);
+                expected.add(k.getInstanceId());
+            }
+        });
+
+        List<UUID> actual = new ArrayList<>();
+        ProcessFilter.Cursor cursor = null;
+        while (true) {
+            List<ProcessEntry> page = dao.list(ProcessFilter.builder()
+                    .parentId(parentId)
+                    .limit(3)
+                    .cursor(cursor)
+                    .build());
+
+            page.forEach(e -> actual.add(e.instanceId()));
+
+            if (page.size() < 3) {
+                break;
+            }
+
+            ProcessEntry last = page.get(page.size() - 1);
+            cursor = ProcessFilter.Cursor.of(last.createdAt(), last.instanceId());
+        }
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, new HashSet<>(actual));
+    }
+
+    @Test
+    public void testCursorPaginationAfterCreatedAt() {
+        ProcessQueueDao dao = new ProcessQueueDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+
+        UUID parentId = UUID.randomUUID();
+
+        OffsetDateTime createdAt = OffsetDateTime.now();
+        List<UUID> expected = new ArrayList<>();
+        tx(tx -> {
+            for (int i = 0; i < 10; i++) {
+                ProcessKey k = new ProcessKey(UUID.randomUUID(), createdAt.minusSeconds(i));
+                dao.insert(tx, k, ProcessStatus.NEW, ProcessKind.DEFAULT, parentId, null, null, null, Collections.emptyMap(), null);
+                expected.add(k.getInstanceId());
+            }
+        });
+
+        // the oldest process is filtered out
+        OffsetDateTime afterCreatedAt = createdAt.minusSeconds(9).plusNanos(500_000_000);
+        expected.remove(expected.size() - 1);
+
+        // the cursor of the previous page must point to the next (older) rows
+        // even when "afterCreatedAt" is used
+        List<UUID> actual = new ArrayList<>();
+        ProcessFilter.Cursor cursor = null;
+        while (true) {
+            List<ProcessEntry> page = dao.list(ProcessFilter.builder()
+                    .parentId(parentId)
+                    .afterCreatedAt(afterCreatedAt)
+                    .limit(4)
+                    .cursor(cursor)
+                    .build());
+
+            page.forEach(e -> actual.add(e.instanceId()));
+
+            if (page.size() < 4) {
+                break;
+            }
+
+            ProcessEntry last = page.get(page.size() - 1);
+            cursor = ProcessFilter.Cursor.of(last.createdAt(), last.instanceId());
+        }
+
+        // newest first, no duplicates or gaps
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testStatistics() {
+        ProcessQueueDao dao = new ProcessQueueDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+        ProcessQueueStatistics.Dao statsDao = new ProcessQueueStatistics.Dao(getConfiguration());
+
+        statsDao.fold();
+        Map<String, Long> before = countByStatus(statsDao);
+
+        List<ProcessKey> keys = new ArrayList<>();
+        tx(tx -> {
+            for (int i = 0; i < 3; i++) {
+                ProcessKey k = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+                dao.insert(tx, k, ProcessStatus.NEW, ProcessKind.DEFAULT, null, null, null, null, Collections.emptyMap(), null);
+                keys.add(k);
+            }
+        });
+
+        tx(tx -> dao.updateStatus(tx, keys.get(0), ProcessStatus.RUNNING));
+
+        // the triggers only record the deltas, the counters are updated by fold()
+        assertEquals(before, countByStatus(statsDao));
+
+        statsDao.fold();
+        Map<String, Long> after = countByStatus(statsDao);
+
+        assertEquals(2L, after.getOrDefault("NEW", 0L) - before.getOrDefault("NEW", 0L));
+        assertEquals(1L, after.getOrDefault("RUNNING", 0L) - before.getOrDefault("RUNNING", 0L));
+    }
+
+    private static Map<String, Long> countByStatus(ProcessQueueStatistics.Dao dao) {
+        ProcessConfiguration cfg = mock(ProcessConfiguration.class);
+        when(cfg.getStatisticsInterval()).thenReturn(Duration.ofSeconds(15));
+
+        ProcessQueueStatistics stats = new ProcessQueueStatistics(cfg, mock(ProcessQueueDao.class), dao);
+        stats.performTask();
+        return stats.getStatistics(null, null);
+    }
+}
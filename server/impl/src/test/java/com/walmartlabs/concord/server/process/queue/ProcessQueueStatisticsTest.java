@@ -0,0 +1,128 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueStatistics.StatsEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class ProcessQueueStatisticsTest {
+
+    private static final UUID ORG_A = UUID.randomUUID();
+    private static final UUID ORG_B = UUID.randomUUID();
+    private static final UUID PROJECT_A1 = UUID.randomUUID();
+    private static final UUID PROJECT_A2 = UUID.randomUUID();
+    private static final UUID PROJECT_B1 = UUID.randomUUID();
+
+    private ProcessQueueDao queueDao;
+    private ProcessQueueStatistics.Dao dao;
+    private ProcessQueueStatistics stats;
+
+    @Before
+    public void setUp() {
+        ProcessConfiguration cfg = mock(ProcessConfiguration.class);
+        when(cfg.getStatisticsInterval()).thenReturn(Duration.ofSeconds(15));
+
+        queueDao = mock(ProcessQueueDao.class);
+        dao = mock(ProcessQueueStatistics.Dao.class);
+        stats = new ProcessQueueStatistics(cfg, queueDao, dao);
+
+        when(dao.list()).thenReturn(Arrays.asList(
+                new StatsEntry(ORG_A, PROJECT_A1, "RUNNING", 2),
+                new StatsEntry(ORG_A, PROJECT_A1, "FINISHED", 10),
+                new StatsEntry(ORG_A, PROJECT_A2, "RUNNING", 3),
+                new StatsEntry(ORG_B, PROJECT_B1, "RUNNING", 5),
+                new StatsEntry(null, null, "NEW", 7)));
+
+        when(queueDao.getEnqueuedStatistics()).thenReturn(Collections.singletonMap(ProcessQueueDao.ENQUEUED_NOW_METRIC, 4));
+    }
+
+    @Test
+    public void testEmptyBeforeFirstRun() {
+        assertTrue(stats.getStatistics().isEmpty());
+        assertTrue(stats.getStatistics(null, null).isEmpty());
+    }
+
+    @Test
+    public void testFoldBeforeList() {
+        stats.performTask();
+
+        verify(dao).fold();
+        verify(dao).list();
+        verify(queueDao).getEnqueuedStatistics();
+    }
+
+    @Test
+    public void testTotals() {
+        stats.performTask();
+
+        Map<String, Integer> m = stats.getStatistics();
+        assertEquals(10, (int) m.get("RUNNING"));
+        assertEquals(10, (int) m.get("FINISHED"));
+        assertEquals(7, (int) m.get("NEW"));
+        assertEquals(4, (int) m.get(ProcessQueueDao.ENQUEUED_NOW_METRIC));
+        assertEquals(4, m.size());
+    }
+
+    @Test
+    public void testByOrgAndProject() {
+        stats.performTask();
+
+        Map<String, Long> all = stats.getStatistics(null, null);
+        assertEquals(10L, (long) all.get("RUNNING"));
+        assertEquals(7L, (long) all.get("NEW"));
+
+        Map<String, Long> orgA = stats.getStatistics(ORG_A, null);
+        assertEquals(5L, (long) orgA.get("RUNNING"));
+        assertEquals(10L, (long) orgA.get("FINISHED"));
+        assertEquals(2, orgA.size());
+
+        Map<String, Long> project = stats.getStatistics(ORG_A, PROJECT_A2);
+        assertEquals(3L, (long) project.get("RUNNING"));
+        assertEquals(1, project.size());
+
+        // the project doesn't belong to the org
+        assertTrue(stats.getStatistics(ORG_B, PROJECT_A1).isEmpty());
+    }
+
+    @Test
+    public void testSnapshotIsReplaced() {
+        stats.performTask();
+
+        when(dao.list()).thenReturn(Collections.singletonList(new StatsEntry(ORG_A, PROJECT_A1, "RUNNING", 1)));
+        stats.performTask();
+
+        Map<String, Long> m = stats.getStatistics(null, null);
+        assertEquals(1L, (long) m.get("RUNNING"));
+        assertEquals(1, m.size());
+    }
+}
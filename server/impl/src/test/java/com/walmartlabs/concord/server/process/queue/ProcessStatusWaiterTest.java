@@ -0,0 +1,122 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessStatusWaiterTest {
+
+    private static final Set<ProcessStatus> STATUSES = EnumSet.of(ProcessStatus.SUSPENDED, ProcessStatus.FINISHED);
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ProcessKey processKey = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+
+    private ProcessQueueDao queueDao;
+    private ProcessStatusWaiter waiter;
+
+    @Before
+    public void setUp() {
+        queueDao = mock(ProcessQueueDao.class);
+
+        waiter = new ProcessStatusWaiter(queueDao, 10);
+        waiter.start();
+    }
+
+    @After
+    public void tearDown() {
+        waiter.stop();
+    }
+
+    @Test
+    public void testAlreadyInStatus() throws Exception {
+        when(queueDao.getStatuses(any())).thenReturn(Collections.singletonMap(processKey.getInstanceId(), ProcessStatus.FINISHED));
+
+        CompletableFuture<ProcessStatus> f = waiter.waitFor(processKey, STATUSES, TIMEOUT);
+        assertEquals(ProcessStatus.FINISHED, f.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStatusChange() throws Exception {
+        when(queueDao.getStatuses(any()))
+                .thenReturn(Collections.singletonMap(processKey.getInstanceId(), ProcessStatus.RUNNING))
+                .thenReturn(Collections.singletonMap(processKey.getInstanceId(), ProcessStatus.RUNNING))
+                .thenReturn(Collections.singletonMap(processKey.getInstanceId(), ProcessStatus.SUSPENDED));
+
+        CompletableFuture<ProcessStatus> f = waiter.waitFor(processKey, STATUSES, TIMEOUT);
+        assertEquals(ProcessStatus.SUSPENDED, f.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        when(queueDao.getStatuses(any())).thenReturn(Collections.singletonMap(processKey.getInstanceId(), ProcessStatus.RUNNING));
+
+        CompletableFuture<ProcessStatus> f = waiter.waitFor(processKey, STATUSES, Duration.ofMillis(100));
+        try {
+            f.get(10, TimeUnit.SECONDS);
+            fail("exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testProcessNotFound() throws Exception {
+        when(queueDao.getStatuses(any())).thenReturn(Collections.emptyMap());
+
+        CompletableFuture<ProcessStatus> f = waiter.waitFor(processKey, STATUSES, TIMEOUT);
+        try {
+            f.get(10, TimeUnit.SECONDS);
+            fail("exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        when(queueDao.getStatuses(any())).thenReturn(Collections.singletonMap(processKey.getInstanceId(), ProcessStatus.RUNNING));
+
+        CompletableFuture<ProcessStatus> f = waiter.waitFor(processKey, STATUSES, TIMEOUT);
+        waiter.stop();
+
+        assertTrue(f.isCompletedExceptionally());
+    }
+}
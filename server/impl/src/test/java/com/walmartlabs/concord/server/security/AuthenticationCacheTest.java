@@ -0,0 +1,117 @@
+package com.walmartlabs.concord.server.security;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.AuthCacheConfiguration;
+import com.walmartlabs.concord.server.user.UserEntry;
+import com.walmartlabs.concord.server.user.UserType;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AuthenticationCacheTest {
+
+    private AuthenticationCache.Dao dao;
+    private AuthenticationCache cache;
+
+    @Before
+    public void setUp() {
+        dao = mock(AuthenticationCache.Dao.class);
+
+        AuthCacheConfiguration cfg = new AuthCacheConfiguration(true, Duration.ofMinutes(1), 100, Duration.ofSeconds(1), Duration.ofHours(1));
+        cache = new AuthenticationCache(cfg, dao, new MetricRegistry());
+    }
+
+    @Test
+    public void testInvalidateUser() {
+        UUID userA = UUID.randomUUID();
+        UUID userB = UUID.randomUUID();
+
+        cache.putApiKeyUser("a1", UUID.randomUUID(), user(userA));
+        cache.putApiKeyUser("a2", UUID.randomUUID(), user(userA));
+        cache.putApiKeyUser("b1", UUID.randomUUID(), user(userB));
+
+        cache.invalidateUser(userA);
+
+        assertNull(cache.getApiKeyUser("a1"));
+        assertNull(cache.getApiKeyUser("a2"));
+        assertNotNull(cache.getApiKeyUser("b1"));
+
+        // the entry can be cached again after the invalidation
+        cache.putApiKeyUser("a1", UUID.randomUUID(), user(userA));
+        assertNotNull(cache.getApiKeyUser("a1"));
+    }
+
+    @Test
+    public void testFeed() {
+        UUID userId = UUID.randomUUID();
+        UUID apiKeyId = UUID.randomUUID();
+        UUID instanceId = UUID.randomUUID();
+
+        cache.putApiKeyUser("a1", apiKeyId, user(UUID.randomUUID()));
+        cache.putApiKeyUser("b1", UUID.randomUUID(), user(userId));
+        cache.putSessionPrincipals(instanceId, UUID.randomUUID(), new SimplePrincipalCollection("test", "test"));
+        assertNotNull(cache.getSessionPrincipals(instanceId));
+
+        when(dao.getMaxSeq()).thenReturn(10L);
+
+        // the first run only records the current position
+        cache.performTask();
+        verify(dao, never()).poll(anyLong(), any(), anyInt());
+
+        // #11 is not committed yet
+        when(dao.poll(eq(10L), eq(Collections.emptySet()), anyInt()))
+                .thenReturn(Collections.singletonList(new AuthenticationCache.Invalidation(12, "USER", userId)));
+
+        cache.performTask();
+        assertNull(cache.getApiKeyUser("b1"));
+        assertNotNull(cache.getApiKeyUser("a1"));
+
+        // the gap is re-checked
+        when(dao.poll(eq(12L), eq(Collections.singleton(11L)), anyInt()))
+                .thenReturn(Arrays.asList(
+                        new AuthenticationCache.Invalidation(11, "API_KEY", apiKeyId),
+                        new AuthenticationCache.Invalidation(13, "PROCESS", instanceId)));
+
+        cache.performTask();
+        assertNull(cache.getApiKeyUser("a1"));
+        assertNull(cache.getSessionPrincipals(instanceId));
+
+        // nothing new
+        cache.performTask();
+        verify(dao).poll(eq(13L), eq(Collections.emptySet()), anyInt());
+    }
+
+    private static UserEntry user(UUID id) {
+        return new UserEntry(id, "user_" + id, null, null, null, UserType.LOCAL, null, null, false);
+    }
+}
@@ -0,0 +1,106 @@
+package com.walmartlabs.concord.server.task;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.sdk.ShardedScheduledTask;
+import com.walmartlabs.concord.server.sdk.TaskPartition;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSchedulerTest {
+
+    @Test
+    public void testPartition() {
+        Map<String, ScheduledTask> tasks = new HashMap<>();
+        tasks.put("regular", new TestTask());
+        tasks.put("sharded", new TestShardedTask(3));
+        tasks.put("single", new TestShardedTask(1));
+
+        Map<String, TaskScheduler.TaskRef> refs = TaskScheduler.partition(tasks);
+        assertEquals(new HashSet<>(Arrays.asList("regular", "single", "sharded#0", "sharded#1", "sharded#2")), refs.keySet());
+    }
+
+    @Test
+    public void testFairShare() {
+        Map<String, ScheduledTask> tasks = new HashMap<>();
+        tasks.put("regular", new TestTask());
+        tasks.put("sharded", new TestShardedTask(4));
+
+        Map<String, TaskScheduler.TaskRef> refs = TaskScheduler.partition(tasks);
+        List<String> candidates = Arrays.asList("regular", "sharded#0", "sharded#1", "sharded#2", "sharded#3");
+
+        // a single node takes everything
+        assertEquals(candidates, TaskScheduler.selectFairShare(refs, Collections.emptySet(), candidates, 1));
+
+        // with two nodes, a node takes at most two partitions
+        assertEquals(Arrays.asList("regular", "sharded#0", "sharded#1"),
+                TaskScheduler.selectFairShare(refs, Collections.emptySet(), candidates, 2));
+
+        // the partitions that are already running count towards the share
+        assertEquals(Arrays.asList("regular", "sharded#0"),
+                TaskScheduler.selectFairShare(refs, Collections.singleton("sharded#3"), candidates, 2));
+
+        // more nodes than partitions, one partition per node
+        List<String> selected = TaskScheduler.selectFairShare(refs, Collections.emptySet(), candidates, 10);
+        assertEquals(Arrays.asList("regular", "sharded#0"), selected);
+        assertTrue(TaskScheduler.selectFairShare(refs, Collections.singleton("sharded#0"), candidates.subList(1, 5), 10).isEmpty());
+    }
+
+    private static class TestTask implements ScheduledTask {
+
+        @Override
+        public long getIntervalInSec() {
+            return 1;
+        }
+
+        @Override
+        public void performTask() {
+        }
+    }
+
+    private static class TestShardedTask implements ShardedScheduledTask {
+
+        private final int partitions;
+
+        private TestShardedTask(int partitions) {
+            this.partitions = partitions;
+        }
+
+        @Override
+        public long getIntervalInSec() {
+            return 1;
+        }
+
+        @Override
+        public int getPartitionCount() {
+            return partitions;
+        }
+
+        @Override
+        public void performTask(TaskPartition partition) {
+        }
+    }
+}
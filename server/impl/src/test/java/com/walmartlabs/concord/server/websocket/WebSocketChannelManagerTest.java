@@ -0,0 +1,190 @@
+package com.walmartlabs.concord.server.websocket;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2018 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.queueclient.message.CommandRequest;
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
+import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WebSocketChannelManagerTest {
+
+    private static final Map<String, Object> CAPS_A = Collections.singletonMap("flavor", "a");
+    private static final Map<String, Object> CAPS_B = Collections.singletonMap("flavor", "b");
+
+    private WebSocketChannelManager manager;
+
+    @Before
+    public void setUp() {
+        manager = new WebSocketChannelManager(new MetricRegistry());
+    }
+
+    @Test
+    public void testGroupByCapabilities() {
+        WebSocketChannel a1 = channel();
+        WebSocketChannel a2 = channel();
+        WebSocketChannel b1 = channel();
+
+        request(a1, processRequest(1, CAPS_A));
+        request(a2, processRequest(2, CAPS_A));
+        request(b1, processRequest(3, CAPS_B));
+        request(b1, commandRequest(4));
+
+        Map<Map<String, Object>, Map<WebSocketChannel, ProcessRequest>> groups = manager.getProcessRequestsByCapabilities();
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(CAPS_A).size());
+        assertEquals(1, groups.get(CAPS_B).size());
+        assertTrue(groups.get(CAPS_A).containsKey(a1));
+        assertTrue(groups.get(CAPS_A).containsKey(a2));
+        assertTrue(groups.get(CAPS_B).containsKey(b1));
+
+        Map<WebSocketChannel, CommandRequest> commands = manager.getRequests(MessageType.COMMAND_REQUEST);
+        assertEquals(1, commands.size());
+        assertTrue(commands.containsKey(b1));
+
+        assertEquals(4, manager.pendingRequestsCount());
+    }
+
+    @Test
+    public void testOneRequestPerChannel() {
+        WebSocketChannel ch = channel();
+
+        request(ch, processRequest(1, CAPS_A));
+        request(ch, processRequest(2, CAPS_A));
+        assertEquals(2, manager.pendingRequestsCount());
+
+        Map<WebSocketChannel, ProcessRequest> requests = manager.getRequests(MessageType.PROCESS_REQUEST);
+        assertEquals(1, requests.size());
+
+        Map<Map<String, Object>, Map<WebSocketChannel, ProcessRequest>> groups = manager.getProcessRequestsByCapabilities();
+        assertEquals(1, groups.get(CAPS_A).size());
+    }
+
+    @Test
+    public void testResponseRemovesRequest() {
+        WebSocketChannel ch = channel();
+        request(ch, processRequest(1, CAPS_A));
+
+        assertTrue(manager.sendResponse(ch.getChannelId(), response(1)));
+        assertEquals(0, manager.pendingRequestsCount());
+        assertTrue(manager.getProcessRequestsByCapabilities().isEmpty());
+
+        // the request was already answered
+        assertFalse(manager.sendResponse(ch.getChannelId(), response(1)));
+    }
+
+    @Test
+    public void testResponseWithoutRequest() {
+        WebSocketChannel ch = channel();
+        request(ch, processRequest(1, CAPS_A));
+
+        assertFalse(manager.sendResponse(ch.getChannelId(), response(2)));
+        assertEquals(1, manager.pendingRequestsCount());
+    }
+
+    @Test
+    public void testCloseRemovesRequests() {
+        WebSocketChannel ch = channel();
+        request(ch, processRequest(1, CAPS_A));
+        request(ch, commandRequest(2));
+
+        manager.close(ch.getChannelId());
+
+        assertEquals(0, manager.pendingRequestsCount());
+        assertTrue(manager.getProcessRequestsByCapabilities().isEmpty());
+        assertTrue(manager.getRequests(MessageType.COMMAND_REQUEST).isEmpty());
+    }
+
+    @Test
+    public void testDuplicateRequestClosesChannel() {
+        Session session = session();
+        WebSocketChannel ch = channel(session);
+
+        request(ch, processRequest(1, CAPS_A));
+        request(ch, processRequest(1, CAPS_A));
+
+        verify(session).close();
+    }
+
+    @Test
+    public void testClosedSessionsAreSkipped() {
+        Session session = session();
+        WebSocketChannel ch = channel(session);
+        request(ch, processRequest(1, CAPS_A));
+
+        when(session.isOpen()).thenReturn(false);
+
+        Map<WebSocketChannel, ProcessRequest> group = manager.getProcessRequestsByCapabilities().get(CAPS_A);
+        assertTrue(group == null || group.isEmpty());
+        assertTrue(manager.getRequests(MessageType.PROCESS_REQUEST).isEmpty());
+    }
+
+    private WebSocketChannel channel() {
+        return channel(session());
+    }
+
+    private WebSocketChannel channel(Session session) {
+        UUID channelId = UUID.randomUUID();
+        WebSocketChannel ch = new WebSocketChannel(channelId, "agent-" + channelId, session, "test");
+        manager.add(channelId, ch);
+        return ch;
+    }
+
+    private void request(WebSocketChannel ch, Message m) {
+        manager.onRequest(ch.getChannelId(), m);
+    }
+
+    private static Session session() {
+        Session session = mock(Session.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemote()).thenReturn(mock(RemoteEndpoint.class));
+        return session;
+    }
+
+    private static ProcessRequest processRequest(long correlationId, Map<String, Object> capabilities) {
+        ProcessRequest r = new ProcessRequest(capabilities);
+        r.setCorrelationId(correlationId);
+        return r;
+    }
+
+    private static CommandRequest commandRequest(long correlationId) {
+        CommandRequest r = new CommandRequest(UUID.randomUUID());
+        r.setCorrelationId(correlationId);
+        return r;
+    }
+
+    private static ProcessResponse response(long correlationId) {
+        return new ProcessResponse(correlationId, null, UUID.randomUUID(), null, null, null, null, null, null);
+    }
+}
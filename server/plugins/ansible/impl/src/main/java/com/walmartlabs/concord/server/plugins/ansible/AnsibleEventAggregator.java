@@ -0,0 +1,283 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.SynchronousListener;
+import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
+import com.walmartlabs.concord.server.sdk.events.ProcessEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes Ansible events as soon as they are inserted into the DB.
+ * <p>
+ * Events are buffered in memory and periodically flushed using
+ * the regular {@link EventProcessor}s. Each flush aggregates all buffered
+ * events (per playbook, host, play and task) and upserts the resulting deltas
+ * in a single transaction. Processed events are recorded in
+ * {@code ANSIBLE_STREAMED_EVENTS}, the events that never made it
+ * (e.g. dropped because of the buffer overflow or lost on restart)
+ * are picked up later by {@link EventFetcher}.
+ */
+@Named
+@Singleton
+@SynchronousListener
+public class AnsibleEventAggregator implements ProcessEventListener, BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AnsibleEventAggregator.class);
+
+    private static final long ERROR_DELAY = 5000;
+
+    private final AnsibleEventsConfiguration cfg;
+    private final EventMarkerDao eventMarkerDao;
+    private final EventFetcher.AnsibleEventDao dao;
+    private final List<EventProcessor> processors;
+
+    private final Object mutex = new Object();
+    private List<Item> buffer = new ArrayList<>();
+
+    private final Meter flushedEvents;
+    private final Counter droppedEvents;
+    private final Histogram lag;
+
+    /**
+     * Max {@code EVENT_SEQ} received by this node.
+     */
+    private final AtomicLong maxEventSeq = new AtomicLong(-1);
+
+    private volatile Thread worker;
+
+    @Inject
+    public AnsibleEventAggregator(AnsibleEventsConfiguration cfg,
+                                  EventMarkerDao eventMarkerDao,
+                                  EventFetcher.AnsibleEventDao dao,
+                                  List<EventProcessor> processors,
+                                  MetricRegistry metricRegistry) {
+
+        this.cfg = cfg;
+        this.eventMarkerDao = eventMarkerDao;
+        this.dao = dao;
+        this.processors = processors;
+
+        this.flushedEvents = metricRegistry.meter("ansible-events-stream-flushed");
+        this.droppedEvents = metricRegistry.counter("ansible-events-stream-dropped");
+        this.lag = metricRegistry.histogram("ansible-events-stream-lag");
+        metricRegistry.register("ansible-events-stream-buffer-size", (Gauge<Integer>) this::bufferSize);
+    }
+
+    @Override
+    public void start() {
+        if (!cfg.isStreamingEnabled()) {
+            log.info("start -> streaming is disabled");
+            return;
+        }
+
+        this.worker = new Thread(this::run, "ansible-event-aggregator");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+
+        log.info("stop -> done");
+    }
+
+    @Override
+    public void onEvents(List<ProcessEvent> events) {
+        if (worker == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        List<Item> items = new ArrayList<>();
+        for (ProcessEvent e : events) {
+            maxEventSeq.accumulateAndGet(e.eventSeq(), Math::max);
+
+            List<String> keys = EventFetcher.PAYLOAD_KEYS.get(e.eventType());
+            if (keys == null) {
+                continue;
+            }
+
+            items.add(new Item(toEvent(e, keys), now));
+        }
+
+        if (items.isEmpty()) {
+            return;
+        }
+
+        synchronized (mutex) {
+            if (buffer.size() + items.size() > cfg.getStreamingMaxBufferSize()) {
+                // the events will be processed by the EventFetcher
+                droppedEvents.inc(items.size());
+                return;
+            }
+
+            buffer.addAll(items);
+
+            if (buffer.size() >= cfg.getStreamingMaxBufferSize() / 2) {
+                mutex.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the max {@code EVENT_SEQ} received by this node or {@code -1}
+     * if no events were received yet.
+     */
+    public long getMaxEventSeq() {
+        return maxEventSeq.get();
+    }
+
+    private void run() {
+        long flushInterval = cfg.getStreamingFlushInterval().toMillis();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Item> items;
+            synchronized (mutex) {
+                if (buffer.isEmpty()) {
+                    try {
+                        mutex.wait(flushInterval);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                items = buffer;
+                buffer = new ArrayList<>();
+            }
+
+            if (items.isEmpty()) {
+                continue;
+            }
+
+            try {
+                flush(items);
+            } catch (Exception e) {
+                // the events are not marked as processed, the EventFetcher will pick them up later
+                log.warn("run -> error while processing {} event(s): {}. Will retry in {}ms...", items.size(), e.getMessage(), ERROR_DELAY, e);
+                sleep(ERROR_DELAY);
+            }
+        }
+    }
+
+    private void flush(List<Item> items) {
+        items.sort(Comparator.comparingLong(i -> i.event.eventSeq()));
+
+        int processed = eventMarkerDao.txResult(tx -> {
+            // events before the marker were already processed by the EventFetcher
+            long eventSeq = eventMarkerDao.lock(tx, EventFetcher.PROCESSOR_NAME);
+
+            List<EventProcessor.Event> events = new ArrayList<>(items.size());
+            for (Item i : items) {
+                if (i.event.eventSeq() > eventSeq) {
+                    events.add(i.event);
+                }
+            }
+
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            for (EventProcessor p : processors) {
+                p.process(tx, events);
+            }
+
+            dao.insertStreamed(tx, events);
+
+            return events.size();
+        });
+
+        long now = System.currentTimeMillis();
+        for (Item i : items) {
+            lag.update(now - i.receivedAt);
+        }
+
+        flushedEvents.mark(processed);
+    }
+
+    private int bufferSize() {
+        synchronized (mutex) {
+            return buffer.size();
+        }
+    }
+
+    private static EventProcessor.Event toEvent(ProcessEvent e, List<String> keys) {
+        // keep only the data required by the processors
+        Map<String, Object> payload = new HashMap<>(keys.size());
+        Map<String, Object> data = e.data();
+        if (data != null) {
+            for (String k : keys) {
+                Object v = data.get(k);
+                if (v != null) {
+                    payload.put(k, v);
+                }
+            }
+        }
+
+        return ImmutableEvent.builder()
+                .instanceId(e.processKey().getInstanceId())
+                .instanceCreatedAt(e.processKey().getCreatedAt())
+                .eventSeq(e.eventSeq())
+                .eventDate(e.eventDate())
+                .eventType(e.eventType())
+                .payload(payload)
+                .build();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Item {
+
+        private final EventProcessor.Event event;
+        private final long receivedAt;
+
+        private Item(EventProcessor.Event event, long receivedAt) {
+            this.event = event;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
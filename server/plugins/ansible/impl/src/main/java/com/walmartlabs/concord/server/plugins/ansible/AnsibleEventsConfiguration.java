@@ -40,6 +40,18 @@ public class AnsibleEventsConfiguration implements Serializable {
     @Config("ansibleEvents.fetchLimit")
     private int fetchLimit;
 
+    @Inject
+    @Config("ansibleEvents.streaming.enabled")
+    private boolean streamingEnabled;
+
+    @Inject
+    @Config("ansibleEvents.streaming.flushInterval")
+    private Duration streamingFlushInterval;
+
+    @Inject
+    @Config("ansibleEvents.streaming.maxBufferSize")
+    private int streamingMaxBufferSize;
+
     public AnsibleEventsConfiguration() {
     }
 
@@ -48,6 +60,14 @@ public class AnsibleEventsConfiguration implements Serializable {
         this.fetchLimit = fetchLimit;
     }
 
+    public AnsibleEventsConfiguration(Duration period, int fetchLimit, boolean streamingEnabled, Duration streamingFlushInterval, int streamingMaxBufferSize) {
+        this.period = period;
+        this.fetchLimit = fetchLimit;
+        this.streamingEnabled = streamingEnabled;
+        this.streamingFlushInterval = streamingFlushInterval;
+        this.streamingMaxBufferSize = streamingMaxBufferSize;
+    }
+
     public Duration getPeriod() {
         return period;
     }
@@ -55,4 +75,16 @@ public class AnsibleEventsConfiguration implements Serializable {
     public int getFetchLimit() {
         return fetchLimit;
     }
+
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    public Duration getStreamingFlushInterval() {
+        return streamingFlushInterval;
+    }
+
+    public int getStreamingMaxBufferSize() {
+        return streamingMaxBufferSize;
+    }
 }
@@ -20,6 +20,8 @@ package com.walmartlabs.concord.server.plugins.ansible;
  * =====
  */
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
@@ -30,31 +32,62 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.sql.PreparedStatement;
 import java.time.OffsetDateTime;
 import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.plugins.ansible.jooq.Tables.ANSIBLE_STREAMED_EVENTS;
 import static org.jooq.impl.DSL.*;
 
+/**
+ * Processes Ansible events stored in {@code PROCESS_EVENTS}.
+ * <p>
+ * If the streaming mode is enabled, most of the events are processed
+ * by {@link AnsibleEventAggregator} as soon as they are received. In this
+ * mode the fetcher only picks up the events that were missed by
+ * the aggregator (e.g. received by a node that was restarted before
+ * it could flush its buffer).
+ */
 @Named("ansible-event-processor")
 @Singleton
 public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
 
-    private static final String PROCESSOR_NAME = "ansible-event-processor";
+    public static final String PROCESSOR_NAME = "ansible-event-processor";
+
+    /**
+     * Event payload keys used by the processors, per event type.
+     */
+    public static final Map<String, List<String>> PAYLOAD_KEYS = payloadKeys();
 
     private final AnsibleEventsConfiguration cfg;
+    private final EventMarkerDao eventMarkerDao;
     private final EventFetcher.AnsibleEventDao dao;
     private final List<EventProcessor> processors;
+    private final AnsibleEventAggregator aggregator;
+    private final Meter recoveredEvents;
+
+    /**
+     * Max {@code EVENT_SEQ} received by the aggregator before the previous run.
+     * In the streaming mode the fetcher processes only the events up to this
+     * value, giving the aggregator at least one full period to flush its buffers.
+     */
+    private volatile long prevMaxEventSeq = -1;
 
     @Inject
     public EventFetcher(AnsibleEventsConfiguration cfg,
                         EventMarkerDao eventMarkerDao,
                         AnsibleEventDao dao,
-                        List<EventProcessor> processors) {
+                        List<EventProcessor> processors,
+                        AnsibleEventAggregator aggregator,
+                        MetricRegistry metricRegistry) {
         super(PROCESSOR_NAME, eventMarkerDao, cfg.getFetchLimit());
         this.cfg = cfg;
+        this.eventMarkerDao = eventMarkerDao;
         this.dao = dao;
         this.processors = processors;
+        this.aggregator = aggregator;
+        this.recoveredEvents = metricRegistry.meter("ansible-events-recovered");
     }
 
     @Override
@@ -62,9 +95,33 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
         return cfg.getPeriod().getSeconds();
     }
 
+    @Override
+    public void performTask() {
+        if (!cfg.isStreamingEnabled()) {
+            super.performTask();
+            return;
+        }
+
+        // the high-water mark is tracked in memory, no need to scan PROCESS_EVENTS
+        long maxEventSeq = aggregator.getMaxEventSeq();
+        long upToEventSeq = prevMaxEventSeq;
+        prevMaxEventSeq = maxEventSeq;
+
+        if (upToEventSeq < 0) {
+            // first run, let the aggregator process the recent events
+            return;
+        }
+
+        int fetchLimit = cfg.getFetchLimit();
+        int processedEvents;
+        do {
+            processedEvents = eventMarkerDao.txResult(tx -> recover(tx, upToEventSeq, fetchLimit));
+        } while (processedEvents >= fetchLimit);
+    }
+
     @Override
     protected List<EventProcessor.Event> processEvents(DSLContext tx, EventMarkerDao.EventMarker marker, int fetchLimit) {
-        List<EventProcessor.Event> events = dao.list(tx, marker, fetchLimit);
+        List<EventProcessor.Event> events = dao.list(tx, marker.eventSeq(), null, fetchLimit);
         if (events.isEmpty()) {
             return Collections.emptyList();
         }
@@ -76,6 +133,39 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
         return events;
     }
 
+    private int recover(DSLContext tx, long upToEventSeq, int fetchLimit) {
+        // the same lock is used by the aggregator, this way each event is processed exactly once
+        long eventSeq = eventMarkerDao.lock(tx, PROCESSOR_NAME);
+        if (eventSeq >= upToEventSeq) {
+            return 0;
+        }
+
+        List<EventProcessor.Event> events = dao.list(tx, eventSeq, upToEventSeq, fetchLimit);
+        for (EventProcessor p : processors) {
+            p.process(tx, events);
+        }
+
+        long newEventSeq = upToEventSeq;
+        if (events.size() >= fetchLimit) {
+            newEventSeq = events.get(events.size() - 1).eventSeq();
+        }
+
+        eventMarkerDao.update(tx, PROCESSOR_NAME, newEventSeq);
+        dao.deleteStreamed(tx, newEventSeq);
+
+        recoveredEvents.mark(events.size());
+
+        return events.size();
+    }
+
+    private static Map<String, List<String>> payloadKeys() {
+        Map<String, List<String>> m = new HashMap<>();
+        m.put(Constants.ANSIBLE_EVENT_TYPE, Arrays.asList("host", "hostGroup", "status", "duration", "ignore_errors", "currentRetryCount", "hostStatus", "playId", "playbookId", "parentCorrelationId", "action", "isHandler", "taskId", "task"));
+        m.put(Constants.ANSIBLE_PLAYBOOK_INFO, Arrays.asList("plays", "playbookId", "playbook", "uniqueHosts", "totalWork", "parentCorrelationId", "currentRetryCount"));
+        m.put(Constants.ANSIBLE_PLAYBOOK_RESULT, Arrays.asList("playbookId", "status", "parentCorrelationId"));
+        return Collections.unmodifiableMap(m);
+    }
+
     @Named
     public static class AnsibleEventDao extends AbstractDao {
 
@@ -92,13 +182,22 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
             return super.txResult(t);
         }
 
-        private static SelectConditionStep<Record1<JSONB>> payloadField(DSLContext tx, String... keys) {
-            return tx.select(function("jsonb_object_agg", JSONB.class, field("key"), field("value")))
-                    .from(table("jsonb_each(pe.EVENT_DATA)"))
-                    .where(field("key").in(Arrays.asList(keys)));
+        private static Field<JSONB> payloadField(ProcessEvents pe, String eventType) {
+            List<Field<?>> args = new ArrayList<>();
+            for (String k : PAYLOAD_KEYS.get(eventType)) {
+                args.add(inline(k));
+                args.add(field("{0}->{1}", JSONB.class, pe.EVENT_DATA, inline(k)));
+            }
+
+            return function("jsonb_strip_nulls", JSONB.class, function("jsonb_build_object", JSONB.class, args.toArray(new Field<?>[0])));
         }
 
-        public List<EventProcessor.Event> list(DSLContext tx, EventMarkerDao.EventMarker marker, int count) {
+        /**
+         * Returns the Ansible events with {@code EVENT_SEQ} in the {@code (afterEventSeq, upToEventSeq]} range.
+         * If {@code upToEventSeq} is specified, the events already processed by
+         * {@link AnsibleEventAggregator} are skipped.
+         */
+        public List<EventProcessor.Event> list(DSLContext tx, long afterEventSeq, Long upToEventSeq, int count) {
             ProcessEvents pe = PROCESS_EVENTS.as("pe");
 
             SelectConditionStep<Record6<UUID, OffsetDateTime, Long, OffsetDateTime, String, JSONB>> q = tx.select(
@@ -107,12 +206,19 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
                     pe.EVENT_SEQ,
                     pe.EVENT_DATE,
                     pe.EVENT_TYPE,
-                    when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_EVENT_TYPE), payloadField(tx, "host", "hostGroup", "status", "duration", "ignore_errors", "currentRetryCount", "hostStatus", "playId", "playbookId", "parentCorrelationId", "action", "isHandler", "taskId", "task"))
-                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_INFO), payloadField(tx, "plays", "playbookId", "playbook", "uniqueHosts", "totalWork", "parentCorrelationId", "currentRetryCount"))
-                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_RESULT), payloadField(tx, "playbookId", "status", "parentCorrelationId")))
+                    when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_EVENT_TYPE), payloadField(pe, Constants.ANSIBLE_EVENT_TYPE))
+                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_INFO), payloadField(pe, Constants.ANSIBLE_PLAYBOOK_INFO))
+                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_RESULT), payloadField(pe, Constants.ANSIBLE_PLAYBOOK_RESULT)))
                     .from(pe)
                     .where(pe.EVENT_TYPE.in(Constants.ANSIBLE_EVENT_TYPE, Constants.ANSIBLE_PLAYBOOK_INFO, Constants.ANSIBLE_PLAYBOOK_RESULT)
-                            .and(pe.EVENT_SEQ.greaterThan(marker.eventSeq())));
+                            .and(pe.EVENT_SEQ.greaterThan(afterEventSeq)));
+
+            if (upToEventSeq != null) {
+                q.and(pe.EVENT_SEQ.lessOrEqual(upToEventSeq))
+                        .and(notExists(selectOne()
+                                .from(ANSIBLE_STREAMED_EVENTS)
+                                .where(ANSIBLE_STREAMED_EVENTS.EVENT_SEQ.eq(pe.EVENT_SEQ))));
+            }
 
             return q.orderBy(pe.EVENT_SEQ)
                     .limit(count)
@@ -126,6 +232,29 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
                             .build());
         }
 
+        public void insertStreamed(DSLContext tx, List<EventProcessor.Event> events) {
+            tx.connection(conn -> {
+                String sql = tx.insertInto(ANSIBLE_STREAMED_EVENTS)
+                        .columns(ANSIBLE_STREAMED_EVENTS.EVENT_SEQ)
+                        .values((Long) null)
+                        .getSQL();
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (EventProcessor.Event e : events) {
+                        ps.setLong(1, e.eventSeq());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            });
+        }
+
+        public void deleteStreamed(DSLContext tx, long upToEventSeq) {
+            tx.deleteFrom(ANSIBLE_STREAMED_EVENTS)
+                    .where(ANSIBLE_STREAMED_EVENTS.EVENT_SEQ.lessOrEqual(upToEventSeq))
+                    .execute();
+        }
+
         @SuppressWarnings("unchecked")
         private Map<String, Object> deserialize(JSONB o) {
             if (o == null) {
@@ -73,6 +73,26 @@ public class EventMarkerDao extends AbstractDao {
                 .build();
     }
 
+    /**
+     * Locks the marker's record until the end of the transaction
+     * and returns the current value.
+     */
+    public long lock(DSLContext tx, String processorName) {
+        EventProcessorMarker m = EVENT_PROCESSOR_MARKER.as("m");
+
+        tx.insertInto(m)
+                .columns(m.PROCESSOR_NAME, m.EVENT_SEQ)
+                .values(value(processorName), value(-1L))
+                .onConflictDoNothing()
+                .execute();
+
+        return tx.select(m.EVENT_SEQ)
+                .from(m)
+                .where(m.PROCESSOR_NAME.eq(processorName))
+                .forUpdate()
+                .fetchOne(m.EVENT_SEQ);
+    }
+
     public void update(DSLContext tx, String processorName, long eventSeq) {
         EventProcessorMarker m = EVENT_PROCESSOR_MARKER.as("m");
         tx.insertInto(m)
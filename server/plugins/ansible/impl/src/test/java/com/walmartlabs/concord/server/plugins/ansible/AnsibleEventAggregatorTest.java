@@ -0,0 +1,148 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
+import org.jooq.DSLContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AnsibleEventAggregatorTest {
+
+    private static final int MAX_BUFFER_SIZE = 10;
+
+    private DSLContext tx;
+    private EventMarkerDao eventMarkerDao;
+    private EventFetcher.AnsibleEventDao dao;
+    private EventProcessor processor;
+    private MetricRegistry metricRegistry;
+    private AnsibleEventAggregator aggregator;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        tx = mock(DSLContext.class);
+
+        eventMarkerDao = mock(EventMarkerDao.class);
+        when(eventMarkerDao.txResult(any())).thenAnswer(i -> ((AbstractDao.TxResult<?>) i.getArgument(0)).run(tx));
+
+        dao = mock(EventFetcher.AnsibleEventDao.class);
+        processor = mock(EventProcessor.class);
+        metricRegistry = new MetricRegistry();
+
+        // the buffer is flushed when it's half full or by the worker's timer
+        AnsibleEventsConfiguration cfg = new AnsibleEventsConfiguration(Duration.ofSeconds(10), 100, true, Duration.ofHours(1), MAX_BUFFER_SIZE);
+        aggregator = new AnsibleEventAggregator(cfg, eventMarkerDao, dao, Collections.singletonList(processor), metricRegistry);
+        aggregator.start();
+    }
+
+    @After
+    public void tearDown() {
+        aggregator.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlush() {
+        // events up to #2 were already processed by the EventFetcher
+        when(eventMarkerDao.lock(tx, EventFetcher.PROCESSOR_NAME)).thenReturn(2L);
+
+        List<ProcessEvent> events = new ArrayList<>();
+        for (int i = 1; i <= MAX_BUFFER_SIZE / 2; i++) {
+            events.add(event(i, Constants.ANSIBLE_EVENT_TYPE));
+        }
+        events.add(event(100, "ELEMENT"));
+
+        aggregator.onEvents(events);
+
+        ArgumentCaptor<List<EventProcessor.Event>> captor = ArgumentCaptor.forClass(List.class);
+        verify(processor, timeout(5000)).process(eq(tx), captor.capture());
+
+        List<EventProcessor.Event> processed = captor.getValue();
+        assertEquals(3, processed.size());
+        assertEquals(3L, processed.get(0).eventSeq());
+        assertEquals(5L, processed.get(2).eventSeq());
+
+        // only the keys used by the processors are kept
+        Map<String, Object> payload = processed.get(0).payload();
+        assertEquals("host1", payload.get("host"));
+        assertFalse(payload.containsKey("result"));
+
+        verify(dao, timeout(5000)).insertStreamed(tx, processed);
+    }
+
+    @Test
+    public void testOverflow() {
+        List<ProcessEvent> events = new ArrayList<>();
+        for (int i = 1; i <= MAX_BUFFER_SIZE + 1; i++) {
+            events.add(event(i, Constants.ANSIBLE_EVENT_TYPE));
+        }
+
+        aggregator.onEvents(events);
+
+        // the events are left for the EventFetcher
+        assertEquals(MAX_BUFFER_SIZE + 1, metricRegistry.counter("ansible-events-stream-dropped").getCount());
+        assertEquals(0, metricRegistry.getGauges().get("ansible-events-stream-buffer-size").getValue());
+        verify(processor, never()).process(any(), any());
+    }
+
+    @Test
+    public void testMaxEventSeq() {
+        assertEquals(-1, aggregator.getMaxEventSeq());
+
+        // all events are counted, not only the Ansible ones
+        aggregator.onEvents(Arrays.asList(
+                event(7, Constants.ANSIBLE_EVENT_TYPE),
+                event(9, "ELEMENT"),
+                event(8, Constants.ANSIBLE_EVENT_TYPE)));
+
+        assertEquals(9, aggregator.getMaxEventSeq());
+    }
+
+    private static ProcessEvent event(long eventSeq, String eventType) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("host", "host1");
+        data.put("status", "OK");
+        data.put("result", Collections.singletonMap("stdout", "..."));
+
+        return ProcessEvent.builder()
+                .eventSeq(eventSeq)
+                .processKey(new ProcessKey(UUID.randomUUID(), OffsetDateTime.now()))
+                .eventType(eventType)
+                .eventDate(OffsetDateTime.now())
+                .data(data)
+                .build();
+    }
+}
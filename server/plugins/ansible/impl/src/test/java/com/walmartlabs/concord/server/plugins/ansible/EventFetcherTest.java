@@ -0,0 +1,106 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2019 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.AbstractDao;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class EventFetcherTest {
+
+    private static final int FETCH_LIMIT = 100;
+
+    private DSLContext tx;
+    private EventMarkerDao eventMarkerDao;
+    private EventFetcher.AnsibleEventDao dao;
+    private EventProcessor processor;
+    private AnsibleEventAggregator aggregator;
+    private EventFetcher fetcher;
+
+    @Before
+    public void setUp() throws Exception {
+        tx = mock(DSLContext.class);
+
+        eventMarkerDao = mock(EventMarkerDao.class);
+        when(eventMarkerDao.txResult(any())).thenAnswer(i -> ((AbstractDao.TxResult<?>) i.getArgument(0)).run(tx));
+
+        dao = mock(EventFetcher.AnsibleEventDao.class);
+        processor = mock(EventProcessor.class);
+        aggregator = mock(AnsibleEventAggregator.class);
+
+        AnsibleEventsConfiguration cfg = new AnsibleEventsConfiguration(Duration.ofSeconds(10), FETCH_LIMIT, true, Duration.ofSeconds(1), 1000);
+        fetcher = new EventFetcher(cfg, eventMarkerDao, dao, Collections.singletonList(processor), aggregator, new MetricRegistry());
+    }
+
+    @Test
+    public void testRecovery() {
+        when(aggregator.getMaxEventSeq()).thenReturn(10L, 20L);
+        when(eventMarkerDao.lock(tx, EventFetcher.PROCESSOR_NAME)).thenReturn(5L);
+
+        List<EventProcessor.Event> missed = Collections.singletonList(event(7));
+        when(dao.list(tx, 5L, 10L, FETCH_LIMIT)).thenReturn(missed);
+
+        // the first run only records the current max EVENT_SEQ
+        fetcher.performTask();
+        verify(eventMarkerDao, never()).lock(any(), anyString());
+        verify(aggregator).getMaxEventSeq();
+
+        // the second run processes the missed events up to the previously recorded EVENT_SEQ
+        fetcher.performTask();
+        verify(processor).process(tx, missed);
+        verify(eventMarkerDao).update(tx, EventFetcher.PROCESSOR_NAME, 10L);
+        verify(dao).deleteStreamed(tx, 10L);
+    }
+
+    @Test
+    public void testMarkerAhead() {
+        when(aggregator.getMaxEventSeq()).thenReturn(10L, 20L);
+        when(eventMarkerDao.lock(tx, EventFetcher.PROCESSOR_NAME)).thenReturn(15L);
+
+        fetcher.performTask();
+        fetcher.performTask();
+
+        // the aggregator is ahead of the fetcher, nothing to recover
+        verify(dao, never()).list(any(), anyLong(), any(), anyInt());
+        verify(eventMarkerDao, never()).update(any(), anyString(), anyLong());
+    }
+
+    private static EventProcessor.Event event(long eventSeq) {
+        return ImmutableEvent.builder()
+                .instanceId(UUID.randomUUID())
+                .instanceCreatedAt(OffsetDateTime.now())
+                .eventSeq(eventSeq)
+                .eventDate(OffsetDateTime.now())
+                .eventType(Constants.ANSIBLE_EVENT_TYPE)
+                .build();
+    }
+}
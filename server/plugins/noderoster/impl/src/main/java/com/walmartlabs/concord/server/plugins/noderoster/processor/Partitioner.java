@@ -20,24 +20,21 @@ package com.walmartlabs.concord.server.plugins.noderoster.processor;
  * =====
  */
 
+import com.walmartlabs.concord.db.Partitions;
 import org.jooq.Record;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
 
 import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.function.Function;
 
 /**
  * Handles partitioned tables. Assumes {@code table_yyyyMMdd} format
- * of partition names.
+ * of partition names (see {@link Partitions}).
  */
 public class Partitioner<E, R extends Record> {
 
-    // TODO make configurable
-    private static final DateTimeFormatter PARTITION_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
-
     private final Table<R> table;
     private final Function<E, OffsetDateTime> keyGetter;
 
@@ -57,8 +54,7 @@ public class Partitioner<E, R extends Record> {
         Map<Table<R>, Collection<E>> result = new HashMap<>();
         for (E i : items) {
             OffsetDateTime itemKey = keyGetter.apply(i);
-            String partitionId = partitionId(itemKey);
-            Table<R> t = table(table, partitionId);
+            Table<R> t = table(Partitions.partitionName(table.getName(), itemKey));
 
             result.computeIfAbsent(t, recordTable -> new ArrayList<>())
                     .add(i);
@@ -67,12 +63,8 @@ public class Partitioner<E, R extends Record> {
         return result;
     }
 
-    private static String partitionId(OffsetDateTime itemKey) {
-        return PARTITION_DATE_FORMAT.format(itemKey);
-    }
-
     @SuppressWarnings("unchecked")
-    private static <E extends Record> Table<E> table(Table<?> table, String partitionId) {
-        return (Table<E>) DSL.table(DSL.name(table.getName() + "_" + partitionId));
+    private static <E extends Record> Table<E> table(String partitionName) {
+        return (Table<E>) DSL.table(DSL.name(partitionName));
     }
 }
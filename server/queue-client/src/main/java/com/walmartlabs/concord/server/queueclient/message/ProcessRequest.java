@@ -28,23 +28,41 @@ import java.util.Map;
 public class ProcessRequest extends Message {
 
     private final Map<String, Object> capabilities;
+    private final int maxProcesses;
 
+    public ProcessRequest(Map<String, Object> capabilities) {
+        this(capabilities, 1);
+    }
+
+    /**
+     * @param maxProcesses max number of processes the agent can take at once.
+     *                     If greater than 1, the server responds with
+     *                     a {@link ProcessBatchResponse}. Older servers ignore
+     *                     the value and respond with a single {@link ProcessResponse}.
+     */
     @JsonCreator
     public ProcessRequest(
-            @JsonProperty("capabilities") Map<String, Object> capabilities) {
+            @JsonProperty("capabilities") Map<String, Object> capabilities,
+            @JsonProperty("maxProcesses") Integer maxProcesses) {
         super(MessageType.PROCESS_REQUEST);
         this.capabilities = capabilities;
+        this.maxProcesses = maxProcesses != null && maxProcesses > 1 ? maxProcesses : 1;
     }
 
     public Map<String, Object> getCapabilities() {
         return capabilities;
     }
 
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
     @Override
     public String toString() {
         return "ProcessRequest{" +
                 "correlationId='" + getCorrelationId() + "', " +
-                "capabilities='" + capabilities + "'" +
+                "capabilities='" + capabilities + "', " +
+                "maxProcesses=" + maxProcesses +
                 '}';
     }
 }
@@ -26,6 +26,7 @@ import com.walmartlabs.concord.imports.Imports;
 import com.walmartlabs.concord.server.queueclient.message.*;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 
@@ -79,6 +80,37 @@ public class MessageSerializerTest {
         assertEquals(r.getCorrelationId(), rDeserialized.getCorrelationId());
     }
 
+    @Test
+    public void testProcessRequestMaxProcesses() {
+        ProcessRequest r = new ProcessRequest(Collections.singletonMap("k", "v"), 5);
+
+        ProcessRequest rDeserialized = MessageSerializer.deserialize(MessageSerializer.serialize(r));
+        assertEquals(5, rDeserialized.getMaxProcesses());
+
+        // requests from older agents don't have the field
+        String str = "{\"capabilities\":{}, \"correlationId\":123, \"messageType\":\"PROCESS_REQUEST\"}";
+        rDeserialized = MessageSerializer.deserialize(str);
+        assertEquals(1, rDeserialized.getMaxProcesses());
+    }
+
+    @Test
+    public void testProcessBatchResponse() {
+        ProcessResponse a = new ProcessResponse(123, "token-a", UUID.randomUUID(), null, null, null, null, null, null);
+        ProcessResponse b = new ProcessResponse(123, "token-b", UUID.randomUUID(), null, null, null, null, null, null);
+        ProcessBatchResponse r = new ProcessBatchResponse(123, Arrays.asList(a, b));
+
+        // ---
+        String rSerialized = MessageSerializer.serialize(r);
+        assertNotNull(rSerialized);
+
+        ProcessBatchResponse rDeserialized = MessageSerializer.deserialize(rSerialized);
+        assertEquals(MessageType.PROCESS_BATCH_RESPONSE, rDeserialized.getMessageType());
+        assertEquals(r.getCorrelationId(), rDeserialized.getCorrelationId());
+        assertEquals(2, rDeserialized.getProcesses().size());
+        assertEquals(a.getProcessId(), rDeserialized.getProcesses().get(0).getProcessId());
+        assertEquals(b.getSessionToken(), rDeserialized.getProcesses().get(1).getSessionToken());
+    }
+
     @Test
     public void testUnknownProperties() {
         String str = "{\"sessionToken\":\"123123\", \"correlationId\":123, \"processId\":\"b26a60c6-b54e-4f4d-bf0a-abafb908bf76\", \"messageType\":\"PROCESS_RESPONSE\"}";
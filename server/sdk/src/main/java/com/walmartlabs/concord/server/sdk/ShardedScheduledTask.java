@@ -0,0 +1,42 @@
+package com.walmartlabs.concord.server.sdk;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+/**
+ * A {@link ScheduledTask} which work can be split into multiple partitions.
+ * Each partition is scheduled independently and can run on a different
+ * server node at the same time.
+ */
+public interface ShardedScheduledTask extends ScheduledTask {
+
+    /**
+     * @return number of partitions. If {@code 1} the task is scheduled
+     * as a regular {@link ScheduledTask}.
+     */
+    int getPartitionCount();
+
+    void performTask(TaskPartition partition) throws Exception;
+
+    @Override
+    default void performTask() throws Exception {
+        performTask(TaskPartition.ALL);
+    }
+}
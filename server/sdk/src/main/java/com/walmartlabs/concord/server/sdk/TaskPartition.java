@@ -0,0 +1,87 @@
+package com.walmartlabs.concord.server.sdk;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.Serializable;
+
+/**
+ * A partition of a {@link ShardedScheduledTask}'s work.
+ * Typically, items are assigned to partitions by ranges or hashes of their IDs.
+ */
+public final class TaskPartition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final TaskPartition ALL = new TaskPartition(0, 1);
+
+    private final int index;
+    private final int count;
+
+    public TaskPartition(int index, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid partition count: " + count);
+        }
+
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid partition index: " + index + " (count: " + count + ")");
+        }
+
+        this.index = index;
+        this.count = count;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return {@code true} if the partition covers all items.
+     */
+    public boolean isAll() {
+        return count == 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TaskPartition that = (TaskPartition) o;
+        return index == that.index && count == that.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}